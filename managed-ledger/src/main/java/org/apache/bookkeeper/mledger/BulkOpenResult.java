@@ -0,0 +1,51 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger;
+
+import java.util.Map;
+import lombok.Data;
+import org.apache.bookkeeper.common.annotation.InterfaceAudience;
+import org.apache.bookkeeper.common.annotation.InterfaceStability;
+
+/**
+ * Outcome of {@link ManagedLedgerFactory#asyncOpenBulk}: the managed ledgers that were opened, the ones that failed
+ * to open, and the time spent in each phase of the bulk open.
+ */
+@InterfaceAudience.LimitedPrivate
+@InterfaceStability.Evolving
+@Data
+public class BulkOpenResult {
+    private final Map<String, ManagedLedger> managedLedgers;
+    private final Map<String, ManagedLedgerException> failures;
+
+    /**
+     * Number of batches of metadata reads issued to load the managed ledgers and cursors metadata.
+     */
+    private final int metadataBatches;
+
+    /**
+     * Time spent reading the managed ledgers and cursors metadata.
+     */
+    private final long metadataReadTimeMs;
+
+    /**
+     * Time spent initializing the managed ledgers, including the recovery of their cursor ledgers.
+     */
+    private final long initializeTimeMs;
+}
@@ -20,6 +20,7 @@ package org.apache.bookkeeper.mledger;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.Properties;
 import org.apache.bookkeeper.common.annotation.InterfaceAudience.LimitedPrivate;
 import org.apache.bookkeeper.common.annotation.InterfaceStability.Evolving;
 import org.apache.bookkeeper.common.util.OrderedScheduler;
@@ -72,4 +73,26 @@ public interface LedgerOffloaderFactory<T extends LedgerOffloader> {
             throws IOException {
         return create(offloadPolicies, userMetadata, scheduler);
     }
+
+    /**
+     * Create a ledger offloader with the provided configuration, user-metadata, schema storage, scheduler and
+     * broker-level offloader settings. Unlike the offload policies, the broker-level settings can't be overridden
+     * for a namespace or a topic.
+     *
+     * @param offloadPolicies offload policies
+     * @param userMetadata user metadata
+     * @param schemaStorage used for schema lookup in offloader
+     * @param scheduler scheduler
+     * @param brokerProperties broker-level offloader settings
+     * @return the offloader instance
+     * @throws IOException when fail to create an offloader
+     */
+    default T create(OffloadPoliciesImpl offloadPolicies,
+                     Map<String, String> userMetadata,
+                     SchemaStorage schemaStorage,
+                     OrderedScheduler scheduler,
+                     Properties brokerProperties)
+            throws IOException {
+        return create(offloadPolicies, userMetadata, schemaStorage, scheduler);
+    }
 }
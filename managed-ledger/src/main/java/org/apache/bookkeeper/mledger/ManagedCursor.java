@@ -514,6 +514,30 @@ public interface ManagedCursor {
     void asyncFindNewestMatching(FindPositionConstraint constraint, Predicate<Entry> condition,
             FindEntryCallback callback, Object ctx);
 
+    /**
+     * Find the newest entry that matches the given predicate, where the predicate matches the entries published
+     * before the given timestamp. When the time index of the managed ledger is enabled, only the first and the last
+     * entries between the two index samples surrounding the timestamp are read, and the result is the last of them
+     * that matches: it may be up to one sampling interval older than the newest match. By default, all the entries
+     * are searched as with
+     * {@link #asyncFindNewestMatching(FindPositionConstraint, Predicate, FindEntryCallback, Object)}.
+     *
+     * @param constraint
+     *            search only active entries or all entries
+     * @param timestamp
+     *            publish timestamp in milliseconds, the entries published before it are expected to match the condition
+     * @param condition
+     *            predicate that reads an entry an applies a condition
+     * @param callback
+     *            callback object returning the resultant position
+     * @param ctx
+     *            opaque context
+     */
+    default void asyncFindNewestOlderThan(FindPositionConstraint constraint, long timestamp,
+            Predicate<Entry> condition, FindEntryCallback callback, Object ctx) {
+        asyncFindNewestMatching(constraint, condition, callback, ctx);
+    }
+
     /**
      * reset the cursor to specified position to enable replay of messages.
      *
@@ -21,10 +21,12 @@ package org.apache.bookkeeper.mledger;
 import static com.google.common.base.Preconditions.checkArgument;
 
 import com.google.common.base.Charsets;
+import io.netty.buffer.ByteBuf;
 import java.time.Clock;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
 
 import org.apache.bookkeeper.client.EnsemblePlacementPolicy;
 import org.apache.bookkeeper.client.api.DigestType;
@@ -34,6 +36,7 @@ import org.apache.bookkeeper.common.annotation.InterfaceStability;
 import org.apache.bookkeeper.mledger.impl.NullLedgerOffloader;
 
 import org.apache.bookkeeper.mledger.intercept.ManagedLedgerInterceptor;
+import org.apache.bookkeeper.mledger.util.RoaringLongPairRangeSet;
 import org.apache.pulsar.common.util.collections.ConcurrentOpenLongPairRangeSet;
 
 /**
@@ -71,12 +74,27 @@ public class ManagedLedgerConfig {
     private DigestType digestType = DigestType.CRC32C;
     private byte[] password = "".getBytes(Charsets.UTF_8);
     private boolean unackedRangesOpenCacheSetEnabled = true;
+    private boolean unackedRangesBitmapEnabled = false;
+    private int maxUnackedRangesBitmapSizeToPersist = 4 * 1024 * 1024;
+    private boolean cursorStateDeltaEnabled = false;
+    private int cursorStateDeltasPerSnapshot = 100;
+    private boolean standbyLedgerEnabled = false;
+    private int standbyLedgerCreationThresholdPercentage = 90;
     private Class<? extends EnsemblePlacementPolicy>  bookKeeperEnsemblePlacementPolicyClassName;
     private Map<String, Object> bookKeeperEnsemblePlacementPolicyProperties;
     private LedgerOffloader ledgerOffloader = NullLedgerOffloader.INSTANCE;
     private int newEntriesCheckDelayInMillis = 10;
     private Clock clock = Clock.systemUTC();
     private ManagedLedgerInterceptor managedLedgerInterceptor;
+    private boolean readAheadEnabled = false;
+    private int readAheadMaxWindowEntries = 1000;
+    private int readAheadMaxOutstandingReads = 4;
+    private long readAheadMaxBufferSizeBytes = 16 * 1024 * 1024;
+    private boolean timeIndexEnabled = false;
+    private int timeIndexIntervalEntries = 100;
+    private long timeIndexIntervalMs = 1000;
+    private int timeIndexMaxSamplesPerLedger = 16;
+    private ToLongFunction<ByteBuf> entryTimestampExtractor;
 
     public boolean isCreateIfMissing() {
         return createIfMissing;
@@ -281,6 +299,95 @@ public class ManagedLedgerConfig {
         return this;
     }
 
+    /**
+     * should use {@link RoaringLongPairRangeSet} to store unacked ranges. When enabled, the unacked ranges are
+     * persisted to the cursor ledger as compressed bitmaps and are not truncated to
+     * {@link #getMaxUnackedRangesToPersist()}. Takes precedence over {@link #isUnackedRangesOpenCacheSetEnabled()}.
+     * @return
+     */
+    public boolean isUnackedRangesBitmapEnabled() {
+        return unackedRangesBitmapEnabled;
+    }
+
+    public ManagedLedgerConfig setUnackedRangesBitmapEnabled(boolean unackedRangesBitmapEnabled) {
+        this.unackedRangesBitmapEnabled = unackedRangesBitmapEnabled;
+        return this;
+    }
+
+    /**
+     * @return the maximum serialized size of the unacked ranges bitmaps in a cursor ledger entry. Past it, the unacked
+     *         ranges are persisted as a list truncated to {@link #getMaxUnackedRangesToPersist()}, so that the entry
+     *         stays within the entry size limit of BookKeeper
+     */
+    public int getMaxUnackedRangesBitmapSizeToPersist() {
+        return maxUnackedRangesBitmapSizeToPersist;
+    }
+
+    /**
+     * @param maxUnackedRangesBitmapSizeToPersist
+     *            the maximum serialized size of the unacked ranges bitmaps in a cursor ledger entry
+     */
+    public ManagedLedgerConfig setMaxUnackedRangesBitmapSizeToPersist(int maxUnackedRangesBitmapSizeToPersist) {
+        this.maxUnackedRangesBitmapSizeToPersist = maxUnackedRangesBitmapSizeToPersist;
+        return this;
+    }
+
+    /**
+     * should the cursor append only the changes to its unacked ranges to the cursor ledger, instead of its full state
+     * on every mark-delete.
+     * @return
+     */
+    public boolean isCursorStateDeltaEnabled() {
+        return cursorStateDeltaEnabled;
+    }
+
+    public ManagedLedgerConfig setCursorStateDeltaEnabled(boolean cursorStateDeltaEnabled) {
+        this.cursorStateDeltaEnabled = cursorStateDeltaEnabled;
+        return this;
+    }
+
+    /**
+     * @return the max number of delta entries written to the cursor ledger between two full snapshots of the cursor
+     *         state
+     */
+    public int getCursorStateDeltasPerSnapshot() {
+        return cursorStateDeltasPerSnapshot;
+    }
+
+    public ManagedLedgerConfig setCursorStateDeltasPerSnapshot(int cursorStateDeltasPerSnapshot) {
+        this.cursorStateDeltasPerSnapshot = cursorStateDeltasPerSnapshot;
+        return this;
+    }
+
+    /**
+     * should the managed ledger create the next ledger before the current one is full, so that a rollover doesn't
+     * have to wait for the ledger creation.
+     * @return
+     */
+    public boolean isStandbyLedgerEnabled() {
+        return standbyLedgerEnabled;
+    }
+
+    public ManagedLedgerConfig setStandbyLedgerEnabled(boolean standbyLedgerEnabled) {
+        this.standbyLedgerEnabled = standbyLedgerEnabled;
+        return this;
+    }
+
+    /**
+     * @return the percentage of the max entries, max size or max rollover time of the current ledger after which the
+     *         standby ledger is created
+     */
+    public int getStandbyLedgerCreationThresholdPercentage() {
+        return standbyLedgerCreationThresholdPercentage;
+    }
+
+    public ManagedLedgerConfig setStandbyLedgerCreationThresholdPercentage(
+            int standbyLedgerCreationThresholdPercentage) {
+        checkArgument(standbyLedgerCreationThresholdPercentage > 0 && standbyLedgerCreationThresholdPercentage <= 100);
+        this.standbyLedgerCreationThresholdPercentage = standbyLedgerCreationThresholdPercentage;
+        return this;
+    }
+
     /**
      * @return the metadataEnsemblesize
      */
@@ -646,4 +753,141 @@ public class ManagedLedgerConfig {
     public void setManagedLedgerInterceptor(ManagedLedgerInterceptor managedLedgerInterceptor) {
         this.managedLedgerInterceptor = managedLedgerInterceptor;
     }
+
+    public boolean isReadAheadEnabled() {
+        return readAheadEnabled;
+    }
+
+    /**
+     * Enable read-ahead for cursors that are catching up. When a cursor keeps reading sequentially behind the tail of
+     * the ledger, more reads are issued ahead of it so that the next cursor reads don't have to wait for the bookies.
+     *
+     * @param readAheadEnabled
+     */
+    public ManagedLedgerConfig setReadAheadEnabled(boolean readAheadEnabled) {
+        this.readAheadEnabled = readAheadEnabled;
+        return this;
+    }
+
+    public int getReadAheadMaxWindowEntries() {
+        return readAheadMaxWindowEntries;
+    }
+
+    /**
+     * Max number of entries that a cursor can read ahead of its read position.
+     *
+     * @param readAheadMaxWindowEntries
+     */
+    public ManagedLedgerConfig setReadAheadMaxWindowEntries(int readAheadMaxWindowEntries) {
+        this.readAheadMaxWindowEntries = readAheadMaxWindowEntries;
+        return this;
+    }
+
+    public int getReadAheadMaxOutstandingReads() {
+        return readAheadMaxOutstandingReads;
+    }
+
+    /**
+     * Max number of read-ahead reads that a single cursor keeps in flight or buffered.
+     *
+     * @param readAheadMaxOutstandingReads
+     */
+    public ManagedLedgerConfig setReadAheadMaxOutstandingReads(int readAheadMaxOutstandingReads) {
+        this.readAheadMaxOutstandingReads = readAheadMaxOutstandingReads;
+        return this;
+    }
+
+    public long getReadAheadMaxBufferSizeBytes() {
+        return readAheadMaxBufferSizeBytes;
+    }
+
+    /**
+     * Max size of the read-ahead entries buffered by a single cursor. The read-ahead window stops growing and no more
+     * reads are issued once the buffered entries reach this size.
+     *
+     * @param readAheadMaxBufferSizeBytes
+     */
+    public ManagedLedgerConfig setReadAheadMaxBufferSizeBytes(long readAheadMaxBufferSizeBytes) {
+        this.readAheadMaxBufferSizeBytes = readAheadMaxBufferSizeBytes;
+        return this;
+    }
+
+    public boolean isTimeIndexEnabled() {
+        return timeIndexEnabled;
+    }
+
+    /**
+     * Keep a sparse index of the publish timestamps of each ledger, so that finding a position by timestamp (seek by
+     * time, message expiry) only has to search among the entries between two samples. The index of a closed ledger is
+     * stored in its {@link org.apache.bookkeeper.mledger.proto.MLDataFormats.ManagedLedgerInfo.LedgerInfo}.
+     * An {@link #setEntryTimestampExtractor(ToLongFunction) entry timestamp extractor} is required.
+     *
+     * @param timeIndexEnabled
+     */
+    public ManagedLedgerConfig setTimeIndexEnabled(boolean timeIndexEnabled) {
+        this.timeIndexEnabled = timeIndexEnabled;
+        return this;
+    }
+
+    public int getTimeIndexIntervalEntries() {
+        return timeIndexIntervalEntries;
+    }
+
+    /**
+     * Number of entries added between two samples of the time index.
+     *
+     * @param timeIndexIntervalEntries
+     */
+    public ManagedLedgerConfig setTimeIndexIntervalEntries(int timeIndexIntervalEntries) {
+        checkArgument(timeIndexIntervalEntries > 0);
+        this.timeIndexIntervalEntries = timeIndexIntervalEntries;
+        return this;
+    }
+
+    public long getTimeIndexIntervalMs() {
+        return timeIndexIntervalMs;
+    }
+
+    /**
+     * Max time between two samples of the time index, for topics with a low publish rate. 0 to only sample by number
+     * of entries.
+     *
+     * @param timeIndexIntervalMs
+     */
+    public ManagedLedgerConfig setTimeIndexIntervalMs(long timeIndexIntervalMs) {
+        checkArgument(timeIndexIntervalMs >= 0);
+        this.timeIndexIntervalMs = timeIndexIntervalMs;
+        return this;
+    }
+
+    public int getTimeIndexMaxSamplesPerLedger() {
+        return timeIndexMaxSamplesPerLedger;
+    }
+
+    /**
+     * Max number of samples kept in the time index of a single ledger. When a ledger reaches it, every other sample
+     * is dropped and the sampling intervals are doubled, which keeps the ledger metadata small.
+     *
+     * @param timeIndexMaxSamplesPerLedger
+     */
+    public ManagedLedgerConfig setTimeIndexMaxSamplesPerLedger(int timeIndexMaxSamplesPerLedger) {
+        checkArgument(timeIndexMaxSamplesPerLedger > 1);
+        this.timeIndexMaxSamplesPerLedger = timeIndexMaxSamplesPerLedger;
+        return this;
+    }
+
+    public ToLongFunction<ByteBuf> getEntryTimestampExtractor() {
+        return entryTimestampExtractor;
+    }
+
+    /**
+     * Function extracting the publish timestamp from the payload of an entry, used to build the time index. It must
+     * not modify the reader index of the buffer and should return a negative value if the entry has no timestamp.
+     *
+     * @param entryTimestampExtractor
+     */
+    public ManagedLedgerConfig setEntryTimestampExtractor(ToLongFunction<ByteBuf> entryTimestampExtractor) {
+        this.entryTimestampExtractor = entryTimestampExtractor;
+        return this;
+    }
 }
@@ -18,7 +18,9 @@
  */
 package org.apache.bookkeeper.mledger;
 
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import org.apache.bookkeeper.common.annotation.InterfaceAudience;
 import org.apache.bookkeeper.common.annotation.InterfaceStability;
@@ -90,6 +92,22 @@ public interface ManagedLedgerFactory {
     void asyncOpen(String name, ManagedLedgerConfig config, OpenLedgerCallback callback,
             Supplier<Boolean> mlOwnershipChecker, Object ctx);
 
+    /**
+     * Asynchronously open many managed ledgers at once.
+     *
+     * <p/>The metadata of the managed ledgers and of their cursors is first read in batches, then the managed ledgers
+     * are initialized, and their cursor ledgers recovered, with a bounded parallelism. Managed ledgers that are
+     * already open are returned as they are.
+     *
+     * @param ledgers
+     *            the names of the managed ledgers to open, with their configuration
+     * @param mlOwnershipCheckers
+     *            provides the ownership checker of each managed ledger, can be null
+     * @return a future that is completed when all the managed ledgers are either opened or failed to open
+     */
+    CompletableFuture<BulkOpenResult> asyncOpenBulk(Map<String, ManagedLedgerConfig> ledgers,
+            Function<String, Supplier<Boolean>> mlOwnershipCheckers);
+
     /**
      * Open a {@link ReadOnlyCursor} positioned to the earliest entry for the specified managed ledger
      *
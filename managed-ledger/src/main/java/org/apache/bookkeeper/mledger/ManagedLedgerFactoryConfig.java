@@ -42,6 +42,18 @@ public class ManagedLedgerFactoryConfig {
     private int numManagedLedgerWorkerThreads = Runtime.getRuntime().availableProcessors();
     private int numManagedLedgerSchedulerThreads = Runtime.getRuntime().availableProcessors();
 
+    /**
+     * Class name of the {@link org.apache.bookkeeper.mledger.impl.EntryCacheEvictionPolicy} used to choose which
+     * entries to drop when the cache is full.
+     */
+    private String cacheEvictionPolicyClassName =
+            "org.apache.bookkeeper.mledger.impl.EntryCacheDefaultEvictionPolicy";
+
+    /**
+     * Number of entries ahead of each active reader that the cursor-aware eviction policy tries to keep in cache.
+     */
+    private long cacheEvictionReaderWindowEntries = 1000;
+
     /**
      * Frequency of cache eviction triggering. Default is 100 times per second.
      */
@@ -57,6 +69,33 @@ public class ManagedLedgerFactoryConfig {
      */
     private boolean copyEntriesInCache = false;
 
+    /**
+     * Whether concurrent cache misses on the same entries should share a single read to the bookies.
+     */
+    private boolean readEntriesCoalescingEnabled = true;
+
+    /**
+     * Whether to use the segmented entry cache, which appends the entry payloads into large off-heap segments instead
+     * of keeping one map node per cached entry.
+     */
+    private boolean segmentedEntryCacheEnabled = false;
+
+    /**
+     * Max size of each segment of the segmented entry cache.
+     */
+    private int segmentedEntryCacheSegmentSize = (int) (4 * MB);
+
+    /**
+     * Max number of managed ledgers whose metadata is read concurrently by a bulk open.
+     */
+    private int bulkOpenMetadataBatchSize = 100;
+
+    /**
+     * Max number of managed ledgers initialized concurrently by a bulk open, which bounds the number of cursor
+     * ledgers being recovered at the same time.
+     */
+    private int bulkOpenMaxConcurrentInitializations = 32;
+
     /**
      * Whether trace managed ledger task execution time.
      */
@@ -66,4 +66,44 @@ public interface ManagedLedgerFactoryMXBean {
      * Get the number of cache evictions during the last minute.
      */
     long getNumberOfCacheEvictions();
+
+    /**
+     * Get the number of bookie reads per second that were avoided by attaching to a read already in progress.
+     */
+    double getCoalescedReadsRate();
+
+    /**
+     * Get the number of entries per second that were served by a read already in progress.
+     */
+    double getCoalescedReadEntriesRate();
+
+    /**
+     * Get the name of the eviction policy used by the cache.
+     */
+    String getCacheEvictionPolicy();
+
+    /**
+     * Get the total number of cache hits since the cache was created, with its current eviction policy.
+     */
+    long getCacheHitsTotal();
+
+    /**
+     * Get the total number of cache misses since the cache was created, with its current eviction policy.
+     */
+    long getCacheMissesTotal();
+
+    /**
+     * Get the amount of data evicted from the cache because it was behind all the active readers, in byte/s.
+     */
+    double getCacheEvictedBehindReadersThroughput();
+
+    /**
+     * Get the amount of data evicted from the cache because it was far ahead of the active readers, in byte/s.
+     */
+    double getCacheEvictedAheadOfReadersThroughput();
+
+    /**
+     * Get the amount of data evicted from the cache by the least accessed entries fallback, in byte/s.
+     */
+    double getCacheEvictedLeastAccessedThroughput();
 }
@@ -80,6 +80,22 @@ public interface ManagedLedgerMXBean {
      */
     double getMarkDeleteRate();
 
+    /**
+     * @return the rate of ledgers/s offloaded to the tiered storage
+     */
+    double getOffloadedLedgersRate();
+
+    /**
+     * @return the bytes/s rate of data offloaded to the tiered storage
+     */
+    double getOffloadedBytesRate();
+
+    /**
+     * @return the bytes/s throughput of the ledger offloads completed in the last stats period, measured over the
+     *         time the offloads were running
+     */
+    double getOffloadThroughput();
+
     /**
      * @return the number of addEntry requests that succeeded
      */
@@ -116,6 +132,14 @@ public interface ManagedLedgerMXBean {
 
     double getLedgerSwitchLatencyAverageUsec();
 
+    /**
+     * @return the buckets of the time writes were stalled by ledger rollovers, from the full ledger stopping to accept
+     *         writes to the next ledger being ready
+     */
+    long[] getLedgerRolloverStallLatencyBuckets();
+
+    double getLedgerRolloverStallLatencyAverageUsec();
+
     StatsBuckets getInternalAddEntryLatencyBuckets();
 
     StatsBuckets getInternalEntrySizeBuckets();
@@ -0,0 +1,226 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.apache.bookkeeper.mledger.AsyncCallbacks.ReadEntriesCallback;
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
+import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per-cursor read-ahead buffer for catch-up reads.
+ *
+ * <p>When a cursor keeps reading sequentially through a ledger and is behind the tail (so its reads are served by
+ * the bookies rather than by the entry cache), a bounded window of reads is kept in flight ahead of the cursor. The
+ * window starts at the size of one cursor read and doubles on every sequential read, up to
+ * {@link ManagedLedgerConfig#getReadAheadMaxWindowEntries()} and as long as the buffered data stays below
+ * {@link ManagedLedgerConfig#getReadAheadMaxBufferSizeBytes()}. Any non-sequential read (seek, rewind, ledger switch)
+ * drops the buffer and restarts from the initial window.
+ */
+class CursorReadAhead {
+
+    /**
+     * A contiguous range of entries that was requested ahead of the cursor.
+     */
+    private static class Chunk {
+        final long firstEntry;
+        final long lastEntry;
+        final CompletableFuture<List<EntryImpl>> future = new CompletableFuture<>();
+        long size;
+        // Whether the chunk size is currently accounted in the buffered bytes
+        boolean accounted;
+        boolean served;
+        boolean cancelled;
+
+        Chunk(long firstEntry, long lastEntry) {
+            this.firstEntry = firstEntry;
+            this.lastEntry = lastEntry;
+        }
+    }
+
+    private final ManagedLedgerImpl ml;
+    private final String cursorName;
+    private final int maxWindowEntries;
+    private final int maxOutstandingReads;
+    private final long maxBufferSizeBytes;
+
+    private final ArrayDeque<Chunk> chunks = new ArrayDeque<>();
+    private long ledgerId = -1;
+    private long nextEntry = -1;
+    private long prefetchedUpTo = -1;
+    private int windowEntries;
+    private long bufferedBytes;
+
+    CursorReadAhead(ManagedLedgerImpl ml, String cursorName, ManagedLedgerConfig config) {
+        this.ml = ml;
+        this.cursorName = cursorName;
+        this.maxWindowEntries = config.getReadAheadMaxWindowEntries();
+        this.maxOutstandingReads = config.getReadAheadMaxOutstandingReads();
+        this.maxBufferSizeBytes = config.getReadAheadMaxBufferSizeBytes();
+    }
+
+    /**
+     * Serve a cursor read from the read-ahead buffer when possible and schedule the next reads ahead of it.
+     *
+     * @return true if the read was taken over by the read-ahead buffer, false if the caller should read normally
+     */
+    boolean read(ReadHandle ledger, long firstEntry, long lastEntry, long lastEntryInLedger, OpReadEntry opReadEntry) {
+        Chunk served = null;
+        synchronized (this) {
+            if (ledger.getId() != ledgerId || firstEntry != nextEntry) {
+                reset(ledger.getId(), (int) (lastEntry - firstEntry + 1));
+                prefetchedUpTo = lastEntry;
+                nextEntry = lastEntry + 1;
+                return false;
+            }
+
+            Chunk head = chunks.peekFirst();
+            if (head != null && head.firstEntry == firstEntry && head.lastEntry <= lastEntry) {
+                served = chunks.pollFirst();
+                served.served = true;
+                if (served.accounted) {
+                    bufferedBytes -= served.size;
+                    served.accounted = false;
+                }
+                nextEntry = served.lastEntry + 1;
+            } else if (head != null) {
+                // The cursor read doesn't line up with what was prefetched anymore (eg: smaller read size)
+                reset(ledgerId, (int) (lastEntry - firstEntry + 1));
+                prefetchedUpTo = lastEntry;
+                nextEntry = lastEntry + 1;
+            } else {
+                nextEntry = lastEntry + 1;
+                prefetchedUpTo = Math.max(prefetchedUpTo, lastEntry);
+            }
+
+            if (lastEntryInLedger - nextEntry + 1 > lastEntry - firstEntry + 1) {
+                // The cursor is catching up: there's more than one read worth of entries left in the ledger
+                if (bufferedBytes < maxBufferSizeBytes) {
+                    windowEntries = Math.min(maxWindowEntries, windowEntries * 2);
+                }
+                scheduleReads(ledger, (int) (lastEntry - firstEntry + 1), lastEntryInLedger);
+            }
+        }
+
+        if (served == null) {
+            return false;
+        }
+
+        final Chunk chunk = served;
+        chunk.future.whenComplete((entries, ex) -> {
+            if (ex != null) {
+                ml.asyncReadEntry(ledger, chunk.firstEntry, lastEntry, false, opReadEntry, opReadEntry.ctx);
+                return;
+            }
+            opReadEntry.readEntriesComplete(new ArrayList<>(entries), opReadEntry.ctx);
+        });
+        return true;
+    }
+
+    private void scheduleReads(ReadHandle ledger, int readSize, long lastEntryInLedger) {
+        long target = Math.min(nextEntry + windowEntries - 1, lastEntryInLedger);
+        while (prefetchedUpTo < target && chunks.size() < maxOutstandingReads && bufferedBytes < maxBufferSizeBytes) {
+            long first = prefetchedUpTo + 1;
+            long last = Math.min(first + readSize - 1, target);
+            Chunk chunk = new Chunk(first, last);
+            chunks.addLast(chunk);
+            prefetchedUpTo = last;
+
+            if (log.isDebugEnabled()) {
+                log.debug("[{}][{}] Reading ahead entries {}:{}-{} window={}", ml.getName(), cursorName,
+                        ledger.getId(), first, last, windowEntries);
+            }
+
+            ml.entryCache.asyncReadEntry(ledger, first, last, false, new ReadEntriesCallback() {
+                @Override
+                public void readEntriesComplete(List<Entry> entries, Object ctx) {
+                    long size = 0;
+                    List<EntryImpl> result = new ArrayList<>(entries.size());
+                    for (Entry entry : entries) {
+                        size += entry.getLength();
+                        result.add((EntryImpl) entry);
+                    }
+
+                    boolean cancelled;
+                    synchronized (CursorReadAhead.this) {
+                        cancelled = chunk.cancelled;
+                        if (!cancelled && !chunk.served) {
+                            chunk.size = size;
+                            chunk.accounted = true;
+                            bufferedBytes += size;
+                        }
+                    }
+
+                    if (cancelled) {
+                        result.forEach(EntryImpl::release);
+                    } else {
+                        chunk.future.complete(result);
+                    }
+                }
+
+                @Override
+                public void readEntriesFailed(ManagedLedgerException exception, Object ctx) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("[{}][{}] Read-ahead of {}:{}-{} failed", ml.getName(), cursorName,
+                                ledger.getId(), first, last, exception);
+                    }
+                    chunk.future.completeExceptionally(exception);
+                }
+            }, null);
+        }
+    }
+
+    private void reset(long newLedgerId, int initialWindow) {
+        clear();
+        ledgerId = newLedgerId;
+        windowEntries = Math.max(1, initialWindow);
+    }
+
+    /**
+     * Drop every prefetched entry. Reads that are still in flight release their entries when they complete.
+     */
+    synchronized void clear() {
+        Chunk chunk;
+        while ((chunk = chunks.pollFirst()) != null) {
+            chunk.cancelled = true;
+            chunk.future.thenAccept(entries -> entries.forEach(EntryImpl::release));
+        }
+        bufferedBytes = 0;
+        ledgerId = -1;
+        nextEntry = -1;
+        prefetchedUpTo = -1;
+    }
+
+    synchronized long getBufferedBytes() {
+        return bufferedBytes;
+    }
+
+    synchronized int getWindowEntries() {
+        return windowEntries;
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(CursorReadAhead.class);
+}
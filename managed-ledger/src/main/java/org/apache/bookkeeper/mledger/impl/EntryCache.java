@@ -78,6 +78,20 @@ public interface EntryCache extends Comparable<EntryCache> {
      */
     Pair<Integer, Long> evictEntries(long sizeToFree);
 
+    /**
+     * Force the cache to drop the entries in a given range of positions, starting from the first one, until the given
+     * size is freed.
+     *
+     * @param first
+     *            the position of the first entry to be evicted (inclusive)
+     * @param last
+     *            the position of the last entry to be evicted (non-inclusive)
+     * @param sizeToFree
+     *            the maximum size to free, the eviction stops as soon as it is reached
+     * @return a pair containing the number of entries evicted and their total size
+     */
+    Pair<Integer, Long> evictEntriesInRange(PositionImpl first, PositionImpl last, long sizeToFree);
+
     /**
      * Read entries from the cache or from bookkeeper.
      *
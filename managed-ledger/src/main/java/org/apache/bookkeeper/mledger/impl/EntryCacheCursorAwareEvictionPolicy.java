@@ -0,0 +1,141 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Collections.reverseOrder;
+
+import java.util.List;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Eviction policy that decides which entries to drop based on the read positions of the active cursors.
+ *
+ * <p/>The entries are evicted in this order:
+ * <ol>
+ * <li>Entries that are behind the slowest active reader, since no active cursor is going to read them again</li>
+ * <li>Entries that are further than the configured window ahead of the closest reader behind them, since they will be
+ * the last ones to be read</li>
+ * <li>If this was not enough, the least accessed entries, as done by {@link EntryCacheDefaultEvictionPolicy}</li>
+ * </ol>
+ *
+ * <p/>The reader window is computed within the ledger of each reader position.
+ */
+public class EntryCacheCursorAwareEvictionPolicy implements EntryCacheEvictionPolicy {
+
+    private static final PositionImpl FIRST_POSITION = PositionImpl.get(-1, 0);
+    private static final PositionImpl LAST_POSITION = PositionImpl.get(Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private final ManagedLedgerFactoryImpl factory;
+    private final long readerWindowEntries;
+    private final EntryCacheEvictionPolicy fallbackPolicy = new EntryCacheDefaultEvictionPolicy();
+
+    public EntryCacheCursorAwareEvictionPolicy(ManagedLedgerFactoryImpl factory) {
+        this.factory = factory;
+        this.readerWindowEntries = factory.getConfig().getCacheEvictionReaderWindowEntries();
+    }
+
+    @Override
+    public void doEviction(List<EntryCache> caches, long sizeToFree) {
+        checkArgument(sizeToFree > 0);
+        checkArgument(!caches.isEmpty());
+
+        caches.sort(reverseOrder());
+
+        // Entries that all the active cursors have already passed
+        long evictedBehindReaders = 0;
+        for (EntryCache cache : caches) {
+            if (evictedBehindReaders >= sizeToFree) {
+                break;
+            }
+
+            // Ledgers without active readers are left to the least accessed fallback
+            List<PositionImpl> readPositions = getReadPositions(cache);
+            if (readPositions == null || readPositions.isEmpty()) {
+                continue;
+            }
+
+            evictedBehindReaders += cache.evictEntriesInRange(FIRST_POSITION, readPositions.get(0),
+                    sizeToFree - evictedBehindReaders).getRight();
+        }
+        factory.mbean.recordCacheEvictionBehindReaders(evictedBehindReaders);
+
+        // Entries that are far ahead of any reader
+        long evictedAheadOfReaders = 0;
+        for (EntryCache cache : caches) {
+            if (evictedBehindReaders + evictedAheadOfReaders >= sizeToFree) {
+                break;
+            }
+
+            List<PositionImpl> readPositions = getReadPositions(cache);
+            if (readPositions == null) {
+                continue;
+            }
+
+            for (int i = 0; i < readPositions.size(); i++) {
+                long remainingToFree = sizeToFree - evictedBehindReaders - evictedAheadOfReaders;
+                if (remainingToFree <= 0) {
+                    break;
+                }
+                PositionImpl reader = readPositions.get(i);
+                PositionImpl windowEnd = PositionImpl.get(reader.getLedgerId(),
+                        reader.getEntryId() + readerWindowEntries);
+                PositionImpl nextReader = i + 1 < readPositions.size() ? readPositions.get(i + 1) : LAST_POSITION;
+                evictedAheadOfReaders += cache.evictEntriesInRange(windowEnd, nextReader, remainingToFree).getRight();
+            }
+        }
+        factory.mbean.recordCacheEvictionAheadOfReaders(evictedAheadOfReaders);
+
+        long evictedSize = evictedBehindReaders + evictedAheadOfReaders;
+        if (evictedSize < sizeToFree) {
+            long cacheSize = sumSize(caches);
+            if (cacheSize > 0) {
+                long remainingToFree = Math.min(sizeToFree - evictedSize, cacheSize);
+                fallbackPolicy.doEviction(caches, remainingToFree);
+                long evictedLeastAccessed = cacheSize - sumSize(caches);
+                factory.mbean.recordCacheEvictionLeastAccessed(evictedLeastAccessed);
+                evictedSize += evictedLeastAccessed;
+            }
+        }
+
+        log.info("Completed cursor-aware cache eviction. Removed {} Mb behind readers, {} Mb ahead of readers. "
+                        + "Total: {} Mb", evictedBehindReaders / EntryCacheManager.MB,
+                evictedAheadOfReaders / EntryCacheManager.MB, evictedSize / EntryCacheManager.MB);
+    }
+
+    /**
+     * @return the sorted read positions of the active cursors or null if the managed ledger is not open anymore
+     */
+    private List<PositionImpl> getReadPositions(EntryCache cache) {
+        ManagedLedgerImpl ml = factory.getManagedLedgers().get(cache.getName());
+        return ml != null ? ml.getActiveCursorsReadPositions() : null;
+    }
+
+    private static long sumSize(List<EntryCache> caches) {
+        long size = 0;
+        for (EntryCache cache : caches) {
+            size += cache.getSize();
+        }
+        return size;
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(EntryCacheCursorAwareEvictionPolicy.class);
+}
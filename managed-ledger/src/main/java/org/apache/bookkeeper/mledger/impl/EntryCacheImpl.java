@@ -29,11 +29,9 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.PooledByteBufAllocator;
 
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
 
 import org.apache.bookkeeper.client.api.BKException;
-import org.apache.bookkeeper.client.api.LedgerEntry;
 import org.apache.bookkeeper.client.api.ReadHandle;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.ReadEntriesCallback;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.ReadEntryCallback;
@@ -52,6 +50,7 @@ public class EntryCacheImpl implements EntryCache {
     private final ManagedLedgerImpl ml;
     private final RangeCache<PositionImpl, EntryImpl> entries;
     private final boolean copyEntries;
+    private final PendingReadsManager pendingReadsManager;
 
     private static final double MB = 1024 * 1024;
 
@@ -60,6 +59,7 @@ public class EntryCacheImpl implements EntryCache {
         this.ml = ml;
         this.entries = new RangeCache<>(EntryImpl::getLength, EntryImpl::getTimestamp);
         this.copyEntries = copyEntries;
+        this.pendingReadsManager = manager.createPendingReadsManager();
 
         if (log.isDebugEnabled()) {
             log.debug("[{}] Initialized managed-ledger entry cache", ml.getName());
@@ -209,30 +209,23 @@ public class EntryCacheImpl implements EntryCache {
             manager.mlFactoryMBean.recordCacheHit(cachedEntry.getLength());
             callback.readEntryComplete(cachedEntry, ctx);
         } else {
-            lh.readAsync(position.getEntryId(), position.getEntryId()).whenCompleteAsync(
-                    (ledgerEntries, exception) -> {
+            pendingReadsManager.readEntries(lh, position.getEntryId(), position.getEntryId()).whenCompleteAsync(
+                    (entries, exception) -> {
                         if (exception != null) {
                             ml.invalidateLedgerHandle(lh);
                             callback.readEntryFailed(createManagedLedgerException(exception), ctx);
                             return;
                         }
 
-                        try {
-                            Iterator<LedgerEntry> iterator = ledgerEntries.iterator();
-                            if (iterator.hasNext()) {
-                                LedgerEntry ledgerEntry = iterator.next();
-                                EntryImpl returnEntry = EntryImpl.create(ledgerEntry);
-
-                                manager.mlFactoryMBean.recordCacheMiss(1, returnEntry.getLength());
-                                ml.mbean.addReadEntriesSample(1, returnEntry.getLength());
-                                callback.readEntryComplete(returnEntry, ctx);
-                            } else {
-                                // got an empty sequence
-                                callback.readEntryFailed(new ManagedLedgerException("Could not read given position"),
-                                                         ctx);
-                            }
-                        } finally {
-                            ledgerEntries.close();
+                        if (!entries.isEmpty()) {
+                            EntryImpl returnEntry = entries.get(0);
+                            manager.mlFactoryMBean.recordCacheMiss(1, returnEntry.getLength());
+                            ml.mbean.addReadEntriesSample(1, returnEntry.getLength());
+                            callback.readEntryComplete(returnEntry, ctx);
+                        } else {
+                            // got an empty sequence
+                            callback.readEntryFailed(new ManagedLedgerException("Could not read given position"),
+                                                     ctx);
                         }
                     }, ml.getExecutor().chooseThread(ml.getName())).exceptionally(exception->{
                           ml.invalidateLedgerHandle(lh);
@@ -296,9 +289,9 @@ public class EntryCacheImpl implements EntryCache {
                 cachedEntries.forEach(entry -> entry.release());
             }
 
-            // Read all the entries from bookkeeper
-            lh.readAsync(firstEntry, lastEntry).whenCompleteAsync(
-                    (ledgerEntries, exception) -> {
+            // Read all the entries from bookkeeper, sharing the reads already in progress
+            pendingReadsManager.readEntries(lh, firstEntry, lastEntry).whenCompleteAsync(
+                    (entriesToReturn, exception) -> {
                         if (exception != null) {
                             if (exception instanceof BKException
                                 && ((BKException)exception).getCode() == BKException.Code.TooManyRequestsException) {
@@ -314,25 +307,15 @@ public class EntryCacheImpl implements EntryCache {
                         checkNotNull(ml.getName());
                         checkNotNull(ml.getExecutor());
 
-                        try {
-                            // We got the entries, we need to transform them to a List<> type
-                            long totalSize = 0;
-                            final List<EntryImpl> entriesToReturn
-                                = Lists.newArrayListWithExpectedSize(entriesToRead);
-                            for (LedgerEntry e : ledgerEntries) {
-                                EntryImpl entry = EntryImpl.create(e);
-
-                                entriesToReturn.add(entry);
-                                totalSize += entry.getLength();
-                            }
+                        long totalSize = 0;
+                        for (EntryImpl entry : entriesToReturn) {
+                            totalSize += entry.getLength();
+                        }
 
-                            manager.mlFactoryMBean.recordCacheMiss(entriesToReturn.size(), totalSize);
-                            ml.getMBean().addReadEntriesSample(entriesToReturn.size(), totalSize);
+                        manager.mlFactoryMBean.recordCacheMiss(entriesToReturn.size(), totalSize);
+                        ml.getMBean().addReadEntriesSample(entriesToReturn.size(), totalSize);
 
-                            callback.readEntriesComplete((List) entriesToReturn, ctx);
-                        } finally {
-                            ledgerEntries.close();
-                        }
+                        callback.readEntriesComplete((List) entriesToReturn, ctx);
                     }, ml.getExecutor().chooseThread(ml.getName())).exceptionally(exception->{
                     	  if (exception instanceof BKException
                                   && ((BKException)exception).getCode() == BKException.Code.TooManyRequestsException) {
@@ -379,6 +362,21 @@ public class EntryCacheImpl implements EntryCache {
         return evicted;
     }
 
+    @Override
+    public Pair<Integer, Long> evictEntriesInRange(PositionImpl first, PositionImpl last, long sizeToFree) {
+        if (first.compareTo(last) >= 0) {
+            return Pair.of(0, 0L);
+        }
+
+        Pair<Integer, Long> evicted = entries.removeRange(first, last, false, sizeToFree);
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Evicted entries in range {} - {} -- Entries removed: {} - Size removed: {}",
+                    ml.getName(), first, last, evicted.getLeft(), evicted.getRight());
+        }
+        manager.entriesRemoved(evicted.getRight());
+        return evicted;
+    }
+
     @Override
     public void invalidateEntriesBeforeTimestamp(long timestamp) {
         long evictedSize = entries.evictLEntriesBeforeTimestamp(timestamp);
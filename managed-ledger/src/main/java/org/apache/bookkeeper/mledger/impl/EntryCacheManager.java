@@ -37,6 +37,7 @@ import org.apache.bookkeeper.mledger.AsyncCallbacks;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.ReadEntriesCallback;
 import org.apache.bookkeeper.mledger.Entry;
 import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.bookkeeper.mledger.ManagedLedgerFactoryConfig;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -65,11 +66,42 @@ public class EntryCacheManager {
         this.maxSize = factory.getConfig().getMaxCacheSize();
         this.evictionTriggerThreshold = (long) (maxSize * evictionTriggerThresholdPercent);
         this.cacheEvictionWatermark = factory.getConfig().getCacheEvictionWatermark();
-        this.evictionPolicy = new EntryCacheDefaultEvictionPolicy();
+        this.evictionPolicy = createEvictionPolicy(factory);
         this.mlFactory = factory;
         this.mlFactoryMBean = factory.mbean;
 
-        log.info("Initialized managed-ledger entry cache of {} Mb", maxSize / MB);
+        log.info("Initialized managed-ledger entry cache of {} Mb with eviction policy {}", maxSize / MB,
+                evictionPolicy.getClass().getSimpleName());
+    }
+
+    private static EntryCacheEvictionPolicy createEvictionPolicy(ManagedLedgerFactoryImpl factory) {
+        String className = factory.getConfig().getCacheEvictionPolicyClassName();
+        try {
+            Class<?> policyClass = Class.forName(className);
+            if (!EntryCacheEvictionPolicy.class.isAssignableFrom(policyClass)) {
+                throw new IllegalArgumentException(
+                        String.format("The class %s is not an instance of %s", className,
+                                EntryCacheEvictionPolicy.class.getName()));
+            }
+
+            try {
+                // Policies that need to look at the managed ledgers take the factory in the constructor
+                return (EntryCacheEvictionPolicy) policyClass.getDeclaredConstructor(ManagedLedgerFactoryImpl.class)
+                        .newInstance(factory);
+            } catch (NoSuchMethodException e) {
+                return (EntryCacheEvictionPolicy) policyClass.getDeclaredConstructor().newInstance();
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Failed to create the cache eviction policy " + className, e);
+        }
+    }
+
+    PendingReadsManager createPendingReadsManager() {
+        return new PendingReadsManager(mlFactoryMBean, mlFactory.getConfig().isReadEntriesCoalescingEnabled());
+    }
+
+    public String getEvictionPolicyName() {
+        return evictionPolicy.getClass().getSimpleName();
     }
 
     public EntryCache getEntryCache(ManagedLedgerImpl ml) {
@@ -78,7 +110,10 @@ public class EntryCacheManager {
             return new EntryCacheDisabled(ml);
         }
 
-        EntryCache newEntryCache = new EntryCacheImpl(this, ml, mlFactory.getConfig().isCopyEntriesInCache());
+        ManagedLedgerFactoryConfig config = mlFactory.getConfig();
+        EntryCache newEntryCache = config.isSegmentedEntryCacheEnabled()
+                ? new SegmentedEntryCacheImpl(this, ml, config.getSegmentedEntryCacheSegmentSize())
+                : new EntryCacheImpl(this, ml, config.isCopyEntriesInCache());
         EntryCache currentEntryCache = caches.putIfAbsent(ml.getName(), newEntryCache);
         if (currentEntryCache != null) {
             return currentEntryCache;
@@ -186,6 +221,11 @@ public class EntryCacheManager {
             return Pair.of(0, (long) 0);
         }
 
+        @Override
+        public Pair<Integer, Long> evictEntriesInRange(PositionImpl first, PositionImpl last, long sizeToFree) {
+            return Pair.of(0, (long) 0);
+        }
+
         @Override
         public void invalidateEntriesBeforeTimestamp(long timestamp) {
         }
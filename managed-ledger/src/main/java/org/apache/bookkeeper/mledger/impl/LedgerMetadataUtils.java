@@ -43,6 +43,8 @@ public final class LedgerMetadataUtils {
             = "compacted-ledger".getBytes(StandardCharsets.UTF_8);
     private static final byte[] METADATA_PROPERTY_COMPONENT_SCHEMA
             = "schema".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] METADATA_PROPERTY_COMPONENT_DELAYED_INDEX_BUCKET
+            = "delayed-index-bucket".getBytes(StandardCharsets.UTF_8);
 
     private static final String METADATA_PROPERTY_MANAGED_LEDGER_NAME = "pulsar/managed-ledger";
     private static final String METADATA_PROPERTY_CURSOR_NAME = "pulsar/cursor";
@@ -104,6 +106,23 @@ public final class LedgerMetadataUtils {
         );
     }
 
+    /**
+     * Build additional metadata for the snapshot of a bucket of the delayed messages index of a subscription.
+     *
+     * @param managedLedgerName name of the managed ledger of the topic
+     * @param cursorName name of the cursor of the subscription
+     * @return an immutable map which describes the bucket snapshot
+     */
+    public static Map<String, byte[]> buildMetadataForDelayedIndexBucket(String managedLedgerName,
+                                                                         String cursorName) {
+        return ImmutableMap.of(
+                METADATA_PROPERTY_APPLICATION, METADATA_PROPERTY_APPLICATION_PULSAR,
+                METADATA_PROPERTY_COMPONENT, METADATA_PROPERTY_COMPONENT_DELAYED_INDEX_BUCKET,
+                METADATA_PROPERTY_MANAGED_LEDGER_NAME, managedLedgerName.getBytes(StandardCharsets.UTF_8),
+                METADATA_PROPERTY_CURSOR_NAME, cursorName.getBytes(StandardCharsets.UTF_8)
+        );
+    }
+
     /**
      * Build additional metadata for the placement policy config.
      *
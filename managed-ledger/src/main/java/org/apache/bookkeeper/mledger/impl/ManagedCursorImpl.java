@@ -37,10 +37,12 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Range;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.RateLimiter;
+import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 
 import io.netty.util.concurrent.FastThreadLocal;
 
+import java.io.IOException;
 import java.time.Clock;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
@@ -50,7 +52,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -96,6 +100,7 @@ import org.apache.bookkeeper.mledger.proto.MLDataFormats.ManagedCursorInfo;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats.ManagedLedgerInfo.LedgerInfo;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats.MessageRange;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats.PositionInfo;
+import org.apache.bookkeeper.mledger.util.RoaringLongPairRangeSet;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.common.util.collections.BitSetRecyclable;
 import org.apache.pulsar.common.util.collections.ConcurrentOpenLongPairRangeSet;
@@ -134,6 +139,20 @@ public class ManagedCursorImpl implements ManagedCursor {
     @SuppressWarnings("unused")
     private volatile OpReadEntry waitingReadOp = null;
 
+    // Read-ahead buffer for catch-up reads, null when read-ahead is disabled
+    final CursorReadAhead readAhead;
+
+    // Changes to the individually deleted messages and batch deleted indexes that were not written to the cursor
+    // ledger yet, null when the cursor always persists its full state
+    private final LongPairRangeSet<PositionImpl> unpersistedDeletedMessages;
+    private final Set<PositionImpl> unpersistedBatchDeletedIndexes;
+    // Cursor ledger that holds the last full snapshot of the cursor state, and number of deltas written after it
+    private long snapshotCursorLedgerId = -1;
+    private int deltasSinceSnapshot = 0;
+    // Cursor ledger entries with deltas, queued in the order they were taken and appended by one thread at a time
+    private final ConcurrentLinkedQueue<PendingPositionAppend> pendingPositionAppends = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean appendingPositions = new AtomicBoolean(false);
+
     public static final int FALSE = 0;
     public static final int TRUE = 1;
     private static final AtomicIntegerFieldUpdater<ManagedCursorImpl> RESET_CURSOR_IN_PROGRESS_UPDATER =
@@ -253,9 +272,13 @@ public class ManagedCursorImpl implements ManagedCursor {
         this.config = config;
         this.ledger = ledger;
         this.name = cursorName;
-        this.individualDeletedMessages = config.isUnackedRangesOpenCacheSetEnabled()
-                ? new ConcurrentOpenLongPairRangeSet<>(4096, positionRangeConverter)
-                : new LongPairRangeSet.DefaultRangeSet<>(positionRangeConverter);
+        if (config.isUnackedRangesBitmapEnabled()) {
+            this.individualDeletedMessages = new RoaringLongPairRangeSet<>(positionRangeConverter);
+        } else {
+            this.individualDeletedMessages = config.isUnackedRangesOpenCacheSetEnabled()
+                    ? new ConcurrentOpenLongPairRangeSet<>(4096, positionRangeConverter)
+                    : new LongPairRangeSet.DefaultRangeSet<>(positionRangeConverter);
+        }
         if (config.isDeletionAtBatchIndexLevelEnabled()) {
             this.batchDeletedIndexes = new ConcurrentSkipListMap<>();
         } else {
@@ -277,6 +300,14 @@ public class ManagedCursorImpl implements ManagedCursor {
             // Disable mark-delete rate limiter
             markDeleteLimiter = null;
         }
+        if (config.isCursorStateDeltaEnabled()) {
+            this.unpersistedDeletedMessages = new LongPairRangeSet.DefaultRangeSet<>(positionRangeConverter);
+            this.unpersistedBatchDeletedIndexes = new ConcurrentSkipListSet<>();
+        } else {
+            this.unpersistedDeletedMessages = null;
+            this.unpersistedBatchDeletedIndexes = null;
+        }
+        this.readAhead = config.isReadAheadEnabled() ? new CursorReadAhead(ledger, cursorName, config) : null;
         this.mbean = new ManagedCursorMXBeanImpl(this);
     }
 
@@ -430,26 +461,38 @@ public class ManagedCursorImpl implements ManagedCursor {
                     return;
                 }
 
-                Map<String, Long> recoveredProperties = Collections.emptyMap();
-                if (positionInfo.getPropertiesCount() > 0) {
-                    // Recover properties map
-                    recoveredProperties = Maps.newHashMap();
-                    for (int i = 0; i < positionInfo.getPropertiesCount(); i++) {
-                        LongProperty property = positionInfo.getProperties(i);
-                        recoveredProperties.put(property.getName(), property.getValue());
-                    }
+                if (!positionInfo.hasDeltaSequence()) {
+                    recoverFromPositionInfos(Collections.singletonList(positionInfo), lh, callback);
+                    return;
                 }
 
-                PositionImpl position = new PositionImpl(positionInfo);
-                if (positionInfo.getIndividualDeletedMessagesCount() > 0) {
-                    recoverIndividualDeletedMessages(positionInfo.getIndividualDeletedMessagesList());
-                }
-                if (config.isDeletionAtBatchIndexLevelEnabled() && batchDeletedIndexes != null
-                    && positionInfo.getBatchedEntryDeletionIndexInfoCount() > 0) {
-                    recoverBatchDeletedIndexes(positionInfo.getBatchedEntryDeletionIndexInfoList());
-                }
-                recoveredCursor(position, recoveredProperties, lh);
-                callback.operationComplete();
+                // The last entry is a delta, replay it on top of the last snapshot and the deltas in-between
+                long snapshotEntryId = lastEntryInLedger - positionInfo.getDeltaSequence();
+                lh.asyncReadEntries(snapshotEntryId, lastEntryInLedger, (rc2, lh2, seq2, ctx2) -> {
+                    if (rc2 != BKException.Code.OK) {
+                        log.warn("[{}] Error reading cursor state deltas from metadata ledger {} for consumer {}: {}",
+                                ledger.getName(), ledgerId, name, BKException.getMessage(rc2));
+                        callback.operationFailed(createManagedLedgerException(rc2));
+                        return;
+                    }
+                    List<PositionInfo> positionInfos = new ArrayList<>();
+                    try {
+                        while (seq2.hasMoreElements()) {
+                            LedgerEntry deltaEntry = seq2.nextElement();
+                            mbean.addReadCursorLedgerSize(deltaEntry.getLength());
+                            positionInfos.add(PositionInfo.parseFrom(deltaEntry.getEntry()));
+                        }
+                    } catch (InvalidProtocolBufferException e) {
+                        callback.operationFailed(new ManagedLedgerException(e));
+                        return;
+                    }
+                    if (positionInfos.isEmpty() || positionInfos.get(0).hasDeltaSequence()) {
+                        callback.operationFailed(new ManagedLedgerException(
+                                "No cursor state snapshot found at entry " + snapshotEntryId + " of ledger " + ledgerId));
+                        return;
+                    }
+                    recoverFromPositionInfos(positionInfos, lh, callback);
+                }, null);
             }, null);
         };
         try {
@@ -461,38 +504,140 @@ public class ManagedCursorImpl implements ManagedCursor {
         }
     }
 
+    /**
+     * Recover the cursor state from a full snapshot followed by zero or more deltas, in cursor ledger order.
+     */
+    private void recoverFromPositionInfos(List<PositionInfo> positionInfos, LedgerHandle lh,
+            final VoidCallback callback) {
+        PositionInfo snapshot = positionInfos.get(0);
+        PositionInfo last = positionInfos.get(positionInfos.size() - 1);
+
+        Map<String, Long> recoveredProperties = Collections.emptyMap();
+        if (last.getPropertiesCount() > 0) {
+            // Recover properties map
+            recoveredProperties = Maps.newHashMap();
+            for (int i = 0; i < last.getPropertiesCount(); i++) {
+                LongProperty property = last.getProperties(i);
+                recoveredProperties.put(property.getName(), property.getValue());
+            }
+        }
+
+        PositionImpl position = new PositionImpl(last);
+        if (snapshot.getIndividualDeletedMessagesCount() > 0) {
+            recoverIndividualDeletedMessages(snapshot.getIndividualDeletedMessagesList());
+        }
+        if (snapshot.getIndividualDeletedMessagesBitmapCount() > 0) {
+            try {
+                recoverIndividualDeletedMessagesBitmaps(snapshot.getIndividualDeletedMessagesBitmapList());
+            } catch (IOException e) {
+                log.error("[{}] Failed to recover the individually deleted messages of cursor {}",
+                        ledger.getName(), name, e);
+                callback.operationFailed(new ManagedLedgerException(e));
+                return;
+            }
+        }
+        if (config.isDeletionAtBatchIndexLevelEnabled() && batchDeletedIndexes != null
+            && snapshot.getBatchedEntryDeletionIndexInfoCount() > 0) {
+            recoverBatchDeletedIndexes(snapshot.getBatchedEntryDeletionIndexInfoList());
+        }
+        if (positionInfos.size() > 1) {
+            applyCursorStateDeltas(positionInfos.subList(1, positionInfos.size()), position);
+        }
+        recoveredCursor(position, recoveredProperties, lh);
+        callback.operationComplete();
+    }
+
+    private void applyCursorStateDeltas(List<PositionInfo> deltas, PositionImpl markDeletePosition) {
+        lock.writeLock().lock();
+        try {
+            for (PositionInfo delta : deltas) {
+                addIndividualDeletedMessages(delta.getIndividualDeletedMessagesList());
+                if (config.isDeletionAtBatchIndexLevelEnabled() && batchDeletedIndexes != null) {
+                    addBatchDeletedIndexes(delta.getBatchedEntryDeletionIndexInfoList());
+                }
+            }
+            // Deltas don't carry removals, drop what the final mark-delete position and the acks made obsolete
+            individualDeletedMessages.removeAtMost(markDeletePosition.getLedgerId(), markDeletePosition.getEntryId());
+            if (config.isDeletionAtBatchIndexLevelEnabled() && batchDeletedIndexes != null) {
+                Iterator<Map.Entry<PositionImpl, BitSetRecyclable>> iterator =
+                        batchDeletedIndexes.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<PositionImpl, BitSetRecyclable> entry = iterator.next();
+                    PositionImpl position = entry.getKey();
+                    if (position.compareTo(markDeletePosition) <= 0
+                            || individualDeletedMessages.contains(position.getLedgerId(), position.getEntryId())) {
+                        entry.getValue().recycle();
+                        iterator.remove();
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
     private void recoverIndividualDeletedMessages(List<MLDataFormats.MessageRange> individualDeletedMessagesList) {
         lock.writeLock().lock();
         try {
             individualDeletedMessages.clear();
-            individualDeletedMessagesList.forEach(messageRange -> {
-                MLDataFormats.NestedPositionInfo lowerEndpoint = messageRange.getLowerEndpoint();
-                MLDataFormats.NestedPositionInfo upperEndpoint = messageRange.getUpperEndpoint();
+            addIndividualDeletedMessages(individualDeletedMessagesList);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
 
-                if (lowerEndpoint.getLedgerId() == upperEndpoint.getLedgerId()) {
+    private void addIndividualDeletedMessages(List<MLDataFormats.MessageRange> individualDeletedMessagesList) {
+        individualDeletedMessagesList.forEach(messageRange -> {
+            MLDataFormats.NestedPositionInfo lowerEndpoint = messageRange.getLowerEndpoint();
+            MLDataFormats.NestedPositionInfo upperEndpoint = messageRange.getUpperEndpoint();
+
+            if (lowerEndpoint.getLedgerId() == upperEndpoint.getLedgerId()) {
+                individualDeletedMessages.addOpenClosed(lowerEndpoint.getLedgerId(), lowerEndpoint.getEntryId(),
+                        upperEndpoint.getLedgerId(), upperEndpoint.getEntryId());
+            } else {
+                // Store message ranges after splitting them by ledger ID
+                LedgerInfo lowerEndpointLedgerInfo = ledger.getLedgersInfo().get(lowerEndpoint.getLedgerId());
+                if (lowerEndpointLedgerInfo != null) {
                     individualDeletedMessages.addOpenClosed(lowerEndpoint.getLedgerId(), lowerEndpoint.getEntryId(),
-                            upperEndpoint.getLedgerId(), upperEndpoint.getEntryId());
+                            lowerEndpoint.getLedgerId(), lowerEndpointLedgerInfo.getEntries() - 1);
                 } else {
-                    // Store message ranges after splitting them by ledger ID
-                    LedgerInfo lowerEndpointLedgerInfo = ledger.getLedgersInfo().get(lowerEndpoint.getLedgerId());
-                    if (lowerEndpointLedgerInfo != null) {
-                        individualDeletedMessages.addOpenClosed(lowerEndpoint.getLedgerId(), lowerEndpoint.getEntryId(),
-                                lowerEndpoint.getLedgerId(), lowerEndpointLedgerInfo.getEntries() - 1);
-                    } else {
-                        log.warn("[{}][{}] No ledger info of lower endpoint {}:{}", ledger.getName(), name,
-                                lowerEndpoint.getLedgerId(), lowerEndpoint.getEntryId());
-                    }
-
-                    for (LedgerInfo li : ledger.getLedgersInfo()
-                            .subMap(lowerEndpoint.getLedgerId(), false, upperEndpoint.getLedgerId(), false).values()) {
-                        individualDeletedMessages.addOpenClosed(li.getLedgerId(), -1, li.getLedgerId(),
-                                li.getEntries() - 1);
-                    }
+                    log.warn("[{}][{}] No ledger info of lower endpoint {}:{}", ledger.getName(), name,
+                            lowerEndpoint.getLedgerId(), lowerEndpoint.getEntryId());
+                }
 
-                    individualDeletedMessages.addOpenClosed(upperEndpoint.getLedgerId(), -1,
-                            upperEndpoint.getLedgerId(), upperEndpoint.getEntryId());
+                for (LedgerInfo li : ledger.getLedgersInfo()
+                        .subMap(lowerEndpoint.getLedgerId(), false, upperEndpoint.getLedgerId(), false).values()) {
+                    individualDeletedMessages.addOpenClosed(li.getLedgerId(), -1, li.getLedgerId(),
+                            li.getEntries() - 1);
                 }
-            });
+
+                individualDeletedMessages.addOpenClosed(upperEndpoint.getLedgerId(), -1,
+                        upperEndpoint.getLedgerId(), upperEndpoint.getEntryId());
+            }
+        });
+    }
+
+    private void recoverIndividualDeletedMessagesBitmaps(List<MLDataFormats.LedgerEntryBitmap> bitmaps)
+            throws IOException {
+        lock.writeLock().lock();
+        try {
+            individualDeletedMessages.clear();
+            // When the cursor doesn't keep bitmaps anymore, go through a temporary bitmap set to get the ranges back
+            RoaringLongPairRangeSet<PositionImpl> bitmapSet =
+                    individualDeletedMessages instanceof RoaringLongPairRangeSet
+                            ? (RoaringLongPairRangeSet<PositionImpl>) individualDeletedMessages
+                            : new RoaringLongPairRangeSet<>(positionRangeConverter);
+            for (MLDataFormats.LedgerEntryBitmap bitmap : bitmaps) {
+                bitmapSet.addSerializedBitmap(bitmap.getLedgerId(), bitmap.getEntryIds().asReadOnlyByteBuffer());
+            }
+            if (bitmapSet != individualDeletedMessages) {
+                bitmapSet.forEach(range -> {
+                    individualDeletedMessages.addOpenClosed(range.lowerEndpoint().getLedgerId(),
+                            range.lowerEndpoint().getEntryId(), range.upperEndpoint().getLedgerId(),
+                            range.upperEndpoint().getEntryId());
+                    return true;
+                });
+            }
         } finally {
             lock.writeLock().unlock();
         }
@@ -502,21 +647,30 @@ public class ManagedCursorImpl implements ManagedCursor {
         lock.writeLock().lock();
         try {
             this.batchDeletedIndexes.clear();
-            batchDeletedIndexInfoList.forEach(batchDeletedIndexInfo -> {
-                if (batchDeletedIndexInfo.getDeleteSetCount() > 0) {
-                    long[] array = new long[batchDeletedIndexInfo.getDeleteSetCount()];
-                    for (int i = 0; i < batchDeletedIndexInfo.getDeleteSetList().size(); i++) {
-                        array[i] = batchDeletedIndexInfo.getDeleteSetList().get(i);
-                    }
-                    this.batchDeletedIndexes.put(PositionImpl.get(batchDeletedIndexInfo.getPosition().getLedgerId(),
-                        batchDeletedIndexInfo.getPosition().getEntryId()), BitSetRecyclable.create().resetWords(array));
-                }
-            });
+            addBatchDeletedIndexes(batchDeletedIndexInfoList);
         } finally {
             lock.writeLock().unlock();
         }
     }
 
+    private void addBatchDeletedIndexes(List<MLDataFormats.BatchedEntryDeletionIndexInfo> batchDeletedIndexInfoList) {
+        batchDeletedIndexInfoList.forEach(batchDeletedIndexInfo -> {
+            if (batchDeletedIndexInfo.getDeleteSetCount() > 0) {
+                long[] array = new long[batchDeletedIndexInfo.getDeleteSetCount()];
+                for (int i = 0; i < batchDeletedIndexInfo.getDeleteSetList().size(); i++) {
+                    array[i] = batchDeletedIndexInfo.getDeleteSetList().get(i);
+                }
+                BitSetRecyclable previous = this.batchDeletedIndexes.put(
+                        PositionImpl.get(batchDeletedIndexInfo.getPosition().getLedgerId(),
+                                batchDeletedIndexInfo.getPosition().getEntryId()),
+                        BitSetRecyclable.create().resetWords(array));
+                if (previous != null) {
+                    previous.recycle();
+                }
+            }
+        });
+    }
+
     private void recoveredCursor(PositionImpl position, Map<String, Long> properties,
                                  LedgerHandle recoveredFromCursorLedger) {
         // if the position was at a ledger that didn't exist (since it will be deleted if it was previously empty),
@@ -974,6 +1128,17 @@ public class ManagedCursorImpl implements ManagedCursor {
     @Override
     public void asyncFindNewestMatching(FindPositionConstraint constraint, Predicate<Entry> condition,
             FindEntryCallback callback, Object ctx) {
+        asyncFindNewest(constraint, null, condition, callback, ctx);
+    }
+
+    @Override
+    public void asyncFindNewestOlderThan(FindPositionConstraint constraint, long timestamp,
+            Predicate<Entry> condition, FindEntryCallback callback, Object ctx) {
+        asyncFindNewest(constraint, ledger.getTimeIndexBounds(timestamp), condition, callback, ctx);
+    }
+
+    private void asyncFindNewest(FindPositionConstraint constraint, Pair<PositionImpl, PositionImpl> bounds,
+            Predicate<Entry> condition, FindEntryCallback callback, Object ctx) {
         OpFindNewest op;
         PositionImpl startPosition = null;
         long max = 0;
@@ -995,7 +1160,24 @@ public class ManagedCursorImpl implements ManagedCursor {
                     Optional.empty(), ctx);
             return;
         }
-        op = new OpFindNewest(this, startPosition, condition, max, callback, ctx);
+        boolean binarySearch = true;
+        if (bounds != null) {
+            // Only search between the time index samples surrounding the timestamp
+            PositionImpl lower = bounds.getLeft();
+            PositionImpl upper = bounds.getRight();
+            if (lower != null && lower.compareTo(startPosition) > 0) {
+                max -= ledger.getNumberOfEntries(Range.closedOpen(startPosition, lower));
+                startPosition = lower;
+            }
+            if (upper != null && upper.compareTo(startPosition) > 0) {
+                max = Math.min(max, ledger.getNumberOfEntries(Range.closedOpen(startPosition, upper)) - 1);
+            }
+            max = Math.max(max, 0);
+            // Within a single sampling interval, the first and the last entries are enough: the newest match is
+            // approximated by the start of the interval when its last entry doesn't match
+            binarySearch = lower == null;
+        }
+        op = new OpFindNewest(this, startPosition, condition, max, binarySearch, callback, ctx);
         op.find();
     }
 
@@ -1071,6 +1253,8 @@ public class ManagedCursorImpl implements ManagedCursor {
                     lastMarkDeleteEntry = new MarkDeleteEntry(newMarkDeletePosition, Collections.emptyMap(),
                             null, null);
                     individualDeletedMessages.clear();
+                    // Deltas can't express the ranges dropped by the reset, the next write must be a snapshot
+                    snapshotCursorLedgerId = -1;
                     if (config.isDeletionAtBatchIndexLevelEnabled() && batchDeletedIndexes != null) {
                         batchDeletedIndexes.values().forEach(BitSetRecyclable::recycle);
                         batchDeletedIndexes.clear();
@@ -1678,6 +1862,7 @@ public class ManagedCursorImpl implements ManagedCursor {
         if (config.isDeletionAtBatchIndexLevelEnabled() && batchDeletedIndexes != null) {
             if (newPosition.ackSet != null) {
                 batchDeletedIndexes.put(newPosition, BitSetRecyclable.create().resetWords(newPosition.ackSet));
+                recordBatchDeletedIndexesDelta(newPosition);
                 newPosition = ledger.getPreviousPosition(newPosition);
             }
             Map<PositionImpl, BitSetRecyclable> subMap = batchDeletedIndexes.subMap(PositionImpl.earliest, newPosition);
@@ -1964,6 +2149,7 @@ public class ManagedCursorImpl implements ManagedCursor {
                     PositionImpl previousPosition = ledger.getPreviousPosition(position);
                     individualDeletedMessages.addOpenClosed(previousPosition.getLedgerId(), previousPosition.getEntryId(),
                         position.getLedgerId(), position.getEntryId());
+                    recordDeletedMessagesDelta(previousPosition, position);
                     MSG_CONSUMED_COUNTER_UPDATER.incrementAndGet(this);
 
                     if (log.isDebugEnabled()) {
@@ -1975,10 +2161,12 @@ public class ManagedCursorImpl implements ManagedCursor {
                     BitSetRecyclable givenBitSet = BitSetRecyclable.create().resetWords(position.ackSet);
                     bitSet.and(givenBitSet);
                     givenBitSet.recycle();
+                    recordBatchDeletedIndexesDelta(position);
                     if (bitSet.isEmpty()) {
                         PositionImpl previousPosition = ledger.getPreviousPosition(position);
                         individualDeletedMessages.addOpenClosed(previousPosition.getLedgerId(), previousPosition.getEntryId(),
                             position.getLedgerId(), position.getEntryId());
+                        recordDeletedMessagesDelta(previousPosition, position);
                         MSG_CONSUMED_COUNTER_UPDATER.incrementAndGet(this);
                         BitSetRecyclable bitSetRecyclable = batchDeletedIndexes.remove(position);
                         if (bitSetRecyclable != null) {
@@ -2347,6 +2535,9 @@ public class ManagedCursorImpl implements ManagedCursor {
             callback.closeComplete(ctx);
             return;
         }
+        if (readAhead != null) {
+            readAhead.clear();
+        }
         persistPositionWhenClosing(lastMarkDeleteEntry.newPosition, lastMarkDeleteEntry.properties, callback, ctx);
         STATE_UPDATER.set(this, State.Closed);
     }
@@ -2542,6 +2733,102 @@ public class ManagedCursorImpl implements ManagedCursor {
         }
     }
 
+    /**
+     * @return the bitmaps of the individually deleted messages, or null if they are larger than
+     *         {@link ManagedLedgerConfig#getMaxUnackedRangesBitmapSizeToPersist()}
+     */
+    private List<MLDataFormats.LedgerEntryBitmap> buildIndividualDeletedMessagesBitmaps() {
+        lock.readLock().lock();
+        try {
+            if (individualDeletedMessages.isEmpty()) {
+                this.individualDeletedMessagesSerializedSize = 0;
+                return Collections.emptyList();
+            }
+
+            MLDataFormats.LedgerEntryBitmap.Builder bitmapBuilder = MLDataFormats.LedgerEntryBitmap.newBuilder();
+            List<MLDataFormats.LedgerEntryBitmap> bitmaps = Lists.newArrayList();
+            AtomicInteger serializedSize = new AtomicInteger(0);
+            ((RoaringLongPairRangeSet<PositionImpl>) individualDeletedMessages).forEachSerializedBitmap(
+                    (ledgerId, entryIds) -> {
+                        MLDataFormats.LedgerEntryBitmap bitmap = bitmapBuilder.setLedgerId(ledgerId)
+                                .setEntryIds(ByteString.copyFrom(entryIds)).build();
+                        serializedSize.addAndGet(bitmap.getSerializedSize());
+                        bitmaps.add(bitmap);
+                    });
+            if (serializedSize.get() > config.getMaxUnackedRangesBitmapSizeToPersist()) {
+                return null;
+            }
+            this.individualDeletedMessagesSerializedSize = serializedSize.get();
+            return bitmaps;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void recordDeletedMessagesDelta(PositionImpl previousPosition, PositionImpl position) {
+        if (unpersistedDeletedMessages != null) {
+            unpersistedDeletedMessages.addOpenClosed(previousPosition.getLedgerId(), previousPosition.getEntryId(),
+                    position.getLedgerId(), position.getEntryId());
+        }
+    }
+
+    private void recordBatchDeletedIndexesDelta(PositionImpl position) {
+        if (unpersistedBatchDeletedIndexes != null) {
+            unpersistedBatchDeletedIndexes.add(PositionImpl.get(position.getLedgerId(), position.getEntryId()));
+        }
+    }
+
+    private List<MLDataFormats.MessageRange> buildDeletedMessageRangesDelta() {
+        if (unpersistedDeletedMessages.isEmpty()) {
+            return Collections.emptyList();
+        }
+        MLDataFormats.NestedPositionInfo.Builder nestedPositionBuilder = MLDataFormats.NestedPositionInfo
+                .newBuilder();
+        MLDataFormats.MessageRange.Builder messageRangeBuilder = MLDataFormats.MessageRange.newBuilder();
+        List<MessageRange> rangeList = Lists.newArrayList();
+        unpersistedDeletedMessages.forEach((positionRange) -> {
+            PositionImpl p = positionRange.lowerEndpoint();
+            messageRangeBuilder.setLowerEndpoint(
+                    nestedPositionBuilder.setLedgerId(p.getLedgerId()).setEntryId(p.getEntryId()).build());
+            p = positionRange.upperEndpoint();
+            messageRangeBuilder.setUpperEndpoint(
+                    nestedPositionBuilder.setLedgerId(p.getLedgerId()).setEntryId(p.getEntryId()).build());
+            rangeList.add(messageRangeBuilder.build());
+            return true;
+        });
+        unpersistedDeletedMessages.clear();
+        return rangeList;
+    }
+
+    private List<MLDataFormats.BatchedEntryDeletionIndexInfo> buildBatchEntryDeletionIndexInfoDelta() {
+        if (unpersistedBatchDeletedIndexes.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<MLDataFormats.BatchedEntryDeletionIndexInfo> result = Lists.newArrayList();
+        if (config.isDeletionAtBatchIndexLevelEnabled() && batchDeletedIndexes != null) {
+            MLDataFormats.NestedPositionInfo.Builder nestedPositionBuilder = MLDataFormats.NestedPositionInfo
+                    .newBuilder();
+            MLDataFormats.BatchedEntryDeletionIndexInfo.Builder batchDeletedIndexInfoBuilder =
+                    MLDataFormats.BatchedEntryDeletionIndexInfo.newBuilder();
+            for (PositionImpl position : unpersistedBatchDeletedIndexes) {
+                // Positions that are not there anymore were fully acked, the deleted ranges already cover them
+                BitSetRecyclable bitSet = batchDeletedIndexes.get(position);
+                if (bitSet == null) {
+                    continue;
+                }
+                batchDeletedIndexInfoBuilder.setPosition(nestedPositionBuilder.setLedgerId(position.getLedgerId())
+                        .setEntryId(position.getEntryId()).build());
+                batchDeletedIndexInfoBuilder.clearDeleteSet();
+                for (long word : bitSet.toLongArray()) {
+                    batchDeletedIndexInfoBuilder.addDeleteSet(word);
+                }
+                result.add(batchDeletedIndexInfoBuilder.build());
+            }
+        }
+        unpersistedBatchDeletedIndexes.clear();
+        return result;
+    }
+
     private List<MLDataFormats.BatchedEntryDeletionIndexInfo> buildBatchEntryDeletionIndexInfoList() {
         lock.readLock().lock();
         try {
@@ -2575,13 +2862,92 @@ public class ManagedCursorImpl implements ManagedCursor {
     }
 
     void persistPositionToLedger(final LedgerHandle lh, MarkDeleteEntry mdEntry, final VoidCallback callback) {
+        if (unpersistedDeletedMessages == null) {
+            persistPositionToLedger(lh, mdEntry, buildPositionInfo(lh, mdEntry), callback);
+            return;
+        }
+
+        // Only take the changes under the lock, queueing them in the same order. The appends happen outside of the
+        // lock, so that deltas land in the cursor ledger in the order they were taken without blocking the acks on
+        // the bookies
+        lock.writeLock().lock();
+        try {
+            pendingPositionAppends.add(new PendingPositionAppend(lh, mdEntry, buildPositionInfo(lh, mdEntry),
+                    callback));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        appendPendingPositions();
+    }
+
+    private void appendPendingPositions() {
+        while (!pendingPositionAppends.isEmpty() && appendingPositions.compareAndSet(false, true)) {
+            try {
+                PendingPositionAppend append;
+                while ((append = pendingPositionAppends.poll()) != null) {
+                    persistPositionToLedger(append.lh, append.mdEntry, append.pi, append.callback);
+                }
+            } finally {
+                appendingPositions.set(false);
+            }
+        }
+    }
+
+    private static class PendingPositionAppend {
+        final LedgerHandle lh;
+        final MarkDeleteEntry mdEntry;
+        final PositionInfo pi;
+        final VoidCallback callback;
+
+        PendingPositionAppend(LedgerHandle lh, MarkDeleteEntry mdEntry, PositionInfo pi, VoidCallback callback) {
+            this.lh = lh;
+            this.mdEntry = mdEntry;
+            this.pi = pi;
+            this.callback = callback;
+        }
+    }
+
+    private PositionInfo buildPositionInfo(LedgerHandle lh, MarkDeleteEntry mdEntry) {
         PositionImpl position = mdEntry.newPosition;
-        PositionInfo pi = PositionInfo.newBuilder().setLedgerId(position.getLedgerId())
+        PositionInfo.Builder piBuilder = PositionInfo.newBuilder().setLedgerId(position.getLedgerId())
                 .setEntryId(position.getEntryId())
-                .addAllIndividualDeletedMessages(buildIndividualDeletedMessageRanges())
-                .addAllBatchedEntryDeletionIndexInfo(buildBatchEntryDeletionIndexInfoList())
-                .addAllProperties(buildPropertiesMap(mdEntry.properties)).build();
+                .addAllProperties(buildPropertiesMap(mdEntry.properties));
+
+        if (unpersistedDeletedMessages != null) {
+            if (lh != null && lh.getId() == snapshotCursorLedgerId
+                    && deltasSinceSnapshot < config.getCursorStateDeltasPerSnapshot()) {
+                // Only write the changes since the previous entry, on top of the last snapshot in this ledger
+                deltasSinceSnapshot++;
+                return piBuilder.setDeltaSequence(deltasSinceSnapshot)
+                        .addAllIndividualDeletedMessages(buildDeletedMessageRangesDelta())
+                        .addAllBatchedEntryDeletionIndexInfo(buildBatchEntryDeletionIndexInfoDelta())
+                        .build();
+            }
+            snapshotCursorLedgerId = lh != null ? lh.getId() : -1;
+            deltasSinceSnapshot = 0;
+            unpersistedDeletedMessages.clear();
+            unpersistedBatchDeletedIndexes.clear();
+        }
+
+        piBuilder.addAllBatchedEntryDeletionIndexInfo(buildBatchEntryDeletionIndexInfoList());
+        List<MLDataFormats.LedgerEntryBitmap> bitmaps = individualDeletedMessages instanceof RoaringLongPairRangeSet
+                ? buildIndividualDeletedMessagesBitmaps() : null;
+        if (bitmaps != null) {
+            // Bitmaps are compact enough to persist all the unacked ranges, without truncation
+            piBuilder.addAllIndividualDeletedMessagesBitmap(bitmaps);
+        } else {
+            if (individualDeletedMessages instanceof RoaringLongPairRangeSet && log.isDebugEnabled()) {
+                log.debug("[{}] Cursor {} unacked ranges bitmaps are too large, persisting up to {} ranges",
+                        ledger.getName(), name, config.getMaxUnackedRangesToPersist());
+            }
+            piBuilder.addAllIndividualDeletedMessages(buildIndividualDeletedMessageRanges());
+        }
+        return piBuilder.build();
+    }
 
+    private void persistPositionToLedger(final LedgerHandle lh, MarkDeleteEntry mdEntry, PositionInfo pi,
+            final VoidCallback callback) {
+        PositionImpl position = mdEntry.newPosition;
 
         if (log.isDebugEnabled()) {
             log.debug("[{}] Cursor {} Appending to ledger={} position={}", ledger.getName(), name, lh.getId(),
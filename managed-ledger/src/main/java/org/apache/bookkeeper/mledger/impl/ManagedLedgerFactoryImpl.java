@@ -20,7 +20,9 @@ package org.apache.bookkeeper.mledger.impl;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static org.apache.bookkeeper.mledger.ManagedLedgerException.getManagedLedgerException;
+import static org.apache.bookkeeper.mledger.util.SafeRun.safeRun;
 import com.google.common.base.Predicates;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.IOException;
@@ -29,13 +31,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import lombok.Getter;
@@ -49,6 +55,7 @@ import org.apache.bookkeeper.mledger.AsyncCallbacks.DeleteLedgerCallback;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.ManagedLedgerInfoCallback;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.OpenLedgerCallback;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.OpenReadOnlyCursorCallback;
+import org.apache.bookkeeper.mledger.BulkOpenResult;
 import org.apache.bookkeeper.mledger.ManagedLedger;
 import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
 import org.apache.bookkeeper.mledger.ManagedLedgerException;
@@ -336,6 +343,11 @@ public class ManagedLedgerFactoryImpl implements ManagedLedgerFactory {
     @Override
     public void asyncOpen(final String name, final ManagedLedgerConfig config, final OpenLedgerCallback callback,
             Supplier<Boolean> mlOwnershipChecker, final Object ctx) {
+        asyncOpen(name, config, callback, mlOwnershipChecker, ctx, store);
+    }
+
+    private void asyncOpen(final String name, final ManagedLedgerConfig config, final OpenLedgerCallback callback,
+            Supplier<Boolean> mlOwnershipChecker, final Object ctx, final MetaStore metaStore) {
         if (closed) {
             callback.openLedgerFailed(new ManagedLedgerException.ManagedLedgerFactoryClosedException(), ctx);
             return;
@@ -380,7 +392,7 @@ public class ManagedLedgerFactoryImpl implements ManagedLedgerFactory {
                     bookkeeperFactory.get(
                             new EnsemblePlacementPolicyConfig(config.getBookKeeperEnsemblePlacementPolicyClassName(),
                                     config.getBookKeeperEnsemblePlacementPolicyProperties())),
-                    store, config, scheduledExecutor, name, mlOwnershipChecker);
+                    metaStore, config, scheduledExecutor, name, mlOwnershipChecker);
             PendingInitializeManagedLedger pendingLedger = new PendingInitializeManagedLedger(newledger);
             pendingInitializeLedgers.put(name, pendingLedger);
             newledger.initialize(new ManagedLedgerInitializeLedgerCallback() {
@@ -427,6 +439,173 @@ public class ManagedLedgerFactoryImpl implements ManagedLedgerFactory {
         });
     }
 
+    @Override
+    public CompletableFuture<BulkOpenResult> asyncOpenBulk(Map<String, ManagedLedgerConfig> ledgers,
+            Function<String, Supplier<Boolean>> mlOwnershipCheckers) {
+        if (closed) {
+            return FutureUtil.failedFuture(new ManagedLedgerException.ManagedLedgerFactoryClosedException());
+        }
+
+        // The metadata of the managed ledgers that are already open, or being opened, is not needed
+        List<String> toLoad = ledgers.keySet().stream()
+                .filter(name -> !this.ledgers.containsKey(name))
+                .collect(Collectors.toList());
+        List<List<String>> batches = Lists.partition(toLoad, Math.max(1, config.getBulkOpenMetadataBatchSize()));
+        Map<String, PreloadedMetaStore> metaStores = new ConcurrentHashMap<>();
+
+        long startTime = System.nanoTime();
+        CompletableFuture<Void> metadataFuture = CompletableFuture.completedFuture(null);
+        for (List<String> batch : batches) {
+            metadataFuture = metadataFuture.thenCompose(__ -> preloadMetadata(batch, metaStores));
+        }
+
+        return metadataFuture.thenCompose(__ -> {
+            long metadataReadTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            BulkOpenOp op = new BulkOpenOp(ledgers, mlOwnershipCheckers, metaStores);
+            op.start();
+            return op.future.thenApply(___ -> {
+                long initializeTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)
+                        - metadataReadTimeMs;
+                log.info("Bulk opened {} managed ledgers, {} failures. Read metadata of {} managed ledgers in {} batches"
+                                + " in {} ms, initialized managed ledgers in {} ms", op.opened.size(),
+                        op.failures.size(), toLoad.size(), batches.size(), metadataReadTimeMs, initializeTimeMs);
+                return new BulkOpenResult(op.opened, op.failures, batches.size(), metadataReadTimeMs,
+                        initializeTimeMs);
+            });
+        });
+    }
+
+    /**
+     * Read concurrently the metadata of a batch of managed ledgers and of their cursors. Metadata that can't be read
+     * is not preloaded, and will be read again when initializing the managed ledger.
+     */
+    private CompletableFuture<Void> preloadMetadata(List<String> names, Map<String, PreloadedMetaStore> metaStores) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(names.size());
+        for (String name : names) {
+            PreloadedMetaStore metaStore = new PreloadedMetaStore(store, scheduledExecutor, name);
+            metaStores.put(name, metaStore);
+
+            CompletableFuture<Void> infoFuture = new CompletableFuture<>();
+            store.getManagedLedgerInfo(name, false, new MetaStoreCallback<MLDataFormats.ManagedLedgerInfo>() {
+                @Override
+                public void operationComplete(MLDataFormats.ManagedLedgerInfo info, Stat stat) {
+                    metaStore.setManagedLedgerInfo(info, stat);
+                    infoFuture.complete(null);
+                }
+
+                @Override
+                public void operationFailed(MetaStoreException e) {
+                    infoFuture.complete(null);
+                }
+            });
+
+            CompletableFuture<Void> cursorsFuture = new CompletableFuture<>();
+            store.getCursors(name, new MetaStoreCallback<List<String>>() {
+                @Override
+                public void operationComplete(List<String> cursors, Stat stat) {
+                    metaStore.setCursors(cursors);
+                    AtomicInteger pendingCursors = new AtomicInteger(cursors.size());
+                    if (cursors.isEmpty()) {
+                        cursorsFuture.complete(null);
+                    }
+                    for (String cursor : cursors) {
+                        store.asyncGetCursorInfo(name, cursor, new MetaStoreCallback<ManagedCursorInfo>() {
+                            @Override
+                            public void operationComplete(ManagedCursorInfo info, Stat stat) {
+                                metaStore.setCursorInfo(cursor, info, stat);
+                                if (pendingCursors.decrementAndGet() == 0) {
+                                    cursorsFuture.complete(null);
+                                }
+                            }
+
+                            @Override
+                            public void operationFailed(MetaStoreException e) {
+                                if (pendingCursors.decrementAndGet() == 0) {
+                                    cursorsFuture.complete(null);
+                                }
+                            }
+                        });
+                    }
+                }
+
+                @Override
+                public void operationFailed(MetaStoreException e) {
+                    cursorsFuture.complete(null);
+                }
+            });
+
+            futures.add(CompletableFuture.allOf(infoFuture, cursorsFuture));
+        }
+        return FutureUtil.waitForAll(futures);
+    }
+
+    /**
+     * Initializes the managed ledgers of a bulk open, at most
+     * {@link ManagedLedgerFactoryConfig#getBulkOpenMaxConcurrentInitializations()} at a time.
+     */
+    private class BulkOpenOp {
+        private final Map<String, ManagedLedgerConfig> configs;
+        private final Function<String, Supplier<Boolean>> mlOwnershipCheckers;
+        private final Map<String, PreloadedMetaStore> metaStores;
+        private final Queue<String> pending;
+        private final AtomicInteger remaining;
+        private final Map<String, ManagedLedger> opened = new ConcurrentHashMap<>();
+        private final Map<String, ManagedLedgerException> failures = new ConcurrentHashMap<>();
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        BulkOpenOp(Map<String, ManagedLedgerConfig> configs, Function<String, Supplier<Boolean>> mlOwnershipCheckers,
+                Map<String, PreloadedMetaStore> metaStores) {
+            this.configs = configs;
+            this.mlOwnershipCheckers = mlOwnershipCheckers;
+            this.metaStores = metaStores;
+            this.pending = new ConcurrentLinkedQueue<>(configs.keySet());
+            this.remaining = new AtomicInteger(configs.size());
+        }
+
+        void start() {
+            if (configs.isEmpty()) {
+                future.complete(null);
+                return;
+            }
+            int concurrency = Math.max(1, config.getBulkOpenMaxConcurrentInitializations());
+            for (int i = 0; i < concurrency; i++) {
+                openNext();
+            }
+        }
+
+        private void openNext() {
+            String name = pending.poll();
+            if (name == null) {
+                return;
+            }
+
+            MetaStore metaStore = metaStores.get(name);
+            Supplier<Boolean> mlOwnershipChecker = mlOwnershipCheckers != null ? mlOwnershipCheckers.apply(name) : null;
+            asyncOpen(name, configs.get(name), new OpenLedgerCallback() {
+                @Override
+                public void openLedgerComplete(ManagedLedger ledger, Object ctx) {
+                    opened.put(name, ledger);
+                    openComplete();
+                }
+
+                @Override
+                public void openLedgerFailed(ManagedLedgerException exception, Object ctx) {
+                    failures.put(name, exception);
+                    openComplete();
+                }
+            }, mlOwnershipChecker, null, metaStore != null ? metaStore : store);
+        }
+
+        private void openComplete() {
+            if (remaining.decrementAndGet() == 0) {
+                future.complete(null);
+            } else {
+                // Move to another thread, to not grow the stack when managed ledgers are opened synchronously
+                scheduledExecutor.execute(safeRun(this::openNext));
+            }
+        }
+    }
+
 
 
     @Override
@@ -30,6 +30,10 @@ public class ManagedLedgerFactoryMBeanImpl implements ManagedLedgerFactoryMXBean
     final Rate cacheHits = new Rate();
     final Rate cacheMisses = new Rate();
     final Rate cacheEvictions = new Rate();
+    final Rate cacheEvictedBehindReaders = new Rate();
+    final Rate cacheEvictedAheadOfReaders = new Rate();
+    final Rate cacheEvictedLeastAccessed = new Rate();
+    final Rate readsCoalesced = new Rate();
 
     public ManagedLedgerFactoryMBeanImpl(ManagedLedgerFactoryImpl factory) throws Exception {
         this.factory = factory;
@@ -46,6 +50,10 @@ public class ManagedLedgerFactoryMBeanImpl implements ManagedLedgerFactoryMXBean
         cacheHits.calculateRate(seconds);
         cacheMisses.calculateRate(seconds);
         cacheEvictions.calculateRate(seconds);
+        cacheEvictedBehindReaders.calculateRate(seconds);
+        cacheEvictedAheadOfReaders.calculateRate(seconds);
+        cacheEvictedLeastAccessed.calculateRate(seconds);
+        readsCoalesced.calculateRate(seconds);
     }
 
     public void recordCacheHit(long size) {
@@ -64,6 +72,22 @@ public class ManagedLedgerFactoryMBeanImpl implements ManagedLedgerFactoryMXBean
         cacheEvictions.recordEvent();
     }
 
+    public void recordCacheEvictionBehindReaders(long size) {
+        cacheEvictedBehindReaders.recordEvent(size);
+    }
+
+    public void recordCacheEvictionAheadOfReaders(long size) {
+        cacheEvictedAheadOfReaders.recordEvent(size);
+    }
+
+    public void recordCacheEvictionLeastAccessed(long size) {
+        cacheEvictedLeastAccessed.recordEvent(size);
+    }
+
+    public void recordReadCoalesced(long entries) {
+        readsCoalesced.recordEvent(entries);
+    }
+
     @Override
     public int getNumberOfManagedLedgers() {
         return factory.ledgers.size();
@@ -104,4 +128,44 @@ public class ManagedLedgerFactoryMBeanImpl implements ManagedLedgerFactoryMXBean
         return cacheEvictions.getCount();
     }
 
+    @Override
+    public double getCoalescedReadsRate() {
+        return readsCoalesced.getRate();
+    }
+
+    @Override
+    public double getCoalescedReadEntriesRate() {
+        return readsCoalesced.getValueRate();
+    }
+
+    @Override
+    public String getCacheEvictionPolicy() {
+        return factory.getEntryCacheManager().getEvictionPolicyName();
+    }
+
+    @Override
+    public long getCacheHitsTotal() {
+        return cacheHits.getTotalCount();
+    }
+
+    @Override
+    public long getCacheMissesTotal() {
+        return cacheMisses.getTotalCount();
+    }
+
+    @Override
+    public double getCacheEvictedBehindReadersThroughput() {
+        return cacheEvictedBehindReaders.getValueRate();
+    }
+
+    @Override
+    public double getCacheEvictedAheadOfReadersThroughput() {
+        return cacheEvictedAheadOfReaders.getValueRate();
+    }
+
+    @Override
+    public double getCacheEvictedLeastAccessedThroughput() {
+        return cacheEvictedLeastAccessed.getValueRate();
+    }
+
 }
@@ -61,6 +61,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
@@ -124,6 +125,7 @@ import org.apache.bookkeeper.mledger.proto.MLDataFormats.OffloadContext;
 import org.apache.bookkeeper.mledger.util.CallbackMutex;
 import org.apache.bookkeeper.mledger.util.Futures;
 import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.util.SafeRunnable;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.common.api.proto.CommandSubscribe.InitialPosition;
 import org.apache.pulsar.common.policies.data.EnsemblePlacementPolicyConfig;
@@ -135,6 +137,7 @@ import org.apache.pulsar.common.util.DateFormatter;
 import org.apache.pulsar.common.util.FutureUtil;
 import org.apache.pulsar.common.util.collections.ConcurrentLongHashMap;
 import org.apache.pulsar.metadata.api.Stat;
+import org.jctools.queues.MpscUnboundedArrayQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -209,6 +212,14 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
     private long lastLedgerCreatedTimestamp = 0;
     private long lastLedgerCreationFailureTimestamp = 0;
     private long lastLedgerCreationInitiationTimestamp = 0;
+    // Next ledger to write into, created before the current ledger is full when standby ledgers are enabled
+    private LedgerHandle standbyLedger;
+    private boolean creatingStandbyLedger = false;
+    private ScheduledFuture<?> createStandbyLedgerTask;
+    // Time since which writes are waiting for the next ledger, 0 if no write is waiting for a ledger
+    private long rolloverStartNanos = 0;
+    // Publish time samples of the current ledger, null if the time index is disabled
+    private final TimeIndexSampler timeIndexSampler;
 
     private long lastOffloadLedgerId = 0;
     private long lastOffloadSuccessTimestamp = 0;
@@ -276,6 +287,19 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
      */
     final ConcurrentLinkedQueue<OpAddEntry> pendingAddEntries = new ConcurrentLinkedQueue<>();
 
+    /**
+     * Add requests handed off by the writers to the executor thread of the managed ledger. A single task, signaled by
+     * the first request, drains them in batches instead of a task being scheduled for each request. A task drains at
+     * most MAX_ADD_REQUESTS_PER_DRAIN requests and is submitted again while requests remain, so that the executor
+     * thread and the lock of the managed ledger are released in between.
+     */
+    private static final int MAX_ADD_REQUESTS_PER_DRAIN = 100;
+    private final MpscUnboundedArrayQueue<OpAddEntry> pendingAddRequests = new MpscUnboundedArrayQueue<>(32);
+    private static final AtomicIntegerFieldUpdater<ManagedLedgerImpl> PENDING_ADD_REQUESTS_SIGNALS_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(ManagedLedgerImpl.class, "pendingAddRequestsSignals");
+    private volatile int pendingAddRequestsSignals = 0;
+    private final SafeRunnable drainPendingAddRequestsTask = safeRun(this::drainPendingAddRequests);
+
     /**
      * This variable is used for testing the tests
      * {@link ManagedLedgerTest#testManagedLedgerWithPlacementPolicyInCustomMetadata()}
@@ -319,6 +343,12 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
         if (config.getManagedLedgerInterceptor() != null) {
             this.managedLedgerInterceptor = config.getManagedLedgerInterceptor();
         }
+        if (config.isTimeIndexEnabled() && config.getEntryTimestampExtractor() != null) {
+            this.timeIndexSampler = new TimeIndexSampler(config.getTimeIndexIntervalEntries(),
+                    config.getTimeIndexIntervalMs(), config.getTimeIndexMaxSamplesPerLedger());
+        } else {
+            this.timeIndexSampler = null;
+        }
     }
 
     synchronized void initialize(final ManagedLedgerInitializeLedgerCallback callback, final Object ctx) {
@@ -702,7 +732,7 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
         OpAddEntry addOperation = OpAddEntry.create(this, buffer, callback, ctx);
 
         // Jump to specific thread to avoid contention from writers writing from different threads
-        executor.executeOrdered(name, safeRun(() -> internalAsyncAddEntry(addOperation)));
+        addPendingAddRequest(addOperation);
     }
 
     @Override
@@ -714,7 +744,41 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
         OpAddEntry addOperation = OpAddEntry.create(this, buffer, numberOfMessages, callback, ctx);
 
         // Jump to specific thread to avoid contention from writers writing from different threads
-        executor.executeOrdered(name, safeRun(() -> internalAsyncAddEntry(addOperation)));
+        addPendingAddRequest(addOperation);
+    }
+
+    private void addPendingAddRequest(OpAddEntry addOperation) {
+        pendingAddRequests.offer(addOperation);
+        if (PENDING_ADD_REQUESTS_SIGNALS_UPDATER.getAndIncrement(this) == 0) {
+            executor.executeOrdered(name, drainPendingAddRequestsTask);
+        }
+    }
+
+    /**
+     * Drain a bounded batch of the pending add requests on the executor thread, taking the lock of the managed ledger
+     * once for the batch rather than once for each request.
+     */
+    private void drainPendingAddRequests() {
+        int signals = Math.min(PENDING_ADD_REQUESTS_SIGNALS_UPDATER.get(this), MAX_ADD_REQUESTS_PER_DRAIN);
+        synchronized (this) {
+            // each signal was incremented after its request was offered, so the requests can be polled
+            for (int i = 0; i < signals; i++) {
+                OpAddEntry addOperation = pendingAddRequests.poll();
+                try {
+                    internalAsyncAddEntry(addOperation);
+                } catch (Throwable t) {
+                    // fail the request, releasing its data, and keep draining: the other requests must not be left
+                    // in the queue
+                    log.error("[{}] Unexpected failure while adding entry", name, t);
+                    pendingAddEntries.remove(addOperation);
+                    addOperation.failed(new ManagedLedgerException(t));
+                }
+            }
+        }
+        if (PENDING_ADD_REQUESTS_SIGNALS_UPDATER.addAndGet(this, -signals) != 0) {
+            // the requests signaled meanwhile are drained by a new task, after the tasks queued in between
+            executor.executeOrdered(name, drainPendingAddRequestsTask);
+        }
     }
 
     private synchronized void internalAsyncAddEntry(OpAddEntry addOperation) {
@@ -758,8 +822,8 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
             log.info("[{}] Creating a new ledger", name);
             if (STATE_UPDATER.compareAndSet(this, State.ClosedLedger, State.CreatingLedger)) {
                 this.lastLedgerCreationInitiationTimestamp = System.currentTimeMillis();
-                mbean.startDataLedgerCreateOp();
-                asyncCreateLedger(bookKeeper, config, digestType, this, Collections.emptyMap());
+                rolloverStartNanos = System.nanoTime();
+                asyncCreateNextLedger();
             }
         } else {
             checkArgument(state == State.LedgerOpened, "ledger=%s is not opened", state);
@@ -782,6 +846,9 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
                 // This entry will be the last added to current ledger
                 addOperation.setCloseWhenDone(true);
                 STATE_UPDATER.set(this, State.ClosingLedger);
+                rolloverStartNanos = System.nanoTime();
+            } else if (config.isStandbyLedgerEnabled() && currentLedgerIsNearlyFull()) {
+                maybeCreateStandbyLedger();
             }
             addOperation.initiate();
         }
@@ -1197,6 +1264,7 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
 
         log.info("[{}] Terminating managed ledger", name);
         state = State.Terminated;
+        discardStandbyLedger();
 
         LedgerHandle lh = currentLedger;
         if (log.isDebugEnabled()) {
@@ -1307,6 +1375,7 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
 
     @Override
     public synchronized void asyncClose(final CloseCallback callback, final Object ctx) {
+        discardStandbyLedger();
         State state = STATE_UPDATER.get(this);
         if (state == State.Fenced) {
             factory.close(this);
@@ -1495,6 +1564,10 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
     public synchronized void updateLedgersIdsComplete(Stat stat) {
         STATE_UPDATER.set(this, State.LedgerOpened);
         updateLastLedgerCreatedTimeAndScheduleRolloverTask();
+        if (rolloverStartNanos != 0) {
+            mbean.addLedgerRolloverStallLatencySample(System.nanoTime() - rolloverStartNanos, TimeUnit.NANOSECONDS);
+            rolloverStartNanos = 0;
+        }
 
         if (log.isDebugEnabled()) {
             log.debug("[{}] Resending {} pending messages", name, pendingAddEntries.size());
@@ -1529,6 +1602,7 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
 
             if (currentLedgerIsFull()) {
                 STATE_UPDATER.set(this, State.ClosingLedger);
+                rolloverStartNanos = System.nanoTime();
                 op.setCloseWhenDone(true);
                 op.initiate();
                 if (log.isDebugEnabled()) {
@@ -1565,9 +1639,12 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
             log.debug("[{}] Ledger has been closed id={} entries={}", name, lh.getId(), entriesInLedger);
         }
         if (entriesInLedger > 0) {
-            LedgerInfo info = LedgerInfo.newBuilder().setLedgerId(lh.getId()).setEntries(entriesInLedger)
-                    .setSize(lh.getLength()).setTimestamp(clock.millis()).build();
-            ledgers.put(lh.getId(), info);
+            LedgerInfo.Builder info = LedgerInfo.newBuilder().setLedgerId(lh.getId()).setEntries(entriesInLedger)
+                    .setSize(lh.getLength()).setTimestamp(clock.millis());
+            if (timeIndexSampler != null) {
+                info.addAllTimeIndex(timeIndexSampler.getSamples(lh.getId()));
+            }
+            ledgers.put(lh.getId(), info.build());
         } else {
             // The last ledger was empty, so we can discard it
             ledgers.remove(lh.getId());
@@ -1585,6 +1662,9 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
         if (!pendingAddEntries.isEmpty()) {
             // Need to create a new ledger to write pending entries
             createLedgerAfterClosed();
+        } else {
+            // No write is waiting for the next ledger
+            rolloverStartNanos = 0;
         }
     }
 
@@ -1593,11 +1673,143 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
             log.info("[{}] Creating a new ledger", name);
             STATE_UPDATER.set(this, State.CreatingLedger);
             this.lastLedgerCreationInitiationTimestamp = System.currentTimeMillis();
-            mbean.startDataLedgerCreateOp();
+            asyncCreateNextLedger();
+        }
+    }
+
+    /**
+     * Switch to the standby ledger if there is one, otherwise create the next ledger to write into. Either way,
+     * {@link #createComplete(int, LedgerHandle, Object)} adds the new ledger to the ledgers list.
+     */
+    private synchronized void asyncCreateNextLedger() {
+        mbean.startDataLedgerCreateOp();
+        LedgerHandle lh = standbyLedger;
+        if (lh != null) {
+            standbyLedger = null;
+            log.info("[{}] Switching to standby ledger {}", name, lh.getId());
+            createComplete(BKException.Code.OK, lh, null);
+        } else {
             asyncCreateLedger(bookKeeper, config, digestType, this, Collections.emptyMap());
         }
     }
 
+    private boolean currentLedgerIsNearlyFull() {
+        long threshold = config.getStandbyLedgerCreationThresholdPercentage();
+        return currentLedgerEntries * 100 >= config.getMaxEntriesPerLedger() * threshold
+                || currentLedgerSize * 100 >= config.getMaxSizePerLedgerMb() * MegaByte * threshold;
+    }
+
+    /**
+     * Create the next ledger in background, so that the rollover of the current ledger only has to update the ledgers
+     * list instead of waiting for the bookies.
+     */
+    synchronized void maybeCreateStandbyLedger() {
+        if (standbyLedger != null || creatingStandbyLedger || STATE_UPDATER.get(this) != State.LedgerOpened
+                || !factory.isMetadataServiceAvailable()) {
+            return;
+        }
+        log.info("[{}] Creating standby ledger, current ledger {} has {} entries", name,
+                currentLedger != null ? currentLedger.getId() : -1, currentLedgerEntries);
+        creatingStandbyLedger = true;
+        mbean.startDataLedgerCreateOp();
+        asyncCreateLedger(bookKeeper, config, digestType, this::standbyLedgerCreated, Collections.emptyMap());
+    }
+
+    private synchronized void standbyLedgerCreated(int rc, LedgerHandle lh, Object ctx) {
+        if (checkAndCompleteLedgerOpTask(rc, lh, ctx)) {
+            return;
+        }
+
+        mbean.endDataLedgerCreateOp();
+        creatingStandbyLedger = false;
+        if (rc != BKException.Code.OK) {
+            log.warn("[{}] Error creating standby ledger rc={} {}", name, rc, BKException.getMessage(rc));
+            return;
+        }
+
+        final State state = STATE_UPDATER.get(this);
+        if (state == State.Closed || state == State.Fenced || state == State.Terminated) {
+            log.info("[{}] Deleting standby ledger {}, the managed ledger is {}", name, lh.getId(), state);
+            asyncDeleteLedger(lh.getId(), DEFAULT_LEDGER_DELETE_RETRIES);
+            return;
+        }
+
+        log.info("[{}] Created standby ledger {}", name, lh.getId());
+        standbyLedger = lh;
+    }
+
+    /**
+     * Sample the publish timestamp of a newly added entry into the time index of the current ledger.
+     */
+    void updateTimeIndex(long ledgerId, long entryId, ByteBuf data) {
+        if (timeIndexSampler == null) {
+            return;
+        }
+        long now = clock.millis();
+        if (timeIndexSampler.isSampleDue(ledgerId, entryId, now)) {
+            long timestamp = config.getEntryTimestampExtractor().applyAsLong(data.duplicate());
+            timeIndexSampler.addSample(ledgerId, entryId, timestamp, now);
+        }
+    }
+
+    /**
+     * Get the range of positions that contains the newest entry published before the given timestamp, according to
+     * the time index.
+     *
+     * <p/>The left position is the newest sampled entry published before the timestamp, the right position is the
+     * oldest sampled entry published at or after the timestamp (excluded from the range). Either of them is null when
+     * there is no such sample. The left position is also null when a ledger without samples lies between the two, so
+     * that a non-null left position always means that the range is a single sampling interval.
+     *
+     * @param timestamp
+     *            publish timestamp in milliseconds
+     * @return the bounds of the range, or null if the time index is disabled
+     */
+    Pair<PositionImpl, PositionImpl> getTimeIndexBounds(long timestamp) {
+        if (timeIndexSampler == null) {
+            return null;
+        }
+        PositionImpl lower = null;
+        LedgerHandle current = currentLedger;
+        for (LedgerInfo ledgerInfo : ledgers.values()) {
+            long ledgerId = ledgerInfo.getLedgerId();
+            boolean isCurrentLedger = current != null && current.getId() == ledgerId;
+            List<MLDataFormats.TimeIndexEntry> samples = isCurrentLedger
+                    ? timeIndexSampler.getSamples(ledgerId) : ledgerInfo.getTimeIndexList();
+            boolean hasEntries = isCurrentLedger ? current.getLastAddConfirmed() >= 0 : ledgerInfo.getEntries() > 0;
+            if (samples.isEmpty() && hasEntries) {
+                // Ledger added before the index was enabled or before a reload of the topic
+                lower = null;
+            }
+            for (MLDataFormats.TimeIndexEntry sample : samples) {
+                if (sample.getTimestamp() < timestamp) {
+                    lower = PositionImpl.get(ledgerId, sample.getEntryId());
+                } else {
+                    return Pair.of(lower, PositionImpl.get(ledgerId, sample.getEntryId()));
+                }
+            }
+        }
+        return Pair.of(lower, null);
+    }
+
+    @VisibleForTesting
+    synchronized LedgerHandle getStandbyLedger() {
+        return standbyLedger;
+    }
+
+    private synchronized void discardStandbyLedger() {
+        if (createStandbyLedgerTask != null) {
+            createStandbyLedgerTask.cancel(false);
+        }
+        LedgerHandle lh = standbyLedger;
+        if (lh != null) {
+            // The standby ledger was never added to the ledgers list, nobody else will delete it
+            standbyLedger = null;
+            log.info("[{}] Deleting unused standby ledger {}", name, lh.getId());
+            asyncDeleteLedger(lh.getId(), DEFAULT_LEDGER_DELETE_RETRIES);
+        }
+    }
+
     boolean isNeededCreateNewLedgerAfterCloseLedger() {
         final State state = STATE_UPDATER.get(this);
         if (state != State.CreatingLedger && state != State.LedgerOpened) {
@@ -1612,6 +1824,7 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
         log.info("[{}] Start checking if current ledger is full", name);
         if (currentLedgerEntries > 0 && currentLedgerIsFull()) {
             STATE_UPDATER.set(this, State.ClosingLedger);
+            rolloverStartNanos = System.nanoTime();
             currentLedger.asyncClose(new AsyncCallback.CloseCallback() {
                 @Override
                 public void closeComplete(int rc, LedgerHandle lh, Object o) {
@@ -1901,6 +2114,11 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
             log.debug("[{}] Reading entries from ledger {} - first={} last={}", name, ledger.getId(), firstEntry,
                     lastEntry);
         }
+
+        CursorReadAhead readAhead = opReadEntry.cursor.readAhead;
+        if (readAhead != null && readAhead.read(ledger, firstEntry, lastEntry, lastEntryInLedger, opReadEntry)) {
+            return;
+        }
         asyncReadEntry(ledger, firstEntry, lastEntry, false, opReadEntry, opReadEntry.ctx);
     }
 
@@ -2128,6 +2346,21 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
         return durablePosition.compareTo(nonDurablePosition) > 0 ? nonDurablePosition : durablePosition;
     }
 
+    /**
+     * Get the read positions of all the active cursors, either durable or non-durable.
+     *
+     * @return the read positions, sorted from the slowest to the fastest reader
+     */
+    List<PositionImpl> getActiveCursorsReadPositions() {
+        List<PositionImpl> positions = Lists.newArrayList();
+        // The non-durable cursors are tracked in the active cursors container too
+        for (ManagedCursor cursor : activeCursors) {
+            positions.add((PositionImpl) cursor.getReadPosition());
+        }
+        Collections.sort(positions);
+        return positions;
+    }
+
     void updateCursor(ManagedCursorImpl cursor, PositionImpl newPosition) {
         Pair<PositionImpl, PositionImpl> pair = cursors.cursorUpdated(cursor, newPosition);
         if (pair == null) {
@@ -2877,7 +3110,12 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
 
             prepareLedgerInfoForOffloaded(ledgerId, uuid, driverName, driverMetadata)
                 .thenCompose((ignore) -> getLedgerHandle(ledgerId))
-                .thenCompose(readHandle -> config.getLedgerOffloader().offload(readHandle, uuid, extraMetadata))
+                .thenCompose(readHandle -> {
+                    long offloadStartNanos = System.nanoTime();
+                    return config.getLedgerOffloader().offload(readHandle, uuid, extraMetadata)
+                            .thenRun(() -> mbean.addLedgerOffloadSample(readHandle.getLength(),
+                                    System.nanoTime() - offloadStartNanos, TimeUnit.NANOSECONDS));
+                })
                 .thenCompose((ignore) -> {
                         return Retries.run(Backoff.exponentialJittered(TimeUnit.SECONDS.toMillis(1),
                                                                        TimeUnit.SECONDS.toHours(1)).limit(10),
@@ -3999,6 +4237,16 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
             }
             this.checkLedgerRollTask = this.scheduledExecutor.schedule(
                     safeRun(this::rollCurrentLedgerIfFull), this.maximumRolloverTimeMs, TimeUnit.MILLISECONDS);
+
+            if (config.isStandbyLedgerEnabled()) {
+                if (createStandbyLedgerTask != null) {
+                    createStandbyLedgerTask.cancel(false);
+                }
+                long standbyDelayMs = this.maximumRolloverTimeMs
+                        * config.getStandbyLedgerCreationThresholdPercentage() / 100;
+                this.createStandbyLedgerTask = this.scheduledExecutor.schedule(
+                        safeRun(this::maybeCreateStandbyLedger), standbyDelayMs, TimeUnit.MILLISECONDS);
+            }
         }
     }
 
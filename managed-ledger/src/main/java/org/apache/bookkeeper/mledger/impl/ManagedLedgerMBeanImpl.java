@@ -40,6 +40,11 @@ public class ManagedLedgerMBeanImpl implements ManagedLedgerMXBean {
     private final Rate readEntriesOps = new Rate();
     private final Rate readEntriesOpsFailed = new Rate();
     private final Rate markDeleteOps = new Rate();
+    private final Rate offloadOps = new Rate();
+    // size and duration of the ledger offloads completed in the current stats period
+    private final LongAdder offloadedBytesInPeriod = new LongAdder();
+    private final LongAdder offloadTimeNanosInPeriod = new LongAdder();
+    private volatile double offloadThroughput;
 
     private final LongAdder dataLedgerOpenOp = new LongAdder();
     private final LongAdder dataLedgerCloseOp = new LongAdder();
@@ -55,6 +60,8 @@ public class ManagedLedgerMBeanImpl implements ManagedLedgerMXBean {
     // ledgerAddEntryLatencyStatsUsec measure latency to persist entry into ledger
     private final StatsBuckets ledgerAddEntryLatencyStatsUsec = new StatsBuckets(ENTRY_LATENCY_BUCKETS_USEC);
     private final StatsBuckets ledgerSwitchLatencyStatsUsec = new StatsBuckets(ENTRY_LATENCY_BUCKETS_USEC);
+    // ledgerRolloverStallLatencyStatsUsec measure the time writes are queued while the ledger is rolled over
+    private final StatsBuckets ledgerRolloverStallLatencyStatsUsec = new StatsBuckets(ENTRY_LATENCY_BUCKETS_USEC);
     private final StatsBuckets entryStats = new StatsBuckets(ENTRY_SIZE_BUCKETS_BYTES);
 
     public ManagedLedgerMBeanImpl(ManagedLedgerImpl managedLedger) {
@@ -69,10 +76,16 @@ public class ManagedLedgerMBeanImpl implements ManagedLedgerMXBean {
         readEntriesOps.calculateRate(seconds);
         readEntriesOpsFailed.calculateRate(seconds);
         markDeleteOps.calculateRate(seconds);
+        offloadOps.calculateRate(seconds);
+
+        long offloadedBytes = offloadedBytesInPeriod.sumThenReset();
+        long offloadTimeNanos = offloadTimeNanosInPeriod.sumThenReset();
+        offloadThroughput = offloadTimeNanos > 0 ? offloadedBytes / (offloadTimeNanos / 1_000_000_000.0) : 0;
 
         addEntryLatencyStatsUsec.refresh();
         ledgerAddEntryLatencyStatsUsec.refresh();
         ledgerSwitchLatencyStatsUsec.refresh();
+        ledgerRolloverStallLatencyStatsUsec.refresh();
         entryStats.refresh();
     }
 
@@ -106,6 +119,16 @@ public class ManagedLedgerMBeanImpl implements ManagedLedgerMXBean {
         ledgerSwitchLatencyStatsUsec.addValue(unit.toMicros(latency));
     }
 
+    public void addLedgerRolloverStallLatencySample(long latency, TimeUnit unit) {
+        ledgerRolloverStallLatencyStatsUsec.addValue(unit.toMicros(latency));
+    }
+
+    public void addLedgerOffloadSample(long size, long latency, TimeUnit unit) {
+        offloadOps.recordEvent(size);
+        offloadedBytesInPeriod.add(size);
+        offloadTimeNanosInPeriod.add(unit.toNanos(latency));
+    }
+
     public void addReadEntriesSample(int count, long totalSize) {
         readEntriesOps.recordMultipleEvents(count, totalSize);
     }
@@ -229,6 +252,21 @@ public class ManagedLedgerMBeanImpl implements ManagedLedgerMXBean {
         return markDeleteOps.getRate();
     }
 
+    @Override
+    public double getOffloadedLedgersRate() {
+        return offloadOps.getRate();
+    }
+
+    @Override
+    public double getOffloadedBytesRate() {
+        return offloadOps.getValueRate();
+    }
+
+    @Override
+    public double getOffloadThroughput() {
+        return offloadThroughput;
+    }
+
     @Override
     public double getEntrySizeAverage() {
         return entryStats.getAvg();
@@ -284,6 +322,16 @@ public class ManagedLedgerMBeanImpl implements ManagedLedgerMXBean {
         return ledgerSwitchLatencyStatsUsec.getAvg();
     }
 
+    @Override
+    public long[] getLedgerRolloverStallLatencyBuckets() {
+        return ledgerRolloverStallLatencyStatsUsec.getBuckets();
+    }
+
+    @Override
+    public double getLedgerRolloverStallLatencyAverageUsec() {
+        return ledgerRolloverStallLatencyStatsUsec.getAvg();
+    }
+
     @Override
     public long getStoredMessagesSize() {
         return managedLedger.getTotalSize() * managedLedger.getConfig().getWriteQuorumSize();
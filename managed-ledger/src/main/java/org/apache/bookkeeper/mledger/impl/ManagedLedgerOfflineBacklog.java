@@ -18,15 +18,27 @@
  */
 package org.apache.bookkeeper.mledger.impl;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.apache.bookkeeper.util.SafeRunnable.safeRun;
 import com.google.common.collect.BoundType;
 import com.google.common.collect.Range;
 import com.google.protobuf.InvalidProtocolBufferException;
-import java.util.Enumeration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import org.apache.bookkeeper.client.AsyncCallback;
 import org.apache.bookkeeper.client.BKException;
 import org.apache.bookkeeper.client.BookKeeper;
@@ -34,11 +46,14 @@ import org.apache.bookkeeper.client.BookKeeperAdmin;
 import org.apache.bookkeeper.client.LedgerEntry;
 import org.apache.bookkeeper.client.LedgerHandle;
 import org.apache.bookkeeper.client.api.DigestType;
+import org.apache.bookkeeper.mledger.ManagedCursor;
 import org.apache.bookkeeper.mledger.ManagedLedgerException;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats;
 import org.apache.bookkeeper.mledger.util.Errors;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.common.policies.data.PersistentOfflineTopicStats;
+import org.apache.pulsar.common.util.FutureUtil;
 import org.apache.pulsar.common.util.collections.ConcurrentOpenHashMap;
 import org.apache.pulsar.metadata.api.Stat;
 import org.slf4j.Logger;
@@ -51,14 +66,28 @@ public class ManagedLedgerOfflineBacklog {
     private final byte[] password;
     private final BookKeeper.DigestType digestType;
     private static final int META_READ_TIMEOUT_SECONDS = 60;
+    private static final long ERROR_IN_READING_CURSOR = -1;
     private final boolean accurate;
+    private final boolean metadataOnly;
     private final String brokerName;
 
     public ManagedLedgerOfflineBacklog(DigestType digestType, byte[] password, String brokerName,
             boolean accurate) {
+        this(digestType, password, brokerName, accurate, false);
+    }
+
+    /**
+     * @param metadataOnly
+     *            read the cursor positions from the metadata store instead of the cursor ledgers. The positions are
+     *            exact for the cursors that were closed cleanly, and may be behind for the others, but it saves
+     *            opening and reading a ledger per cursor
+     */
+    public ManagedLedgerOfflineBacklog(DigestType digestType, byte[] password, String brokerName,
+            boolean accurate, boolean metadataOnly) {
         this.digestType = BookKeeper.DigestType.fromApiDigestType(digestType);
         this.password = password;
         this.accurate = accurate;
+        this.metadataOnly = metadataOnly;
         this.brokerName = brokerName;
     }
 
@@ -108,52 +137,216 @@ public class ManagedLedgerOfflineBacklog {
     public PersistentOfflineTopicStats estimateUnloadedTopicBacklog(ManagedLedgerFactoryImpl factory,
             TopicName topicName) throws Exception {
         String managedLedgerName = topicName.getPersistenceNamingEncoding();
-        long numberOfEntries = 0;
-        long totalSize = 0;
-        final NavigableMap<Long, MLDataFormats.ManagedLedgerInfo.LedgerInfo> ledgers = new ConcurrentSkipListMap<>();
         final PersistentOfflineTopicStats offlineTopicStats = new PersistentOfflineTopicStats(managedLedgerName,
                 brokerName);
-
-        // calculate total managed ledger size and number of entries without loading the topic
-        readLedgerMeta(factory, topicName, ledgers);
-        for (MLDataFormats.ManagedLedgerInfo.LedgerInfo ls : ledgers.values()) {
-            numberOfEntries += ls.getEntries();
-            totalSize += ls.getSize();
+        EstimateBacklogOp op = new EstimateBacklogOp(factory, topicName, offlineTopicStats);
+        try {
             if (accurate) {
-                offlineTopicStats.addLedgerDetails(ls.getEntries(), ls.getTimestamp(), ls.getSize(), ls.getLedgerId());
+                // block until however long it takes for operation to complete
+                op.start().get();
+            } else {
+                op.start().get(META_READ_TIMEOUT_SECONDS, TimeUnit.SECONDS);
             }
-        }
-        offlineTopicStats.totalMessages = numberOfEntries;
-        offlineTopicStats.storageSize = totalSize;
-        if (log.isDebugEnabled()) {
-            log.debug("[{}] Total number of entries - {} and size - {}", managedLedgerName, numberOfEntries, totalSize);
+        } catch (ExecutionException e) {
+            log.warn("[{}] Unable to estimate the backlog - {}", managedLedgerName, e.getCause());
+        } catch (TimeoutException e) {
+            log.warn("[{}] Timed out estimating the backlog, the stats are partial", managedLedgerName);
         }
 
-        // calculate per cursor message backlog
-        calculateCursorBacklogs(factory, topicName, ledgers, offlineTopicStats);
+        // go through ledgers where LAC was -1
+        if (accurate) {
+            op.retryCursorsWithoutLac();
+        }
         offlineTopicStats.statGeneratedAt.setTime(System.currentTimeMillis());
 
         return offlineTopicStats;
     }
 
-    private void readLedgerMeta(final ManagedLedgerFactoryImpl factory, final TopicName topicName,
-            final NavigableMap<Long, MLDataFormats.ManagedLedgerInfo.LedgerInfo> ledgers) throws Exception {
-        String managedLedgerName = topicName.getPersistenceNamingEncoding();
-        MetaStore store = factory.getMetaStore();
-        BookKeeper bk = factory.getBookKeeper();
-        final CountDownLatch mlMetaCounter = new CountDownLatch(1);
-
-        store.getManagedLedgerInfo(managedLedgerName, false /* createIfMissing */,
-                new MetaStore.MetaStoreCallback<MLDataFormats.ManagedLedgerInfo>() {
-                    @Override
-                    public void operationComplete(MLDataFormats.ManagedLedgerInfo mlInfo, Stat stat) {
-                        for (MLDataFormats.ManagedLedgerInfo.LedgerInfo ls : mlInfo.getLedgerInfoList()) {
-                            ledgers.put(ls.getLedgerId(), ls);
+    /**
+     * Estimate the backlog of many topics at once, e.g. all the topics of a namespace.
+     *
+     * <p/>The backlogs of up to {@code maxConcurrentTopics} topics are estimated concurrently, and the metadata and the
+     * ledgers of each topic are read in parallel. The stats of each topic are passed to the listener as soon as they
+     * are available. The topics whose metadata can't be read are logged and left out of the result.
+     *
+     * <p/>Unlike {@link #estimateUnloadedTopicBacklog(ManagedLedgerFactoryImpl, TopicName)}, the cursors whose ledger
+     * has no confirmed entry are not read again with the bookkeeper admin, even in accurate mode.
+     *
+     * @param factory
+     *            the managed ledger factory
+     * @param topicNames
+     *            the topics
+     * @param maxConcurrentTopics
+     *            max number of topics whose backlog is estimated concurrently
+     * @param listener
+     *            called with the stats of each topic as soon as they are available, can be null
+     * @return a future completed with the stats of the topics
+     */
+    public CompletableFuture<Map<TopicName, PersistentOfflineTopicStats>> estimateUnloadedTopicBacklogs(
+            ManagedLedgerFactoryImpl factory, Collection<TopicName> topicNames, int maxConcurrentTopics,
+            BiConsumer<TopicName, PersistentOfflineTopicStats> listener) {
+        checkArgument(maxConcurrentTopics > 0);
+        BulkEstimateOp op = new BulkEstimateOp(factory, topicNames, listener);
+        op.start(maxConcurrentTopics);
+        return op.future;
+    }
+
+    private class BulkEstimateOp {
+        private final ManagedLedgerFactoryImpl factory;
+        private final BiConsumer<TopicName, PersistentOfflineTopicStats> listener;
+        private final Queue<TopicName> pending;
+        private final AtomicInteger remaining;
+        private final Map<TopicName, PersistentOfflineTopicStats> results = new ConcurrentHashMap<>();
+        private final CompletableFuture<Map<TopicName, PersistentOfflineTopicStats>> future =
+                new CompletableFuture<>();
+
+        BulkEstimateOp(ManagedLedgerFactoryImpl factory, Collection<TopicName> topicNames,
+                BiConsumer<TopicName, PersistentOfflineTopicStats> listener) {
+            this.factory = factory;
+            this.listener = listener;
+            this.pending = new ConcurrentLinkedQueue<>(topicNames);
+            this.remaining = new AtomicInteger(pending.size());
+        }
+
+        void start(int concurrency) {
+            if (pending.isEmpty()) {
+                future.complete(results);
+                return;
+            }
+            for (int i = 0; i < concurrency; i++) {
+                estimateNext();
+            }
+        }
+
+        private void estimateNext() {
+            TopicName topicName = pending.poll();
+            if (topicName == null) {
+                return;
+            }
+
+            PersistentOfflineTopicStats offlineTopicStats = new PersistentOfflineTopicStats(
+                    topicName.getPersistenceNamingEncoding(), brokerName);
+            new EstimateBacklogOp(factory, topicName, offlineTopicStats).start().whenComplete((stats, ex) -> {
+                if (ex != null) {
+                    log.warn("[{}] Unable to estimate the backlog - {}", topicName, ex.getMessage());
+                } else {
+                    stats.statGeneratedAt.setTime(System.currentTimeMillis());
+                    results.put(topicName, stats);
+                    if (listener != null) {
+                        try {
+                            listener.accept(topicName, stats);
+                        } catch (Throwable t) {
+                            log.warn("[{}] Backlog listener failed", topicName, t);
                         }
+                    }
+                }
+
+                if (remaining.decrementAndGet() == 0) {
+                    future.complete(results);
+                } else {
+                    // Move to another thread, to not grow the stack when the estimation completes synchronously
+                    factory.scheduledExecutor.execute(safeRun(this::estimateNext));
+                }
+            });
+        }
+    }
+
+    /**
+     * Estimation of the backlog of a single topic. The managed ledger metadata, the last ledger and all the cursors
+     * are read in parallel, and the backlog of each cursor is computed as soon as both its position and the ledgers
+     * are known.
+     */
+    private class EstimateBacklogOp {
+        private final ManagedLedgerFactoryImpl factory;
+        private final String managedLedgerName;
+        private final PersistentOfflineTopicStats offlineTopicStats;
+        private final NavigableMap<Long, MLDataFormats.ManagedLedgerInfo.LedgerInfo> ledgers =
+                new ConcurrentSkipListMap<>();
+        private final ConcurrentOpenHashMap<String, Long> ledgerRetryMap = new ConcurrentOpenHashMap<>();
+        private volatile PositionImpl lastLedgerPosition;
+
+        EstimateBacklogOp(ManagedLedgerFactoryImpl factory, TopicName topicName,
+                PersistentOfflineTopicStats offlineTopicStats) {
+            this.factory = factory;
+            this.managedLedgerName = topicName.getPersistenceNamingEncoding();
+            this.offlineTopicStats = offlineTopicStats;
+        }
+
+        CompletableFuture<PersistentOfflineTopicStats> start() {
+            ManagedLedgerImpl managedLedger = factory.getManagedLedgers().get(managedLedgerName);
+            if (managedLedger != null) {
+                // The topic is loaded in this broker, its ledgers and cursors are already in memory
+                estimateLoadedTopicBacklog(managedLedger);
+                return CompletableFuture.completedFuture(offlineTopicStats);
+            }
+
+            final CompletableFuture<Void> ledgersFuture = readLedgerMeta();
+            return getCursors().thenCompose(cursors -> {
+                if (log.isDebugEnabled()) {
+                    log.debug("[{}] Found {} cursors", managedLedgerName, cursors.size());
+                }
+                List<CompletableFuture<Void>> futures = new ArrayList<>(cursors.size() + 1);
+                futures.add(ledgersFuture);
+                for (String cursorName : cursors) {
+                    // The cursor position is read while the ledgers are still being read
+                    futures.add(readCursorPosition(cursorName).thenCombine(ledgersFuture, (position, v) -> {
+                        if (position != null) {
+                            addCursorBacklog(cursorName, position.getLeft(), position.getRight());
+                        }
+                        return null;
+                    }));
+                }
+                return FutureUtil.waitForAll(futures);
+            }).thenApply(v -> offlineTopicStats);
+        }
+
+        private void estimateLoadedTopicBacklog(ManagedLedgerImpl managedLedger) {
+            PositionImpl lastPosition = managedLedger.getLastPosition();
+            for (MLDataFormats.ManagedLedgerInfo.LedgerInfo ls : managedLedger.getLedgersInfo().values()) {
+                if (ls.getLedgerId() == lastPosition.getLedgerId() && !ls.hasEntries()) {
+                    // The entries of the current ledger are only known from the last confirmed entry
+                    ls = ls.toBuilder().setEntries(lastPosition.getEntryId() + 1)
+                            .setSize(managedLedger.getCurrentLedgerSize()).build();
+                }
+                ledgers.put(ls.getLedgerId(), ls);
+            }
+            ledgerMetaComplete();
+            for (ManagedCursor cursor : managedLedger.getCursors()) {
+                if (cursor.isDurable()) {
+                    addCursorBacklog(cursor.getName(), (PositionImpl) cursor.getMarkDeletedPosition(),
+                            ((ManagedCursorImpl) cursor).getCursorLedger());
+                }
+            }
+        }
+
+        private CompletableFuture<Void> readLedgerMeta() {
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            MetaStore store = factory.getMetaStore();
+            BookKeeper bk = factory.getBookKeeper();
+
+            store.getManagedLedgerInfo(managedLedgerName, false /* createIfMissing */,
+                    new MetaStore.MetaStoreCallback<MLDataFormats.ManagedLedgerInfo>() {
+                        @Override
+                        public void operationComplete(MLDataFormats.ManagedLedgerInfo mlInfo, Stat stat) {
+                            for (MLDataFormats.ManagedLedgerInfo.LedgerInfo ls : mlInfo.getLedgerInfoList()) {
+                                ledgers.put(ls.getLedgerId(), ls);
+                            }
+
+                            if (ledgers.isEmpty()) {
+                                log.warn("[{}] Ledger list empty", managedLedgerName);
+                                future.complete(null);
+                                return;
+                            }
 
-                        // find no of entries in last ledger
-                        if (ledgers.size() > 0) {
                             final long id = ledgers.lastKey();
+                            if (ledgers.lastEntry().getValue().hasEntries()) {
+                                // The last ledger was closed and its number of entries recorded, no need to open it
+                                ledgerMetaComplete();
+                                future.complete(null);
+                                return;
+                            }
+
+                            // find no of entries in last ledger
                             AsyncCallback.OpenCallback opencb = (rc, lh, ctx1) -> {
                                 if (log.isDebugEnabled()) {
                                     log.debug("[{}] Opened ledger {}: {}", managedLedgerName, id,
@@ -165,16 +358,15 @@ public class ManagedLedgerOfflineBacklog {
                                             .newBuilder().setLedgerId(id).setEntries(lh.getLastAddConfirmed() + 1)
                                             .setSize(lh.getLength()).setTimestamp(System.currentTimeMillis()).build();
                                     ledgers.put(id, info);
-                                    mlMetaCounter.countDown();
                                 } else if (Errors.isNoSuchLedgerExistsException(rc)) {
-                                    log.warn("[{}] Ledger not found: {}", managedLedgerName, ledgers.lastKey());
-                                    ledgers.remove(ledgers.lastKey());
-                                    mlMetaCounter.countDown();
+                                    log.warn("[{}] Ledger not found: {}", managedLedgerName, id);
+                                    ledgers.remove(id);
                                 } else {
                                     log.error("[{}] Failed to open ledger {}: {}", managedLedgerName, id,
                                             BKException.getMessage(rc));
-                                    mlMetaCounter.countDown();
                                 }
+                                ledgerMetaComplete();
+                                future.complete(null);
                             };
 
                             if (log.isDebugEnabled()) {
@@ -184,219 +376,200 @@ public class ManagedLedgerOfflineBacklog {
                                 bk.asyncOpenLedgerNoRecovery(id, digestType, password, opencb, null);
                             } catch (Exception e) {
                                 log.warn("[{}] Failed to open ledger {}: {}", managedLedgerName, id, e);
-                                mlMetaCounter.countDown();
+                                ledgerMetaComplete();
+                                future.complete(null);
                             }
-                        } else {
-                            log.warn("[{}] Ledger list empty", managedLedgerName);
-                            mlMetaCounter.countDown();
                         }
-                    }
 
-                    @Override
-                    public void operationFailed(ManagedLedgerException.MetaStoreException e) {
-                        log.warn("[{}] Unable to obtain managed ledger metadata - {}", managedLedgerName, e);
-                        mlMetaCounter.countDown();
-                    }
-                });
+                        @Override
+                        public void operationFailed(ManagedLedgerException.MetaStoreException e) {
+                            log.warn("[{}] Unable to obtain managed ledger metadata - {}", managedLedgerName, e);
+                            future.completeExceptionally(e);
+                        }
+                    });
+            return future;
+        }
 
-        if (accurate) {
-            // block until however long it takes for operation to complete
-            mlMetaCounter.await();
-        } else {
-            mlMetaCounter.await(META_READ_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        /**
+         * Calculate total managed ledger size and number of entries once all the ledgers are known.
+         */
+        private void ledgerMetaComplete() {
+            long numberOfEntries = 0;
+            long totalSize = 0;
+            synchronized (offlineTopicStats) {
+                for (MLDataFormats.ManagedLedgerInfo.LedgerInfo ls : ledgers.values()) {
+                    numberOfEntries += ls.getEntries();
+                    totalSize += ls.getSize();
+                    if (accurate) {
+                        offlineTopicStats.addLedgerDetails(ls.getEntries(), ls.getTimestamp(), ls.getSize(),
+                                ls.getLedgerId());
+                    }
+                }
+                offlineTopicStats.totalMessages = numberOfEntries;
+                offlineTopicStats.storageSize = totalSize;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Total number of entries - {} and size - {}", managedLedgerName, numberOfEntries,
+                        totalSize);
+            }
 
+            if (!ledgers.isEmpty()) {
+                final MLDataFormats.ManagedLedgerInfo.LedgerInfo ledgerInfo = ledgers.lastEntry().getValue();
+                lastLedgerPosition = new PositionImpl(ledgerInfo.getLedgerId(), ledgerInfo.getEntries() - 1);
+                if (log.isDebugEnabled()) {
+                    log.debug("[{}] Last ledger position {}", managedLedgerName, lastLedgerPosition);
+                }
+            }
         }
-    }
 
-    private void calculateCursorBacklogs(final ManagedLedgerFactoryImpl factory, final TopicName topicName,
-            final NavigableMap<Long, MLDataFormats.ManagedLedgerInfo.LedgerInfo> ledgers,
-            final PersistentOfflineTopicStats offlineTopicStats) throws Exception {
+        private CompletableFuture<List<String>> getCursors() {
+            final CompletableFuture<List<String>> future = new CompletableFuture<>();
+            factory.getMetaStore().getCursors(managedLedgerName, new MetaStore.MetaStoreCallback<List<String>>() {
+                @Override
+                public void operationComplete(List<String> cursors, Stat v) {
+                    future.complete(cursors);
+                }
 
-        if (ledgers.size() == 0) {
-            return;
+                @Override
+                public void operationFailed(ManagedLedgerException.MetaStoreException e) {
+                    log.warn("[{}] Failed to get the cursors list", managedLedgerName, e);
+                    future.complete(Collections.emptyList());
+                }
+            });
+            return future;
         }
-        String managedLedgerName = topicName.getPersistenceNamingEncoding();
-        MetaStore store = factory.getMetaStore();
-        BookKeeper bk = factory.getBookKeeper();
-        final CountDownLatch allCursorsCounter = new CountDownLatch(1);
-        final long errorInReadingCursor = -1;
-        ConcurrentOpenHashMap<String, Long> ledgerRetryMap = new ConcurrentOpenHashMap<>();
-
-        final MLDataFormats.ManagedLedgerInfo.LedgerInfo ledgerInfo = ledgers.lastEntry().getValue();
-        final PositionImpl lastLedgerPosition = new PositionImpl(ledgerInfo.getLedgerId(), ledgerInfo.getEntries() - 1);
-        if (log.isDebugEnabled()) {
-            log.debug("[{}] Last ledger position {}", managedLedgerName, lastLedgerPosition);
+
+        /**
+         * Read the last acked message position of a cursor.
+         *
+         * @return a future completed with the position and the ledger it was read from, the position being null if it
+         *         couldn't be read, or completed with null if the cursor has to be skipped
+         */
+        private CompletableFuture<Pair<PositionImpl, Long>> readCursorPosition(String cursorName) {
+            final CompletableFuture<Pair<PositionImpl, Long>> future = new CompletableFuture<>();
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Loading cursor {}", managedLedgerName, cursorName);
+            }
+
+            factory.getMetaStore().asyncGetCursorInfo(managedLedgerName, cursorName,
+                    new MetaStore.MetaStoreCallback<MLDataFormats.ManagedCursorInfo>() {
+                        @Override
+                        public void operationComplete(MLDataFormats.ManagedCursorInfo info, Stat stat) {
+                            long cursorLedgerId = info.getCursorsLedgerId();
+                            if (log.isDebugEnabled()) {
+                                log.debug("[{}] Cursor {} meta-data read ledger id {}", managedLedgerName,
+                                        cursorName, cursorLedgerId);
+                            }
+                            if (cursorLedgerId != -1 && !metadataOnly) {
+                                readCursorLedger(cursorName, cursorLedgerId, future);
+                            } else {
+                                // The position in the metadata store is the one of the last cursor ledger switch
+                                // when the cursor has a ledger
+                                future.complete(Pair.of(new PositionImpl(info.getMarkDeleteLedgerId(),
+                                        info.getMarkDeleteEntryId()), cursorLedgerId));
+                            }
+                        }
+
+                        @Override
+                        public void operationFailed(ManagedLedgerException.MetaStoreException e) {
+                            log.warn("[{}] Unable to obtain cursor ledger for cursor {}: {}", managedLedgerName,
+                                    cursorName, e);
+                            future.complete(null);
+                        }
+                    });
+            return future;
         }
 
-        store.getCursors(managedLedgerName, new MetaStore.MetaStoreCallback<List<String>>() {
-            @Override
-            public void operationComplete(List<String> cursors, Stat v) {
-                // Load existing cursors
+        private void readCursorLedger(String cursorName, long cursorLedgerId,
+                CompletableFuture<Pair<PositionImpl, Long>> future) {
+            AsyncCallback.OpenCallback cursorLedgerOpenCb = (rc, lh, ctx1) -> {
                 if (log.isDebugEnabled()) {
-                    log.debug("[{}] Found {} cursors", managedLedgerName, cursors.size());
+                    log.debug("[{}] Opened cursor ledger {} for cursor {}. rc={}", managedLedgerName, cursorLedgerId,
+                            cursorName, rc);
                 }
-
-                if (cursors.isEmpty()) {
-                    allCursorsCounter.countDown();
+                if (rc != BKException.Code.OK) {
+                    log.warn("[{}] Error opening metadata ledger {} for cursor {}: {}", managedLedgerName,
+                            cursorLedgerId, cursorName, BKException.getMessage(rc));
+                    future.complete(null);
                     return;
                 }
+                long lac = lh.getLastAddConfirmed();
+                if (log.isDebugEnabled()) {
+                    log.debug("[{}] Cursor {} LAC {} read from ledger {}", managedLedgerName, cursorName, lac,
+                            cursorLedgerId);
+                }
 
-                final CountDownLatch cursorCounter = new CountDownLatch(cursors.size());
-
-                for (final String cursorName : cursors) {
-                    // determine subscription position from cursor ledger
+                if (lac == LedgerHandle.INVALID_ENTRY_ID) {
+                    // save the ledger id and cursor to retry outside of this call back
+                    // since we are trying to read the same cursor ledger, we will block until
+                    // this current callback completes, since an attempt to read the entry
+                    // will block behind this current operation to complete
+                    ledgerRetryMap.put(cursorName, cursorLedgerId);
+                    log.info("[{}] Cursor {} LAC {} read from ledger {}", managedLedgerName, cursorName, lac,
+                            cursorLedgerId);
+                    future.complete(null);
+                    return;
+                }
+                final long entryId = lac;
+                // read last acked message position for subscription
+                lh.asyncReadEntries(entryId, entryId, (rc1, lh1, seq, ctx) -> {
                     if (log.isDebugEnabled()) {
-                        log.debug("[{}] Loading cursor {}", managedLedgerName, cursorName);
+                        log.debug("readComplete rc={} entryId={}", rc1, entryId);
                     }
+                    if (rc1 != BKException.Code.OK) {
+                        log.warn("[{}] Error reading from metadata ledger {} for cursor {}: {}",
+                                managedLedgerName, cursorLedgerId, cursorName, BKException.getMessage(rc1));
+                        // indicate that this cursor should be excluded
+                        future.complete(Pair.of(null, cursorLedgerId));
+                        return;
+                    }
+                    LedgerEntry entry = seq.nextElement();
+                    try {
+                        MLDataFormats.PositionInfo positionInfo = MLDataFormats.PositionInfo
+                                .parseFrom(entry.getEntry());
+                        future.complete(Pair.of(new PositionImpl(positionInfo), cursorLedgerId));
+                    } catch (InvalidProtocolBufferException e) {
+                        log.warn("[{}] Error reading position from metadata ledger {} for cursor {}: {}",
+                                managedLedgerName, cursorLedgerId, cursorName, e);
+                        future.complete(Pair.of(null, cursorLedgerId));
+                    }
+                }, null);
+            }; // end of cursor meta read callback
 
-                    AsyncCallback.OpenCallback cursorLedgerOpenCb = (rc, lh, ctx1) -> {
-                        long ledgerId = lh.getId();
-                        if (log.isDebugEnabled()) {
-                            log.debug("[{}] Opened cursor ledger {} for cursor {}. rc={}", managedLedgerName, ledgerId,
-                                    cursorName, rc);
-                        }
-                        if (rc != BKException.Code.OK) {
-                            log.warn("[{}] Error opening metadata ledger {} for cursor {}: {}", managedLedgerName,
-                                    ledgerId, cursorName, BKException.getMessage(rc));
-                            cursorCounter.countDown();
-                            return;
-                        }
-                        long lac = lh.getLastAddConfirmed();
-                        if (log.isDebugEnabled()) {
-                            log.debug("[{}] Cursor {} LAC {} read from ledger {}", managedLedgerName, cursorName, lac,
-                                    ledgerId);
-                        }
-
-                        if (lac == LedgerHandle.INVALID_ENTRY_ID) {
-                            // save the ledger id and cursor to retry outside of this call back
-                            // since we are trying to read the same cursor ledger, we will block until
-                            // this current callback completes, since an attempt to read the entry
-                            // will block behind this current operation to complete
-                            ledgerRetryMap.put(cursorName, ledgerId);
-                            log.info("[{}] Cursor {} LAC {} read from ledger {}", managedLedgerName, cursorName, lac,
-                                    ledgerId);
-                            cursorCounter.countDown();
-                            return;
-                        }
-                        final long entryId = lac;
-                        // read last acked message position for subscription
-                        lh.asyncReadEntries(entryId, entryId, new AsyncCallback.ReadCallback() {
-                            @Override
-                            public void readComplete(int rc, LedgerHandle lh, Enumeration<LedgerEntry> seq,
-                                    Object ctx) {
-                                try {
-                                    if (log.isDebugEnabled()) {
-                                        log.debug("readComplete rc={} entryId={}", rc, entryId);
-                                    }
-                                    if (rc != BKException.Code.OK) {
-                                        log.warn("[{}] Error reading from metadata ledger {} for cursor {}: {}",
-                                                managedLedgerName, ledgerId, cursorName, BKException.getMessage(rc));
-                                        // indicate that this cursor should be excluded
-                                        offlineTopicStats.addCursorDetails(cursorName, errorInReadingCursor,
-                                                lh.getId());
-                                    } else {
-                                        LedgerEntry entry = seq.nextElement();
-                                        MLDataFormats.PositionInfo positionInfo;
-                                        try {
-                                            positionInfo = MLDataFormats.PositionInfo.parseFrom(entry.getEntry());
-                                        } catch (InvalidProtocolBufferException e) {
-                                            log.warn(
-                                                "[{}] Error reading position from metadata ledger {} for cursor {}: {}",
-                                                managedLedgerName, ledgerId, cursorName, e);
-                                            offlineTopicStats.addCursorDetails(cursorName, errorInReadingCursor,
-                                                    lh.getId());
-                                            return;
-                                        }
-                                        final PositionImpl lastAckedMessagePosition = new PositionImpl(positionInfo);
-                                        if (log.isDebugEnabled()) {
-                                            log.debug("[{}] Cursor {} MD {} read last ledger position {}",
-                                                    managedLedgerName, cursorName, lastAckedMessagePosition,
-                                                    lastLedgerPosition);
-                                        }
-                                        // calculate cursor backlog
-                                        Range<PositionImpl> range = Range.openClosed(lastAckedMessagePosition,
-                                                lastLedgerPosition);
-                                        if (log.isDebugEnabled()) {
-                                            log.debug("[{}] Calculating backlog for cursor {} using range {}",
-                                                    managedLedgerName, cursorName, range);
-                                        }
-                                        long cursorBacklog = getNumberOfEntries(range, ledgers);
-                                        offlineTopicStats.messageBacklog += cursorBacklog;
-                                        offlineTopicStats.addCursorDetails(cursorName, cursorBacklog, lh.getId());
-                                    }
-                                } finally {
-                                    cursorCounter.countDown();
-                                }
-                            }
-                        }, null);
-
-                    }; // end of cursor meta read callback
-
-                    store.asyncGetCursorInfo(managedLedgerName, cursorName,
-                            new MetaStore.MetaStoreCallback<MLDataFormats.ManagedCursorInfo>() {
-                                @Override
-                                public void operationComplete(MLDataFormats.ManagedCursorInfo info,
-                                        Stat stat) {
-                                    long cursorLedgerId = info.getCursorsLedgerId();
-                                    if (log.isDebugEnabled()) {
-                                        log.debug("[{}] Cursor {} meta-data read ledger id {}", managedLedgerName,
-                                                cursorName, cursorLedgerId);
-                                    }
-                                    if (cursorLedgerId != -1) {
-                                        bk.asyncOpenLedgerNoRecovery(cursorLedgerId, digestType, password,
-                                                cursorLedgerOpenCb, null);
-                                    } else {
-                                        PositionImpl lastAckedMessagePosition = new PositionImpl(
-                                                info.getMarkDeleteLedgerId(), info.getMarkDeleteEntryId());
-                                        Range<PositionImpl> range = Range.openClosed(lastAckedMessagePosition,
-                                                lastLedgerPosition);
-                                        if (log.isDebugEnabled()) {
-                                            log.debug("[{}] Calculating backlog for cursor {} using range {}",
-                                                    managedLedgerName, cursorName, range);
-                                        }
-                                        long cursorBacklog = getNumberOfEntries(range, ledgers);
-                                        offlineTopicStats.messageBacklog += cursorBacklog;
-                                        offlineTopicStats.addCursorDetails(cursorName, cursorBacklog, cursorLedgerId);
-                                        cursorCounter.countDown();
-                                    }
-
-                                }
+            factory.getBookKeeper().asyncOpenLedgerNoRecovery(cursorLedgerId, digestType, password,
+                    cursorLedgerOpenCb, null);
+        }
 
-                                @Override
-                                public void operationFailed(ManagedLedgerException.MetaStoreException e) {
-                                    log.warn("[{}] Unable to obtain cursor ledger for cursor {}: {}", managedLedgerName,
-                                            cursorName, e);
-                                    cursorCounter.countDown();
-                                }
-                            });
-                } // for every cursor find backlog
-                try {
-                    if (accurate) {
-                        cursorCounter.await();
-                    } else {
-                        cursorCounter.await(META_READ_TIMEOUT_SECONDS, TimeUnit.SECONDS);
-                    }
-                } catch (Exception e) {
-                    log.warn("[{}] Error reading subscription positions{}", managedLedgerName, e);
-                } finally {
-                    allCursorsCounter.countDown();
+        private void addCursorBacklog(String cursorName, PositionImpl lastAckedMessagePosition, long cursorLedgerId) {
+            PositionImpl lastLedgerPosition = this.lastLedgerPosition;
+            if (lastLedgerPosition == null) {
+                return;
+            }
+            if (lastAckedMessagePosition == null) {
+                synchronized (offlineTopicStats) {
+                    offlineTopicStats.addCursorDetails(cursorName, ERROR_IN_READING_CURSOR, cursorLedgerId);
                 }
+                return;
             }
-
-            @Override
-            public void operationFailed(ManagedLedgerException.MetaStoreException e) {
-                log.warn("[{}] Failed to get the cursors list", managedLedgerName, e);
-                allCursorsCounter.countDown();
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Cursor {} MD {} read last ledger position {}", managedLedgerName, cursorName,
+                        lastAckedMessagePosition, lastLedgerPosition);
+            }
+            // calculate cursor backlog
+            Range<PositionImpl> range = Range.openClosed(lastAckedMessagePosition, lastLedgerPosition);
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Calculating backlog for cursor {} using range {}", managedLedgerName, cursorName,
+                        range);
+            }
+            long cursorBacklog = getNumberOfEntries(range, ledgers);
+            synchronized (offlineTopicStats) {
+                offlineTopicStats.messageBacklog += cursorBacklog;
+                offlineTopicStats.addCursorDetails(cursorName, cursorBacklog, cursorLedgerId);
             }
-        });
-        if (accurate) {
-            allCursorsCounter.await();
-        } else {
-            allCursorsCounter.await(META_READ_TIMEOUT_SECONDS, TimeUnit.SECONDS);
         }
 
-        // go through ledgers where LAC was -1
-        if (accurate && ledgerRetryMap.size() > 0) {
+        void retryCursorsWithoutLac() {
+            BookKeeper bk = factory.getBookKeeper();
             ledgerRetryMap.forEach((cursorName, ledgerId) -> {
                 if (log.isDebugEnabled()) {
                     log.debug("Cursor {} Ledger {} Trying to obtain MD from BkAdmin", cursorName, ledgerId);
@@ -407,18 +580,10 @@ public class ManagedLedgerOfflineBacklog {
                             managedLedgerName, cursorName, ledgerId);
                 } else {
                     if (log.isDebugEnabled()) {
-                        log.debug("[{}] Cursor {} read from ledger using bk admin {}. position {}", managedLedgerName,
-                                cursorName, ledgerId, lastAckedMessagePosition);
-                    }
-                    // calculate cursor backlog
-                    Range<PositionImpl> range = Range.openClosed(lastAckedMessagePosition, lastLedgerPosition);
-                    if (log.isDebugEnabled()) {
-                        log.debug("[{}] Calculating backlog for cursor {} using range {}", managedLedgerName,
-                                cursorName, range);
+                        log.debug("[{}] Cursor {} read from ledger using bk admin {}. position {}",
+                                managedLedgerName, cursorName, ledgerId, lastAckedMessagePosition);
                     }
-                    long cursorBacklog = getNumberOfEntries(range, ledgers);
-                    offlineTopicStats.messageBacklog += cursorBacklog;
-                    offlineTopicStats.addCursorDetails(cursorName, cursorBacklog, ledgerId);
+                    addCursorBacklog(cursorName, lastAckedMessagePosition, ledgerId);
                 }
             });
         }
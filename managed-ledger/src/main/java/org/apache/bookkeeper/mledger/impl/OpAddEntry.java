@@ -202,6 +202,7 @@ public class OpAddEntry extends SafeRunnable implements AddCallback, CloseCallba
         PositionImpl lastEntry = PositionImpl.get(ledger.getId(), entryId);
         ManagedLedgerImpl.ENTRIES_ADDED_COUNTER_UPDATER.incrementAndGet(ml);
         ml.lastConfirmedEntry = lastEntry;
+        ml.updateTimeIndex(ledger.getId(), entryId, data);
 
         if (closeWhenDone) {
             log.info("[{}] Closing ledger {} for being full", ml.getName(), ledger.getId());
@@ -38,6 +38,7 @@ class OpFindNewest implements ReadEntryCallback {
     private final FindEntryCallback callback;
     private final Predicate<Entry> condition;
     private final Object ctx;
+    private final boolean binarySearch;
 
     enum State {
         checkFirst, checkLast, searching
@@ -51,6 +52,16 @@ class OpFindNewest implements ReadEntryCallback {
 
     public OpFindNewest(ManagedCursorImpl cursor, PositionImpl startPosition, Predicate<Entry> condition,
             long numberOfEntries, FindEntryCallback callback, Object ctx) {
+        this(cursor, startPosition, condition, numberOfEntries, true, callback, ctx);
+    }
+
+    /**
+     * @param binarySearch
+     *            whether to search the entries between the first and the last ones, otherwise the first entry is the
+     *            result when the last one doesn't match the condition
+     */
+    public OpFindNewest(ManagedCursorImpl cursor, PositionImpl startPosition, Predicate<Entry> condition,
+            long numberOfEntries, boolean binarySearch, FindEntryCallback callback, Object ctx) {
         this.cursor = cursor;
         this.ledger = cursor.ledger;
         this.startPosition = startPosition;
@@ -61,6 +72,7 @@ class OpFindNewest implements ReadEntryCallback {
         this.min = 0;
         this.max = numberOfEntries;
 
+        this.binarySearch = binarySearch;
         this.searchPosition = startPosition;
         this.state = State.checkFirst;
     }
@@ -76,6 +88,7 @@ class OpFindNewest implements ReadEntryCallback {
 
         this.min = 0;
         this.max = numberOfEntries;
+        this.binarySearch = true;
 
         this.searchPosition = startPosition;
         this.state = State.checkFirst;
@@ -111,6 +124,9 @@ class OpFindNewest implements ReadEntryCallback {
             if (condition.apply(entry)) {
                 callback.findEntryComplete(position, OpFindNewest.this.ctx);
                 return;
+            } else if (!binarySearch) {
+                callback.findEntryComplete(lastMatchedPosition, OpFindNewest.this.ctx);
+                return;
             } else {
                 // start binary search
                 state = State.searching;
@@ -0,0 +1,254 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import com.google.common.collect.Lists;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of the reads that are in flight to the bookies for a single managed ledger.
+ *
+ * <p/>When several cursors miss the cache on the same range at the same time (eg: many subscriptions replaying the
+ * backlog after a consumer outage), only the first of them issues the read to the bookies. The following requests
+ * attach to the pending read and get their own {@link EntryImpl} instances, sharing the same payload buffers through
+ * reference counting. Requests that only partially overlap a pending read attach for the overlapping part and read the
+ * rest of the range.
+ */
+public class PendingReadsManager {
+
+    private final ManagedLedgerFactoryMBeanImpl mlFactoryMBean;
+    private final boolean coalescingEnabled;
+    private final Set<PendingRead> pendingReads = ConcurrentHashMap.newKeySet();
+
+    public PendingReadsManager(ManagedLedgerFactoryMBeanImpl mlFactoryMBean, boolean coalescingEnabled) {
+        this.mlFactoryMBean = mlFactoryMBean;
+        this.coalescingEnabled = coalescingEnabled;
+    }
+
+    /**
+     * Read a range of entries, attaching to the reads already in progress when possible.
+     *
+     * @param lh
+     *            the ledger handle
+     * @param firstEntry
+     *            the first entry to read (inclusive)
+     * @param lastEntry
+     *            the last entry to read (inclusive)
+     * @return a future with the entries, which are owned by the caller. The future is failed with the original
+     *         exception returned by bookkeeper
+     */
+    public CompletableFuture<List<EntryImpl>> readEntries(ReadHandle lh, long firstEntry, long lastEntry) {
+        final long ledgerId = lh.getId();
+        if (!coalescingEnabled) {
+            return issueRead(lh, firstEntry, lastEntry, false);
+        }
+
+        for (PendingRead pendingRead : pendingReads) {
+            if (pendingRead.ledgerId != ledgerId
+                    || pendingRead.lastEntry < firstEntry || pendingRead.firstEntry > lastEntry) {
+                continue;
+            }
+
+            long overlapFirst = Math.max(firstEntry, pendingRead.firstEntry);
+            long overlapLast = Math.min(lastEntry, pendingRead.lastEntry);
+            CompletableFuture<List<EntryImpl>> overlap = pendingRead.attach(overlapFirst, overlapLast);
+            if (overlap == null) {
+                // The read has completed in the meantime
+                continue;
+            }
+
+            mlFactoryMBean.recordReadCoalesced(overlapLast - overlapFirst + 1);
+            if (log.isDebugEnabled()) {
+                log.debug("Attached read {}: {}-{} to pending read {}-{}", ledgerId, firstEntry, lastEntry,
+                        pendingRead.firstEntry, pendingRead.lastEntry);
+            }
+
+            List<CompletableFuture<List<EntryImpl>>> parts = Lists.newArrayListWithCapacity(3);
+            if (firstEntry < overlapFirst) {
+                parts.add(readEntries(lh, firstEntry, overlapFirst - 1));
+            }
+            parts.add(overlap);
+            if (overlapLast < lastEntry) {
+                parts.add(readEntries(lh, overlapLast + 1, lastEntry));
+            }
+            return parts.size() == 1 ? overlap : combine(parts);
+        }
+
+        return issueRead(lh, firstEntry, lastEntry, true);
+    }
+
+    private CompletableFuture<List<EntryImpl>> issueRead(ReadHandle lh, long firstEntry, long lastEntry,
+            boolean register) {
+        PendingRead pendingRead = new PendingRead(lh.getId(), firstEntry, lastEntry);
+        CompletableFuture<List<EntryImpl>> future = pendingRead.attach(firstEntry, lastEntry);
+        if (register) {
+            pendingReads.add(pendingRead);
+        }
+
+        CompletableFuture<LedgerEntries> readFuture;
+        try {
+            readFuture = lh.readAsync(firstEntry, lastEntry);
+        } catch (Throwable t) {
+            readFuture = new CompletableFuture<>();
+            readFuture.completeExceptionally(t);
+        }
+
+        readFuture.whenComplete((ledgerEntries, exception) -> {
+            if (register) {
+                pendingReads.remove(pendingRead);
+            }
+            if (exception != null) {
+                pendingRead.fail(exception);
+            } else {
+                pendingRead.complete(ledgerEntries);
+            }
+        });
+        return future;
+    }
+
+    int getNumberOfPendingReads() {
+        return pendingReads.size();
+    }
+
+    private static CompletableFuture<List<EntryImpl>> combine(List<CompletableFuture<List<EntryImpl>>> parts) {
+        CompletableFuture<List<EntryImpl>> result = new CompletableFuture<>();
+        CompletableFuture.allOf(parts.toArray(new CompletableFuture[0])).whenComplete((ignore, exception) -> {
+            if (exception == null) {
+                List<EntryImpl> entries = Lists.newArrayList();
+                parts.forEach(part -> entries.addAll(part.join()));
+                result.complete(entries);
+                return;
+            }
+
+            // Release the entries of the parts that succeeded
+            for (CompletableFuture<List<EntryImpl>> part : parts) {
+                if (!part.isCompletedExceptionally()) {
+                    part.join().forEach(EntryImpl::release);
+                }
+            }
+            result.completeExceptionally(exception instanceof CompletionException && exception.getCause() != null
+                    ? exception.getCause() : exception);
+        });
+        return result;
+    }
+
+    /**
+     * A read issued to the bookies, with the list of requests waiting for it.
+     */
+    private static final class PendingRead {
+        final long ledgerId;
+        final long firstEntry;
+        final long lastEntry;
+        private final List<Attachment> attachments = Lists.newArrayList();
+        private boolean completed = false;
+
+        PendingRead(long ledgerId, long firstEntry, long lastEntry) {
+            this.ledgerId = ledgerId;
+            this.firstEntry = firstEntry;
+            this.lastEntry = lastEntry;
+        }
+
+        /**
+         * @return the future for the sub-range or null if the read has already completed
+         */
+        synchronized CompletableFuture<List<EntryImpl>> attach(long first, long last) {
+            if (completed) {
+                return null;
+            }
+
+            Attachment attachment = new Attachment(first, last);
+            attachments.add(attachment);
+            return attachment.future;
+        }
+
+        private synchronized List<Attachment> seal() {
+            completed = true;
+            return attachments;
+        }
+
+        void fail(Throwable exception) {
+            Throwable cause = exception instanceof CompletionException && exception.getCause() != null
+                    ? exception.getCause() : exception;
+            for (Attachment attachment : seal()) {
+                attachment.future.completeExceptionally(cause);
+            }
+        }
+
+        void complete(LedgerEntries ledgerEntries) {
+            List<Attachment> attachments = seal();
+            List<EntryImpl> entries = Lists.newArrayListWithExpectedSize((int) (lastEntry - firstEntry + 1));
+            try {
+                for (LedgerEntry e : ledgerEntries) {
+                    entries.add(EntryImpl.create(e));
+                }
+            } catch (Throwable t) {
+                entries.forEach(EntryImpl::release);
+                fail(t);
+                return;
+            } finally {
+                ledgerEntries.close();
+            }
+
+            if (attachments.size() == 1 && attachments.get(0).first == firstEntry
+                    && attachments.get(0).last == lastEntry) {
+                // Common case, there was no other reader so the entries are handed over as they are
+                attachments.get(0).future.complete(entries);
+                return;
+            }
+
+            for (Attachment attachment : attachments) {
+                List<EntryImpl> subList = Collections.emptyList();
+                int from = (int) (attachment.first - firstEntry);
+                int to = (int) Math.min(attachment.last - firstEntry + 1, entries.size());
+                if (from < to) {
+                    subList = Lists.newArrayListWithExpectedSize(to - from);
+                    for (int i = from; i < to; i++) {
+                        // The copy holds a retained duplicate of the same buffer
+                        subList.add(EntryImpl.create(entries.get(i)));
+                    }
+                }
+                attachment.future.complete(subList);
+            }
+            entries.forEach(EntryImpl::release);
+        }
+    }
+
+    private static final class Attachment {
+        final long first;
+        final long last;
+        final CompletableFuture<List<EntryImpl>> future = new CompletableFuture<>();
+
+        Attachment(long first, long last) {
+            this.first = first;
+            this.last = last;
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(PendingReadsManager.class);
+}
@@ -0,0 +1,149 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import static org.apache.bookkeeper.util.SafeRunnable.safeRun;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.mledger.ManagedLedgerException.MetaStoreException;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.ManagedCursorInfo;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.ManagedLedgerInfo;
+import org.apache.pulsar.metadata.api.Stat;
+
+/**
+ * {@link MetaStore} of a single managed ledger, that serves the metadata of the managed ledger and of its cursors from
+ * values read in bulk before the managed ledger is initialized.
+ *
+ * <p/>Each preloaded value is only served once, any later read or any update goes to the underlying store, so that the
+ * versions used for the metadata updates are always the ones of the last read.
+ */
+class PreloadedMetaStore implements MetaStore {
+
+    static class Versioned<T> {
+        final T value;
+        final Stat stat;
+
+        Versioned(T value, Stat stat) {
+            this.value = value;
+            this.stat = stat;
+        }
+    }
+
+    private final MetaStore store;
+    private final OrderedExecutor executor;
+    private final String ledgerName;
+
+    private volatile Versioned<ManagedLedgerInfo> managedLedgerInfo;
+    private volatile List<String> cursors;
+    private final Map<String, Versioned<ManagedCursorInfo>> cursorInfos = new ConcurrentHashMap<>();
+
+    PreloadedMetaStore(MetaStore store, OrderedExecutor executor, String ledgerName) {
+        this.store = store;
+        this.executor = executor;
+        this.ledgerName = ledgerName;
+    }
+
+    void setManagedLedgerInfo(ManagedLedgerInfo info, Stat stat) {
+        this.managedLedgerInfo = new Versioned<>(info, stat);
+    }
+
+    void setCursors(List<String> cursors) {
+        this.cursors = cursors;
+    }
+
+    void setCursorInfo(String cursorName, ManagedCursorInfo info, Stat stat) {
+        cursorInfos.put(cursorName, new Versioned<>(info, stat));
+    }
+
+    boolean hasManagedLedgerInfo() {
+        return managedLedgerInfo != null;
+    }
+
+    @Override
+    public void getManagedLedgerInfo(String ledgerName, boolean createIfMissing,
+            MetaStoreCallback<ManagedLedgerInfo> callback) {
+        Versioned<ManagedLedgerInfo> info = this.managedLedgerInfo;
+        if (info != null && this.ledgerName.equals(ledgerName)) {
+            this.managedLedgerInfo = null;
+            executor.executeOrdered(ledgerName, safeRun(() -> callback.operationComplete(info.value, info.stat)));
+        } else {
+            store.getManagedLedgerInfo(ledgerName, createIfMissing, callback);
+        }
+    }
+
+    @Override
+    public void asyncUpdateLedgerIds(String ledgerName, ManagedLedgerInfo mlInfo, Stat stat,
+            MetaStoreCallback<Void> callback) {
+        store.asyncUpdateLedgerIds(ledgerName, mlInfo, stat, callback);
+    }
+
+    @Override
+    public void getCursors(String ledgerName, MetaStoreCallback<List<String>> callback) {
+        List<String> cursors = this.cursors;
+        if (cursors != null && this.ledgerName.equals(ledgerName)) {
+            this.cursors = null;
+            executor.executeOrdered(ledgerName, safeRun(() -> callback.operationComplete(cursors, null)));
+        } else {
+            store.getCursors(ledgerName, callback);
+        }
+    }
+
+    @Override
+    public void asyncGetCursorInfo(String ledgerName, String cursorName,
+            MetaStoreCallback<ManagedCursorInfo> callback) {
+        Versioned<ManagedCursorInfo> info = this.ledgerName.equals(ledgerName) ? cursorInfos.remove(cursorName) : null;
+        if (info != null) {
+            executor.executeOrdered(ledgerName, safeRun(() -> callback.operationComplete(info.value, info.stat)));
+        } else {
+            store.asyncGetCursorInfo(ledgerName, cursorName, callback);
+        }
+    }
+
+    @Override
+    public void asyncUpdateCursorInfo(String ledgerName, String cursorName, ManagedCursorInfo info, Stat stat,
+            MetaStoreCallback<Void> callback) {
+        // The preloaded version is stale once the cursor info is updated
+        cursorInfos.remove(cursorName);
+        store.asyncUpdateCursorInfo(ledgerName, cursorName, info, stat, callback);
+    }
+
+    @Override
+    public void asyncRemoveCursor(String ledgerName, String cursorName, MetaStoreCallback<Void> callback) {
+        cursorInfos.remove(cursorName);
+        store.asyncRemoveCursor(ledgerName, cursorName, callback);
+    }
+
+    @Override
+    public void removeManagedLedger(String ledgerName, MetaStoreCallback<Void> callback) {
+        store.removeManagedLedger(ledgerName, callback);
+    }
+
+    @Override
+    public Iterable<String> getManagedLedgers() throws MetaStoreException {
+        return store.getManagedLedgers();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> asyncExists(String ledgerName) {
+        return store.asyncExists(ledgerName);
+    }
+}
@@ -0,0 +1,650 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.apache.bookkeeper.mledger.impl.ManagedLedgerImpl.createManagedLedgerException;
+
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Longs;
+import io.netty.buffer.ByteBuf;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.apache.bookkeeper.client.api.BKException;
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.apache.bookkeeper.mledger.AsyncCallbacks.ReadEntriesCallback;
+import org.apache.bookkeeper.mledger.AsyncCallbacks.ReadEntryCallback;
+import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Entry cache that appends the entry payloads into large off-heap segments, one chain of segments per ledger.
+ *
+ * <p/>Compared to {@link EntryCacheImpl}, this cache does not keep one map node and one {@link PositionImpl} key per
+ * cached entry. Each segment is a single pooled direct buffer and the entries are located through a primitive array of
+ * offsets, indexed by the entry id. Eviction always releases whole segments and reads are served as slices of the
+ * segment buffers.
+ *
+ * <p/>Segments start small and double in size, up to the configured maximum, so that topics with a low rate do not pin
+ * a large buffer each.
+ */
+public class SegmentedEntryCacheImpl implements EntryCache {
+
+    static final int INITIAL_SEGMENT_SIZE = 64 * 1024;
+    private static final int INITIAL_INDEX_SIZE = 64;
+
+    private final EntryCacheManager manager;
+    private final ManagedLedgerImpl ml;
+    private final int maxSegmentSize;
+    private final PendingReadsManager pendingReadsManager;
+
+    // One node per ledger, not per entry
+    private final ConcurrentNavigableMap<Long, LedgerSegments> ledgers = new ConcurrentSkipListMap<>();
+    private final AtomicLong size = new AtomicLong(0);
+
+    private static final double MB = 1024 * 1024;
+
+    public SegmentedEntryCacheImpl(EntryCacheManager manager, ManagedLedgerImpl ml, int maxSegmentSize) {
+        checkArgument(maxSegmentSize > 0);
+        this.manager = manager;
+        this.ml = ml;
+        this.maxSegmentSize = maxSegmentSize;
+        this.pendingReadsManager = manager.createPendingReadsManager();
+
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Initialized managed-ledger segmented entry cache. Max segment size: {}", ml.getName(),
+                    maxSegmentSize);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return ml.getName();
+    }
+
+    @Override
+    public boolean insert(EntryImpl entry) {
+        if (!manager.hasSpaceInCache()) {
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Skipping cache while doing eviction: {} - size: {}", ml.getName(), entry.getPosition(),
+                        entry.getLength());
+            }
+            return false;
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Adding entry to cache: {} - size: {}", ml.getName(), entry.getPosition(),
+                    entry.getLength());
+        }
+
+        LedgerSegments segments = ledgers.computeIfAbsent(entry.getLedgerId(), LedgerSegments::new);
+        return segments.append(entry);
+    }
+
+    @Override
+    public void invalidateEntries(final PositionImpl lastPosition) {
+        int entriesRemoved = 0;
+        long sizeRemoved = 0;
+
+        for (LedgerSegments segments : ledgers.headMap(lastPosition.getLedgerId(), false).values()) {
+            Pair<Integer, Long> removed = removeLedger(segments);
+            entriesRemoved += removed.getLeft();
+            sizeRemoved += removed.getRight();
+        }
+
+        LedgerSegments segments = ledgers.get(lastPosition.getLedgerId());
+        if (segments != null) {
+            Pair<Integer, Long> removed = segments.removeSegmentsBefore(lastPosition.getEntryId());
+            entriesRemoved += removed.getLeft();
+            sizeRemoved += removed.getRight();
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Invalidated entries up to {} - Entries removed: {} - Size removed: {}", ml.getName(),
+                    lastPosition, entriesRemoved, sizeRemoved);
+        }
+    }
+
+    @Override
+    public void invalidateAllEntries(long ledgerId) {
+        LedgerSegments segments = ledgers.get(ledgerId);
+        if (segments == null) {
+            return;
+        }
+
+        Pair<Integer, Long> removed = removeLedger(segments);
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Invalidated all entries on ledger {} - Entries removed: {} - Size removed: {}",
+                    ml.getName(), ledgerId, removed.getLeft(), removed.getRight());
+        }
+    }
+
+    @Override
+    public void invalidateEntriesBeforeTimestamp(long timestamp) {
+        for (LedgerSegments segments : ledgers.values()) {
+            if (!segments.removeSegmentsOlderThan(timestamp)) {
+                // The remaining segments were all written after the timestamp
+                break;
+            }
+        }
+    }
+
+    @Override
+    public Pair<Integer, Long> evictEntries(long sizeToFree) {
+        checkArgument(sizeToFree > 0);
+
+        int evictedEntries = 0;
+        long evictedSize = 0;
+
+        // Evict the oldest segments first, starting from the oldest ledger
+        for (LedgerSegments segments : ledgers.values()) {
+            if (evictedSize >= sizeToFree) {
+                break;
+            }
+
+            Pair<Integer, Long> evicted = segments.removeOldestSegments(sizeToFree - evictedSize);
+            evictedEntries += evicted.getLeft();
+            evictedSize += evicted.getRight();
+            if (segments.isEmpty()) {
+                removeLedger(segments);
+            }
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug(
+                    "[{}] Doing cache eviction of at least {} Mb -- Deleted {} entries - Total size deleted: {} Mb "
+                            + " -- Current Size: {} Mb",
+                    ml.getName(), sizeToFree / MB, evictedEntries, evictedSize / MB, size.get() / MB);
+        }
+        return Pair.of(evictedEntries, evictedSize);
+    }
+
+    @Override
+    public Pair<Integer, Long> evictEntriesInRange(PositionImpl first, PositionImpl last, long sizeToFree) {
+        int evictedEntries = 0;
+        long evictedSize = 0;
+        if (first.compareTo(last) >= 0) {
+            return Pair.of(evictedEntries, evictedSize);
+        }
+
+        // Only the segments fully contained in the range can be released
+        for (LedgerSegments segments : ledgers.subMap(first.getLedgerId(), true, last.getLedgerId(), true).values()) {
+            if (evictedSize >= sizeToFree) {
+                break;
+            }
+            long firstEntry = segments.ledgerId == first.getLedgerId() ? first.getEntryId() : 0;
+            long lastEntry = segments.ledgerId == last.getLedgerId() ? last.getEntryId() : Long.MAX_VALUE;
+            Pair<Integer, Long> evicted = segments.removeSegmentsInRange(firstEntry, lastEntry,
+                    sizeToFree - evictedSize);
+            evictedEntries += evicted.getLeft();
+            evictedSize += evicted.getRight();
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Evicted entries in range {} - {} -- Entries removed: {} - Size removed: {}",
+                    ml.getName(), first, last, evictedEntries, evictedSize);
+        }
+        return Pair.of(evictedEntries, evictedSize);
+    }
+
+    @Override
+    public void clear() {
+        for (LedgerSegments segments : ledgers.values()) {
+            removeLedger(segments);
+        }
+    }
+
+    @Override
+    public long getSize() {
+        return size.get();
+    }
+
+    @Override
+    public int compareTo(EntryCache other) {
+        return Longs.compare(getSize(), other.getSize());
+    }
+
+    private Pair<Integer, Long> removeLedger(LedgerSegments segments) {
+        ledgers.remove(segments.ledgerId, segments);
+        return segments.close();
+    }
+
+    @Override
+    public void asyncReadEntry(ReadHandle lh, PositionImpl position, final ReadEntryCallback callback,
+            final Object ctx) {
+        try {
+            asyncReadEntry0(lh, position, callback, ctx);
+        } catch (Throwable t) {
+            log.warn("failed to read entries for {}-{}", lh.getId(), position, t);
+            invalidateAllEntries(lh.getId());
+            callback.readEntryFailed(createManagedLedgerException(t), ctx);
+        }
+    }
+
+    private void asyncReadEntry0(ReadHandle lh, PositionImpl position, final ReadEntryCallback callback,
+            final Object ctx) {
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Reading entry ledger {}: {}", ml.getName(), lh.getId(), position.getEntryId());
+        }
+
+        LedgerSegments segments = ledgers.get(position.getLedgerId());
+        List<EntryImpl> cachedEntries = segments != null
+                ? segments.getRange(position.getEntryId(), position.getEntryId())
+                : null;
+        if (cachedEntries != null) {
+            EntryImpl cachedEntry = cachedEntries.get(0);
+            manager.mlFactoryMBean.recordCacheHit(cachedEntry.getLength());
+            callback.readEntryComplete(cachedEntry, ctx);
+            return;
+        }
+
+        pendingReadsManager.readEntries(lh, position.getEntryId(), position.getEntryId()).whenCompleteAsync(
+                (entries, exception) -> {
+                    if (exception != null) {
+                        ml.invalidateLedgerHandle(lh);
+                        callback.readEntryFailed(createManagedLedgerException(exception), ctx);
+                        return;
+                    }
+
+                    if (!entries.isEmpty()) {
+                        EntryImpl returnEntry = entries.get(0);
+                        manager.mlFactoryMBean.recordCacheMiss(1, returnEntry.getLength());
+                        ml.getMBean().addReadEntriesSample(1, returnEntry.getLength());
+                        callback.readEntryComplete(returnEntry, ctx);
+                    } else {
+                        // got an empty sequence
+                        callback.readEntryFailed(new ManagedLedgerException("Could not read given position"), ctx);
+                    }
+                }, ml.getExecutor().chooseThread(ml.getName())).exceptionally(exception -> {
+                    ml.invalidateLedgerHandle(lh);
+                    callback.readEntryFailed(createManagedLedgerException(exception), ctx);
+                    return null;
+                });
+    }
+
+    @Override
+    public void asyncReadEntry(ReadHandle lh, long firstEntry, long lastEntry, boolean isSlowestReader,
+            final ReadEntriesCallback callback, Object ctx) {
+        try {
+            asyncReadEntry0(lh, firstEntry, lastEntry, callback, ctx);
+        } catch (Throwable t) {
+            log.warn("failed to read entries for {}--{}-{}", lh.getId(), firstEntry, lastEntry, t);
+            invalidateAllEntries(lh.getId());
+            callback.readEntriesFailed(createManagedLedgerException(t), ctx);
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void asyncReadEntry0(ReadHandle lh, long firstEntry, long lastEntry, final ReadEntriesCallback callback,
+            Object ctx) {
+        final long ledgerId = lh.getId();
+
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Reading entries range ledger {}: {} to {}", ml.getName(), ledgerId, firstEntry, lastEntry);
+        }
+
+        LedgerSegments segments = ledgers.get(ledgerId);
+        List<EntryImpl> cachedEntries = segments != null ? segments.getRange(firstEntry, lastEntry) : null;
+        if (cachedEntries != null) {
+            long totalCachedSize = 0;
+            for (EntryImpl entry : cachedEntries) {
+                totalCachedSize += entry.getLength();
+            }
+
+            manager.mlFactoryMBean.recordCacheHits(cachedEntries.size(), totalCachedSize);
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Ledger {} -- Found in cache entries: {}-{}", ml.getName(), ledgerId, firstEntry,
+                        lastEntry);
+            }
+
+            callback.readEntriesComplete((List) cachedEntries, ctx);
+            return;
+        }
+
+        // Read all the entries from bookkeeper, sharing the reads already in progress
+        pendingReadsManager.readEntries(lh, firstEntry, lastEntry).whenCompleteAsync(
+                (entriesToReturn, exception) -> {
+                    if (exception != null) {
+                        handleReadEntriesFailure(lh, exception, callback, ctx);
+                        return;
+                    }
+
+                    long totalSize = 0;
+                    for (EntryImpl entry : entriesToReturn) {
+                        totalSize += entry.getLength();
+                    }
+
+                    manager.mlFactoryMBean.recordCacheMiss(entriesToReturn.size(), totalSize);
+                    ml.getMBean().addReadEntriesSample(entriesToReturn.size(), totalSize);
+
+                    callback.readEntriesComplete((List) entriesToReturn, ctx);
+                }, ml.getExecutor().chooseThread(ml.getName())).exceptionally(exception -> {
+                    handleReadEntriesFailure(lh, exception, callback, ctx);
+                    return null;
+                });
+    }
+
+    private void handleReadEntriesFailure(ReadHandle lh, Throwable exception, ReadEntriesCallback callback,
+            Object ctx) {
+        if (!(exception instanceof BKException
+                && ((BKException) exception).getCode() == BKException.Code.TooManyRequestsException)) {
+            ml.invalidateLedgerHandle(lh);
+        }
+        callback.readEntriesFailed(createManagedLedgerException(exception), ctx);
+    }
+
+    /**
+     * A single off-heap buffer holding the payloads of a contiguous sequence of entries of one ledger.
+     *
+     * <p/>Access is guarded by the lock of the owning {@link LedgerSegments}.
+     */
+    private static final class Segment {
+        final ByteBuf buffer;
+        final long firstEntryId;
+        int[] offsets;
+        int count;
+        long lastTimestamp;
+
+        Segment(ByteBuf buffer, long firstEntryId) {
+            this.buffer = buffer;
+            this.firstEntryId = firstEntryId;
+            this.offsets = new int[INITIAL_INDEX_SIZE];
+            this.count = 0;
+        }
+
+        long lastEntryId() {
+            return firstEntryId + count - 1;
+        }
+
+        boolean canAppend(long entryId, int length) {
+            return entryId == firstEntryId + count && buffer.writableBytes() >= length;
+        }
+
+        void append(EntryImpl entry) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[count++] = buffer.writerIndex();
+
+            ByteBuf data = entry.getDataBuffer();
+            buffer.writeBytes(data, data.readerIndex(), data.readableBytes());
+            lastTimestamp = entry.getTimestamp();
+        }
+
+        EntryImpl slice(long ledgerId, long entryId) {
+            int idx = (int) (entryId - firstEntryId);
+            int offset = offsets[idx];
+            int end = idx + 1 < count ? offsets[idx + 1] : buffer.writerIndex();
+            // The entry retains the slice, which is sharing the reference count of the segment buffer
+            return EntryImpl.create(ledgerId, entryId, buffer.slice(offset, end - offset));
+        }
+    }
+
+    /**
+     * Chain of segments for a single ledger, sorted by entry id.
+     */
+    private final class LedgerSegments {
+        final long ledgerId;
+        private final List<Segment> segments = new ArrayList<>();
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private int nextSegmentSize = Math.min(INITIAL_SEGMENT_SIZE, maxSegmentSize);
+        private boolean closed = false;
+
+        LedgerSegments(long ledgerId) {
+            this.ledgerId = ledgerId;
+        }
+
+        boolean append(EntryImpl entry) {
+            final long entryId = entry.getEntryId();
+            final int length = entry.getLength();
+
+            lock.writeLock().lock();
+            try {
+                if (closed) {
+                    return false;
+                }
+
+                Segment tail = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+                if (tail != null && entryId <= tail.lastEntryId()) {
+                    // Already cached or out of order, entries can only be appended
+                    return false;
+                }
+
+                if (tail == null || !tail.canAppend(entryId, length)) {
+                    int segmentSize = Math.max(length, nextSegmentSize);
+                    ByteBuf buffer;
+                    try {
+                        buffer = EntryCacheImpl.ALLOCATOR.directBuffer(segmentSize, segmentSize);
+                    } catch (Throwable t) {
+                        log.warn("[{}] Failed to allocate segment for entry cache: {}", ml.getName(), t.getMessage());
+                        return false;
+                    }
+
+                    tail = new Segment(buffer, entryId);
+                    segments.add(tail);
+                    nextSegmentSize = (int) Math.min((long) nextSegmentSize * 2, maxSegmentSize);
+                    size.addAndGet(segmentSize);
+                    manager.entryAdded(segmentSize);
+                }
+
+                tail.append(entry);
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * @return the slices for the requested range or null if any of the entries is not in cache
+         */
+        List<EntryImpl> getRange(long firstEntry, long lastEntry) {
+            lock.readLock().lock();
+            try {
+                int idx = findSegment(firstEntry);
+                if (idx < 0) {
+                    return null;
+                }
+
+                // Check the whole range is covered before creating any slice
+                long nextEntry = firstEntry;
+                for (int i = idx; i < segments.size() && nextEntry <= lastEntry; i++) {
+                    Segment segment = segments.get(i);
+                    if (segment.firstEntryId > nextEntry) {
+                        return null;
+                    }
+                    nextEntry = segment.lastEntryId() + 1;
+                }
+                if (nextEntry <= lastEntry) {
+                    return null;
+                }
+
+                List<EntryImpl> entries = Lists.newArrayListWithExpectedSize((int) (lastEntry - firstEntry + 1));
+                long entryId = firstEntry;
+                for (int i = idx; entryId <= lastEntry; i++) {
+                    Segment segment = segments.get(i);
+                    long segmentLastEntry = Math.min(segment.lastEntryId(), lastEntry);
+                    for (; entryId <= segmentLastEntry; entryId++) {
+                        entries.add(segment.slice(ledgerId, entryId));
+                    }
+                }
+                return entries;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private int findSegment(long entryId) {
+            int low = 0;
+            int high = segments.size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                Segment segment = segments.get(mid);
+                if (entryId < segment.firstEntryId) {
+                    high = mid - 1;
+                } else if (entryId > segment.lastEntryId()) {
+                    low = mid + 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Remove the segments whose entries are all before the given entry id.
+         */
+        Pair<Integer, Long> removeSegmentsBefore(long entryId) {
+            lock.writeLock().lock();
+            try {
+                int toRemove = 0;
+                while (toRemove < segments.size() && segments.get(toRemove).lastEntryId() < entryId) {
+                    toRemove++;
+                }
+                return removeFirstSegments(toRemove);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Remove the segments whose entries are all between firstEntry (inclusive) and lastEntry (non-inclusive),
+         * starting from the first one, until maxSize is reached.
+         */
+        Pair<Integer, Long> removeSegmentsInRange(long firstEntry, long lastEntry, long maxSize) {
+            lock.writeLock().lock();
+            try {
+                int from = 0;
+                while (from < segments.size() && segments.get(from).firstEntryId < firstEntry) {
+                    from++;
+                }
+                int to = from;
+                long size = 0;
+                while (to < segments.size() && segments.get(to).lastEntryId() < lastEntry && size < maxSize) {
+                    size += segments.get(to).buffer.capacity();
+                    to++;
+                }
+                return removeSegments(from, to);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Remove the segments whose last entry was inserted before the given timestamp.
+         *
+         * @return true if all the segments were removed
+         */
+        boolean removeSegmentsOlderThan(long timestamp) {
+            lock.writeLock().lock();
+            try {
+                int toRemove = 0;
+                while (toRemove < segments.size() && segments.get(toRemove).lastTimestamp <= timestamp) {
+                    toRemove++;
+                }
+                removeFirstSegments(toRemove);
+                return segments.isEmpty();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        Pair<Integer, Long> removeOldestSegments(long sizeToFree) {
+            lock.writeLock().lock();
+            try {
+                int toRemove = 0;
+                long freedSize = 0;
+                while (toRemove < segments.size() && freedSize < sizeToFree) {
+                    freedSize += segments.get(toRemove++).buffer.capacity();
+                }
+                return removeFirstSegments(toRemove);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        Pair<Integer, Long> close() {
+            lock.writeLock().lock();
+            try {
+                closed = true;
+                return removeFirstSegments(segments.size());
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        boolean isEmpty() {
+            lock.readLock().lock();
+            try {
+                return segments.isEmpty();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private Pair<Integer, Long> removeFirstSegments(int n) {
+            return removeSegments(0, n);
+        }
+
+        private Pair<Integer, Long> removeSegments(int from, int to) {
+            if (from >= to) {
+                return Pair.of(0, 0L);
+            }
+
+            int removedEntries = 0;
+            long removedSize = 0;
+            List<Segment> removed = segments.subList(from, to);
+            for (Segment segment : removed) {
+                removedEntries += segment.count;
+                removedSize += segment.buffer.capacity();
+                // Slices handed out to readers are still holding a reference on the buffer
+                segment.buffer.release();
+            }
+            removed.clear();
+
+            size.addAndGet(-removedSize);
+            manager.entriesRemoved(removedSize);
+            return Pair.of(removedEntries, removedSize);
+        }
+    }
+
+    /**
+     * Just for testing.
+     */
+    int getNumberOfSegments() {
+        int n = 0;
+        for (LedgerSegments segments : ledgers.values()) {
+            segments.lock.readLock().lock();
+            try {
+                n += segments.segments.size();
+            } finally {
+                segments.lock.readLock().unlock();
+            }
+        }
+        return n;
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentedEntryCacheImpl.class);
+}
@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.TimeIndexEntry;
+
+/**
+ * Samples the publish timestamps of the entries added to the current ledger of a managed ledger.
+ *
+ * <p/>An entry is sampled every {@code intervalEntries} entries or every {@code intervalMs} milliseconds, whichever
+ * comes first. The timestamp of a sample is the max of the timestamps sampled so far in the ledger, so that the
+ * samples of a ledger can be binary searched even when the producers clocks are not in sync. Once a ledger has more
+ * than {@code maxSamples} samples, every other sample is dropped and both intervals are doubled.
+ */
+class TimeIndexSampler {
+
+    private final int intervalEntries;
+    private final long intervalMs;
+    private final int maxSamples;
+
+    private long ledgerId = -1;
+    private int stride = 1;
+    private long lastSampledEntryId;
+    private long lastSampleTimeMs;
+    private long maxTimestamp;
+    private List<TimeIndexEntry> samples = new ArrayList<>();
+
+    TimeIndexSampler(int intervalEntries, long intervalMs, int maxSamples) {
+        this.intervalEntries = intervalEntries;
+        this.intervalMs = intervalMs;
+        this.maxSamples = maxSamples;
+    }
+
+    /**
+     * Tell whether the given entry should be sampled. The first entry of each ledger is always sampled.
+     */
+    synchronized boolean isSampleDue(long ledgerId, long entryId, long nowMs) {
+        if (ledgerId != this.ledgerId) {
+            return true;
+        }
+        return entryId - lastSampledEntryId >= (long) intervalEntries * stride
+                || (intervalMs > 0 && nowMs - lastSampleTimeMs >= intervalMs * stride);
+    }
+
+    synchronized void addSample(long ledgerId, long entryId, long timestamp, long nowMs) {
+        if (ledgerId != this.ledgerId) {
+            if (ledgerId < this.ledgerId) {
+                // Late completion of an entry of a previous ledger
+                return;
+            }
+            this.ledgerId = ledgerId;
+            this.stride = 1;
+            this.maxTimestamp = Long.MIN_VALUE;
+            this.samples = new ArrayList<>();
+        } else if (entryId <= lastSampledEntryId) {
+            return;
+        }
+        lastSampledEntryId = entryId;
+        lastSampleTimeMs = nowMs;
+        if (timestamp < 0) {
+            // The entry doesn't have a timestamp, it will be sampled again after the next interval
+            return;
+        }
+        maxTimestamp = Math.max(maxTimestamp, timestamp);
+        samples.add(TimeIndexEntry.newBuilder().setEntryId(entryId).setTimestamp(maxTimestamp).build());
+
+        if (samples.size() > maxSamples) {
+            List<TimeIndexEntry> thinned = new ArrayList<>(maxSamples);
+            for (int i = 0; i < samples.size(); i += 2) {
+                thinned.add(samples.get(i));
+            }
+            samples = thinned;
+            stride *= 2;
+        }
+    }
+
+    /**
+     * @return a copy of the samples of the given ledger, or an empty list if it's not the sampled ledger
+     */
+    synchronized List<TimeIndexEntry> getSamples(long ledgerId) {
+        if (ledgerId != this.ledgerId) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(samples);
+    }
+}
@@ -129,12 +129,28 @@ public class RangeCache<Key extends Comparable<Key>, Value extends ReferenceCoun
      * @return an pair of ints, containing the number of removed entries and the total size
      */
     public Pair<Integer, Long> removeRange(Key first, Key last, boolean lastInclusive) {
+        return removeRange(first, last, lastInclusive, Long.MAX_VALUE);
+    }
+
+    /**
+     *
+     * @param first
+     * @param last
+     * @param lastInclusive
+     * @param maxSize
+     *            the size after which no more entries are removed
+     * @return an pair of ints, containing the number of removed entries and the total size
+     */
+    public Pair<Integer, Long> removeRange(Key first, Key last, boolean lastInclusive, long maxSize) {
         Map<Key, Value> subMap = entries.subMap(first, true, last, lastInclusive);
 
         int removedEntries = 0;
         long removedSize = 0;
 
         for (Key key : subMap.keySet()) {
+            if (removedSize >= maxSize) {
+                break;
+            }
             Value value = entries.remove(key);
             if (value == null) {
                 continue;
@@ -0,0 +1,340 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.util;
+
+import com.google.common.collect.BoundType;
+import com.google.common.collect.Range;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import org.apache.pulsar.common.util.collections.LongPairRangeSet;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * A set comprising zero or more ranges of type {@link LongPair}, backed by one {@link RoaringBitmap} per first-key of
+ * the ranges.
+ *
+ * <pre>
+ * Compared to {@link org.apache.pulsar.common.util.collections.ConcurrentOpenLongPairRangeSet}:
+ * a. Memory is proportional to the number of ranges rather than to the highest value set for a key, so millions of
+ *    sparse ranges (eg: individually deleted messages of a shared subscription) can be held cheaply.
+ * b. Each key can be serialized in the compact portable RoaringBitmap format with
+ *    {@link #forEachSerializedBitmap(BiConsumer)} and restored with {@link #addSerializedBitmap(long, ByteBuffer)}.
+ * </pre>
+ *
+ * <p>Values are stored as unsigned 32 bits integers. All operations are synchronized on the set.
+ */
+public class RoaringLongPairRangeSet<T extends Comparable<T>> implements LongPairRangeSet<T> {
+
+    private final NavigableMap<Long, RoaringBitmap> rangeBitmapMap = new TreeMap<>();
+    private final LongPairConsumer<T> consumer;
+
+    // caching place-holder for cpu-optimization to avoid calculating ranges again
+    private int cachedSize = 0;
+    private boolean updatedAfterCachedForSize = true;
+
+    public RoaringLongPairRangeSet(LongPairConsumer<T> consumer) {
+        this.consumer = consumer;
+    }
+
+    @Override
+    public synchronized void addOpenClosed(long lowerKey, long lowerValueOpen, long upperKey, long upperValue) {
+        long lowerValue = lowerValueOpen + 1;
+        if (lowerKey != upperKey) {
+            // Same semantic as ConcurrentOpenLongPairRangeSet: only extend the lower-key up to its last set value,
+            // and set everything from 0 to the upper-value in the upper-key
+            if (isValid(lowerKey, lowerValue)) {
+                RoaringBitmap bitmap = rangeBitmapMap.get(lowerKey);
+                if (bitmap != null && !bitmap.isEmpty() && bitmap.last() > lowerValueOpen) {
+                    bitmap.add(lowerValue, Math.max(bitmap.last(), lowerValue) + 1);
+                }
+            }
+            if (isValid(upperKey, upperValue)) {
+                rangeBitmapMap.computeIfAbsent(upperKey, k -> new RoaringBitmap()).add(0L, upperValue + 1);
+            }
+        } else if (upperValue >= lowerValue) {
+            rangeBitmapMap.computeIfAbsent(lowerKey, k -> new RoaringBitmap()).add(lowerValue, upperValue + 1);
+        }
+        updatedAfterCachedForSize = true;
+    }
+
+    private static boolean isValid(long key, long value) {
+        return key != LongPair.earliest.getKey() && value != LongPair.earliest.getValue()
+                && key != LongPair.latest.getKey() && value != LongPair.latest.getValue();
+    }
+
+    /**
+     * Adds the specified range to this set. Connected ranges of the same key are merged.
+     */
+    public void add(Range<LongPair> range) {
+        LongPair lowerEndpoint = range.hasLowerBound() ? range.lowerEndpoint() : LongPair.earliest;
+        LongPair upperEndpoint = range.hasUpperBound() ? range.upperEndpoint() : LongPair.latest;
+
+        long lowerValueOpen = (range.hasLowerBound() && range.lowerBoundType().equals(BoundType.CLOSED))
+                ? getSafeEntry(lowerEndpoint.getValue()) - 1
+                : getSafeEntry(lowerEndpoint.getValue());
+        long upperValueClosed = (range.hasUpperBound() && range.upperBoundType().equals(BoundType.CLOSED))
+                ? getSafeEntry(upperEndpoint.getValue())
+                : getSafeEntry(upperEndpoint.getValue()) - 1;
+
+        synchronized (this) {
+            // #addOpenClosed doesn't create a bitmap for the lower-key, make sure the lower endpoint is set
+            if (lowerEndpoint.getKey() != upperEndpoint.getKey()) {
+                rangeBitmapMap.computeIfAbsent(lowerEndpoint.getKey(), k -> new RoaringBitmap())
+                        .add(lowerValueOpen + 1, lowerValueOpen + 2);
+            }
+            addOpenClosed(lowerEndpoint.getKey(), lowerValueOpen, upperEndpoint.getKey(), upperValueClosed);
+        }
+    }
+
+    @Override
+    public synchronized boolean contains(long key, long value) {
+        RoaringBitmap bitmap = rangeBitmapMap.get(key);
+        return bitmap != null && value >= 0 && bitmap.contains((int) value);
+    }
+
+    @Override
+    public synchronized Range<T> rangeContaining(long key, long value) {
+        RoaringBitmap bitmap = rangeBitmapMap.get(key);
+        if (bitmap == null || value < 0 || !bitmap.contains((int) value)) {
+            // if position is not part of any range then return null
+            return null;
+        }
+        long lowerValue = bitmap.previousAbsentValue((int) value) + 1;
+        long upperValue = bitmap.nextAbsentValue((int) value) - 1;
+        return Range.closed(consumer.apply(key, lowerValue), consumer.apply(key, upperValue));
+    }
+
+    @Override
+    public synchronized void removeAtMost(long key, long value) {
+        rangeBitmapMap.headMap(key, false).clear();
+        RoaringBitmap bitmap = rangeBitmapMap.get(key);
+        if (bitmap != null && value >= 0) {
+            bitmap.remove(0L, value + 1);
+            if (bitmap.isEmpty()) {
+                rangeBitmapMap.remove(key);
+            }
+        }
+        updatedAfterCachedForSize = true;
+    }
+
+    /**
+     * Removes the specified range from this set.
+     */
+    public synchronized void remove(Range<LongPair> range) {
+        LongPair lowerEndpoint = range.hasLowerBound() ? range.lowerEndpoint() : LongPair.earliest;
+        LongPair upperEndpoint = range.hasUpperBound() ? range.upperEndpoint() : LongPair.latest;
+
+        long lower = (range.hasLowerBound() && range.lowerBoundType().equals(BoundType.CLOSED))
+                ? getSafeEntry(lowerEndpoint.getValue())
+                : getSafeEntry(lowerEndpoint.getValue()) + 1;
+        long upper = (range.hasUpperBound() && range.upperBoundType().equals(BoundType.CLOSED))
+                ? getSafeEntry(upperEndpoint.getValue())
+                : getSafeEntry(upperEndpoint.getValue()) - 1;
+
+        Iterator<Map.Entry<Long, RoaringBitmap>> iterator = rangeBitmapMap.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, RoaringBitmap> entry = iterator.next();
+            long key = entry.getKey();
+            RoaringBitmap bitmap = entry.getValue();
+            if (key < lowerEndpoint.getKey() || key > upperEndpoint.getKey()) {
+                continue;
+            }
+            long from = key == lowerEndpoint.getKey() ? Math.max(lower, 0) : 0;
+            long to = key == upperEndpoint.getKey() ? upper + 1 : MAX_EXCLUSIVE_VALUE;
+            if (to > from) {
+                bitmap.remove(from, to);
+            }
+            if (bitmap.isEmpty()) {
+                iterator.remove();
+            }
+        }
+        updatedAfterCachedForSize = true;
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        for (RoaringBitmap bitmap : rangeBitmapMap.values()) {
+            if (!bitmap.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void clear() {
+        rangeBitmapMap.clear();
+        updatedAfterCachedForSize = true;
+    }
+
+    @Override
+    public synchronized Range<T> span() {
+        Range<T> first = firstRange();
+        Range<T> last = lastRange();
+        if (first == null || last == null) {
+            return null;
+        }
+        return Range.openClosed(first.lowerEndpoint(), last.upperEndpoint());
+    }
+
+    @Override
+    public List<Range<T>> asRanges() {
+        List<Range<T>> ranges = new ArrayList<>();
+        forEach((range) -> {
+            ranges.add(range);
+            return true;
+        });
+        return ranges;
+    }
+
+    @Override
+    public void forEach(RangeProcessor<T> action) {
+        forEach(action, consumer);
+    }
+
+    @Override
+    public synchronized void forEach(RangeProcessor<T> action, LongPairConsumer<? extends T> consumer) {
+        for (Map.Entry<Long, RoaringBitmap> entry : rangeBitmapMap.entrySet()) {
+            long key = entry.getKey();
+            RoaringBitmap bitmap = entry.getValue();
+            long currentClosedMark = bitmap.isEmpty() ? -1 : bitmap.nextValue(0);
+            while (currentClosedMark != -1) {
+                long nextOpenMark = bitmap.nextAbsentValue((int) currentClosedMark);
+                Range<T> range = Range.openClosed(consumer.apply(key, currentClosedMark - 1),
+                        consumer.apply(key, nextOpenMark - 1));
+                if (!action.process(range)) {
+                    return;
+                }
+                currentClosedMark = nextOpenMark >= MAX_EXCLUSIVE_VALUE ? -1 : bitmap.nextValue((int) nextOpenMark);
+            }
+        }
+    }
+
+    @Override
+    public synchronized Range<T> firstRange() {
+        for (Map.Entry<Long, RoaringBitmap> entry : rangeBitmapMap.entrySet()) {
+            RoaringBitmap bitmap = entry.getValue();
+            if (!bitmap.isEmpty()) {
+                long lower = bitmap.nextValue(0);
+                long upper = bitmap.nextAbsentValue((int) lower) - 1;
+                return Range.openClosed(consumer.apply(entry.getKey(), lower - 1),
+                        consumer.apply(entry.getKey(), upper));
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized Range<T> lastRange() {
+        for (Map.Entry<Long, RoaringBitmap> entry : rangeBitmapMap.descendingMap().entrySet()) {
+            RoaringBitmap bitmap = entry.getValue();
+            if (!bitmap.isEmpty()) {
+                long upper = Integer.toUnsignedLong(bitmap.last());
+                long lower = bitmap.previousAbsentValue((int) upper);
+                return Range.openClosed(consumer.apply(entry.getKey(), lower), consumer.apply(entry.getKey(), upper));
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized int size() {
+        if (updatedAfterCachedForSize) {
+            int[] size = new int[1];
+            forEach((range) -> {
+                size[0]++;
+                return true;
+            });
+            cachedSize = size[0];
+            updatedAfterCachedForSize = false;
+        }
+        return cachedSize;
+    }
+
+    /**
+     * Serialize the values of every key in the portable RoaringBitmap format.
+     *
+     * @param processor
+     *            receives the key and its serialized values
+     */
+    public synchronized void forEachSerializedBitmap(BiConsumer<Long, byte[]> processor) {
+        for (Map.Entry<Long, RoaringBitmap> entry : rangeBitmapMap.entrySet()) {
+            RoaringBitmap bitmap = entry.getValue();
+            if (bitmap.isEmpty()) {
+                continue;
+            }
+            bitmap.runOptimize();
+            ByteBuffer buffer = ByteBuffer.allocate(bitmap.serializedSizeInBytes());
+            bitmap.serialize(buffer);
+            processor.accept(entry.getKey(), buffer.array());
+        }
+    }
+
+    /**
+     * Add the values serialized by {@link #forEachSerializedBitmap(BiConsumer)} to the given key.
+     *
+     * @throws IOException if the buffer doesn't contain a valid serialized bitmap
+     */
+    public synchronized void addSerializedBitmap(long key, ByteBuffer buffer) throws IOException {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        bitmap.deserialize(buffer);
+        rangeBitmapMap.merge(key, bitmap, (existing, added) -> {
+            existing.or(added);
+            return existing;
+        });
+        updatedAfterCachedForSize = true;
+    }
+
+    /**
+     * @return the approximate memory used by the bitmaps of this set, in bytes
+     */
+    public synchronized long getSizeInBytes() {
+        long size = 0;
+        for (RoaringBitmap bitmap : rangeBitmapMap.values()) {
+            size += bitmap.getLongSizeInBytes();
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder toString = new StringBuilder("[");
+        forEach((range) -> {
+            if (toString.length() > 1) {
+                toString.append(",");
+            }
+            toString.append(range);
+            return true;
+        });
+        return toString.append("]").toString();
+    }
+
+    private static long getSafeEntry(long value) {
+        return Math.max(value, -1);
+    }
+
+    private static final long MAX_EXCLUSIVE_VALUE = 0x100000000L;
+}
@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.PulsarMockBookKeeper;
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.apache.bookkeeper.common.util.OrderedScheduler;
+import org.apache.bookkeeper.mledger.AsyncCallbacks.ReadEntriesCallback;
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.bookkeeper.mledger.ManagedLedgerFactoryConfig;
+import org.apache.pulsar.metadata.api.MetadataStoreConfig;
+import org.apache.pulsar.metadata.api.extended.MetadataStoreExtended;
+
+/**
+ * Compares the GC overhead and the read throughput of {@link EntryCacheImpl} and {@link SegmentedEntryCacheImpl}.
+ *
+ * <p/>This is not run as part of the test suite. Usage:
+ * <pre>
+ * EntryCacheBenchmark [numTopics] [entriesPerTopic] [entrySize] [rounds]
+ * </pre>
+ */
+public class EntryCacheBenchmark {
+
+    private static final int READ_BATCH_SIZE = 100;
+
+    public static void main(String[] args) throws Exception {
+        int numTopics = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int entriesPerTopic = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int entrySize = args.length > 2 ? Integer.parseInt(args[2]) : 512;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        for (boolean segmented : new boolean[] { false, true }) {
+            run(segmented, numTopics, entriesPerTopic, entrySize, rounds);
+        }
+    }
+
+    private static void run(boolean segmented, int numTopics, int entriesPerTopic, int entrySize, int rounds)
+            throws Exception {
+        OrderedScheduler executor = OrderedScheduler.newSchedulerBuilder().numThreads(1).name("benchmark").build();
+        MetadataStoreExtended metadataStore = MetadataStoreExtended.create("memory://local",
+                MetadataStoreConfig.builder().build());
+        metadataStore.put("/ledgers/LAYOUT", "1\nflat:1".getBytes(), Optional.empty()).join();
+        PulsarMockBookKeeper bkc = new PulsarMockBookKeeper(executor);
+
+        ManagedLedgerFactoryConfig config = new ManagedLedgerFactoryConfig();
+        config.setMaxCacheSize(2L * numTopics * entriesPerTopic * entrySize);
+        config.setSegmentedEntryCacheEnabled(segmented);
+        ManagedLedgerFactoryImpl factory = new ManagedLedgerFactoryImpl(metadataStore, bkc, config);
+
+        EntryCache[] caches = new EntryCache[numTopics];
+        ReadHandle[] handles = new ReadHandle[numTopics];
+        for (int i = 0; i < numTopics; i++) {
+            ManagedLedgerImpl ml = mock(ManagedLedgerImpl.class);
+            when(ml.getName()).thenReturn("topic-" + i);
+            when(ml.getExecutor()).thenReturn(executor);
+            when(ml.getMBean()).thenReturn(new ManagedLedgerMBeanImpl(ml));
+            caches[i] = factory.getEntryCacheManager().getEntryCache(ml);
+            handles[i] = mock(ReadHandle.class);
+            when(handles[i].getId()).thenReturn((long) i);
+        }
+
+        byte[] payload = new byte[entrySize];
+        System.gc();
+        long gcTimeBefore = totalGcTimeMillis();
+        long gcCountBefore = totalGcCount();
+        long readEntries = 0;
+        long readTimeNanos = 0;
+
+        for (int round = 0; round < rounds; round++) {
+            long firstEntry = (long) round * entriesPerTopic;
+            for (int i = 0; i < numTopics; i++) {
+                for (int e = 0; e < entriesPerTopic; e++) {
+                    EntryImpl entry = EntryImpl.create(i, firstEntry + e, payload);
+                    caches[i].insert(entry);
+                    entry.release();
+                }
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < numTopics; i++) {
+                for (long e = firstEntry; e < firstEntry + entriesPerTopic; e += READ_BATCH_SIZE) {
+                    long last = Math.min(e + READ_BATCH_SIZE, firstEntry + entriesPerTopic) - 1;
+                    List<Entry> entries = read(caches[i], handles[i], e, last);
+                    readEntries += entries.size();
+                    entries.forEach(Entry::release);
+                }
+            }
+            readTimeNanos += System.nanoTime() - start;
+
+            // Cursors have moved past all the entries of the previous round
+            for (int i = 0; i < numTopics; i++) {
+                caches[i].invalidateEntries(PositionImpl.get(i, firstEntry));
+            }
+        }
+
+        long gcTime = totalGcTimeMillis() - gcTimeBefore;
+        long gcCount = totalGcCount() - gcCountBefore;
+        double readRate = readEntries / (readTimeNanos / (double) TimeUnit.SECONDS.toNanos(1));
+        System.out.printf("%s -- read throughput: %.0f entries/s -- GC: %d collections, %d ms%n",
+                segmented ? "SegmentedEntryCacheImpl" : "EntryCacheImpl", readRate, gcCount, gcTime);
+
+        factory.shutdown();
+        bkc.shutdown();
+        metadataStore.close();
+        executor.shutdownNow();
+    }
+
+    private static List<Entry> read(EntryCache cache, ReadHandle lh, long first, long last) throws Exception {
+        CompletableFuture<List<Entry>> future = new CompletableFuture<>();
+        cache.asyncReadEntry(lh, first, last, false, new ReadEntriesCallback() {
+            public void readEntriesComplete(List<Entry> entries, Object ctx) {
+                future.complete(entries);
+            }
+
+            public void readEntriesFailed(ManagedLedgerException exception, Object ctx) {
+                future.completeExceptionally(exception);
+            }
+        }, null);
+        return future.get();
+    }
+
+    private static long totalGcTimeMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static long totalGcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+}
@@ -26,6 +26,7 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
+import com.google.common.collect.Lists;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -321,6 +322,98 @@ public class EntryCacheManagerTest extends MockedBookKeeperTestCase {
         assertEquals(cacheManager.mlFactoryMBean.getNumberOfCacheEvictions(), 0);
     }
 
+    @Test
+    public void verifyCursorAwareEviction() throws Exception {
+        ManagedLedgerFactoryConfig config = new ManagedLedgerFactoryConfig();
+        config.setMaxCacheSize(1000);
+        config.setCacheEvictionFrequency(0.01);
+        config.setCacheEvictionPolicyClassName(EntryCacheCursorAwareEvictionPolicy.class.getName());
+        config.setCacheEvictionReaderWindowEntries(2);
+
+        @Cleanup("shutdown")
+        ManagedLedgerFactoryImpl factory2 = new ManagedLedgerFactoryImpl(metadataStore, bkc, config);
+
+        EntryCacheManager cacheManager = factory2.getEntryCacheManager();
+        assertEquals(cacheManager.mlFactoryMBean.getCacheEvictionPolicy(),
+                EntryCacheCursorAwareEvictionPolicy.class.getSimpleName());
+
+        ManagedLedgerImpl ledger = (ManagedLedgerImpl) factory2.open("ledger");
+        ManagedCursor c1 = ledger.openCursor("c1");
+        ManagedCursor c2 = ledger.openCursor("c2");
+
+        for (int i = 0; i < 20; i++) {
+            ledger.addEntry(new byte[10]);
+        }
+        EntryCache cache = ledger.entryCache;
+        assertEquals(cache.getSize(), 200);
+
+        c1.readEntries(5).forEach(Entry::release);
+        c2.readEntries(8).forEach(Entry::release);
+
+        // Evicts 0-4 behind the readers and then 7, 10-19 that are out of the readers windows
+        new EntryCacheCursorAwareEvictionPolicy(factory2).doEviction(Lists.newArrayList(cache), 160);
+        assertEquals(cache.getSize(), 40);
+        assertEquals(cacheManager.getSize(), 40);
+
+        cacheManager.mlFactoryMBean.refreshStats(1, TimeUnit.SECONDS);
+        assertEquals(cacheManager.mlFactoryMBean.getCacheEvictedBehindReadersThroughput(), 50.0);
+        assertEquals(cacheManager.mlFactoryMBean.getCacheEvictedAheadOfReadersThroughput(), 110.0);
+        assertEquals(cacheManager.mlFactoryMBean.getCacheEvictedLeastAccessedThroughput(), 0.0);
+
+        // Entries still in the readers windows are served from the cache
+        List<Entry> entries = c1.readEntries(2);
+        assertEquals(entries.size(), 2);
+        entries.forEach(Entry::release);
+        cacheManager.mlFactoryMBean.refreshStats(1, TimeUnit.SECONDS);
+        assertEquals(cacheManager.mlFactoryMBean.getCacheHitsRate(), 2.0);
+        assertEquals(cacheManager.mlFactoryMBean.getCacheMissesRate(), 0.0);
+
+        // The totals are kept across the refreshes, to compare the hit ratios of the eviction policies
+        assertEquals(cacheManager.mlFactoryMBean.getCacheHitsTotal(), 15);
+        assertEquals(cacheManager.mlFactoryMBean.getCacheMissesTotal(), 0);
+    }
+
+    @Test
+    public void verifyCursorAwareEvictionIsBounded() throws Exception {
+        ManagedLedgerFactoryConfig config = new ManagedLedgerFactoryConfig();
+        config.setMaxCacheSize(1000);
+        config.setCacheEvictionFrequency(0.01);
+        config.setCacheEvictionPolicyClassName(EntryCacheCursorAwareEvictionPolicy.class.getName());
+        config.setCacheEvictionReaderWindowEntries(2);
+
+        @Cleanup("shutdown")
+        ManagedLedgerFactoryImpl factory2 = new ManagedLedgerFactoryImpl(metadataStore, bkc, config);
+
+        ManagedLedgerImpl ledger = (ManagedLedgerImpl) factory2.open("ledger");
+        ManagedCursor c1 = ledger.openCursor("c1");
+        ManagedLedgerImpl ledgerWithoutReaders = (ManagedLedgerImpl) factory2.open("ledger-without-readers");
+
+        for (int i = 0; i < 20; i++) {
+            ledger.addEntry(new byte[10]);
+        }
+        EntryCache cache = ledger.entryCache;
+        c1.readEntries(10).forEach(Entry::release);
+
+        // Entries left in the cache of a ledger that has no active readers anymore
+        EntryCache cacheWithoutReaders = ledgerWithoutReaders.entryCache;
+        for (int i = 0; i < 20; i++) {
+            cacheWithoutReaders.insert(EntryImpl.create(1, i, new byte[10]));
+        }
+        assertEquals(cacheWithoutReaders.getSize(), 200);
+
+        // Only 0-2 are evicted behind the reader, the ledger without readers is not emptied
+        new EntryCacheCursorAwareEvictionPolicy(factory2).doEviction(
+                Lists.newArrayList(cache, cacheWithoutReaders), 30);
+        assertEquals(cache.getSize(), 170);
+        assertEquals(cacheWithoutReaders.getSize(), 200);
+
+        // Past the entries behind the reader, the entries out of its window are evicted up to the size to free
+        new EntryCacheCursorAwareEvictionPolicy(factory2).doEviction(
+                Lists.newArrayList(cache, cacheWithoutReaders), 100);
+        assertEquals(cache.getSize(), 70);
+        assertEquals(cacheWithoutReaders.getSize(), 200);
+    }
+
     @Test
     public void verifyTimeBasedEviction() throws Exception {
         ManagedLedgerFactoryConfig config = new ManagedLedgerFactoryConfig();
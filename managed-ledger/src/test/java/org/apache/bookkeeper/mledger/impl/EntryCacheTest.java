@@ -23,10 +23,12 @@ import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 
+import com.google.common.collect.Lists;
 import io.netty.buffer.Unpooled;
 
 import java.lang.reflect.Method;
@@ -34,6 +36,7 @@ import java.util.List;
 import java.util.Vector;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.bookkeeper.client.BKException.BKNoSuchLedgerExistsException;
 import org.apache.bookkeeper.client.api.LedgerEntries;
@@ -237,6 +240,68 @@ public class EntryCacheTest extends MockedBookKeeperTestCase {
         counter.await();
     }
 
+    @Test(timeOut = 5000)
+    public void testConcurrentReadsAreCoalesced() throws Exception {
+        ReadHandle lh = mock(ReadHandle.class);
+        when(lh.getId()).thenReturn((long) 0);
+        CompletableFuture<LedgerEntries> firstRead = new CompletableFuture<>();
+        CompletableFuture<LedgerEntries> secondRead = new CompletableFuture<>();
+        when(lh.readAsync(0, 9)).thenReturn(firstRead);
+        when(lh.readAsync(10, 14)).thenReturn(secondRead);
+
+        EntryCacheManager cacheManager = factory.getEntryCacheManager();
+        EntryCache entryCache = cacheManager.getEntryCache(ml);
+
+        CompletableFuture<List<Entry>> readA = readEntries(entryCache, lh, 0, 9);
+        CompletableFuture<List<Entry>> readB = readEntries(entryCache, lh, 0, 9);
+        CompletableFuture<List<Entry>> readC = readEntries(entryCache, lh, 5, 14);
+
+        firstRead.complete(getLedgerEntries(0, 9));
+        secondRead.complete(getLedgerEntries(10, 14));
+
+        for (CompletableFuture<List<Entry>> read : Lists.newArrayList(readA, readB, readC)) {
+            List<Entry> entries = read.get();
+            assertEquals(entries.size(), 10);
+            assertEquals(entries.get(9).getEntryId(), entries.get(0).getEntryId() + 9);
+            entries.forEach(Entry::release);
+        }
+
+        // Only two reads went to the bookies, readB and the first part of readC attached to the pending read
+        verify(lh, times(2)).readAsync(anyLong(), anyLong());
+        cacheManager.mlFactoryMBean.refreshStats(1, TimeUnit.SECONDS);
+        assertEquals(cacheManager.mlFactoryMBean.getCoalescedReadsRate(), 2.0);
+        assertEquals(cacheManager.mlFactoryMBean.getCoalescedReadEntriesRate(), 15.0);
+    }
+
+    private static CompletableFuture<List<Entry>> readEntries(EntryCache entryCache, ReadHandle lh, long first,
+            long last) {
+        CompletableFuture<List<Entry>> future = new CompletableFuture<>();
+        entryCache.asyncReadEntry(lh, first, last, false, new ReadEntriesCallback() {
+            public void readEntriesComplete(List<Entry> entries, Object ctx) {
+                future.complete(entries);
+            }
+
+            public void readEntriesFailed(ManagedLedgerException exception, Object ctx) {
+                future.completeExceptionally(exception);
+            }
+        }, null);
+        return future;
+    }
+
+    private static LedgerEntries getLedgerEntries(long first, long last) {
+        Vector<LedgerEntry> entries = new Vector<>();
+        for (long i = first; i <= last; i++) {
+            LedgerEntry ledgerEntry = mock(LedgerEntry.class);
+            doReturn(Unpooled.wrappedBuffer(new byte[10])).when(ledgerEntry).getEntryBuffer();
+            doReturn((long) 0).when(ledgerEntry).getLedgerId();
+            doReturn(i).when(ledgerEntry).getEntryId();
+            entries.add(ledgerEntry);
+        }
+        LedgerEntries ledgerEntries = mock(LedgerEntries.class);
+        doAnswer((invocation) -> entries.iterator()).when(ledgerEntries).iterator();
+        return ledgerEntries;
+    }
+
     static ReadHandle getLedgerHandle() {
         final ReadHandle lh = mock(ReadHandle.class);
         final LedgerEntry ledgerEntry = mock(LedgerEntry.class, Mockito.CALLS_REAL_METHODS);
@@ -35,12 +35,14 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Range;
 import com.google.common.collect.Sets;
 import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collections;
+import java.util.Enumeration;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -66,6 +68,7 @@ import org.apache.bookkeeper.client.BKException;
 import org.apache.bookkeeper.client.BookKeeper;
 import org.apache.bookkeeper.client.BookKeeper.DigestType;
 import org.apache.bookkeeper.client.LedgerEntry;
+import org.apache.bookkeeper.client.LedgerHandle;
 import org.apache.bookkeeper.mledger.AsyncCallbacks;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.AddEntryCallback;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.DeleteCallback;
@@ -85,6 +88,7 @@ import org.apache.bookkeeper.mledger.impl.ManagedCursorImpl.VoidCallback;
 import org.apache.bookkeeper.mledger.impl.MetaStore.MetaStoreCallback;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats.ManagedCursorInfo;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats.ManagedLedgerInfo.LedgerInfo;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats.PositionInfo;
 import org.apache.bookkeeper.test.MockedBookKeeperTestCase;
 import org.apache.pulsar.metadata.api.extended.SessionEvent;
@@ -194,6 +198,46 @@ public class ManagedCursorTest extends MockedBookKeeperTestCase {
         entries.forEach(e -> e.release());
     }
 
+    @Test(timeOut = 20000)
+    void readAheadWithCacheDisabled() throws Exception {
+        ManagedLedgerFactoryConfig config = new ManagedLedgerFactoryConfig();
+        config.setMaxCacheSize(0);
+
+        @Cleanup("shutdown")
+        ManagedLedgerFactory factory2 = new ManagedLedgerFactoryImpl(metadataStore, bkc, config);
+        ManagedLedger ledger = factory2.open("my_test_ledger", new ManagedLedgerConfig().setReadAheadEnabled(true)
+                .setReadAheadMaxWindowEntries(40).setReadAheadMaxOutstandingReads(3));
+
+        ManagedCursorImpl c1 = (ManagedCursorImpl) ledger.openCursor("c1");
+        for (int i = 0; i < 200; i++) {
+            ledger.addEntry(("entry-" + i).getBytes(Encoding));
+        }
+
+        int maxWindow = 0;
+        for (int i = 0; i < 200; i += 10) {
+            List<Entry> entries = c1.readEntries(10);
+            assertEquals(entries.size(), 10);
+            for (int j = 0; j < 10; j++) {
+                assertEquals(new String(entries.get(j).getData(), Encoding), "entry-" + (i + j));
+            }
+            entries.forEach(Entry::release);
+            maxWindow = Math.max(maxWindow, c1.readAhead.getWindowEntries());
+        }
+        assertEquals(maxWindow, 40);
+        assertFalse(c1.hasMoreEntries());
+
+        // Rewinding drops the read-ahead buffer and reads the right entries again
+        c1.rewind();
+        List<Entry> entries = c1.readEntries(10);
+        assertEquals(entries.size(), 10);
+        assertEquals(new String(entries.get(0).getData(), Encoding), "entry-0");
+        entries.forEach(Entry::release);
+        assertEquals(c1.readAhead.getWindowEntries(), 10);
+
+        c1.close();
+        assertEquals(c1.readAhead.getBufferedBytes(), 0);
+    }
+
     @Test(timeOut = 20000)
     void getEntryDataTwice() throws Exception {
         ManagedLedger ledger = factory.open("my_test_ledger");
@@ -2339,6 +2383,74 @@ public class ManagedCursorTest extends MockedBookKeeperTestCase {
         internalTestFindNewestMatchingAllEntries(ledgerAndCursorName, entriesPerLedger, expectedEntryId);
     }
 
+    @Test(timeOut = 20000)
+    void testFindNewestOlderThanWithTimeIndex() throws Exception {
+        ManagedLedgerConfig config = new ManagedLedgerConfig().setMaxEntriesPerLedger(100)
+                .setTimeIndexEnabled(true).setTimeIndexIntervalEntries(10).setTimeIndexIntervalMs(0)
+                .setTimeIndexMaxSamplesPerLedger(4)
+                .setEntryTimestampExtractor(data -> data.getLong(data.readerIndex()));
+        ManagedLedgerImpl ledger = (ManagedLedgerImpl) factory.open("testFindNewestOlderThanWithTimeIndex", config);
+        ManagedCursor c1 = ledger.openCursor("c1");
+
+        // Entry i is published at i * 10
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            positions.add(ledger.addEntry(ByteBuffer.allocate(8).putLong(i * 10).array()));
+        }
+
+        // The index of the closed ledgers is thinned out to the max number of samples
+        List<LedgerInfo> ledgers = ledger.getLedgersInfoAsList();
+        assertEquals(ledgers.size(), 3);
+        for (LedgerInfo ledgerInfo : ledgers.subList(0, 2)) {
+            assertEquals(ledgerInfo.getTimeIndexCount(), 3);
+            assertEquals(ledgerInfo.getTimeIndex(1).getEntryId(), 40);
+        }
+
+        // Closed ledger, current ledger, last entry of a sampling interval and no match. The samples are 40 entries
+        // apart in the closed ledgers and 20 in the current one.
+        long[] timestamps = new long[] { 1555, 2255, 1795, 0 };
+        int[] expectedEntries = new int[] { 140, 220, 179, -1 };
+        for (int i = 0; i < timestamps.length; i++) {
+            long timestamp = timestamps[i];
+            AtomicInteger readsWithIndex = new AtomicInteger();
+            CompletableFuture<Position> withIndex = new CompletableFuture<>();
+            c1.asyncFindNewestOlderThan(ManagedCursor.FindPositionConstraint.SearchAllAvailableEntries, timestamp, entry -> {
+                readsWithIndex.incrementAndGet();
+                return entry.getDataBuffer().getLong(entry.getDataBuffer().readerIndex()) < timestamp;
+            }, new AsyncCallbacks.FindEntryCallback() {
+                @Override
+                public void findEntryComplete(Position position, Object ctx) {
+                    withIndex.complete(position);
+                }
+
+                @Override
+                public void findEntryFailed(ManagedLedgerException exception, Optional<Position> failedReadPosition,
+                        Object ctx) {
+                    withIndex.completeExceptionally(exception);
+                }
+            }, null);
+
+            AtomicInteger readsWithoutIndex = new AtomicInteger();
+            Position withoutIndex = c1.findNewestMatching(ManagedCursor.FindPositionConstraint.SearchAllAvailableEntries,
+                    entry -> {
+                readsWithoutIndex.incrementAndGet();
+                return entry.getDataBuffer().getLong(entry.getDataBuffer().readerIndex()) < timestamp;
+            });
+
+            // With the index, only the first and the last entries of the sampling interval are read and the newest
+            // match is approximated by the sample that starts the interval
+            assertTrue(readsWithIndex.get() <= 2);
+            if (timestamp > 0) {
+                assertEquals(withIndex.get(), positions.get(expectedEntries[i]));
+                assertEquals(withoutIndex, positions.get((int) (timestamp / 10)));
+                assertTrue(readsWithIndex.get() < readsWithoutIndex.get());
+            } else {
+                assertNull(withIndex.get());
+                assertNull(withoutIndex);
+            }
+        }
+    }
+
     @Test(timeOut = 20000)
     void testReplayEntries() throws Exception {
         ManagedLedger ledger = factory.open("my_test_ledger");
@@ -2880,6 +2992,165 @@ public class ManagedCursorTest extends MockedBookKeeperTestCase {
         assertEquals(entries.size(), totalAddEntries / 2);
     }
 
+    /**
+     * Verifies that unacked ranges kept in bitmaps are persisted into the cursor-ledger without being truncated to
+     * MaxUnackedRangesToPersist, and can be recovered with or without bitmaps.
+     *
+     * @throws Exception
+     */
+    /**
+     * Verifies that unacked ranges bitmaps larger than MaxUnackedRangesBitmapSizeToPersist are persisted as ranges
+     * truncated to MaxUnackedRangesToPersist.
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 20000)
+    public void testOutOfOrderDeletePersistenceAsTooLargeBitmap() throws Exception {
+
+        final int totalAddEntries = 100;
+        String ledgerName = "my_test_ledger";
+        ManagedLedgerConfig managedLedgerConfig = new ManagedLedgerConfig();
+        managedLedgerConfig.setMaxUnackedRangesToPersistInZk(10);
+        managedLedgerConfig.setMaxUnackedRangesToPersist(20);
+        managedLedgerConfig.setUnackedRangesBitmapEnabled(true);
+        managedLedgerConfig.setMaxUnackedRangesBitmapSizeToPersist(1);
+        ManagedLedgerImpl ledger = (ManagedLedgerImpl) factory.open(ledgerName, managedLedgerConfig);
+
+        ManagedCursorImpl c1 = (ManagedCursorImpl) ledger.openCursor("c1");
+        for (int i = 0; i < totalAddEntries; i++) {
+            Position p = ledger.addEntry(("dummy-entry-" + i).getBytes(Encoding));
+            if (i % 2 == 0) {
+                // Acknowledge alternative message to create totalEntries/2 holes
+                c1.delete(p);
+            }
+        }
+        assertEquals(c1.getNumberOfEntriesInBacklog(false), totalAddEntries / 2);
+
+        // Close ledger to persist individual-deleted positions into cursor-ledger
+        ledger.close();
+
+        // Re-Open: only the first MaxUnackedRangesToPersist ranges were persisted
+        @Cleanup("shutdown")
+        ManagedLedgerFactory factory2 = new ManagedLedgerFactoryImpl(metadataStore, bkc);
+        ledger = (ManagedLedgerImpl) factory2.open(ledgerName, managedLedgerConfig);
+        c1 = (ManagedCursorImpl) ledger.openCursor("c1");
+        assertTrue(c1.getIndividuallyDeletedMessagesSet().size() <= 21);
+        assertTrue(c1.getNumberOfEntriesInBacklog(false) > totalAddEntries / 2);
+    }
+
+    @Test(timeOut = 20000)
+    public void testOutOfOrderDeletePersistenceAsBitmap() throws Exception {
+
+        final int totalAddEntries = 100;
+        String ledgerName = "my_test_ledger";
+        ManagedLedgerConfig managedLedgerConfig = new ManagedLedgerConfig();
+        managedLedgerConfig.setMaxUnackedRangesToPersistInZk(10);
+        managedLedgerConfig.setMaxUnackedRangesToPersist(20);
+        managedLedgerConfig.setUnackedRangesBitmapEnabled(true);
+        ManagedLedgerImpl ledger = (ManagedLedgerImpl) factory.open(ledgerName, managedLedgerConfig);
+
+        ManagedCursorImpl c1 = (ManagedCursorImpl) ledger.openCursor("c1");
+        Position lastPosition = null;
+        for (int i = 0; i < totalAddEntries; i++) {
+            Position p = ledger.addEntry(("dummy-entry-" + i).getBytes(Encoding));
+            lastPosition = p;
+            if (i % 2 == 0) {
+                // Acknowledge alternative message to create totalEntries/2 holes
+                c1.delete(p);
+            }
+        }
+        assertEquals(c1.getNumberOfEntriesInBacklog(false), totalAddEntries / 2);
+
+        // Close ledger to persist individual-deleted positions into cursor-ledger
+        ledger.close();
+
+        // Re-Open: all the holes are recovered even if there are more than MaxUnackedRangesToPersist
+        @Cleanup("shutdown")
+        ManagedLedgerFactory factory2 = new ManagedLedgerFactoryImpl(metadataStore, bkc);
+        ledger = (ManagedLedgerImpl) factory2.open(ledgerName, managedLedgerConfig);
+        c1 = (ManagedCursorImpl) ledger.openCursor("c1");
+        assertEquals(c1.getNumberOfEntriesInBacklog(false), totalAddEntries / 2);
+        assertEquals(c1.getIndividuallyDeletedMessagesSet().size(), totalAddEntries / 2 - 1);
+        // Acknowledge the last entry so that the cursor switches to a new cursor-ledger before closing
+        c1.delete(lastPosition);
+        ledger.close();
+
+        // Re-Open without bitmaps: the persisted bitmaps are converted back to ranges
+        managedLedgerConfig.setUnackedRangesBitmapEnabled(false);
+        @Cleanup("shutdown")
+        ManagedLedgerFactory factory3 = new ManagedLedgerFactoryImpl(metadataStore, bkc);
+        ledger = (ManagedLedgerImpl) factory3.open(ledgerName, managedLedgerConfig);
+        c1 = (ManagedCursorImpl) ledger.openCursor("c1");
+        assertEquals(c1.getNumberOfEntriesInBacklog(false), totalAddEntries / 2 - 1);
+
+        List<Entry> entries = c1.readEntries(totalAddEntries);
+        assertEquals(entries.size(), totalAddEntries / 2 - 1);
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals(new String(entries.get(i).getData(), Encoding), "dummy-entry-" + (i * 2 + 1));
+        }
+        entries.forEach(Entry::release);
+    }
+
+    @Test(timeOut = 20000)
+    public void testOutOfOrderDeletePersistenceAsDeltas() throws Exception {
+        final int totalAddEntries = 100;
+        String ledgerName = "my_test_ledger_deltas";
+        ManagedLedgerConfig managedLedgerConfig = new ManagedLedgerConfig();
+        managedLedgerConfig.setMaxUnackedRangesToPersistInZk(10);
+        managedLedgerConfig.setCursorStateDeltaEnabled(true);
+        managedLedgerConfig.setCursorStateDeltasPerSnapshot(7);
+        ManagedLedgerImpl ledger = (ManagedLedgerImpl) factory.open(ledgerName, managedLedgerConfig);
+
+        ManagedCursorImpl c1 = (ManagedCursorImpl) ledger.openCursor("c1");
+        List<Position> addedPositions = new ArrayList<>();
+        for (int i = 0; i < totalAddEntries; i++) {
+            Position p = ledger.addEntry(("dummy-entry-" + i).getBytes(Encoding));
+            addedPositions.add(p);
+            if (i % 2 == 0) {
+                // Acknowledge alternative message to create totalEntries/2 holes
+                c1.delete(p);
+            }
+        }
+        // Move the mark-delete position over the first holes
+        c1.delete(addedPositions.get(1));
+        assertEquals(c1.getNumberOfEntriesInBacklog(false), totalAddEntries / 2 - 1);
+        assertEquals(c1.getMarkDeletedPosition(), addedPositions.get(2));
+
+        // The cursor-ledger holds snapshots followed by small deltas
+        LedgerHandle lh = bkc.openLedgerNoRecovery(c1.getCursorLedger(), DigestType.CRC32C, "".getBytes());
+        int snapshots = 0;
+        Enumeration<LedgerEntry> cursorEntries = lh.readEntries(0, lh.getLastAddConfirmed());
+        while (cursorEntries.hasMoreElements()) {
+            PositionInfo positionInfo = PositionInfo.parseFrom(cursorEntries.nextElement().getEntry());
+            if (positionInfo.hasDeltaSequence()) {
+                assertTrue(positionInfo.getDeltaSequence() <= 7);
+                assertTrue(positionInfo.getIndividualDeletedMessagesCount() <= 1);
+            } else {
+                snapshots++;
+            }
+        }
+        assertTrue(snapshots > 1);
+        assertTrue(snapshots < totalAddEntries / 7 + 2);
+
+        ledger.close();
+
+        // Re-Open: the last snapshot and the deltas after it are replayed
+        @Cleanup("shutdown")
+        ManagedLedgerFactory factory2 = new ManagedLedgerFactoryImpl(metadataStore, bkc);
+        ledger = (ManagedLedgerImpl) factory2.open(ledgerName, managedLedgerConfig);
+        c1 = (ManagedCursorImpl) ledger.openCursor("c1");
+        assertEquals(c1.getMarkDeletedPosition(), addedPositions.get(2));
+        assertEquals(c1.getNumberOfEntriesInBacklog(false), totalAddEntries / 2 - 1);
+        assertEquals(c1.getIndividuallyDeletedMessagesSet().size(), totalAddEntries / 2 - 2);
+
+        List<Entry> entries = c1.readEntries(totalAddEntries);
+        assertEquals(entries.size(), totalAddEntries / 2 - 1);
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals(new String(entries.get(i).getData(), Encoding), "dummy-entry-" + (i * 2 + 3));
+        }
+        entries.forEach(Entry::release);
+    }
+
     /**
      * Close Cursor without MaxUnackedRangesToPersistInZK: It should store individually unack range into Zk
      *
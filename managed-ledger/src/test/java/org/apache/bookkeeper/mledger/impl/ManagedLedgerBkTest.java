@@ -27,6 +27,8 @@ import com.google.common.base.Charsets;
 import com.google.common.collect.Lists;
 import io.netty.buffer.ByteBuf;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.Future;
@@ -49,6 +51,7 @@ import org.apache.bookkeeper.mledger.ManagedLedgerFactory;
 import org.apache.bookkeeper.mledger.ManagedLedgerFactoryConfig;
 import org.apache.bookkeeper.mledger.Position;
 import org.apache.bookkeeper.test.BookKeeperClusterTestCase;
+import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.common.policies.data.PersistentOfflineTopicStats;
 import org.testng.annotations.Test;
 
@@ -440,6 +443,53 @@ public class ManagedLedgerBkTest extends BookKeeperClusterTestCase {
         assertNotNull(offlineTopicStats);
     }
 
+    @Test
+    public void testOfflineTopicBacklogs() throws Exception {
+        @Cleanup("shutdown")
+        ManagedLedgerFactory factory = new ManagedLedgerFactoryImpl(metadataStore, bkc);
+        ManagedLedgerConfig config = new ManagedLedgerConfig().setMaxEntriesPerLedger(4).setEnsembleSize(1)
+                .setWriteQuorumSize(1).setAckQuorumSize(1).setMetadataEnsembleSize(1).setMetadataAckQuorumSize(1);
+
+        List<TopicName> topicNames = Lists.newArrayList();
+        ManagedLedger loadedLedger = null;
+        for (int i = 0; i < 3; i++) {
+            TopicName topicName = TopicName.get("persistent://property/cluster/namespace/topic-" + i);
+            topicNames.add(topicName);
+            ManagedLedger ledger = factory.open(topicName.getPersistenceNamingEncoding(), config);
+            ManagedCursor c1 = ledger.openCursor("c1");
+            ledger.openCursor("c2");
+            List<Position> positions = Lists.newArrayList();
+            for (int j = 0; j < 10; j++) {
+                positions.add(ledger.addEntry(("entry-" + j).getBytes()));
+            }
+            c1.markDelete(positions.get(4));
+            if (i < 2) {
+                ledger.close();
+            } else {
+                loadedLedger = ledger;
+            }
+        }
+        topicNames.add(TopicName.get("persistent://property/cluster/namespace/non-existing-topic"));
+
+        for (boolean metadataOnly : new boolean[] { false, true }) {
+            ManagedLedgerOfflineBacklog offlineTopicBacklog = new ManagedLedgerOfflineBacklog(
+                    DigestType.CRC32C, "".getBytes(Charsets.UTF_8), "", false, metadataOnly);
+            Map<TopicName, PersistentOfflineTopicStats> partialResults = new ConcurrentHashMap<>();
+            Map<TopicName, PersistentOfflineTopicStats> results = offlineTopicBacklog.estimateUnloadedTopicBacklogs(
+                    (ManagedLedgerFactoryImpl) factory, topicNames, 2, partialResults::put).get();
+
+            assertEquals(results.size(), 3);
+            assertEquals(partialResults, results);
+            for (PersistentOfflineTopicStats stats : results.values()) {
+                assertEquals(stats.totalMessages, 10);
+                assertEquals(stats.messageBacklog, 15);
+                assertEquals(stats.cursorDetails.get("c1").cursorBacklog, 5);
+                assertEquals(stats.cursorDetails.get("c2").cursorBacklog, 10);
+            }
+        }
+        loadedLedger.close();
+    }
+
     @Test(timeOut = 20000)
     void testResetCursorAfterRecovery() throws Exception {
         @Cleanup("shutdown")
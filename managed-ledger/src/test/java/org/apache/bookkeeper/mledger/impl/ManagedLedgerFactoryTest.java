@@ -19,16 +19,23 @@
 package org.apache.bookkeeper.mledger.impl;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Cleanup;
 import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.mledger.BulkOpenResult;
 import org.apache.bookkeeper.mledger.Entry;
 import org.apache.bookkeeper.mledger.ManagedCursor;
 import org.apache.bookkeeper.mledger.ManagedLedger;
 import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
 import org.apache.bookkeeper.mledger.ManagedLedgerFactory;
+import org.apache.bookkeeper.mledger.ManagedLedgerFactoryConfig;
 import org.apache.bookkeeper.mledger.ManagedLedgerInfo;
 import org.apache.bookkeeper.mledger.ManagedLedgerInfo.CursorInfo;
 import org.apache.bookkeeper.mledger.ManagedLedgerInfo.MessageRangeInfo;
+import org.apache.bookkeeper.mledger.Position;
 import org.apache.bookkeeper.test.MockedBookKeeperTestCase;
 import org.apache.bookkeeper.test.ZooKeeperUtil;
 import org.testng.Assert;
@@ -79,4 +86,62 @@ public class ManagedLedgerFactoryTest extends MockedBookKeeperTestCase {
         assertEquals(mri.to.entryId, 0);
     }
 
+
+    @Test(timeOut = 20000)
+    public void testAsyncOpenBulk() throws Exception {
+        ManagedLedgerConfig conf = new ManagedLedgerConfig();
+        Map<String, Position> markDeletePositions = new HashMap<>();
+        for (int i = 0; i < 5; i++) {
+            ManagedLedger ledger = factory.open("bulk-" + i, conf);
+            ManagedCursor c1 = ledger.openCursor("c1");
+            ledger.openCursor("c2");
+            ledger.addEntry("entry-1".getBytes());
+            Position p = ledger.addEntry("entry-2".getBytes());
+            ledger.addEntry("entry-3".getBytes());
+            c1.markDelete(p);
+            markDeletePositions.put("bulk-" + i, p);
+            ledger.close();
+        }
+
+        ManagedLedgerFactoryConfig factoryConf = new ManagedLedgerFactoryConfig();
+        factoryConf.setBulkOpenMetadataBatchSize(2);
+        factoryConf.setBulkOpenMaxConcurrentInitializations(3);
+        @Cleanup("shutdown")
+        ManagedLedgerFactoryImpl factory2 = new ManagedLedgerFactoryImpl(metadataStore, bkc, factoryConf);
+        ManagedLedger alreadyOpen = factory2.open("bulk-0", conf);
+
+        Map<String, ManagedLedgerConfig> toOpen = new HashMap<>();
+        for (int i = 0; i < 7; i++) {
+            // The last 2 managed ledgers don't exist yet
+            toOpen.put("bulk-" + i, conf);
+        }
+        BulkOpenResult result = factory2.asyncOpenBulk(toOpen, null).get();
+
+        assertEquals(result.getFailures().size(), 0);
+        assertEquals(result.getManagedLedgers().size(), 7);
+        // The metadata of the 6 managed ledgers that were not open is read in batches of 2
+        assertEquals(result.getMetadataBatches(), 3);
+        assertSame(result.getManagedLedgers().get("bulk-0"), alreadyOpen);
+
+        for (int i = 0; i < 5; i++) {
+            ManagedLedger ledger = result.getManagedLedgers().get("bulk-" + i);
+            assertEquals(ledger.getNumberOfEntries(), 3);
+            assertEquals(ledger.openCursor("c1").getMarkDeletedPosition(), markDeletePositions.get("bulk-" + i));
+            assertEquals(ledger.openCursor("c2").getNumberOfEntriesInBacklog(false), 3);
+        }
+        for (int i = 5; i < 7; i++) {
+            ManagedLedger ledger = result.getManagedLedgers().get("bulk-" + i);
+            assertEquals(ledger.getNumberOfEntries(), 0);
+            ledger.addEntry("entry".getBytes());
+        }
+
+        // Later metadata updates use the versions read by the bulk open
+        ManagedLedger ledger = result.getManagedLedgers().get("bulk-3");
+        ManagedCursor c2 = ledger.openCursor("c2");
+        c2.markDelete(ledger.addEntry("entry-4".getBytes()));
+        ledger.close();
+        ledger = factory2.open("bulk-3", conf);
+        assertEquals(ledger.openCursor("c2").getNumberOfEntriesInBacklog(false), 0);
+    }
+
 }
@@ -593,6 +593,111 @@ public class ManagedLedgerTest extends MockedBookKeeperTestCase {
         assertEquals(ledger.getTotalSize(), "dummy-entry-1".getBytes(Encoding).length * count);
     }
 
+    @Test(timeOut = 20000)
+    public void asyncAddEntryFromMultipleThreads() throws Exception {
+        ManagedLedger ledger = factory.open("my_test_ledger",
+                new ManagedLedgerConfig().setMaxEntriesPerLedger(10));
+        ledger.openCursor("test-cursor");
+
+        final int threads = 4;
+        // more requests than drained by a single task
+        final int countPerThread = 100;
+        final CountDownLatch counter = new CountDownLatch(threads * countPerThread);
+        List<List<PositionImpl>> positions = new ArrayList<>();
+        @Cleanup("shutdownNow")
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            List<PositionImpl> threadPositions = Collections.synchronizedList(new ArrayList<>());
+            positions.add(threadPositions);
+            executor.execute(() -> {
+                for (int j = 0; j < countPerThread; j++) {
+                    ledger.asyncAddEntry("entry".getBytes(Encoding), new AddEntryCallback() {
+                        @Override
+                        public void addComplete(Position position, ByteBuf entryData, Object ctx) {
+                            threadPositions.add((PositionImpl) position);
+                            counter.countDown();
+                        }
+
+                        @Override
+                        public void addFailed(ManagedLedgerException exception, Object ctx) {
+                            fail(exception.getMessage());
+                        }
+                    }, null);
+                }
+            });
+        }
+
+        counter.await();
+        assertEquals(ledger.getNumberOfEntries(), threads * countPerThread);
+        // the entries of each thread are persisted in the order they were added
+        for (List<PositionImpl> threadPositions : positions) {
+            List<PositionImpl> sorted = new ArrayList<>(threadPositions);
+            Collections.sort(sorted);
+            assertEquals(threadPositions, sorted);
+        }
+    }
+
+    @Test(timeOut = 20000)
+    public void asyncAddEntryFailsWhenAddingThrows() throws Exception {
+        ManagedLedgerImpl ledger = (ManagedLedgerImpl) factory.open("my_test_ledger");
+        ledger.addEntry("entry-0".getBytes(Encoding));
+
+        Field currentLedgerField = ManagedLedgerImpl.class.getDeclaredField("currentLedger");
+        currentLedgerField.setAccessible(true);
+        LedgerHandle currentLedger = (LedgerHandle) currentLedgerField.get(ledger);
+        // the first add to the ledger throws, the next one is added as usual
+        LedgerHandle ledgerHandle = mock(LedgerHandle.class);
+        doReturn(currentLedger.getId()).when(ledgerHandle).getId();
+        doAnswer(invocation -> {
+            invocation.getArgument(0, ByteBuf.class).release();
+            throw new IllegalStateException("Failed to add the entry");
+        }).doAnswer(invocation -> {
+            currentLedger.asyncAddEntry(invocation.getArgument(0, ByteBuf.class), invocation.getArgument(1),
+                    invocation.getArgument(2));
+            return null;
+        }).when(ledgerHandle).asyncAddEntry(any(ByteBuf.class), any(AddCallback.class), any());
+        setFieldValue(ManagedLedgerImpl.class, ledger, "currentLedger", ledgerHandle);
+
+        ByteBuf data = ByteBufAllocator.DEFAULT.buffer();
+        data.writeBytes("entry-1".getBytes(Encoding));
+        CompletableFuture<ManagedLedgerException> failure = new CompletableFuture<>();
+        ledger.asyncAddEntry(data, new AddEntryCallback() {
+            @Override
+            public void addComplete(Position position, ByteBuf entryData, Object ctx) {
+                failure.complete(null);
+            }
+
+            @Override
+            public void addFailed(ManagedLedgerException exception, Object ctx) {
+                failure.complete(exception);
+            }
+        }, null);
+        CompletableFuture<Position> added = new CompletableFuture<>();
+        ledger.asyncAddEntry("entry-2".getBytes(Encoding), new AddEntryCallback() {
+            @Override
+            public void addComplete(Position position, ByteBuf entryData, Object ctx) {
+                added.complete(position);
+            }
+
+            @Override
+            public void addFailed(ManagedLedgerException exception, Object ctx) {
+                added.completeExceptionally(exception);
+            }
+        }, null);
+
+        ManagedLedgerException exception = failure.get();
+        assertNotNull(exception);
+        assertTrue(exception.getCause() instanceof IllegalStateException);
+        // the data retained by the failed request is released
+        assertEquals(data.refCnt(), 1);
+        data.release();
+        // the requests after the failed one are still added
+        assertNotNull(added.get());
+        assertEquals(ledger.getNumberOfEntries(), 2);
+
+        setFieldValue(ManagedLedgerImpl.class, ledger, "currentLedger", currentLedger);
+    }
+
     @Test(timeOut = 20000)
     public void doubleAsyncAddEntryWithoutError() throws Exception {
         ManagedLedger ledger = factory.open("my_test_ledger");
@@ -1781,6 +1886,50 @@ public class ManagedLedgerTest extends MockedBookKeeperTestCase {
         assertEquals(ledger.getLedgersInfoAsList().size(), 2);
     }
 
+    @Test
+    public void testRolloverToStandbyLedger() throws Exception {
+        ManagedLedgerConfig conf = new ManagedLedgerConfig();
+        conf.setMaxEntriesPerLedger(10);
+        conf.setMinimumRolloverTime(0, TimeUnit.SECONDS);
+        conf.setStandbyLedgerEnabled(true);
+        conf.setStandbyLedgerCreationThresholdPercentage(50);
+        ManagedLedgerImpl ledger = (ManagedLedgerImpl) factory.open("my_test_standby_ledger", conf);
+        ledger.openCursor("c1");
+
+        for (int i = 0; i < 4; i++) {
+            ledger.addEntry("data".getBytes());
+        }
+        assertNull(ledger.getStandbyLedger());
+
+        // Reaching half of the max entries creates the next ledger in background
+        ledger.addEntry("data".getBytes());
+        Awaitility.await().untilAsserted(() -> assertNotNull(ledger.getStandbyLedger()));
+        long standbyLedgerId = ledger.getStandbyLedger().getId();
+        assertEquals(ledger.getLedgersInfoAsList().size(), 1);
+
+        // The rollover switches to the standby ledger
+        for (int i = 0; i < 6; i++) {
+            ledger.addEntry("data".getBytes());
+        }
+        assertEquals(ledger.getLedgersInfoAsList().size(), 2);
+        assertEquals(ledger.getLedgersInfoAsList().get(1).getLedgerId(), standbyLedgerId);
+        assertEquals(ledger.getLastConfirmedEntry(), new PositionImpl(standbyLedgerId, 0));
+        assertNull(ledger.getStandbyLedger());
+
+        ledger.getMBean().refreshStats(1, TimeUnit.SECONDS);
+        assertEquals(Arrays.stream(ledger.getMBean().getLedgerRolloverStallLatencyBuckets()).sum(), 1);
+
+        // An unused standby ledger is deleted when closing the managed ledger
+        for (int i = 0; i < 5; i++) {
+            ledger.addEntry("data".getBytes());
+        }
+        Awaitility.await().untilAsserted(() -> assertNotNull(ledger.getStandbyLedger()));
+        long unusedLedgerId = ledger.getStandbyLedger().getId();
+        assertTrue(bkc.getLedgers().contains(unusedLedgerId));
+        ledger.close();
+        Awaitility.await().untilAsserted(() -> assertFalse(bkc.getLedgers().contains(unusedLedgerId)));
+    }
+
     @Test
     public void testNoRolloverIfNoMetadataSession() throws Exception {
         ManagedLedgerConfig conf = new ManagedLedgerConfig();
@@ -126,6 +126,11 @@ public class OffloadPrefixTest extends MockedBookKeeperTestCase {
                             .filter(e -> e.getOffloadContext().getComplete())
                             .map(e -> e.getLedgerId()).collect(Collectors.toSet()),
                             offloader.offloadedLedgers());
+
+        ledger.mbean.refreshStats(1, TimeUnit.SECONDS);
+        assertEquals(ledger.getStats().getOffloadedLedgersRate(), 2.0);
+        assertTrue(ledger.getStats().getOffloadedBytesRate() > 0);
+        assertTrue(ledger.getStats().getOffloadThroughput() > 0);
     }
 
     @Test
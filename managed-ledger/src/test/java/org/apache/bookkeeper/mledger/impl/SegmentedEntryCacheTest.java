@@ -0,0 +1,181 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.apache.bookkeeper.mledger.AsyncCallbacks.ReadEntriesCallback;
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.bookkeeper.mledger.ManagedLedgerFactoryConfig;
+import org.apache.bookkeeper.test.MockedBookKeeperTestCase;
+import org.testng.annotations.Test;
+
+public class SegmentedEntryCacheTest extends MockedBookKeeperTestCase {
+
+    private static final int SEGMENT_SIZE = 64;
+
+    private ManagedLedgerFactoryImpl segmentedFactory;
+    private ManagedLedgerImpl ml;
+
+    @Override
+    protected void setUpTestCase() throws Exception {
+        ManagedLedgerFactoryConfig config = new ManagedLedgerFactoryConfig();
+        config.setSegmentedEntryCacheEnabled(true);
+        config.setSegmentedEntryCacheSegmentSize(SEGMENT_SIZE);
+        segmentedFactory = new ManagedLedgerFactoryImpl(metadataStore, bkc, config);
+
+        ml = mock(ManagedLedgerImpl.class);
+        when(ml.getName()).thenReturn("name");
+        when(ml.getExecutor()).thenReturn(executor);
+        when(ml.getMBean()).thenReturn(new ManagedLedgerMBeanImpl(ml));
+    }
+
+    @Override
+    protected void cleanUpTestCase() throws Exception {
+        segmentedFactory.shutdown();
+    }
+
+    @Test(timeOut = 5000)
+    public void testReadFromSegments() throws Exception {
+        ReadHandle lh = EntryCacheTest.getLedgerHandle();
+        when(lh.getId()).thenReturn((long) 0);
+
+        EntryCache entryCache = segmentedFactory.getEntryCacheManager().getEntryCache(ml);
+        assertTrue(entryCache instanceof SegmentedEntryCacheImpl);
+
+        for (int i = 0; i < 10; i++) {
+            byte[] data = new byte[10];
+            data[0] = (byte) i;
+            assertTrue(insert(entryCache, EntryImpl.create(0, i, data)));
+        }
+
+        // 6 entries fit in each segment
+        assertEquals(((SegmentedEntryCacheImpl) entryCache).getNumberOfSegments(), 2);
+        assertEquals(entryCache.getSize(), 2 * SEGMENT_SIZE);
+
+        List<Entry> entries = readEntries(entryCache, lh, 0, 9);
+        assertEquals(entries.size(), 10);
+        for (int i = 0; i < 10; i++) {
+            Entry entry = entries.get(i);
+            assertEquals(entry.getEntryId(), i);
+            assertEquals(entry.getLength(), 10);
+            assertEquals(entry.getData()[0], (byte) i);
+        }
+
+        // The slices are still valid after the cache has released the segments
+        entryCache.clear();
+        assertEquals(entryCache.getSize(), 0);
+        assertEquals(entries.get(9).getData()[0], (byte) 9);
+        entries.forEach(Entry::release);
+
+        verify(lh, never()).readAsync(anyLong(), anyLong());
+    }
+
+    @Test(timeOut = 5000)
+    public void testReadWithMissingEntries() throws Exception {
+        ReadHandle lh = EntryCacheTest.getLedgerHandle();
+        when(lh.getId()).thenReturn((long) 0);
+
+        EntryCache entryCache = segmentedFactory.getEntryCacheManager().getEntryCache(ml);
+        for (int i = 0; i < 3; i++) {
+            insert(entryCache, EntryImpl.create(0, i, new byte[10]));
+        }
+        for (int i = 5; i < 10; i++) {
+            insert(entryCache, EntryImpl.create(0, i, new byte[10]));
+        }
+
+        List<Entry> entries = readEntries(entryCache, lh, 0, 9);
+        assertEquals(entries.size(), 10);
+        entries.forEach(Entry::release);
+        verify(lh, times(1)).readAsync(0, 9);
+
+        // Fully cached sub-range
+        entries = readEntries(entryCache, lh, 5, 9);
+        assertEquals(entries.size(), 5);
+        entries.forEach(Entry::release);
+        verify(lh, times(1)).readAsync(anyLong(), anyLong());
+    }
+
+    @Test(timeOut = 5000)
+    public void testInvalidateAndEvictSegments() throws Exception {
+        EntryCacheManager cacheManager = segmentedFactory.getEntryCacheManager();
+        SegmentedEntryCacheImpl entryCache = (SegmentedEntryCacheImpl) cacheManager.getEntryCache(ml);
+
+        for (int i = 0; i < 12; i++) {
+            insert(entryCache, EntryImpl.create(1, i, new byte[10]));
+        }
+        for (int i = 0; i < 6; i++) {
+            insert(entryCache, EntryImpl.create(2, i, new byte[10]));
+        }
+        assertEquals(entryCache.getNumberOfSegments(), 3);
+        assertEquals(cacheManager.getSize(), 3 * SEGMENT_SIZE);
+
+        // Segments that are only partially consumed are kept
+        entryCache.invalidateEntries(PositionImpl.get(1, 8));
+        assertEquals(entryCache.getNumberOfSegments(), 2);
+        assertEquals(cacheManager.getSize(), 2 * SEGMENT_SIZE);
+
+        // Inserting older entries is rejected
+        assertTrue(!insert(entryCache, EntryImpl.create(1, 3, new byte[10])));
+
+        // Eviction always frees whole segments, starting from the oldest
+        assertEquals(entryCache.evictEntries(1).getRight().longValue(), SEGMENT_SIZE);
+        assertEquals(entryCache.getNumberOfSegments(), 1);
+
+        entryCache.invalidateAllEntries(2);
+        assertEquals(entryCache.getNumberOfSegments(), 0);
+        assertEquals(entryCache.getSize(), 0);
+        assertEquals(cacheManager.getSize(), 0);
+    }
+
+    // The segments hold a copy of the inserted entries
+    private static boolean insert(EntryCache entryCache, EntryImpl entry) {
+        try {
+            return entryCache.insert(entry);
+        } finally {
+            entry.release();
+        }
+    }
+
+    private static List<Entry> readEntries(EntryCache entryCache, ReadHandle lh, long first, long last)
+            throws Exception {
+        CompletableFuture<List<Entry>> future = new CompletableFuture<>();
+        entryCache.asyncReadEntry(lh, first, last, false, new ReadEntriesCallback() {
+            public void readEntriesComplete(List<Entry> entries, Object ctx) {
+                future.complete(entries);
+            }
+
+            public void readEntriesFailed(ManagedLedgerException exception, Object ctx) {
+                future.completeExceptionally(exception);
+            }
+        }, null);
+        return future.get();
+    }
+}
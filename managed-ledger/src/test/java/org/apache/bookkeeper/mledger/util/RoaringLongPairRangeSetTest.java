@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Range;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import org.apache.pulsar.common.util.collections.LongPairRangeSet.LongPair;
+import org.apache.pulsar.common.util.collections.LongPairRangeSet.LongPairConsumer;
+import org.testng.annotations.Test;
+
+public class RoaringLongPairRangeSetTest {
+
+    static final LongPairConsumer<LongPair> consumer = LongPair::new;
+
+    @Test
+    public void testAddForSameKey() {
+        RoaringLongPairRangeSet<LongPair> set = new RoaringLongPairRangeSet<>(consumer);
+        set.add(Range.closed(new LongPair(0, 0), new LongPair(0, 5)));
+        set.add(Range.closed(new LongPair(0, 8), new LongPair(0, 8)));
+        set.add(Range.closed(new LongPair(0, 9), new LongPair(0, 9)));
+        set.add(Range.closed(new LongPair(0, 10), new LongPair(0, 10)));
+        set.add(Range.closed(new LongPair(0, 98), new LongPair(0, 99)));
+        set.add(Range.closed(new LongPair(0, 102), new LongPair(0, 106)));
+
+        List<Range<LongPair>> ranges = set.asRanges();
+        assertEquals(ranges.size(), 4);
+        assertEquals(set.size(), 4);
+        assertEquals(ranges.get(0), Range.openClosed(new LongPair(0, -1), new LongPair(0, 5)));
+        assertEquals(ranges.get(1), Range.openClosed(new LongPair(0, 7), new LongPair(0, 10)));
+        assertEquals(ranges.get(2), Range.openClosed(new LongPair(0, 97), new LongPair(0, 99)));
+        assertEquals(ranges.get(3), Range.openClosed(new LongPair(0, 101), new LongPair(0, 106)));
+        assertEquals(set.firstRange(), ranges.get(0));
+        assertEquals(set.lastRange(), ranges.get(3));
+        assertEquals(set.span(), Range.openClosed(new LongPair(0, -1), new LongPair(0, 106)));
+    }
+
+    @Test
+    public void testAddForDifferentKey() {
+        RoaringLongPairRangeSet<LongPair> set = new RoaringLongPairRangeSet<>(consumer);
+        set.addOpenClosed(0, 98, 0, 99);
+        set.addOpenClosed(0, 100, 1, 5);
+        set.addOpenClosed(1, 10, 1, 15);
+        set.addOpenClosed(1, 20, 2, 10);
+
+        List<Range<LongPair>> ranges = set.asRanges();
+        assertEquals(ranges.size(), 4);
+        assertEquals(ranges.get(0), Range.openClosed(new LongPair(0, 98), new LongPair(0, 99)));
+        assertEquals(ranges.get(1), Range.openClosed(new LongPair(1, -1), new LongPair(1, 5)));
+        assertEquals(ranges.get(2), Range.openClosed(new LongPair(1, 10), new LongPair(1, 15)));
+        assertEquals(ranges.get(3), Range.openClosed(new LongPair(2, -1), new LongPair(2, 10)));
+    }
+
+    @Test
+    public void testCompareWithBitSet() {
+        RoaringLongPairRangeSet<LongPair> set = new RoaringLongPairRangeSet<>(consumer);
+        BitSet expected = new BitSet();
+
+        for (int i = 0; i < 20_000; i++) {
+            if (i % 3 == 0 || i % 8 == 0) {
+                set.addOpenClosed(0, i - 1, 0, i);
+                expected.set(i);
+            }
+        }
+        // Remove some values, splitting and shrinking ranges
+        for (int i = 0; i < 20_000; i += 50) {
+            set.remove(Range.closed(new LongPair(0, i), new LongPair(0, i + 10)));
+            expected.clear(i, i + 11);
+        }
+
+        List<Range<LongPair>> expectedRanges = new ArrayList<>();
+        for (int i = expected.nextSetBit(0); i >= 0; i = expected.nextSetBit(expected.nextClearBit(i))) {
+            expectedRanges.add(Range.openClosed(new LongPair(0, i - 1), new LongPair(0, expected.nextClearBit(i) - 1)));
+        }
+        assertEquals(set.asRanges(), expectedRanges);
+        assertEquals(set.size(), expectedRanges.size());
+
+        for (int i = 0; i < 20_000; i++) {
+            assertEquals(set.contains(0, i), expected.get(i), "value " + i);
+        }
+    }
+
+    @Test
+    public void testRangeContaining() {
+        RoaringLongPairRangeSet<LongPair> set = new RoaringLongPairRangeSet<>(consumer);
+        set.addOpenClosed(0, 4, 0, 10);
+        set.addOpenClosed(1, 9, 1, 20);
+
+        assertEquals(set.rangeContaining(0, 7), Range.closed(new LongPair(0, 5), new LongPair(0, 10)));
+        assertEquals(set.rangeContaining(1, 10), Range.closed(new LongPair(1, 10), new LongPair(1, 20)));
+        assertNull(set.rangeContaining(0, 11));
+        assertNull(set.rangeContaining(2, 0));
+        assertNull(set.rangeContaining(0, -1));
+    }
+
+    @Test
+    public void testRemoveAtMost() {
+        RoaringLongPairRangeSet<LongPair> set = new RoaringLongPairRangeSet<>(consumer);
+        set.addOpenClosed(0, 4, 0, 10);
+        set.addOpenClosed(1, 4, 1, 10);
+        set.addOpenClosed(2, 4, 2, 10);
+
+        set.removeAtMost(1, 7);
+        assertEquals(set.asRanges(), Lists.newArrayList(
+                Range.openClosed(new LongPair(1, 7), new LongPair(1, 10)),
+                Range.openClosed(new LongPair(2, 4), new LongPair(2, 10))));
+
+        set.removeAtMost(2, 10);
+        assertTrue(set.isEmpty());
+        assertNull(set.firstRange());
+        assertNull(set.span());
+    }
+
+    @Test
+    public void testSerializedBitmaps() throws Exception {
+        RoaringLongPairRangeSet<LongPair> set = new RoaringLongPairRangeSet<>(consumer);
+        for (int i = 0; i < 1_000_000; i += 2) {
+            set.addOpenClosed(1, i - 1, 1, i);
+        }
+        set.addOpenClosed(2, 9, 2, 100_000);
+        assertEquals(set.size(), 500_001);
+
+        List<Long> keys = new ArrayList<>();
+        List<byte[]> bitmaps = new ArrayList<>();
+        set.forEachSerializedBitmap((key, bitmap) -> {
+            keys.add(key);
+            bitmaps.add(bitmap);
+        });
+        assertEquals(keys, Lists.newArrayList(1L, 2L));
+        // A single run of 100K values stays tiny once serialized
+        assertTrue(bitmaps.get(1).length < 100);
+
+        RoaringLongPairRangeSet<LongPair> recovered = new RoaringLongPairRangeSet<>(consumer);
+        for (int i = 0; i < keys.size(); i++) {
+            recovered.addSerializedBitmap(keys.get(i), ByteBuffer.wrap(bitmaps.get(i)));
+        }
+        assertEquals(recovered.size(), set.size());
+        assertEquals(recovered.asRanges(), set.asRanges());
+        assertTrue(recovered.contains(1, 999_998));
+        assertFalse(recovered.contains(1, 999_999));
+    }
+}
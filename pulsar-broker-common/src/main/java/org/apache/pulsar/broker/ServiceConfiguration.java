@@ -256,6 +256,21 @@ public class ServiceConfiguration implements PulsarConfiguration {
             + " affecting the accuracy of the delivery time compared to the scheduled time. Default is 1 second.")
     private long delayedDeliveryTickTimeMillis = 1000;
 
+    @FieldContext(category = CATEGORY_SERVER, doc = "Number of delayed messages indexed in the last, mutable, bucket"
+            + " of a subscription before the bucket is sealed and its index is snapshotted to a ledger."
+            + " Only used by the BucketDelayedDeliveryTrackerFactory.")
+    private long delayedDeliveryMinIndexCountPerBucket = 50000;
+
+    @FieldContext(category = CATEGORY_SERVER, doc = "Max number of delayed messages indexed in a segment of a bucket"
+            + " snapshot, the segments of a sealed bucket are loaded in memory one at a time, as their delivery time"
+            + " approaches. Only used by the BucketDelayedDeliveryTrackerFactory.")
+    private int delayedDeliveryMaxIndexesPerBucketSnapshotSegment = 5000;
+
+    @FieldContext(category = CATEGORY_SERVER, doc = "Max number of sealed buckets of a subscription, the adjacent"
+            + " buckets with the fewest delayed messages are merged when a new bucket exceeds it."
+            + " Only used by the BucketDelayedDeliveryTrackerFactory.")
+    private int delayedDeliveryMaxNumBuckets = 50;
+
     @FieldContext(category = CATEGORY_SERVER, doc = "Whether to enable the acknowledge of batch local index")
     private boolean acknowledgmentAtBatchIndexLevelEnabled = false;
 
@@ -800,6 +815,24 @@ public class ServiceConfiguration implements PulsarConfiguration {
     )
     private boolean streamingDispatch = false;
 
+    @FieldContext(
+        category = CATEGORY_SERVER,
+        doc = "List of entry filters, implementations of org.apache.pulsar.broker.service.plugin.EntryFilter, that "
+                + "are evaluated in order against the entries dispatched to the consumers of persistent "
+                + "subscriptions. Entries rejected by a filter are acknowledged by the broker and never sent to "
+                + "the consumers, entries rescheduled by a filter are dispatched again later. The built-in "
+                + "org.apache.pulsar.broker.service.plugin.PropertyEntryFilter matches entries against the key and "
+                + "property predicates set in the metadata of the consumers."
+    )
+    private List<String> entryFilterClassNames = new ArrayList<>();
+
+    @FieldContext(
+        dynamic = true,
+        category = CATEGORY_SERVER,
+        doc = "Delay, in milliseconds, before the entries rescheduled by an entry filter are dispatched again"
+    )
+    private long dispatcherEntryFilterRescheduledMessageDelay = 1000;
+
     @FieldContext(
         dynamic = true,
         category = CATEGORY_SERVER,
@@ -812,6 +845,19 @@ public class ServiceConfiguration implements PulsarConfiguration {
         doc = "Max number of concurrent topic loading request broker allows to control number of zk-operations"
     )
     private int maxConcurrentTopicLoadRequest = 5000;
+    @FieldContext(
+        category = CATEGORY_SERVER,
+        doc = "Load the topics of a namespace bundle in bulk when the broker acquires the ownership of the bundle."
+            + " The managed ledgers of the persistent topics of the bundle are opened at once, reading their"
+            + " metadata in batches, and the topics are then loaded with a bounded parallelism, instead of loading"
+            + " every topic independently"
+    )
+    private boolean bulkLoadTopicsOnBundleOwnership = false;
+    @FieldContext(
+        category = CATEGORY_SERVER,
+        doc = "Max number of topics of a namespace bundle loaded concurrently, when the topics are loaded in bulk"
+    )
+    private int bulkLoadTopicsMaxConcurrency = 64;
     @FieldContext(
         category = CATEGORY_SERVER,
         doc = "Max concurrent non-persistent message can be processed per connection")
@@ -938,6 +984,29 @@ public class ServiceConfiguration implements PulsarConfiguration {
     )
     private int messagePublishBufferCheckIntervalInMillis = 100;
 
+    @FieldContext(
+        category = CATEGORY_SERVER,
+        doc = "Coalesce the flushes of the responses and messages written to a client connection. The writes are"
+            + " flushed once at the end of each read from the connection, or after a short delay when nothing is"
+            + " being read, instead of flushing every single command. It reduces the number of syscalls on"
+            + " connections carrying many small commands, at the cost of a bounded additional latency"
+    )
+    private boolean connectionFlushCoalescingEnabled = false;
+
+    @FieldContext(
+        category = CATEGORY_SERVER,
+        doc = "Max number of bytes written to a client connection without flushing, when the flushes are coalesced"
+    )
+    private int connectionFlushCoalescingMaxBytes = 64 * 1024;
+
+    @FieldContext(
+        category = CATEGORY_SERVER,
+        doc = "Max delay in microseconds of the flush of the writes to a client connection, when the flushes are"
+            + " coalesced and nothing is being read from the connection. With 0, the writes are flushed as soon as"
+            + " the pending tasks of the IO thread are processed"
+    )
+    private long connectionFlushCoalescingMaxDelayMicros = 100;
+
     @FieldContext(category = CATEGORY_SERVER, doc = "Whether to recover cursors lazily when trying to recover a " +
             "managed ledger backing a persistent topic. It can improve write availability of topics.\n" +
             "The caveat is now when recovered ledger is ready to write we're not sure if all old consumers last mark " +
@@ -1422,6 +1491,18 @@ public class ServiceConfiguration implements PulsarConfiguration {
             doc = "How frequently to refresh the stats. (seconds). Default is 60 seconds")
     private int managedLedgerStatsPeriodSeconds = 60;
 
+    @FieldContext(minValue = 1,
+            category = CATEGORY_STORAGE_ML,
+            doc = "Max number of managed ledgers whose metadata is read concurrently when the topics of a bundle"
+                    + " are opened in bulk")
+    private int managedLedgerBulkOpenMetadataBatchSize = 100;
+
+    @FieldContext(minValue = 1,
+            category = CATEGORY_STORAGE_ML,
+            doc = "Max number of managed ledgers initialized concurrently, with the recovery of their cursors,"
+                    + " when the topics of a bundle are opened in bulk")
+    private int managedLedgerBulkOpenMaxConcurrentInitializations = 32;
+
     //
     //
     @FieldContext(
@@ -1464,6 +1545,16 @@ public class ServiceConfiguration implements PulsarConfiguration {
             (int) (PlatformDependent.maxDirectMemory() / 5 / (1024 * 1024)));
     @FieldContext(category = CATEGORY_STORAGE_ML, doc = "Whether we should make a copy of the entry payloads when inserting in cache")
     private boolean managedLedgerCacheCopyEntries = false;
+    @FieldContext(category = CATEGORY_STORAGE_ML, doc = "Whether concurrent cache misses on the same entries should"
+            + " share a single read to the bookies instead of each issuing its own read")
+    private boolean managedLedgerReadEntriesCoalescingEnabled = true;
+    @FieldContext(category = CATEGORY_STORAGE_ML, doc = "Whether to use the segmented entry cache, which stores the"
+            + " cached entry payloads in large off-heap segments per ledger instead of one map node per entry."
+            + " This reduces the GC overhead of the cache on brokers with many topics")
+    private boolean managedLedgerCacheSegmented = false;
+    @FieldContext(category = CATEGORY_STORAGE_ML,
+            doc = "Max size of each segment of the segmented entry cache, in KB")
+    private int managedLedgerCacheSegmentSizeKB = 4096;
     @FieldContext(
         category = CATEGORY_STORAGE_ML,
         doc = "Threshold to which bring down the cache level when eviction is triggered"
@@ -1475,6 +1566,16 @@ public class ServiceConfiguration implements PulsarConfiguration {
     @FieldContext(category = CATEGORY_STORAGE_ML,
             doc = "All entries that have stayed in cache for more than the configured time, will be evicted")
     private long managedLedgerCacheEvictionTimeThresholdMillis = 1000;
+    @FieldContext(category = CATEGORY_STORAGE_ML,
+            doc = "Class name of the policy used to choose which entries to evict when the managed ledger cache is"
+                    + " full. org.apache.bookkeeper.mledger.impl.EntryCacheCursorAwareEvictionPolicy first evicts the"
+                    + " entries that are behind the slowest active reader and then the ones far ahead of any reader")
+    private String managedLedgerCacheEvictionPolicy =
+            "org.apache.bookkeeper.mledger.impl.EntryCacheDefaultEvictionPolicy";
+    @FieldContext(category = CATEGORY_STORAGE_ML,
+            doc = "Number of entries ahead of each active reader that the cursor-aware cache eviction policy tries"
+                    + " to keep in cache")
+    private long managedLedgerCacheEvictionReaderWindowEntries = 1000;
     @FieldContext(category = CATEGORY_STORAGE_ML,
             doc = "Configure the threshold (in number of entries) from where a cursor should be considered 'backlogged'"
                     + " and thus should be set as inactive.")
@@ -1545,6 +1646,19 @@ public class ServiceConfiguration implements PulsarConfiguration {
             doc = "Maximum ledger size before triggering a rollover for a topic (MB)"
     )
     private int managedLedgerMaxSizePerLedgerMbytes = 2048;
+    @FieldContext(
+            category = CATEGORY_STORAGE_ML,
+            doc = "Create the next ledger of a topic in background before the current one is full, so that"
+                + " writes are not stalled while the rollover creates a new ledger"
+    )
+    private boolean managedLedgerStandbyLedgerEnabled = false;
+    @FieldContext(
+            category = CATEGORY_STORAGE_ML,
+            doc = "Percentage of managedLedgerMaxEntriesPerLedger, managedLedgerMaxSizePerLedgerMbytes or"
+                + " managedLedgerMaxLedgerRolloverTimeMinutes reached by the current ledger before the standby"
+                + " ledger is created"
+    )
+    private int managedLedgerStandbyLedgerCreationThresholdPercentage = 90;
     @FieldContext(
         category = CATEGORY_STORAGE_OFFLOADING,
         doc = "Delay between a ledger being successfully offloaded to long term storage,"
@@ -1587,6 +1701,33 @@ public class ServiceConfiguration implements PulsarConfiguration {
             doc = "Use Open Range-Set to cache unacked messages (it is memory efficient but it can take more cpu)"
         )
     private boolean managedLedgerUnackedRangesOpenCacheSetEnabled = true;
+    @FieldContext(
+            category = CATEGORY_STORAGE_ML,
+            doc = "Use compressed bitmaps to store unacked messages. The unacked ranges are then persisted to the"
+                + " cursor ledger in a compact form and are not limited by managedLedgerMaxUnackedRangesToPersist."
+                + " Takes precedence over managedLedgerUnackedRangesOpenCacheSetEnabled."
+        )
+    private boolean managedLedgerUnackedRangesBitmapEnabled = false;
+    @FieldContext(
+            category = CATEGORY_STORAGE_ML,
+            doc = "Max serialized size, in bytes, of the unacked ranges bitmaps in a cursor ledger entry, when"
+                + " managedLedgerUnackedRangesBitmapEnabled is set. Past it, the unacked ranges are persisted as"
+                + " ranges truncated to managedLedgerMaxUnackedRangesToPersist, so that the entry stays within the"
+                + " max entry size of the bookies"
+        )
+    private int managedLedgerMaxUnackedRangesBitmapSizeToPersist = 4 * 1024 * 1024;
+    @FieldContext(
+        category = CATEGORY_STORAGE_ML,
+        doc = "Persist the cursor state incrementally. Instead of writing all the individually deleted messages on"
+            + " every mark-delete, the cursor appends only the ranges acked since the previous entry to the cursor"
+            + " ledger, and writes a full snapshot every managedLedgerCursorStateDeltasPerSnapshot entries"
+    )
+    private boolean managedLedgerCursorStateDeltaEnabled = false;
+    @FieldContext(
+        category = CATEGORY_STORAGE_ML,
+        doc = "Max number of incremental cursor state entries written between two full snapshots of the cursor state"
+    )
+    private int managedLedgerCursorStateDeltasPerSnapshot = 100;
     @FieldContext(
         dynamic = true,
         category = CATEGORY_STORAGE_ML,
@@ -1631,6 +1772,44 @@ public class ServiceConfiguration implements PulsarConfiguration {
                     + "Of course, this may degrade consumption throughput. Default is 10ms.")
     private int managedLedgerNewEntriesCheckDelayInMillis = 10;
 
+    @FieldContext(category = CATEGORY_STORAGE_ML,
+            doc = "Whether cursors that are catching up should read ahead of their read position. When a cursor keeps"
+                    + " reading sequentially behind the tail of the topic, more reads are kept in flight ahead of it"
+                    + " so that the dispatcher doesn't wait for the bookies on every read.")
+    private boolean managedLedgerReadAheadEnabled = false;
+
+    @FieldContext(category = CATEGORY_STORAGE_ML,
+            doc = "Max number of entries that a cursor can read ahead of its read position")
+    private int managedLedgerReadAheadMaxWindowEntries = 1000;
+
+    @FieldContext(category = CATEGORY_STORAGE_ML,
+            doc = "Max number of read-ahead reads that a single cursor keeps in flight or buffered")
+    private int managedLedgerReadAheadMaxOutstandingReads = 4;
+
+    @FieldContext(category = CATEGORY_STORAGE_ML,
+            doc = "Max size in MB of the read-ahead entries buffered by a single cursor")
+    private int managedLedgerReadAheadMaxBufferSizeMB = 16;
+
+    @FieldContext(category = CATEGORY_STORAGE_ML,
+            doc = "Keep a sparse index of the publish time of the entries of each ledger, so that seeking a"
+                + " subscription by time and expiring messages by TTL only read two entries. The position found is"
+                + " then accurate to one sampling interval, it may be older than the newest matching entry")
+    private boolean managedLedgerTimeIndexEnabled = false;
+
+    @FieldContext(category = CATEGORY_STORAGE_ML,
+            doc = "Number of entries between two samples of the publish time index")
+    private int managedLedgerTimeIndexIntervalEntries = 100;
+
+    @FieldContext(category = CATEGORY_STORAGE_ML,
+            doc = "Max time in milliseconds between two samples of the publish time index, 0 to only sample by"
+                + " number of entries")
+    private long managedLedgerTimeIndexIntervalMs = 1000;
+
+    @FieldContext(category = CATEGORY_STORAGE_ML,
+            minValue = 2,
+            doc = "Max number of samples of the publish time index stored in the metadata of a ledger")
+    private int managedLedgerTimeIndexMaxSamplesPerLedger = 16;
+
     @FieldContext(category = CATEGORY_STORAGE_ML,
             doc = "Read priority when ledgers exists in both bookkeeper and the second layer storage.")
     private String managedLedgerDataReadPriority = OffloadedReadPriority.TIERED_STORAGE_FIRST
@@ -2050,6 +2229,22 @@ public class ServiceConfiguration implements PulsarConfiguration {
     )
     private long metricsServletTimeoutMs = 30000;
 
+    @FieldContext(
+        category = CATEGORY_METRICS,
+        doc = "Time in milliseconds that a generated metrics snapshot is served to the following requests of the\n" +
+            " metrics endpoint, instead of generating the metrics again. Concurrent scrapers share a single\n" +
+            " generation of the metrics. Set it to 0 to generate the metrics on every request."
+    )
+    private long metricsServletCacheTimeMs = 0;
+
+    @FieldContext(
+        category = CATEGORY_METRICS,
+        doc = "Number of threads generating the namespace and topic metrics of the metrics endpoint.\n" +
+            " When greater than 1, the namespaces are split across the threads, each namespace being written in\n" +
+            " its own buffer. Increase it if there are a lot of topics to expose topic-level metrics."
+    )
+    private int metricsServletGenerationThreads = 1;
+
     @FieldContext(
             category = CATEGORY_METRICS,
             doc = "Enable expose the backlog size for each subscription when generating stats.\n" +
@@ -2133,6 +2328,48 @@ public class ServiceConfiguration implements PulsarConfiguration {
     )
     private int managedLedgerOffloadPrefetchRounds = 1;
 
+    @FieldContext(
+            category = CATEGORY_STORAGE_OFFLOADING,
+            doc = "Maximum number of data block parts of a single ledger that are uploaded concurrently"
+                    + " to the blob store. Bookie reads for the next part overlap with the pending uploads."
+    )
+    private int managedLedgerOffloadMaxConcurrentUploads = 2;
+
+    @FieldContext(
+            category = CATEGORY_STORAGE_OFFLOADING,
+            doc = "Maximum amount of memory, in bytes, used to buffer the data block parts of a single ledger"
+                    + " that are being read or uploaded by the blob store offloader"
+    )
+    private long managedLedgerOffloadUploadBufferSizeInBytes = 128 * 1024 * 1024;
+
+    @FieldContext(
+            category = CATEGORY_STORAGE_OFFLOADING,
+            doc = "Directory of the broker-local disk cache of the data blocks and index blocks read back from"
+                    + " the blob store. The cache is disabled when this is not set. It is a broker-level setting,"
+                    + " it is not part of the namespace and topic offload policies."
+    )
+    private String managedLedgerOffloadBlockCacheDirectory = null;
+
+    @FieldContext(
+            category = CATEGORY_STORAGE_OFFLOADING,
+            doc = "Maximum size, in bytes, of the broker-local disk cache of offloaded blocks"
+    )
+    private long managedLedgerOffloadBlockCacheSizeInBytes = 1024 * 1024 * 1024;
+
+    @FieldContext(
+            category = CATEGORY_STORAGE_OFFLOADING,
+            doc = "Number of chunks of the read buffer size that are fetched in parallel from the blob store ahead"
+                    + " of the reads of an offloaded ledger. Setting this to 0 reads offloaded ledgers sequentially."
+    )
+    private int managedLedgerOffloadReadAheadChunks = 0;
+
+    @FieldContext(
+            category = CATEGORY_STORAGE_OFFLOADING,
+            doc = "Maximum number of threads, shared by the blob store offloaders of the broker, fetching the"
+                    + " chunks read ahead of offloaded ledgers"
+    )
+    private int managedLedgerOffloadReadAheadMaxThreads = 4;
+
     /**** --- Transaction config variables --- ****/
     @FieldContext(
             category = CATEGORY_TRANSACTION,
@@ -64,13 +64,22 @@ public class ManagedLedgerClientFactory implements ManagedLedgerStorage {
         managedLedgerFactoryConfig.setCacheEvictionFrequency(conf.getManagedLedgerCacheEvictionFrequency());
         managedLedgerFactoryConfig.setCacheEvictionTimeThresholdMillis(
                 conf.getManagedLedgerCacheEvictionTimeThresholdMillis());
+        managedLedgerFactoryConfig.setCacheEvictionPolicyClassName(conf.getManagedLedgerCacheEvictionPolicy());
+        managedLedgerFactoryConfig.setCacheEvictionReaderWindowEntries(
+                conf.getManagedLedgerCacheEvictionReaderWindowEntries());
         managedLedgerFactoryConfig.setCopyEntriesInCache(conf.isManagedLedgerCacheCopyEntries());
+        managedLedgerFactoryConfig.setReadEntriesCoalescingEnabled(conf.isManagedLedgerReadEntriesCoalescingEnabled());
+        managedLedgerFactoryConfig.setSegmentedEntryCacheEnabled(conf.isManagedLedgerCacheSegmented());
+        managedLedgerFactoryConfig.setSegmentedEntryCacheSegmentSize(conf.getManagedLedgerCacheSegmentSizeKB() * 1024);
         managedLedgerFactoryConfig.setPrometheusStatsLatencyRolloverSeconds(
                 conf.getManagedLedgerPrometheusStatsLatencyRolloverSeconds());
         managedLedgerFactoryConfig.setTraceTaskExecution(conf.isManagedLedgerTraceTaskExecution());
         managedLedgerFactoryConfig.setCursorPositionFlushSeconds(conf.getManagedLedgerCursorPositionFlushSeconds());
         managedLedgerFactoryConfig.setManagedLedgerInfoCompressionType(conf.getManagedLedgerInfoCompressionType());
         managedLedgerFactoryConfig.setStatsPeriodSeconds(conf.getManagedLedgerStatsPeriodSeconds());
+        managedLedgerFactoryConfig.setBulkOpenMetadataBatchSize(conf.getManagedLedgerBulkOpenMetadataBatchSize());
+        managedLedgerFactoryConfig.setBulkOpenMaxConcurrentInitializations(
+                conf.getManagedLedgerBulkOpenMaxConcurrentInitializations());
 
         Configuration configuration = new ClientConfiguration();
         if (conf.isBookkeeperClientExposeStatsToPrometheus()) {
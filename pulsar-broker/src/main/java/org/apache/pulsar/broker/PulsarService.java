@@ -46,6 +46,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Properties;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
@@ -1037,6 +1038,33 @@ public class PulsarService implements AutoCloseable, ShutdownService {
             List<CompletableFuture<Topic>> persistentTopics = Lists.newArrayList();
             long topicLoadStart = System.nanoTime();
 
+            if (config.isBulkLoadTopicsOnBundleOwnership()) {
+                List<String> topics = Lists.newArrayList();
+                for (String topic : getNamespaceService().getListOfPersistentTopics(nsName)
+                        .get(config.getZooKeeperOperationTimeoutSeconds(), TimeUnit.SECONDS)) {
+                    try {
+                        TopicName topicName = TopicName.get(topic);
+                        if (bundle.includes(topicName) && !isTransactionSystemTopic(topicName)) {
+                            topics.add(topic);
+                        }
+                    } catch (Throwable t) {
+                        LOG.warn("Failed to preload topic {}", topic, t);
+                    }
+                }
+                if (!topics.isEmpty()) {
+                    brokerService.loadTopicsInBulk(topics).thenAccept(loadedTopics -> {
+                        double topicLoadTimeSeconds = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - topicLoadStart)
+                                / 1000.0;
+                        LOG.info("Loaded {} of {} topics in bulk on {} -- time taken: {} seconds", loadedTopics,
+                                topics.size(), bundle, topicLoadTimeSeconds);
+                    }).exceptionally(ex -> {
+                        LOG.warn("Failed to load topics in bulk on {}", bundle, ex);
+                        return null;
+                    });
+                }
+                return null;
+            }
+
             for (String topic : getNamespaceService().getListOfPersistentTopics(nsName)
                     .get(config.getZooKeeperOperationTimeoutSeconds(), TimeUnit.SECONDS)) {
                 try {
@@ -1205,7 +1233,8 @@ public class PulsarService implements AutoCloseable, ShutdownService {
                             LedgerOffloader.METADATA_SOFTWARE_GITSHA_KEY.toLowerCase(), PulsarVersion.getGitSha()
                         ),
                         schemaStorage,
-                        getOffloaderScheduler(offloadPolicies));
+                        getOffloaderScheduler(offloadPolicies),
+                        getOffloaderBrokerProperties());
                 } catch (IOException ioe) {
                     throw new PulsarServerException(ioe.getMessage(), ioe.getCause());
                 }
@@ -1218,6 +1247,19 @@ public class PulsarService implements AutoCloseable, ShutdownService {
         }
     }
 
+    private Properties getOffloaderBrokerProperties() {
+        Properties properties = new Properties();
+        if (StringUtils.isNotBlank(config.getManagedLedgerOffloadBlockCacheDirectory())) {
+            properties.setProperty("managedLedgerOffloadBlockCacheDirectory",
+                    config.getManagedLedgerOffloadBlockCacheDirectory());
+        }
+        properties.setProperty("managedLedgerOffloadBlockCacheSizeInBytes",
+                Long.toString(config.getManagedLedgerOffloadBlockCacheSizeInBytes()));
+        properties.setProperty("managedLedgerOffloadReadAheadMaxThreads",
+                Integer.toString(config.getManagedLedgerOffloadReadAheadMaxThreads()));
+        return properties;
+    }
+
     private SchemaStorage createAndStartSchemaStorage() throws Exception {
         final Class<?> storageClass = Class.forName(config.getSchemaRegistryStorageClassName());
         Object factoryInstance = storageClass.getDeclaredConstructor().newInstance();
@@ -20,6 +20,9 @@ package org.apache.pulsar.broker.delayed;
 
 import com.google.common.annotations.Beta;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import org.apache.bookkeeper.mledger.ManagedLedger;
+import org.apache.pulsar.broker.PulsarService;
 import org.apache.pulsar.broker.ServiceConfiguration;
 import org.apache.pulsar.broker.service.persistent.PersistentDispatcherMultipleConsumers;
 
@@ -37,6 +40,16 @@ public interface DelayedDeliveryTrackerFactory extends AutoCloseable {
      */
     void initialize(ServiceConfiguration config) throws IOException;
 
+    /**
+     * Initialize the factory implementation from the broker service, for the implementations that need more than
+     * the configuration, like a BookKeeper client.
+     *
+     * @param pulsarService the broker service
+     */
+    default void initialize(PulsarService pulsarService) throws IOException {
+        initialize(pulsarService.getConfiguration());
+    }
+
     /**
      * Create a new tracker instance.
      *
@@ -45,6 +58,17 @@ public interface DelayedDeliveryTrackerFactory extends AutoCloseable {
      */
     DelayedDeliveryTracker newTracker(PersistentDispatcherMultipleConsumers dispatcher);
 
+    /**
+     * Delete the state that the trackers of a subscription keep outside of the broker memory, once the subscription
+     * is deleted.
+     *
+     * @param managedLedger the managed ledger of the topic
+     * @param cursorName the name of the cursor of the deleted subscription
+     */
+    default CompletableFuture<Void> cleanupSubscription(ManagedLedger managedLedger, String cursorName) {
+        return CompletableFuture.completedFuture(null);
+    }
+
     /**
      * Close the factory and release all the resources.
      */
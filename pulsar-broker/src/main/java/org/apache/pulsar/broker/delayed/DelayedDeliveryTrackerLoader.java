@@ -21,24 +21,39 @@ package org.apache.pulsar.broker.delayed;
 import static com.google.common.base.Preconditions.checkArgument;
 import java.io.IOException;
 import lombok.experimental.UtilityClass;
+import org.apache.pulsar.broker.PulsarService;
 import org.apache.pulsar.broker.ServiceConfiguration;
 
 @UtilityClass
 public class DelayedDeliveryTrackerLoader {
     public static DelayedDeliveryTrackerFactory loadDelayedDeliveryTrackerFactory(ServiceConfiguration conf)
             throws IOException {
-        Class<?> factoryClass;
         try {
-            factoryClass = Class.forName(conf.getDelayedDeliveryTrackerFactoryClassName());
-            Object obj = factoryClass.getDeclaredConstructor().newInstance();
-            checkArgument(obj instanceof DelayedDeliveryTrackerFactory,
-                    "The factory has to be an instance of " + DelayedDeliveryTrackerFactory.class.getName());
-
-            DelayedDeliveryTrackerFactory factory = (DelayedDeliveryTrackerFactory) obj;
+            DelayedDeliveryTrackerFactory factory = newDelayedDeliveryTrackerFactory(conf);
             factory.initialize(conf);
             return factory;
         } catch (Exception e) {
             throw new IOException(e);
         }
     }
+
+    public static DelayedDeliveryTrackerFactory loadDelayedDeliveryTrackerFactory(PulsarService pulsar)
+            throws IOException {
+        try {
+            DelayedDeliveryTrackerFactory factory = newDelayedDeliveryTrackerFactory(pulsar.getConfiguration());
+            factory.initialize(pulsar);
+            return factory;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static DelayedDeliveryTrackerFactory newDelayedDeliveryTrackerFactory(ServiceConfiguration conf)
+            throws Exception {
+        Class<?> factoryClass = Class.forName(conf.getDelayedDeliveryTrackerFactoryClassName());
+        Object obj = factoryClass.getDeclaredConstructor().newInstance();
+        checkArgument(obj instanceof DelayedDeliveryTrackerFactory,
+                "The factory has to be an instance of " + DelayedDeliveryTrackerFactory.class.getName());
+        return (DelayedDeliveryTrackerFactory) obj;
+    }
 }
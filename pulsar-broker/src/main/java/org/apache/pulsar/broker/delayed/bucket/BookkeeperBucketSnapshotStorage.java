@@ -0,0 +1,158 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.delayed.bucket;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.client.BookKeeper;
+import org.apache.bookkeeper.client.LedgerHandle;
+import org.apache.bookkeeper.mledger.impl.LedgerMetadataUtils;
+import org.apache.pulsar.broker.ServiceConfiguration;
+
+/**
+ * Stores each bucket snapshot in a BookKeeper ledger, an entry of the snapshot being an entry of the ledger.
+ */
+@Slf4j
+public class BookkeeperBucketSnapshotStorage implements BucketSnapshotStorage {
+
+    private static final byte[] LEDGER_PASSWORD = "".getBytes();
+
+    private final BookKeeper bookKeeper;
+    private final ServiceConfiguration config;
+
+    public BookkeeperBucketSnapshotStorage(BookKeeper bookKeeper, ServiceConfiguration config) {
+        this.bookKeeper = bookKeeper;
+        this.config = config;
+    }
+
+    @Override
+    public CompletableFuture<Long> createBucketSnapshot(String managedLedgerName, String cursorName,
+                                                       List<byte[]> entries) {
+        return createLedger(managedLedgerName, cursorName)
+                .thenCompose(ledgerHandle -> addEntries(ledgerHandle, entries)
+                        .thenCompose(__ -> closeLedger(ledgerHandle))
+                        .thenApply(__ -> ledgerHandle.getId())
+                        .whenComplete((__, ex) -> {
+                            if (ex != null) {
+                                // the snapshot is not usable, don't leak the ledger
+                                deleteBucketSnapshot(ledgerHandle.getId());
+                            }
+                        }));
+    }
+
+    @Override
+    public CompletableFuture<byte[]> getBucketSnapshotEntry(long snapshotId, long entryId) {
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        bookKeeper.asyncOpenLedgerNoRecovery(snapshotId,
+                BookKeeper.DigestType.fromApiDigestType(config.getManagedLedgerDigestType()), LEDGER_PASSWORD,
+                (rc, handle, ctx) -> {
+                    if (rc != BKException.Code.OK) {
+                        future.completeExceptionally(BKException.create(rc));
+                        return;
+                    }
+                    handle.asyncReadEntries(entryId, entryId, (rc1, handle1, entries, ctx1) -> {
+                        if (rc1 != BKException.Code.OK) {
+                            future.completeExceptionally(BKException.create(rc1));
+                        } else {
+                            future.complete(entries.nextElement().getEntry());
+                        }
+                        handle.asyncClose((rc2, handle2, ctx2) -> {}, null);
+                    }, null);
+                }, null);
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteBucketSnapshot(long snapshotId) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        bookKeeper.asyncDeleteLedger(snapshotId, (rc, ctx) -> {
+            if (rc != BKException.Code.OK && rc != BKException.Code.NoSuchLedgerExistsException
+                    && rc != BKException.Code.NoSuchLedgerExistsOnMetadataServerException) {
+                log.warn("Failed to delete bucket snapshot {}: {}", snapshotId, BKException.getMessage(rc));
+                future.completeExceptionally(BKException.create(rc));
+            } else {
+                future.complete(null);
+            }
+        }, null);
+        return future;
+    }
+
+    private CompletableFuture<LedgerHandle> createLedger(String managedLedgerName, String cursorName) {
+        CompletableFuture<LedgerHandle> future = new CompletableFuture<>();
+        try {
+            bookKeeper.asyncCreateLedger(
+                    config.getManagedLedgerDefaultEnsembleSize(),
+                    config.getManagedLedgerDefaultWriteQuorum(),
+                    config.getManagedLedgerDefaultAckQuorum(),
+                    BookKeeper.DigestType.fromApiDigestType(config.getManagedLedgerDigestType()),
+                    LEDGER_PASSWORD,
+                    (rc, handle, ctx) -> {
+                        if (rc != BKException.Code.OK) {
+                            future.completeExceptionally(BKException.create(rc));
+                        } else {
+                            future.complete(handle);
+                        }
+                    }, null,
+                    LedgerMetadataUtils.buildMetadataForDelayedIndexBucket(managedLedgerName, cursorName));
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        }
+        return future;
+    }
+
+    private static CompletableFuture<Void> addEntries(LedgerHandle ledgerHandle, List<byte[]> entries) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (entries.isEmpty()) {
+            future.complete(null);
+            return future;
+        }
+        // the adds are pipelined, BookKeeper completes them in order
+        AtomicInteger pendingAdds = new AtomicInteger(entries.size());
+        for (byte[] entry : entries) {
+            ledgerHandle.asyncAddEntry(entry, (rc, handle, entryId, ctx) -> {
+                if (rc != BKException.Code.OK) {
+                    future.completeExceptionally(BKException.create(rc));
+                } else if (pendingAdds.decrementAndGet() == 0) {
+                    future.complete(null);
+                }
+            }, null);
+        }
+        return future;
+    }
+
+    private static CompletableFuture<Void> closeLedger(LedgerHandle ledgerHandle) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        ledgerHandle.asyncClose((rc, handle, ctx) -> {
+            if (rc != BKException.Code.OK) {
+                future.completeExceptionally(BKException.create(rc));
+            } else {
+                future.complete(null);
+            }
+        }, null);
+        return future;
+    }
+
+    @Override
+    public void close() {
+        // the BookKeeper client is owned by the broker
+    }
+}
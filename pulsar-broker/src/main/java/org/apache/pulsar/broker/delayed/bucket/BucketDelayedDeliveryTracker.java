@@ -0,0 +1,863 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.delayed.bucket;
+
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.mledger.AsyncCallbacks;
+import org.apache.bookkeeper.mledger.ManagedCursor;
+import org.apache.bookkeeper.mledger.ManagedLedger;
+import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.bookkeeper.mledger.impl.PositionImpl;
+import org.apache.pulsar.broker.delayed.DelayedDeliveryTracker;
+import org.apache.pulsar.broker.service.persistent.PersistentDispatcherMultipleConsumers;
+import org.apache.pulsar.common.util.FutureUtil;
+import org.apache.pulsar.common.util.collections.TripleLongPriorityQueue;
+
+/**
+ * Delayed delivery tracker that splits the index of the delayed messages of a subscription in buckets.
+ *
+ * <p>The messages are first indexed in memory, in the last mutable bucket. Once it holds
+ * {@code minIndexCountPerBucket} messages, the bucket is sealed: its index is sorted by delivery time, split in
+ * segments of {@code maxIndexesPerSegment} messages and snapshotted to the {@link BucketSnapshotStorage}, and the
+ * range of positions it covers is recorded in the bucket index of the subscription, a single property of the managed
+ * ledger. At most one segment of each sealed bucket is kept in memory, a segment being loaded once the previous one
+ * is delivered and its delivery time is near. The memory used by the tracker is then bounded by the size of the
+ * segments that are due instead of the number of delayed messages.
+ *
+ * <p>When the topic is loaded again, the sealed buckets are recovered from the bucket index, and the messages they
+ * cover are not indexed again while the backlog is read. Only the last mutable bucket is rebuilt.
+ *
+ * <p>Once there are more than {@code maxNumBuckets} sealed buckets, the two adjacent buckets with the fewest messages
+ * whose segments are not loaded yet are merged, which bounds the number of snapshots and the size of the bucket index.
+ */
+@Slf4j
+public class BucketDelayedDeliveryTracker implements DelayedDeliveryTracker, TimerTask {
+
+    static final String BUCKET_INDEX_PROPERTY_PREFIX = "#pulsar.internal.delayed.bucket.index/";
+
+    // a segment is loaded this long before the delivery time of its first message
+    static final long SEGMENT_LOAD_AHEAD_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final long SEGMENT_LOAD_RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private final PersistentDispatcherMultipleConsumers dispatcher;
+
+    private final ManagedCursor cursor;
+
+    private final BucketSnapshotStorage bucketSnapshotStorage;
+
+    // Reference to the shared (per-broker) timer for delayed delivery
+    private final Timer timer;
+
+    private final long minIndexCountPerBucket;
+
+    private final int maxIndexesPerSegment;
+
+    private final int maxNumBuckets;
+
+    private final Clock clock;
+
+    private long tickTimeMillis;
+
+    // Current timeout or null if not set
+    private Timeout timeout;
+
+    // Timestamp at which the timeout is currently set
+    private long currentTimeoutTarget = -1;
+
+    // Messages of the loaded segments of the sealed buckets
+    private final TripleLongPriorityQueue sharedBucketPriorityQueue = new TripleLongPriorityQueue();
+
+    // Messages indexed since the last bucket was sealed, and the range of positions they cover
+    private final TripleLongPriorityQueue lastMutableBucket = new TripleLongPriorityQueue();
+    private PositionImpl lastMutableBucketStart;
+    private PositionImpl lastMutableBucketEnd;
+
+    // Sealed buckets, by the first position of the range they cover
+    private final TreeMap<PositionImpl, ImmutableBucket> immutableBuckets = new TreeMap<>();
+
+    // Last message of each loaded segment, the next segment of the bucket can be loaded once it is delivered
+    private final Map<PositionImpl, ImmutableBucket> segmentLastMessages = new HashMap<>();
+
+    // Sealed buckets waiting for their next segment to be loaded, by load time
+    private final PriorityQueue<ImmutableBucket> pendingSegmentLoads =
+            new PriorityQueue<>(Comparator.comparingLong(bucket -> bucket.loadTime));
+
+    // Number of messages of the sealed buckets that are not loaded in memory
+    private long numberOfUnloadedMessages;
+
+    // The bucket index is rewritten by one update at a time, the changes made meanwhile are written by the next one
+    private boolean updatingBucketIndex;
+    private boolean bucketIndexUpdatePending;
+
+    // Snapshots of the removed buckets, deleted once the bucket index stops referencing them
+    private final List<Long> snapshotsToDelete = new ArrayList<>();
+
+    // Two sealed buckets are merged at a time, they are not loaded meanwhile
+    private boolean mergingBuckets;
+
+    private boolean closed;
+
+    BucketDelayedDeliveryTracker(PersistentDispatcherMultipleConsumers dispatcher, Timer timer, long tickTimeMillis,
+                                 BucketSnapshotStorage bucketSnapshotStorage, long minIndexCountPerBucket,
+                                 int maxIndexesPerSegment, int maxNumBuckets) {
+        this(dispatcher, timer, tickTimeMillis, Clock.systemUTC(), bucketSnapshotStorage, minIndexCountPerBucket,
+                maxIndexesPerSegment, maxNumBuckets);
+    }
+
+    BucketDelayedDeliveryTracker(PersistentDispatcherMultipleConsumers dispatcher, Timer timer, long tickTimeMillis,
+                                 Clock clock, BucketSnapshotStorage bucketSnapshotStorage,
+                                 long minIndexCountPerBucket, int maxIndexesPerSegment, int maxNumBuckets) {
+        this.dispatcher = dispatcher;
+        this.cursor = dispatcher.getCursor();
+        this.timer = timer;
+        this.tickTimeMillis = tickTimeMillis;
+        this.clock = clock;
+        this.bucketSnapshotStorage = bucketSnapshotStorage;
+        this.minIndexCountPerBucket = minIndexCountPerBucket;
+        this.maxIndexesPerSegment = maxIndexesPerSegment;
+        this.maxNumBuckets = maxNumBuckets;
+        recoverBuckets();
+    }
+
+    /**
+     * A sealed bucket, whose index is split in segments sorted by delivery time.
+     */
+    private static class ImmutableBucket {
+        final PositionImpl start;
+        final PositionImpl end;
+        final long numberOfMessages;
+        // -1 until the snapshot is stored
+        long snapshotId = -1;
+        // the segments of a bucket are kept in memory until its snapshot is stored
+        List<long[]> segments;
+        // delivery time of the first message of each segment, null until loaded from the snapshot
+        long[] segmentStartTimes;
+        int nextSegment;
+        long loadTime;
+        boolean removed;
+
+        ImmutableBucket(PositionImpl start, PositionImpl end, long numberOfMessages) {
+            this.start = start;
+            this.end = end;
+            this.numberOfMessages = numberOfMessages;
+        }
+
+        String toIndexEntry() {
+            return start.getLedgerId() + ":" + start.getEntryId() + ":" + end.getLedgerId() + ":" + end.getEntryId()
+                    + ":" + snapshotId + ":" + numberOfMessages;
+        }
+
+        static ImmutableBucket fromIndexEntry(String entry) {
+            String[] fields = entry.split(":");
+            ImmutableBucket bucket = new ImmutableBucket(
+                    new PositionImpl(Long.parseLong(fields[0]), Long.parseLong(fields[1])),
+                    new PositionImpl(Long.parseLong(fields[2]), Long.parseLong(fields[3])),
+                    Long.parseLong(fields[5]));
+            bucket.snapshotId = Long.parseLong(fields[4]);
+            return bucket;
+        }
+    }
+
+    @Override
+    public synchronized boolean addMessage(long ledgerId, long entryId, long deliveryAt) {
+        long now = clock.millis();
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Add message {}:{} -- Delivery in {} ms ", dispatcher.getName(), ledgerId, entryId,
+                    deliveryAt - now);
+        }
+        if (deliveryAt < (now + tickTimeMillis)) {
+            // It's already about time to deliver this message, see InMemoryDelayedDeliveryTracker
+            return false;
+        }
+
+        PositionImpl position = new PositionImpl(ledgerId, entryId);
+        if (containsMessage(position)) {
+            // The message is indexed by a sealed bucket already, it was read again after the topic was reloaded
+            return true;
+        }
+
+        lastMutableBucket.add(deliveryAt, ledgerId, entryId);
+        if (lastMutableBucketStart == null || position.compareTo(lastMutableBucketStart) < 0) {
+            lastMutableBucketStart = position;
+        }
+        if (lastMutableBucketEnd == null || position.compareTo(lastMutableBucketEnd) > 0) {
+            lastMutableBucketEnd = position;
+        }
+        if (lastMutableBucket.size() >= minIndexCountPerBucket) {
+            sealLastMutableBucket();
+        }
+        updateTimer();
+        return true;
+    }
+
+    private boolean containsMessage(PositionImpl position) {
+        Map.Entry<PositionImpl, ImmutableBucket> entry = immutableBuckets.floorEntry(position);
+        return entry != null && position.compareTo(entry.getValue().end) <= 0;
+    }
+
+    /**
+     * Return true if there's at least a message that is scheduled to be delivered already.
+     */
+    @Override
+    public synchronized boolean hasMessageAvailable() {
+        loadDueSegments();
+        // Avoid the TimerTask run before reach the timeout.
+        long cutOffTime = clock.millis() + tickTimeMillis;
+        boolean hasMessageAvailable = (!sharedBucketPriorityQueue.isEmpty()
+                && sharedBucketPriorityQueue.peekN1() <= cutOffTime)
+                || (!lastMutableBucket.isEmpty() && lastMutableBucket.peekN1() <= cutOffTime);
+        if (!hasMessageAvailable) {
+            // prevent the first delay message later than cutoffTime
+            updateTimer();
+        }
+        return hasMessageAvailable;
+    }
+
+    /**
+     * Get a set of position of messages that have already reached.
+     */
+    @Override
+    public synchronized Set<PositionImpl> getScheduledMessages(int maxMessages) {
+        int n = maxMessages;
+        Set<PositionImpl> positions = new TreeSet<>();
+        // Pick all the messages that will be ready within the tick time period.
+        long cutoffTime = clock.millis() + tickTimeMillis;
+
+        while (n > 0) {
+            TripleLongPriorityQueue queue;
+            if (sharedBucketPriorityQueue.isEmpty()) {
+                queue = lastMutableBucket;
+            } else if (lastMutableBucket.isEmpty()) {
+                queue = sharedBucketPriorityQueue;
+            } else {
+                queue = sharedBucketPriorityQueue.peekN1() <= lastMutableBucket.peekN1()
+                        ? sharedBucketPriorityQueue : lastMutableBucket;
+            }
+            if (queue.isEmpty() || queue.peekN1() > cutoffTime) {
+                break;
+            }
+
+            PositionImpl position = new PositionImpl(queue.peekN2(), queue.peekN3());
+            queue.pop();
+            positions.add(position);
+            --n;
+
+            if (queue == sharedBucketPriorityQueue) {
+                ImmutableBucket bucket = segmentLastMessages.remove(position);
+                if (bucket != null) {
+                    onSegmentDelivered(bucket);
+                }
+            }
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Get scheduled messages - found {}", dispatcher.getName(), positions.size());
+        }
+        loadDueSegments();
+        updateTimer();
+        return positions;
+    }
+
+    @Override
+    public synchronized void resetTickTime(long tickTime) {
+        if (this.tickTimeMillis != tickTime) {
+            this.tickTimeMillis = tickTime;
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        new ArrayList<>(immutableBuckets.values()).forEach(this::removeBucket);
+        sharedBucketPriorityQueue.clear();
+        lastMutableBucket.clear();
+        lastMutableBucketStart = null;
+        lastMutableBucketEnd = null;
+        segmentLastMessages.clear();
+        pendingSegmentLoads.clear();
+        numberOfUnloadedMessages = 0;
+        updateTimer();
+    }
+
+    @Override
+    public synchronized long getNumberOfDelayedMessages() {
+        return sharedBucketPriorityQueue.size() + lastMutableBucket.size() + numberOfUnloadedMessages;
+    }
+
+    /**
+     * Seal the last mutable bucket: snapshot it, and schedule the load of its first segment by delivery time.
+     */
+    private void sealLastMutableBucket() {
+        ImmutableBucket bucket = newImmutableBucket(lastMutableBucket, lastMutableBucketStart, lastMutableBucketEnd);
+        lastMutableBucketStart = null;
+        lastMutableBucketEnd = null;
+
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Sealing bucket {} - {} with {} messages in {} segments", dispatcher.getName(),
+                    bucket.start, bucket.end, bucket.numberOfMessages, bucket.segments.size());
+        }
+        numberOfUnloadedMessages += bucket.numberOfMessages;
+        addImmutableBucket(bucket);
+        loadDueSegments();
+        mergeBucketsIfNeeded();
+    }
+
+    /**
+     * Drain the messages of the queue, sorted by delivery time, in the segments of a new sealed bucket.
+     */
+    private ImmutableBucket newImmutableBucket(TripleLongPriorityQueue queue, PositionImpl start, PositionImpl end) {
+        ImmutableBucket bucket = new ImmutableBucket(start, end, queue.size());
+        List<long[]> segments = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            int segmentSize = Math.min(queue.size(), maxIndexesPerSegment);
+            long[] segment = new long[segmentSize * 3];
+            for (int i = 0; i < segment.length; i += 3) {
+                segment[i] = queue.peekN1();
+                segment[i + 1] = queue.peekN2();
+                segment[i + 2] = queue.peekN3();
+                queue.pop();
+            }
+            segments.add(segment);
+        }
+        bucket.segments = segments;
+        bucket.segmentStartTimes = segments.stream().mapToLong(segment -> segment[0]).toArray();
+        return bucket;
+    }
+
+    private void addImmutableBucket(ImmutableBucket bucket) {
+        immutableBuckets.put(bucket.start, bucket);
+        persistBucket(bucket);
+        schedulePendingSegmentLoad(bucket);
+    }
+
+    /**
+     * Merge the two adjacent sealed buckets with the fewest messages, if there are too many sealed buckets. Only the
+     * buckets whose segments are all in their snapshot, and not being loaded, are merged.
+     */
+    private void mergeBucketsIfNeeded() {
+        if (mergingBuckets || immutableBuckets.size() <= maxNumBuckets) {
+            return;
+        }
+        ImmutableBucket first = null;
+        ImmutableBucket second = null;
+        ImmutableBucket previous = null;
+        for (ImmutableBucket bucket : immutableBuckets.values()) {
+            if (previous != null && isMergeable(previous) && isMergeable(bucket) && (first == null
+                    || previous.numberOfMessages + bucket.numberOfMessages
+                    < first.numberOfMessages + second.numberOfMessages)) {
+                first = previous;
+                second = bucket;
+            }
+            previous = bucket;
+        }
+        if (first == null) {
+            return;
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Merging buckets {} - {} and {} - {}", dispatcher.getName(), first.start, first.end,
+                    second.start, second.end);
+        }
+        mergingBuckets = true;
+        pendingSegmentLoads.remove(first);
+        pendingSegmentLoads.remove(second);
+        ImmutableBucket firstBucket = first;
+        ImmutableBucket secondBucket = second;
+        CompletableFuture<List<long[]>> firstSegments = readSegments(first);
+        CompletableFuture<List<long[]>> secondSegments = readSegments(second);
+        whenLoaded(FutureUtil.waitForAll(Arrays.asList(firstSegments, secondSegments)), (__, ex) -> {
+            mergingBuckets = false;
+            if (closed) {
+                return;
+            }
+            if (ex != null || firstBucket.removed || secondBucket.removed) {
+                if (ex != null) {
+                    log.warn("[{}] Failed to merge buckets {} - {} and {} - {}", dispatcher.getName(),
+                            firstBucket.start, firstBucket.end, secondBucket.start, secondBucket.end, ex);
+                }
+                for (ImmutableBucket bucket : Arrays.asList(firstBucket, secondBucket)) {
+                    if (!bucket.removed) {
+                        pendingSegmentLoads.add(bucket);
+                    }
+                }
+                updateTimer();
+                return;
+            }
+            onMerged(firstBucket, firstSegments.join(), secondBucket, secondSegments.join());
+        });
+    }
+
+    private boolean isMergeable(ImmutableBucket bucket) {
+        return bucket.snapshotId != -1 && bucket.nextSegment == 0 && pendingSegmentLoads.contains(bucket);
+    }
+
+    private CompletableFuture<List<long[]>> readSegments(ImmutableBucket bucket) {
+        CompletableFuture<long[]> segmentStartTimes = bucket.segmentStartTimes != null
+                ? CompletableFuture.completedFuture(bucket.segmentStartTimes)
+                : bucketSnapshotStorage.getBucketSnapshotEntry(bucket.snapshotId, 0)
+                        .thenApply(BucketDelayedDeliveryTracker::deserializeLongs);
+        return segmentStartTimes.thenCompose(startTimes -> {
+            List<CompletableFuture<long[]>> segments = new ArrayList<>(startTimes.length);
+            for (int i = 0; i < startTimes.length; i++) {
+                segments.add(bucketSnapshotStorage.getBucketSnapshotEntry(bucket.snapshotId, i + 1)
+                        .thenApply(BucketDelayedDeliveryTracker::deserializeLongs));
+            }
+            return FutureUtil.waitForAll(segments).thenApply(__ -> {
+                List<long[]> result = new ArrayList<>(segments.size());
+                segments.forEach(segment -> result.add(segment.join()));
+                return result;
+            });
+        });
+    }
+
+    private void onMerged(ImmutableBucket first, List<long[]> firstSegments, ImmutableBucket second,
+                          List<long[]> secondSegments) {
+        TripleLongPriorityQueue queue = new TripleLongPriorityQueue();
+        try {
+            for (List<long[]> segments : Arrays.asList(firstSegments, secondSegments)) {
+                for (long[] segment : segments) {
+                    for (int i = 0; i < segment.length; i += 3) {
+                        queue.add(segment[i], segment[i + 1], segment[i + 2]);
+                    }
+                }
+            }
+            // the messages of both buckets stay unloaded, in the merged bucket
+            removeBucket(first);
+            removeBucket(second);
+            PositionImpl end = first.end.compareTo(second.end) >= 0 ? first.end : second.end;
+            addImmutableBucket(newImmutableBucket(queue, first.start, end));
+        } finally {
+            queue.close();
+        }
+        loadDueSegments();
+        updateTimer();
+        mergeBucketsIfNeeded();
+    }
+
+    private void persistBucket(ImmutableBucket bucket) {
+        List<byte[]> entries = new ArrayList<>(bucket.segments.size() + 1);
+        entries.add(serializeBucketMetadata(bucket.segmentStartTimes));
+        bucket.segments.forEach(segment -> entries.add(serializeSegment(segment)));
+
+        bucketSnapshotStorage.createBucketSnapshot(cursor.getManagedLedger().getName(), cursor.getName(), entries)
+                .whenComplete((snapshotId, ex) -> {
+                    synchronized (this) {
+                        if (ex != null) {
+                            // The bucket stays in memory, and is indexed again if the topic is reloaded
+                            log.warn("[{}] Failed to snapshot bucket {} - {}", dispatcher.getName(), bucket.start,
+                                    bucket.end, ex);
+                            return;
+                        }
+                        bucket.snapshotId = snapshotId;
+                        if (bucket.removed) {
+                            deleteBucketSnapshotWhenUnindexed(snapshotId);
+                        } else {
+                            // the segments are loaded from the snapshot from now on
+                            bucket.segments = null;
+                            updateBucketIndex();
+                        }
+                    }
+                });
+    }
+
+    private void recoverBuckets() {
+        String index = cursor.getManagedLedger().getProperties().get(bucketIndexPropertyKey());
+        if (index == null || index.isEmpty()) {
+            return;
+        }
+        PositionImpl markDeletedPosition = (PositionImpl) cursor.getMarkDeletedPosition();
+        boolean acknowledgedBuckets = false;
+        for (String entry : index.split(";")) {
+            ImmutableBucket bucket;
+            try {
+                bucket = ImmutableBucket.fromIndexEntry(entry);
+            } catch (RuntimeException e) {
+                log.warn("[{}] Ignoring invalid bucket index entry {}", dispatcher.getName(), entry);
+                continue;
+            }
+            if (markDeletedPosition != null && bucket.end.compareTo(markDeletedPosition) <= 0) {
+                // All the messages of the bucket are acknowledged
+                snapshotsToDelete.add(bucket.snapshotId);
+                acknowledgedBuckets = true;
+                continue;
+            }
+            immutableBuckets.put(bucket.start, bucket);
+            numberOfUnloadedMessages += bucket.numberOfMessages;
+            // Load the metadata of the bucket as soon as possible
+            bucket.loadTime = Long.MIN_VALUE;
+            pendingSegmentLoads.add(bucket);
+        }
+        if (acknowledgedBuckets) {
+            updateBucketIndex();
+        }
+        if (!immutableBuckets.isEmpty()) {
+            log.info("[{}] Recovered {} buckets with {} delayed messages", dispatcher.getName(),
+                    immutableBuckets.size(), numberOfUnloadedMessages);
+            loadDueSegments();
+        }
+    }
+
+    private String bucketIndexPropertyKey() {
+        return BUCKET_INDEX_PROPERTY_PREFIX + cursor.getName();
+    }
+
+    /**
+     * Delete the snapshots of the sealed buckets of a deleted subscription, then its bucket index.
+     */
+    static CompletableFuture<Void> deleteBuckets(ManagedLedger managedLedger, String cursorName,
+                                                 BucketSnapshotStorage bucketSnapshotStorage) {
+        String key = BUCKET_INDEX_PROPERTY_PREFIX + cursorName;
+        String index = managedLedger.getProperties().get(key);
+        if (index == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (String entry : index.split(";")) {
+            long snapshotId;
+            try {
+                snapshotId = ImmutableBucket.fromIndexEntry(entry).snapshotId;
+            } catch (RuntimeException e) {
+                continue;
+            }
+            futures.add(bucketSnapshotStorage.deleteBucketSnapshot(snapshotId).exceptionally(ex -> {
+                log.warn("[{}] Failed to delete the bucket snapshot {} of the deleted subscription {}",
+                        managedLedger.getName(), snapshotId, cursorName, ex);
+                return null;
+            }));
+        }
+        return FutureUtil.waitForAll(futures).thenCompose(__ -> deleteProperty(managedLedger, key));
+    }
+
+    /**
+     * Write the sealed buckets whose snapshot is stored to the bucket index, then delete the snapshots of the removed
+     * buckets.
+     */
+    private void updateBucketIndex() {
+        if (updatingBucketIndex) {
+            bucketIndexUpdatePending = true;
+            return;
+        }
+        updatingBucketIndex = true;
+        bucketIndexUpdatePending = false;
+        List<Long> unindexedSnapshots = new ArrayList<>(snapshotsToDelete);
+        snapshotsToDelete.clear();
+
+        StringBuilder index = new StringBuilder();
+        for (ImmutableBucket bucket : immutableBuckets.values()) {
+            if (bucket.snapshotId != -1) {
+                if (index.length() > 0) {
+                    index.append(';');
+                }
+                index.append(bucket.toIndexEntry());
+            }
+        }
+        ManagedLedger managedLedger = cursor.getManagedLedger();
+        CompletableFuture<Void> future = index.length() > 0
+                ? setProperty(managedLedger, bucketIndexPropertyKey(), index.toString())
+                : deleteProperty(managedLedger, bucketIndexPropertyKey());
+        future.whenComplete((__, ex) -> {
+            synchronized (this) {
+                updatingBucketIndex = false;
+                if (ex != null) {
+                    // The index is written again by the next update
+                    log.warn("[{}] Failed to update the bucket index", dispatcher.getName(), ex);
+                    snapshotsToDelete.addAll(unindexedSnapshots);
+                } else {
+                    unindexedSnapshots.forEach(this::deleteBucketSnapshot);
+                }
+                if (bucketIndexUpdatePending) {
+                    updateBucketIndex();
+                }
+            }
+        });
+    }
+
+    private void loadDueSegments() {
+        long now = clock.millis();
+        while (!pendingSegmentLoads.isEmpty() && pendingSegmentLoads.peek().loadTime <= now) {
+            loadNextSegment(pendingSegmentLoads.poll());
+        }
+    }
+
+    private void loadNextSegment(ImmutableBucket bucket) {
+        CompletableFuture<long[]> future;
+        boolean loadingMetadata = bucket.segmentStartTimes == null;
+        if (loadingMetadata) {
+            future = bucketSnapshotStorage.getBucketSnapshotEntry(bucket.snapshotId, 0)
+                    .thenApply(BucketDelayedDeliveryTracker::deserializeLongs);
+        } else if (bucket.segments != null) {
+            future = CompletableFuture.completedFuture(bucket.segments.get(bucket.nextSegment));
+        } else {
+            future = bucketSnapshotStorage.getBucketSnapshotEntry(bucket.snapshotId, bucket.nextSegment + 1)
+                    .thenApply(BucketDelayedDeliveryTracker::deserializeLongs);
+        }
+
+        if (future.isDone() && !future.isCompletedExceptionally()) {
+            onLoaded(bucket, loadingMetadata, future.join());
+            return;
+        }
+        whenLoaded(future, (longs, ex) -> {
+            if (closed || bucket.removed) {
+                return;
+            }
+            if (ex != null) {
+                log.warn("[{}] Failed to load bucket {} - {}, retrying in {} ms", dispatcher.getName(),
+                        bucket.start, bucket.end, SEGMENT_LOAD_RETRY_DELAY_MILLIS, ex);
+                bucket.loadTime = clock.millis() + SEGMENT_LOAD_RETRY_DELAY_MILLIS;
+                pendingSegmentLoads.add(bucket);
+                updateTimer();
+                return;
+            }
+            onLoaded(bucket, loadingMetadata, longs);
+            loadDueSegments();
+            updateTimer();
+        });
+    }
+
+    /**
+     * Run the callback with the lock of the tracker once the future completes. A future that is done already runs it
+     * inline, in the thread holding the lock. Otherwise the callback runs on the broker executor, never inline in a
+     * thread that holds the lock of the tracker, and the dispatcher reads more entries if messages are due once the
+     * lock is released: the dispatcher locks itself then the tracker.
+     */
+    private <T> void whenLoaded(CompletableFuture<T> future, BiConsumer<T, Throwable> callback) {
+        if (future.isDone() && !future.isCompletedExceptionally()) {
+            callback.accept(future.join(), null);
+            return;
+        }
+        Executor executor = dispatcher.getTopic().getBrokerService().executor();
+        future.whenCompleteAsync((result, ex) -> {
+            boolean hasMessageAvailable;
+            synchronized (this) {
+                callback.accept(result, ex);
+                long cutOffTime = clock.millis() + tickTimeMillis;
+                hasMessageAvailable = !closed && !sharedBucketPriorityQueue.isEmpty()
+                        && sharedBucketPriorityQueue.peekN1() <= cutOffTime;
+            }
+            if (hasMessageAvailable) {
+                dispatcher.readMoreEntries();
+            }
+        }, executor);
+    }
+
+    private void onLoaded(ImmutableBucket bucket, boolean loadingMetadata, long[] longs) {
+        if (loadingMetadata) {
+            bucket.segmentStartTimes = longs;
+            onSegmentDelivered(bucket);
+        } else {
+            onSegmentLoaded(bucket, longs);
+        }
+    }
+
+    private void onSegmentLoaded(ImmutableBucket bucket, long[] segment) {
+        for (int i = 0; i < segment.length; i += 3) {
+            sharedBucketPriorityQueue.add(segment[i], segment[i + 1], segment[i + 2]);
+        }
+        numberOfUnloadedMessages -= segment.length / 3;
+        bucket.nextSegment++;
+        if (segment.length == 0) {
+            onSegmentDelivered(bucket);
+        } else {
+            segmentLastMessages.put(new PositionImpl(segment[segment.length - 2], segment[segment.length - 1]),
+                    bucket);
+        }
+    }
+
+    private void onSegmentDelivered(ImmutableBucket bucket) {
+        if (bucket.nextSegment < bucket.segmentStartTimes.length) {
+            schedulePendingSegmentLoad(bucket);
+        } else {
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] All the messages of bucket {} - {} are delivered", dispatcher.getName(),
+                        bucket.start, bucket.end);
+            }
+            removeBucket(bucket);
+        }
+    }
+
+    private void schedulePendingSegmentLoad(ImmutableBucket bucket) {
+        bucket.loadTime = bucket.segmentStartTimes[bucket.nextSegment] - SEGMENT_LOAD_AHEAD_MILLIS;
+        pendingSegmentLoads.add(bucket);
+    }
+
+    private void removeBucket(ImmutableBucket bucket) {
+        bucket.removed = true;
+        immutableBuckets.remove(bucket.start);
+        // the snapshot of a bucket being persisted is deleted once stored
+        if (bucket.snapshotId != -1) {
+            deleteBucketSnapshotWhenUnindexed(bucket.snapshotId);
+        }
+    }
+
+    private void deleteBucketSnapshotWhenUnindexed(long snapshotId) {
+        snapshotsToDelete.add(snapshotId);
+        updateBucketIndex();
+    }
+
+    private void deleteBucketSnapshot(long snapshotId) {
+        bucketSnapshotStorage.deleteBucketSnapshot(snapshotId).exceptionally(ex -> {
+            log.warn("[{}] Failed to delete the bucket snapshot {}", dispatcher.getName(), snapshotId, ex);
+            return null;
+        });
+    }
+
+    private static CompletableFuture<Void> setProperty(ManagedLedger managedLedger, String key, String value) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        managedLedger.asyncSetProperty(key, value, new AsyncCallbacks.UpdatePropertiesCallback() {
+            @Override
+            public void updatePropertiesComplete(Map<String, String> properties, Object ctx) {
+                future.complete(null);
+            }
+
+            @Override
+            public void updatePropertiesFailed(ManagedLedgerException exception, Object ctx) {
+                future.completeExceptionally(exception);
+            }
+        }, null);
+        return future;
+    }
+
+    private static CompletableFuture<Void> deleteProperty(ManagedLedger managedLedger, String key) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        managedLedger.asyncDeleteProperty(key, new AsyncCallbacks.UpdatePropertiesCallback() {
+            @Override
+            public void updatePropertiesComplete(Map<String, String> properties, Object ctx) {
+                future.complete(null);
+            }
+
+            @Override
+            public void updatePropertiesFailed(ManagedLedgerException exception, Object ctx) {
+                future.completeExceptionally(exception);
+            }
+        }, null);
+        return future;
+    }
+
+    private static byte[] serializeBucketMetadata(long[] segmentStartTimes) {
+        return serializeSegment(segmentStartTimes);
+    }
+
+    private static byte[] serializeSegment(long[] longs) {
+        ByteBuffer buffer = ByteBuffer.allocate(longs.length * Long.BYTES);
+        buffer.asLongBuffer().put(longs);
+        return buffer.array();
+    }
+
+    private static long[] deserializeLongs(byte[] bytes) {
+        long[] longs = new long[bytes.length / Long.BYTES];
+        ByteBuffer.wrap(bytes).asLongBuffer().get(longs);
+        return longs;
+    }
+
+    private void updateTimer() {
+        long timestamp = Long.MAX_VALUE;
+        if (!sharedBucketPriorityQueue.isEmpty()) {
+            timestamp = sharedBucketPriorityQueue.peekN1();
+        }
+        if (!lastMutableBucket.isEmpty()) {
+            timestamp = Math.min(timestamp, lastMutableBucket.peekN1());
+        }
+        if (!pendingSegmentLoads.isEmpty()) {
+            timestamp = Math.min(timestamp, pendingSegmentLoads.peek().loadTime);
+        }
+
+        if (timestamp == Long.MAX_VALUE) {
+            if (timeout != null) {
+                currentTimeoutTarget = -1;
+                timeout.cancel();
+                timeout = null;
+            }
+            return;
+        }
+
+        if (timestamp == currentTimeoutTarget) {
+            // The timer is already set to the correct target time
+            return;
+        }
+
+        if (timeout != null) {
+            timeout.cancel();
+        }
+
+        long delayMillis = timestamp - clock.millis();
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Start timer in {} millis", dispatcher.getName(), delayMillis);
+        }
+
+        if (delayMillis < 0) {
+            // There are messages that are already ready to be delivered, they are picked up when the
+            // dispatcher reads more entries.
+            return;
+        }
+
+        currentTimeoutTarget = timestamp;
+        timeout = timer.newTimeout(this, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void run(Timeout timeout) throws Exception {
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Timer triggered", dispatcher.getName());
+        }
+        if (timeout.isCancelled()) {
+            return;
+        }
+
+        synchronized (dispatcher) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                currentTimeoutTarget = -1;
+                this.timeout = null;
+                loadDueSegments();
+            }
+            dispatcher.readMoreEntries();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        sharedBucketPriorityQueue.close();
+        lastMutableBucket.close();
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.delayed.bucket;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.mledger.ManagedLedger;
+import org.apache.pulsar.broker.PulsarService;
+import org.apache.pulsar.broker.ServiceConfiguration;
+import org.apache.pulsar.broker.delayed.DelayedDeliveryTracker;
+import org.apache.pulsar.broker.delayed.DelayedDeliveryTrackerFactory;
+import org.apache.pulsar.broker.service.persistent.PersistentDispatcherMultipleConsumers;
+
+/**
+ * Factory of {@link BucketDelayedDeliveryTracker}, whose buckets are snapshotted to BookKeeper ledgers.
+ */
+public class BucketDelayedDeliveryTrackerFactory implements DelayedDeliveryTrackerFactory {
+
+    private Timer timer;
+
+    private long tickTimeMillis;
+
+    private long minIndexCountPerBucket;
+
+    private int maxIndexesPerBucketSnapshotSegment;
+
+    private int maxNumBuckets;
+
+    private BucketSnapshotStorage bucketSnapshotStorage;
+
+    @Override
+    public void initialize(ServiceConfiguration config) {
+        this.timer = new HashedWheelTimer(new DefaultThreadFactory("pulsar-delayed-delivery"),
+                config.getDelayedDeliveryTickTimeMillis(), TimeUnit.MILLISECONDS);
+        this.tickTimeMillis = config.getDelayedDeliveryTickTimeMillis();
+        this.minIndexCountPerBucket = config.getDelayedDeliveryMinIndexCountPerBucket();
+        this.maxIndexesPerBucketSnapshotSegment = config.getDelayedDeliveryMaxIndexesPerBucketSnapshotSegment();
+        this.maxNumBuckets = config.getDelayedDeliveryMaxNumBuckets();
+    }
+
+    @Override
+    public void initialize(PulsarService pulsarService) {
+        initialize(pulsarService.getConfiguration());
+        this.bucketSnapshotStorage = new BookkeeperBucketSnapshotStorage(pulsarService.getBookKeeperClient(),
+                pulsarService.getConfiguration());
+    }
+
+    @Override
+    public DelayedDeliveryTracker newTracker(PersistentDispatcherMultipleConsumers dispatcher) {
+        if (bucketSnapshotStorage == null) {
+            throw new IllegalStateException("The factory must be initialized with the broker service");
+        }
+        return new BucketDelayedDeliveryTracker(dispatcher, timer, tickTimeMillis, bucketSnapshotStorage,
+                minIndexCountPerBucket, maxIndexesPerBucketSnapshotSegment, maxNumBuckets);
+    }
+
+    @Override
+    public CompletableFuture<Void> cleanupSubscription(ManagedLedger managedLedger, String cursorName) {
+        if (bucketSnapshotStorage == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return BucketDelayedDeliveryTracker.deleteBuckets(managedLedger, cursorName, bucketSnapshotStorage);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (timer != null) {
+            timer.stop();
+        }
+        if (bucketSnapshotStorage != null) {
+            try {
+                bucketSnapshotStorage.close();
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.delayed.bucket;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Storage of the snapshots of the sealed buckets of a {@link BucketDelayedDeliveryTracker}.
+ *
+ * <p>A snapshot is an immutable sequence of entries, identified by the id returned when it is created.
+ */
+public interface BucketSnapshotStorage extends AutoCloseable {
+
+    /**
+     * Create a snapshot with the given entries.
+     *
+     * @param managedLedgerName the name of the managed ledger of the topic
+     * @param cursorName the name of the cursor of the subscription
+     * @param entries the content of the snapshot
+     * @return a future with the id of the snapshot, completed once the snapshot is durably stored
+     */
+    CompletableFuture<Long> createBucketSnapshot(String managedLedgerName, String cursorName, List<byte[]> entries);
+
+    /**
+     * Read an entry of a snapshot.
+     *
+     * @param snapshotId the id of the snapshot
+     * @param entryId the index of the entry in the snapshot
+     */
+    CompletableFuture<byte[]> getBucketSnapshotEntry(long snapshotId, long entryId);
+
+    /**
+     * Delete a snapshot, deleting a snapshot that doesn't exist succeeds.
+     *
+     * @param snapshotId the id of the snapshot
+     */
+    CompletableFuture<Void> deleteBucketSnapshot(long snapshotId);
+
+    /**
+     * Release the resources of the storage.
+     */
+    @Override
+    void close() throws Exception;
+}
@@ -20,14 +20,22 @@ package org.apache.pulsar.broker.lookup;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.apache.pulsar.common.protocol.Commands.newLookupErrorResponse;
+import static org.apache.pulsar.common.protocol.Commands.newLookupErrorResult;
 import static org.apache.pulsar.common.protocol.Commands.newLookupResponse;
+import static org.apache.pulsar.common.protocol.Commands.newLookupResult;
 import io.netty.buffer.ByteBuf;
 import java.net.InetAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 import javax.ws.rs.Encoded;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.container.AsyncResponse;
@@ -37,17 +45,22 @@ import org.apache.pulsar.broker.PulsarService;
 import org.apache.pulsar.broker.ServiceConfiguration;
 import org.apache.pulsar.broker.authentication.AuthenticationDataSource;
 import org.apache.pulsar.broker.namespace.LookupOptions;
+import org.apache.pulsar.broker.namespace.NamespaceService;
 import org.apache.pulsar.broker.web.PulsarWebResource;
 import org.apache.pulsar.broker.web.RestException;
+import org.apache.pulsar.common.api.proto.CommandLookupTopicResponse;
 import org.apache.pulsar.common.api.proto.CommandLookupTopicResponse.LookupType;
 import org.apache.pulsar.common.api.proto.ServerError;
 import org.apache.pulsar.common.lookup.data.LookupData;
 import org.apache.pulsar.common.naming.NamespaceBundle;
+import org.apache.pulsar.common.naming.NamespaceName;
 import org.apache.pulsar.common.naming.TopicDomain;
 import org.apache.pulsar.common.naming.TopicName;
+import org.apache.pulsar.common.policies.data.ClusterData;
 import org.apache.pulsar.common.policies.data.NamespaceOperation;
 import org.apache.pulsar.common.policies.data.TopicOperation;
 import org.apache.pulsar.common.util.Codec;
+import org.apache.pulsar.common.util.FutureUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -330,6 +343,186 @@ public class TopicLookupBase extends PulsarWebResource {
         return lookupfuture;
     }
 
+    /**
+     * Lookup broker-service addresses for several topics at once.
+     *
+     * The cluster and the global namespace are validated once per namespace, and the owner broker is looked up once
+     * per namespace-bundle, so that resolving the partitions of a topic or the topics of a namespace does not cost a
+     * lookup per topic. Each topic gets the response
+     * {@link #lookupTopicAsync(PulsarService, TopicName, boolean, String, AuthenticationDataSource, long, String)}
+     * would have returned for it.
+     *
+     * @param pulsarService
+     * @param topicNames
+     * @param authoritative
+     * @param clientAppId
+     * @param requestId
+     * @param advertisedListenerName
+     * @return the lookup responses, in the order of the given topics
+     */
+    public static CompletableFuture<List<CommandLookupTopicResponse>> lookupTopicsAsync(PulsarService pulsarService,
+            List<TopicName> topicNames, boolean authoritative, String clientAppId,
+            AuthenticationDataSource authenticationData, long requestId, final String advertisedListenerName) {
+        final CommandLookupTopicResponse[] results = new CommandLookupTopicResponse[topicNames.size()];
+
+        Map<NamespaceName, List<Integer>> topicsByNamespace = new LinkedHashMap<>();
+        for (int i = 0; i < topicNames.size(); i++) {
+            topicsByNamespace.computeIfAbsent(topicNames.get(i).getNamespaceObject(), ns -> new ArrayList<>()).add(i);
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>(topicsByNamespace.size());
+        topicsByNamespace.forEach((namespace, indexes) -> futures.add(lookupNamespaceTopicsAsync(pulsarService,
+                namespace, topicNames, indexes, results, authoritative, clientAppId, authenticationData, requestId,
+                advertisedListenerName)));
+        return FutureUtil.waitForAll(futures).thenApply(ignore -> Arrays.asList(results));
+    }
+
+    private static CompletableFuture<Void> lookupNamespaceTopicsAsync(PulsarService pulsarService,
+            NamespaceName namespace, List<TopicName> topicNames, List<Integer> indexes,
+            CommandLookupTopicResponse[] results, boolean authoritative, String clientAppId,
+            AuthenticationDataSource authenticationData, long requestId, String advertisedListenerName) {
+        final String cluster = topicNames.get(indexes.get(0)).getCluster();
+
+        // (1) validate cluster
+        CompletableFuture<ClusterData> differentClusterFuture =
+                getClusterDataIfDifferentCluster(pulsarService, cluster, clientAppId);
+        return differentClusterFuture.thenCompose(differentClusterData -> {
+            if (differentClusterData != null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("[{}] Redirecting the lookup call of {} topics to {}/{} cluster={}", clientAppId,
+                            indexes.size(), differentClusterData.getBrokerServiceUrl(),
+                            differentClusterData.getBrokerServiceUrlTls(), cluster);
+                }
+                setLookupResults(results, indexes, newLookupResult(differentClusterData.getBrokerServiceUrl(),
+                        differentClusterData.getBrokerServiceUrlTls(), true, LookupType.Redirect, requestId, false));
+                return CompletableFuture.completedFuture(null);
+            }
+
+            // (2) authorize client on each topic
+            List<Integer> authorizedIndexes = new ArrayList<>(indexes.size());
+            for (int i : indexes) {
+                TopicName topicName = topicNames.get(i);
+                try {
+                    checkAuthorization(pulsarService, topicName, clientAppId, authenticationData);
+                    authorizedIndexes.add(i);
+                } catch (RestException authException) {
+                    log.warn("Failed to authorized {} on cluster {}", clientAppId, topicName.toString());
+                    results[i] = newLookupErrorResult(ServerError.AuthorizationError, authException.getMessage(),
+                            requestId);
+                } catch (Exception e) {
+                    log.warn("Unknown error while authorizing {} on cluster {}", clientAppId, topicName.toString());
+                    results[i] = newLookupErrorResult(ServerError.ServiceNotReady, e.getMessage(), requestId);
+                }
+            }
+            if (authorizedIndexes.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            // (3) validate global namespace
+            return checkLocalOrGetPeerReplicationCluster(pulsarService, namespace).handle((peerClusterData, ex) -> {
+                if (ex != null) {
+                    setLookupResults(results, authorizedIndexes,
+                            newLookupErrorResult(ServerError.MetadataError, ex.getMessage(), requestId));
+                    return CompletableFuture.<Void>completedFuture(null);
+                }
+                if (peerClusterData == null) {
+                    // (4) all validation passed: initiate lookup
+                    return lookupBundlesAsync(pulsarService, namespace, topicNames, authorizedIndexes, results,
+                            authoritative, clientAppId, requestId, advertisedListenerName);
+                }
+                // if peer-cluster-data is present it means namespace is owned by that peer-cluster and
+                // request should be redirect to the peer-cluster
+                if (StringUtils.isBlank(peerClusterData.getBrokerServiceUrl())
+                        && StringUtils.isBlank(peerClusterData.getBrokerServiceUrlTls())) {
+                    setLookupResults(results, authorizedIndexes, newLookupErrorResult(ServerError.MetadataError,
+                            "Redirected cluster's brokerService url is not configured", requestId));
+                } else {
+                    setLookupResults(results, authorizedIndexes, newLookupResult(peerClusterData.getBrokerServiceUrl(),
+                            peerClusterData.getBrokerServiceUrlTls(), true, LookupType.Redirect, requestId, false));
+                }
+                return CompletableFuture.<Void>completedFuture(null);
+            }).thenCompose(Function.identity());
+        }).exceptionally(ex -> {
+            log.warn("Failed to lookup {} for {} topics of namespace {} with error {}", clientAppId, indexes.size(),
+                    namespace, ex.getMessage(), ex);
+            CommandLookupTopicResponse errorResult =
+                    newLookupErrorResult(ServerError.ServiceNotReady, ex.getMessage(), requestId);
+            for (int i : indexes) {
+                if (results[i] == null) {
+                    results[i] = errorResult;
+                }
+            }
+            return null;
+        });
+    }
+
+    private static CompletableFuture<Void> lookupBundlesAsync(PulsarService pulsarService, NamespaceName namespace,
+            List<TopicName> topicNames, List<Integer> indexes, CommandLookupTopicResponse[] results,
+            boolean authoritative, String clientAppId, long requestId, String advertisedListenerName) {
+        LookupOptions options = LookupOptions.builder()
+                .authoritative(authoritative)
+                .advertisedListenerName(advertisedListenerName)
+                .loadTopicsInBundle(true)
+                .build();
+        NamespaceService namespaceService = pulsarService.getNamespaceService();
+        return namespaceService.getNamespaceBundleFactory().getBundlesAsync(namespace).thenCompose(bundles -> {
+            Map<NamespaceBundle, List<Integer>> topicsByBundle = new LinkedHashMap<>();
+            for (int i : indexes) {
+                topicsByBundle.computeIfAbsent(bundles.findBundle(topicNames.get(i)), b -> new ArrayList<>()).add(i);
+            }
+
+            List<CompletableFuture<Void>> futures = new ArrayList<>(topicsByBundle.size());
+            topicsByBundle.forEach((bundle, bundleIndexes) -> futures.add(
+                    namespaceService.getBundleBrokerServiceUrlAsync(bundle, options).handle((lookupResult, ex) -> {
+                        if (ex != null) {
+                            if (ex instanceof CompletionException && ex.getCause() instanceof IllegalStateException) {
+                                log.info("Failed to lookup {} for bundle {} with error {}", clientAppId, bundle,
+                                        ex.getCause().getMessage());
+                            } else {
+                                log.warn("Failed to lookup {} for bundle {} with error {}", clientAppId, bundle,
+                                        ex.getMessage(), ex);
+                            }
+                            setLookupResults(results, bundleIndexes,
+                                    newLookupErrorResult(ServerError.ServiceNotReady, ex.getMessage(), requestId));
+                            return null;
+                        }
+
+                        if (log.isDebugEnabled()) {
+                            log.debug("[{}] Lookup result {} for {} topics", bundle, lookupResult,
+                                    bundleIndexes.size());
+                        }
+
+                        if (!lookupResult.isPresent()) {
+                            setLookupResults(results, bundleIndexes, newLookupErrorResult(ServerError.ServiceNotReady,
+                                    "No broker was available to own " + bundle, requestId));
+                            return null;
+                        }
+
+                        LookupData lookupData = lookupResult.get().getLookupData();
+                        if (lookupResult.get().isRedirect()) {
+                            boolean newAuthoritative = lookupResult.get().isAuthoritativeRedirect();
+                            setLookupResults(results, bundleIndexes, newLookupResult(lookupData.getBrokerUrl(),
+                                    lookupData.getBrokerUrlTls(), newAuthoritative, LookupType.Redirect, requestId,
+                                    false));
+                        } else {
+                            ServiceConfiguration conf = pulsarService.getConfiguration();
+                            setLookupResults(results, bundleIndexes, newLookupResult(lookupData.getBrokerUrl(),
+                                    lookupData.getBrokerUrlTls(), true /* authoritative */, LookupType.Connect,
+                                    requestId, shouldRedirectThroughServiceUrl(conf, lookupData)));
+                        }
+                        return null;
+                    })));
+            return FutureUtil.waitForAll(futures);
+        });
+    }
+
+    private static void setLookupResults(CommandLookupTopicResponse[] results, List<Integer> indexes,
+                                         CommandLookupTopicResponse result) {
+        for (int i : indexes) {
+            results[i] = result;
+        }
+    }
+
     private void completeLookupResponseExceptionally(AsyncResponse asyncResponse, Throwable t) {
         pulsar().getBrokerService().getLookupRequestSemaphore().release();
         asyncResponse.resume(t);
@@ -183,6 +183,24 @@ public class NamespaceService implements AutoCloseable {
         CompletableFuture<Optional<LookupResult>> future = getBundleAsync(topic)
                 .thenCompose(bundle -> findBrokerServiceUrl(bundle, options));
 
+        recordLookup(future, startTime);
+        return future;
+    }
+
+    /**
+     * Lookup the broker-service url of the broker owning a namespace bundle, for all the topics of the bundle at once.
+     */
+    public CompletableFuture<Optional<LookupResult>> getBundleBrokerServiceUrlAsync(NamespaceBundle bundle,
+                                                                                    LookupOptions options) {
+        long startTime = System.nanoTime();
+
+        CompletableFuture<Optional<LookupResult>> future = findBrokerServiceUrl(bundle, options);
+
+        recordLookup(future, startTime);
+        return future;
+    }
+
+    private void recordLookup(CompletableFuture<Optional<LookupResult>> future, long startTime) {
         future.thenAccept(optResult -> {
             lookupLatency.observe(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
             if (optResult.isPresent()) {
@@ -196,8 +214,6 @@ public class NamespaceService implements AutoCloseable {
             lookupFailures.inc();
             return null;
         });
-
-        return future;
     }
 
     public CompletableFuture<NamespaceBundle> getBundleAsync(TopicName topic) {
@@ -521,7 +537,8 @@ public class NamespaceService implements AutoCloseable {
                     } else {
                         // Found owner for the namespace bundle
 
-                        if (options.isLoadTopicsInBundle()) {
+                        if (options.isLoadTopicsInBundle()
+                                || config.isBulkLoadTopicsOnBundleOwnership()) {
                             // Schedule the task to pre-load topics
                             pulsar.loadNamespaceTopics(bundle);
                         }
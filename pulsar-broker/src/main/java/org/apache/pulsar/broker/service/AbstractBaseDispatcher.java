@@ -20,17 +20,25 @@
 package org.apache.pulsar.broker.service;
 
 import io.netty.buffer.ByteBuf;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.mledger.Entry;
 import org.apache.bookkeeper.mledger.ManagedCursor;
+import org.apache.bookkeeper.mledger.Position;
 import org.apache.bookkeeper.mledger.impl.PositionImpl;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.broker.ServiceConfiguration;
 import org.apache.pulsar.broker.intercept.BrokerInterceptor;
+import org.apache.pulsar.broker.service.persistent.PersistentSubscription;
 import org.apache.pulsar.broker.service.persistent.PersistentTopic;
+import org.apache.pulsar.broker.service.plugin.EntryFilter;
+import org.apache.pulsar.broker.service.plugin.EntryFilter.FilterResult;
+import org.apache.pulsar.broker.service.plugin.FilterContext;
 import org.apache.pulsar.client.api.transaction.TxnID;
 import org.apache.pulsar.common.api.proto.CommandAck.AckType;
 import org.apache.pulsar.common.api.proto.MessageMetadata;
@@ -48,9 +56,25 @@ public abstract class AbstractBaseDispatcher implements Dispatcher {
 
     protected final ServiceConfiguration serviceConfig;
 
+    private final List<EntryFilter> entryFilters;
+    private final LongAdder filterProcessedMsgCount = new LongAdder();
+    private final LongAdder filterRejectedMsgCount = new LongAdder();
+    private final LongAdder filterEvaluationTimeNanos = new LongAdder();
+
     protected AbstractBaseDispatcher(Subscription subscription, ServiceConfiguration serviceConfig) {
         this.subscription = subscription;
         this.serviceConfig = serviceConfig;
+        this.entryFilters = getEntryFilters(subscription);
+    }
+
+    private static List<EntryFilter> getEntryFilters(Subscription subscription) {
+        // The entry filters only apply to persistent subscriptions, rejected entries are acknowledged on the cursor
+        if (!(subscription instanceof PersistentSubscription) || !(subscription.getTopic() instanceof AbstractTopic)) {
+            return Collections.emptyList();
+        }
+        BrokerService brokerService = ((AbstractTopic) subscription.getTopic()).getBrokerService();
+        List<EntryFilter> filters = brokerService != null ? brokerService.getEntryFilters() : null;
+        return filters != null ? filters : Collections.emptyList();
     }
 
     /**
@@ -85,6 +109,7 @@ public abstract class AbstractBaseDispatcher implements Dispatcher {
      * <li>Checksum or metadata corrupted
      * <li>Message is an internal marker
      * <li>Message is not meant to be delivered immediately
+     * <li>Message is rejected by an entry filter
      * </ul>
      *
      * @param entries
@@ -100,16 +125,31 @@ public abstract class AbstractBaseDispatcher implements Dispatcher {
     public void filterEntriesForConsumer(List<Entry> entries, EntryBatchSizes batchSizes,
             SendMessageInfo sendMessageInfo, EntryBatchIndexesAcks indexesAcks,
             ManagedCursor cursor, boolean isReplayRead) {
+        filterEntriesForConsumer(entries, batchSizes, sendMessageInfo, indexesAcks, cursor, isReplayRead, null);
+    }
+
+    public void filterEntriesForConsumer(List<Entry> entries, EntryBatchSizes batchSizes,
+            SendMessageInfo sendMessageInfo, EntryBatchIndexesAcks indexesAcks,
+            ManagedCursor cursor, boolean isReplayRead, Consumer consumer) {
         filterEntriesForConsumer(Optional.empty(), 0, entries, batchSizes, sendMessageInfo, indexesAcks, cursor,
-                isReplayRead);
+                isReplayRead, consumer);
     }
 
     public void filterEntriesForConsumer(Optional<EntryWrapper[]> entryWrapper, int entryWrapperOffset,
              List<Entry> entries, EntryBatchSizes batchSizes, SendMessageInfo sendMessageInfo,
              EntryBatchIndexesAcks indexesAcks, ManagedCursor cursor, boolean isReplayRead) {
+        filterEntriesForConsumer(entryWrapper, entryWrapperOffset, entries, batchSizes, sendMessageInfo, indexesAcks,
+                cursor, isReplayRead, null);
+    }
+
+    public void filterEntriesForConsumer(Optional<EntryWrapper[]> entryWrapper, int entryWrapperOffset,
+             List<Entry> entries, EntryBatchSizes batchSizes, SendMessageInfo sendMessageInfo,
+             EntryBatchIndexesAcks indexesAcks, ManagedCursor cursor, boolean isReplayRead, Consumer consumer) {
         int totalMessages = 0;
         long totalBytes = 0;
         int totalChunkedMessages = 0;
+        List<Position> entriesToFiltered = null;
+        List<PositionImpl> entriesToRedeliver = null;
         for (int i = 0, entriesSize = entries.size(); i < entriesSize; i++) {
             Entry entry = entries.get(i);
             if (entry == null) {
@@ -158,6 +198,28 @@ public abstract class AbstractBaseDispatcher implements Dispatcher {
                 continue;
             }
 
+            FilterResult filterResult = entryFilters.isEmpty()
+                    ? FilterResult.ACCEPT : filterEntry(entry, msgMetadata, consumer);
+            if (filterResult == FilterResult.REJECT) {
+                // The message is rejected by an entry filter, it is acknowledged without being sent
+                if (entriesToFiltered == null) {
+                    entriesToFiltered = new ArrayList<>();
+                }
+                entriesToFiltered.add(entry.getPosition());
+                entries.set(i, null);
+                entry.release();
+                continue;
+            } else if (filterResult == FilterResult.RESCHEDULE) {
+                // The message is not sent to this consumer, it stays unacknowledged and is dispatched again later
+                if (entriesToRedeliver == null) {
+                    entriesToRedeliver = new ArrayList<>();
+                }
+                entriesToRedeliver.add((PositionImpl) entry.getPosition());
+                entries.set(i, null);
+                entry.release();
+                continue;
+            }
+
             int batchSize = msgMetadata.getNumMessagesInBatch();
             totalMessages += batchSize;
             totalBytes += metadataAndPayload.readableBytes();
@@ -179,11 +241,55 @@ public abstract class AbstractBaseDispatcher implements Dispatcher {
                 interceptor.beforeSendMessage(subscription, entry, ackSet, msgMetadata);
             }
         }
+        if (entriesToFiltered != null) {
+            subscription.acknowledgeMessage(entriesToFiltered, AckType.Individual, Collections.emptyMap());
+        }
+        if (entriesToRedeliver != null) {
+            List<PositionImpl> positions = entriesToRedeliver;
+            // the delay keeps the entries from being dispatched again to the same consumer in a loop
+            ((AbstractTopic) subscription.getTopic()).getBrokerService().executor().schedule(
+                    () -> subscription.redeliverUnacknowledgedMessages(consumer, positions),
+                    serviceConfig.getDispatcherEntryFilterRescheduledMessageDelay(), TimeUnit.MILLISECONDS);
+        }
         sendMessageInfo.setTotalMessages(totalMessages);
         sendMessageInfo.setTotalBytes(totalBytes);
         sendMessageInfo.setTotalChunkedMessages(totalChunkedMessages);
     }
 
+    private FilterResult filterEntry(Entry entry, MessageMetadata msgMetadata, Consumer consumer) {
+        long startNanos = System.nanoTime();
+        FilterContext context = new FilterContext(subscription, consumer, msgMetadata);
+        FilterResult result = FilterResult.ACCEPT;
+        for (EntryFilter filter : entryFilters) {
+            FilterResult filterResult = filter.filterEntry(entry, context);
+            if (filterResult == FilterResult.REJECT) {
+                result = FilterResult.REJECT;
+                break;
+            } else if (filterResult == FilterResult.RESCHEDULE) {
+                result = FilterResult.RESCHEDULE;
+            }
+        }
+        int numMessages = msgMetadata.getNumMessagesInBatch();
+        filterEvaluationTimeNanos.add(System.nanoTime() - startNanos);
+        filterProcessedMsgCount.add(numMessages);
+        if (result == FilterResult.REJECT) {
+            filterRejectedMsgCount.add(numMessages);
+        }
+        return result;
+    }
+
+    public long getFilterProcessedMsgCount() {
+        return filterProcessedMsgCount.sum();
+    }
+
+    public long getFilterRejectedMsgCount() {
+        return filterRejectedMsgCount.sum();
+    }
+
+    public long getFilterEvaluationTimeNanos() {
+        return filterEvaluationTimeNanos.sum();
+    }
+
     /**
      * Determine whether the number of consumers on the subscription reaches the threshold.
      * @return
@@ -0,0 +1,159 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import org.apache.pulsar.broker.service.BrokerServiceException.ConsumerAssignException;
+import org.apache.pulsar.client.api.Range;
+import org.apache.pulsar.common.util.Murmur3_32Hash;
+
+/**
+ * A consistent hashing consumer selector, that assigns the keys to the consumers exactly like
+ * {@link ConsistentHashingStickyKeyConsumerSelector}.
+ *
+ * The hash ring is stored in sorted arrays of primitive hash points, looked up with a binary search. The arrays are
+ * rebuilt when a consumer is added or removed and published as an immutable snapshot, so the selection of a consumer
+ * for an entry neither takes a lock nor boxes the hash.
+ */
+public class ArrayHashRingStickyKeyConsumerSelector implements StickyKeyConsumerSelector {
+
+    private static final HashRing EMPTY_RING = new HashRing(new int[0], new int[]{0}, new Consumer[0]);
+
+    // Consumers on each point of the ring, only accessed while holding the lock of the selector
+    private final NavigableMap<Integer, List<Consumer>> points = new TreeMap<>();
+
+    private final int numberOfPoints;
+
+    private volatile HashRing hashRing = EMPTY_RING;
+
+    public ArrayHashRingStickyKeyConsumerSelector(int numberOfPoints) {
+        this.numberOfPoints = numberOfPoints;
+    }
+
+    @Override
+    public synchronized void addConsumer(Consumer consumer) throws ConsumerAssignException {
+        // Insert multiple points on the hash ring for every consumer
+        // The points are deterministically added based on the hash of the consumer name
+        for (int i = 0; i < numberOfPoints; i++) {
+            int hash = Murmur3_32Hash.getInstance().makeHash((consumer.consumerName() + i).getBytes());
+            List<Consumer> consumers = points.computeIfAbsent(hash, k -> new ArrayList<>(1));
+            if (!consumers.contains(consumer)) {
+                consumers.add(consumer);
+                consumers.sort(Comparator.comparing(Consumer::consumerName, String::compareTo));
+            }
+        }
+        hashRing = HashRing.of(points);
+    }
+
+    @Override
+    public synchronized void removeConsumer(Consumer consumer) {
+        // Remove all the points that were added for this consumer
+        for (int i = 0; i < numberOfPoints; i++) {
+            int hash = Murmur3_32Hash.getInstance().makeHash((consumer.consumerName() + i).getBytes());
+            List<Consumer> consumers = points.get(hash);
+            if (consumers != null) {
+                consumers.removeIf(c -> c.consumerName().equals(consumer.consumerName()));
+                if (consumers.isEmpty()) {
+                    points.remove(hash);
+                }
+            }
+        }
+        hashRing = HashRing.of(points);
+    }
+
+    @Override
+    public Consumer select(int hash) {
+        return hashRing.select(hash);
+    }
+
+    @Override
+    public Map<Consumer, List<Range>> getConsumerKeyHashRanges() {
+        HashRing ring = this.hashRing;
+        Map<Consumer, List<Range>> result = new LinkedHashMap<>();
+        int start = 0;
+        for (int i = 0; i < ring.hashes.length; i++) {
+            for (int j = ring.offsets[i]; j < ring.offsets[i + 1]; j++) {
+                result.computeIfAbsent(ring.consumers[j], key -> new ArrayList<>())
+                        .add(Range.of(start, ring.hashes[i]));
+            }
+            start = ring.hashes[i] + 1;
+        }
+        return result;
+    }
+
+    /**
+     * An immutable snapshot of the hash ring.
+     *
+     * The consumers on the i-th point of the ring, whose hash is {@code hashes[i]}, are {@code consumers[offsets[i]]}
+     * to {@code consumers[offsets[i + 1] - 1]}. There is usually a single consumer on each point, unless the hashes
+     * of two consumers collide.
+     */
+    private static final class HashRing {
+        private final int[] hashes;
+        private final int[] offsets;
+        private final Consumer[] consumers;
+
+        private HashRing(int[] hashes, int[] offsets, Consumer[] consumers) {
+            this.hashes = hashes;
+            this.offsets = offsets;
+            this.consumers = consumers;
+        }
+
+        static HashRing of(NavigableMap<Integer, List<Consumer>> points) {
+            if (points.isEmpty()) {
+                return EMPTY_RING;
+            }
+            int[] hashes = new int[points.size()];
+            int[] offsets = new int[points.size() + 1];
+            List<Consumer> consumers = new ArrayList<>(points.size());
+            int i = 0;
+            for (Map.Entry<Integer, List<Consumer>> point : points.entrySet()) {
+                hashes[i] = point.getKey();
+                offsets[i] = consumers.size();
+                consumers.addAll(point.getValue());
+                i++;
+            }
+            offsets[i] = consumers.size();
+            return new HashRing(hashes, offsets, consumers.toArray(new Consumer[0]));
+        }
+
+        Consumer select(int hash) {
+            if (hashes.length == 0) {
+                return null;
+            }
+            // The first point whose hash is greater than or equal to the hash, or the first point of the ring
+            int i = Arrays.binarySearch(hashes, hash);
+            if (i < 0) {
+                i = -i - 1;
+                if (i == hashes.length) {
+                    i = 0;
+                }
+            }
+            int offset = offsets[i];
+            return consumers[offset + hash % (offsets[i + 1] - offset)];
+        }
+    }
+}
@@ -52,9 +52,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
@@ -65,6 +67,7 @@ import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -113,6 +116,8 @@ import org.apache.pulsar.broker.service.persistent.DispatchRateLimiter;
 import org.apache.pulsar.broker.service.persistent.PersistentDispatcherMultipleConsumers;
 import org.apache.pulsar.broker.service.persistent.PersistentTopic;
 import org.apache.pulsar.broker.service.persistent.SystemTopic;
+import org.apache.pulsar.broker.service.plugin.EntryFilter;
+import org.apache.pulsar.broker.service.plugin.EntryFilterUtils;
 import org.apache.pulsar.broker.stats.ClusterReplicationMetrics;
 import org.apache.pulsar.broker.stats.prometheus.metrics.ObserverGauge;
 import org.apache.pulsar.broker.stats.prometheus.metrics.Summary;
@@ -123,6 +128,7 @@ import org.apache.pulsar.client.admin.PulsarAdminBuilder;
 import org.apache.pulsar.client.api.ClientBuilder;
 import org.apache.pulsar.client.api.PulsarClient;
 import org.apache.pulsar.client.impl.ClientBuilderImpl;
+import org.apache.pulsar.client.impl.MessageImpl;
 import org.apache.pulsar.client.impl.PulsarClientImpl;
 import org.apache.pulsar.client.impl.conf.ClientConfigurationData;
 import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
@@ -188,6 +194,8 @@ public class BrokerService implements Closeable {
     private final ManagedLedgerFactory managedLedgerFactory;
 
     private final ConcurrentOpenHashMap<String, CompletableFuture<Optional<Topic>>> topics;
+    // managed ledger configs set up by a bulk load, reused when the topics are then loaded
+    private final Map<String, ManagedLedgerConfig> bulkLoadedManagedLedgerConfigs = new ConcurrentHashMap<>();
 
     private final ConcurrentOpenHashMap<String, PulsarClient> replicationClients;
     private final ConcurrentOpenHashMap<String, PulsarAdmin> clusterAdmins;
@@ -219,6 +227,30 @@ public class BrokerService implements Closeable {
     protected final AtomicReference<Semaphore> lookupRequestSemaphore;
     protected final AtomicReference<Semaphore> topicLoadRequestSemaphore;
 
+    private static final Summary bulkLoadTime = Summary.build("pulsar_broker_bulk_load_topics", "-")
+            .quantile(0.50)
+            .quantile(0.99)
+            .quantile(1.0)
+            .register();
+    private static final Summary bulkLoadMetadataReadTime =
+            Summary.build("pulsar_broker_bulk_load_topics_metadata_read", "-")
+            .quantile(0.50)
+            .quantile(0.99)
+            .quantile(1.0)
+            .register();
+    private static final Summary bulkLoadManagedLedgersInitializeTime =
+            Summary.build("pulsar_broker_bulk_load_topics_managed_ledgers_initialize", "-")
+            .quantile(0.50)
+            .quantile(0.99)
+            .quantile(1.0)
+            .register();
+    private static final Summary bulkLoadTopicsLoadTime =
+            Summary.build("pulsar_broker_bulk_load_topics_topics_load", "-")
+            .quantile(0.50)
+            .quantile(0.99)
+            .quantile(1.0)
+            .register();
+
     private final ObserverGauge pendingLookupRequests;
     private final ObserverGauge pendingTopicLoadRequests;
 
@@ -268,6 +300,8 @@ public class BrokerService implements Closeable {
 
     private Set<BrokerEntryMetadataInterceptor> brokerEntryMetadataInterceptors;
 
+    private final List<EntryFilter> entryFilters;
+
     public BrokerService(PulsarService pulsar, EventLoopGroup eventLoopGroup) throws Exception {
         this.pulsar = pulsar;
         this.preciseTopicPublishRateLimitingEnable =
@@ -342,7 +376,7 @@ public class BrokerService implements Closeable {
         }
 
         this.delayedDeliveryTrackerFactory = DelayedDeliveryTrackerLoader
-                .loadDelayedDeliveryTrackerFactory(pulsar.getConfiguration());
+                .loadDelayedDeliveryTrackerFactory(pulsar);
 
         this.defaultServerBootstrap = defaultServerBootstrap();
 
@@ -360,6 +394,8 @@ public class BrokerService implements Closeable {
         this.brokerEntryMetadataInterceptors = BrokerEntryMetadataUtils
                 .loadBrokerEntryMetadataInterceptors(pulsar.getConfiguration().getBrokerEntryMetadataInterceptors(),
                         BrokerService.class.getClassLoader());
+        this.entryFilters = EntryFilterUtils.loadEntryFilters(pulsar.getConfiguration().getEntryFilterClassNames(),
+                BrokerService.class.getClassLoader());
 
         this.bundlesQuotas = new BundlesQuotas(pulsar.getLocalMetadataStore());
     }
@@ -734,6 +770,7 @@ public class BrokerService implements Closeable {
                                 } catch (IOException e) {
                                     log.warn("Error in closing delayedDeliveryTrackerFactory", e);
                                 }
+                                entryFilters.forEach(EntryFilter::close);
 
                                 asyncCloseFutures.add(GracefulExecutorServicesShutdown
                                         .initiate()
@@ -1216,23 +1253,17 @@ public class BrokerService implements Closeable {
                 ? checkMaxTopicsPerNamespace(topicName, 1)
                 : CompletableFuture.completedFuture(null);
 
-        maxTopicsCheck.thenCompose(__ -> getManagedLedgerConfig(topicName)).thenAccept(managedLedgerConfig -> {
-            if (isBrokerEntryMetadataEnabled()) {
-                // init managedLedger interceptor
-                Set<BrokerEntryMetadataInterceptor> interceptors = new HashSet<>();
-                for (BrokerEntryMetadataInterceptor interceptor : brokerEntryMetadataInterceptors) {
-                    // add individual AppendOffsetMetadataInterceptor for each topic
-                    if (interceptor instanceof AppendIndexMetadataInterceptor) {
-                        interceptors.add(new AppendIndexMetadataInterceptor());
-                    } else {
-                        interceptors.add(interceptor);
-                    }
-                }
-                managedLedgerConfig.setManagedLedgerInterceptor(new ManagedLedgerInterceptorImpl(interceptors));
+        // the config of a topic loaded in bulk is reused, as the managed ledger was already opened with it
+        ManagedLedgerConfig bulkLoadedConfig = bulkLoadedManagedLedgerConfigs.remove(topic);
+        maxTopicsCheck.thenCompose(__ -> bulkLoadedConfig != null
+                ? CompletableFuture.completedFuture(bulkLoadedConfig)
+                : getManagedLedgerConfig(topicName)).thenAccept(managedLedgerConfig -> {
+            if (bulkLoadedConfig == null) {
+                initManagedLedgerConfig(managedLedgerConfig, createIfMissing);
+            } else {
+                managedLedgerConfig.setCreateIfMissing(createIfMissing);
             }
 
-            managedLedgerConfig.setCreateIfMissing(createIfMissing);
-
             // Once we have the configuration, we can proceed with the async open operation
             managedLedgerFactory.asyncOpen(topicName.getPersistenceNamingEncoding(), managedLedgerConfig,
                     new OpenLedgerCallback() {
@@ -1311,6 +1342,101 @@ public class BrokerService implements Closeable {
         });
     }
 
+    private void initManagedLedgerConfig(ManagedLedgerConfig managedLedgerConfig, boolean createIfMissing) {
+        if (isBrokerEntryMetadataEnabled()) {
+            // init managedLedger interceptor
+            Set<BrokerEntryMetadataInterceptor> interceptors = new HashSet<>();
+            for (BrokerEntryMetadataInterceptor interceptor : brokerEntryMetadataInterceptors) {
+                // add individual AppendOffsetMetadataInterceptor for each topic
+                if (interceptor instanceof AppendIndexMetadataInterceptor) {
+                    interceptors.add(new AppendIndexMetadataInterceptor());
+                } else {
+                    interceptors.add(interceptor);
+                }
+            }
+            managedLedgerConfig.setManagedLedgerInterceptor(new ManagedLedgerInterceptorImpl(interceptors));
+        }
+
+        managedLedgerConfig.setCreateIfMissing(createIfMissing);
+    }
+
+    /**
+     * Load existing persistent topics in bulk.
+     *
+     * <p>The managed ledgers of all the topics are first opened at once, with their metadata and the metadata of
+     * their cursors read in batches. The topics are then loaded on top of the opened managed ledgers, at most
+     * {@link ServiceConfiguration#getBulkLoadTopicsMaxConcurrency()} at a time. A topic whose managed ledger could
+     * not be opened in bulk is loaded as usual.
+     *
+     * @param topics
+     *            the names of the persistent topics to load
+     * @return a future completed with the number of topics loaded, once all the topics are loaded or failed to load
+     */
+    public CompletableFuture<Integer> loadTopicsInBulk(List<String> topics) {
+        final long startTime = System.nanoTime();
+        Map<String, TopicName> topicNames = new HashMap<>();
+        Map<String, ManagedLedgerConfig> managedLedgerConfigs = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> configFutures = new ArrayList<>(topics.size());
+        for (String topic : topics) {
+            TopicName topicName = TopicName.get(topic);
+            String managedLedgerName = topicName.getPersistenceNamingEncoding();
+            topicNames.put(managedLedgerName, topicName);
+            configFutures.add(getManagedLedgerConfig(topicName).thenAccept(managedLedgerConfig -> {
+                initManagedLedgerConfig(managedLedgerConfig, false);
+                managedLedgerConfigs.put(managedLedgerName, managedLedgerConfig);
+                bulkLoadedManagedLedgerConfigs.put(topic, managedLedgerConfig);
+            }).exceptionally(ex -> {
+                log.warn("[{}] Failed to get the managed ledger config, the topic is not opened in bulk", topic, ex);
+                return null;
+            }));
+        }
+
+        return FutureUtil.waitForAll(configFutures)
+                .thenCompose(__ -> managedLedgerFactory.asyncOpenBulk(managedLedgerConfigs,
+                        managedLedgerName -> () -> isTopicNsOwnedByBroker(topicNames.get(managedLedgerName))))
+                .thenCompose(result -> {
+                    bulkLoadMetadataReadTime.observe(result.getMetadataReadTimeMs(), TimeUnit.MILLISECONDS);
+                    bulkLoadManagedLedgersInitializeTime.observe(result.getInitializeTimeMs(), TimeUnit.MILLISECONDS);
+                    result.getFailures().forEach((managedLedgerName, e) ->
+                            log.warn("[{}] Failed to open the managed ledger in bulk: {}",
+                                    topicNames.get(managedLedgerName), e.getMessage()));
+
+                    final long topicsLoadStartTime = System.nanoTime();
+                    Queue<String> pendingTopics = new ConcurrentLinkedQueue<>(topics);
+                    AtomicInteger loadedTopics = new AtomicInteger();
+                    int concurrency = Math.min(topics.size(),
+                            Math.max(1, pulsar.getConfiguration().getBulkLoadTopicsMaxConcurrency()));
+                    List<CompletableFuture<Void>> loaders = new ArrayList<>(concurrency);
+                    for (int i = 0; i < concurrency; i++) {
+                        loaders.add(loadNextTopic(pendingTopics, loadedTopics));
+                    }
+                    return FutureUtil.waitForAll(loaders).thenApply(___ -> {
+                        long now = System.nanoTime();
+                        bulkLoadTopicsLoadTime.observe(now - topicsLoadStartTime, TimeUnit.NANOSECONDS);
+                        bulkLoadTime.observe(now - startTime, TimeUnit.NANOSECONDS);
+                        return loadedTopics.get();
+                    });
+                });
+    }
+
+    private CompletableFuture<Void> loadNextTopic(Queue<String> pendingTopics, AtomicInteger loadedTopics) {
+        String topic = pendingTopics.poll();
+        if (topic == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // the next topic is loaded from the executor, as the future of a topic already loaded is completed right away
+        return getTopic(topic, false).handle((optionalTopic, ex) -> {
+            // the config is left over if the topic was already loaded
+            bulkLoadedManagedLedgerConfigs.remove(topic);
+            if (ex != null) {
+                log.warn("[{}] Failed to load the topic", topic, ex);
+            } else if (optionalTopic.isPresent()) {
+                loadedTopics.incrementAndGet();
+            }
+            return null;
+        }).thenComposeAsync(__ -> loadNextTopic(pendingTopics, loadedTopics), pulsar.getExecutor());
+    }
+
     public CompletableFuture<ManagedLedgerConfig> getManagedLedgerConfig(TopicName topicName) {
         NamespaceName namespace = topicName.getNamespaceObject();
         ServiceConfiguration serviceConfig = pulsar.getConfiguration();
@@ -1383,6 +1509,9 @@ public class BrokerService implements Closeable {
                             .setMaximumRolloverTime(serviceConfig.getManagedLedgerMaxLedgerRolloverTimeMinutes(),
                                     TimeUnit.MINUTES);
                     managedLedgerConfig.setMaxSizePerLedgerMb(serviceConfig.getManagedLedgerMaxSizePerLedgerMbytes());
+                    managedLedgerConfig.setStandbyLedgerEnabled(serviceConfig.isManagedLedgerStandbyLedgerEnabled());
+                    managedLedgerConfig.setStandbyLedgerCreationThresholdPercentage(
+                            serviceConfig.getManagedLedgerStandbyLedgerCreationThresholdPercentage());
 
                     managedLedgerConfig.setMetadataOperationsTimeoutSeconds(
                             serviceConfig.getManagedLedgerMetadataOperationsTimeoutSeconds());
@@ -1393,6 +1522,14 @@ public class BrokerService implements Closeable {
                     managedLedgerConfig.setMetadataEnsembleSize(serviceConfig.getManagedLedgerDefaultEnsembleSize());
                     managedLedgerConfig.setUnackedRangesOpenCacheSetEnabled(
                             serviceConfig.isManagedLedgerUnackedRangesOpenCacheSetEnabled());
+                    managedLedgerConfig.setUnackedRangesBitmapEnabled(
+                            serviceConfig.isManagedLedgerUnackedRangesBitmapEnabled());
+                    managedLedgerConfig.setMaxUnackedRangesBitmapSizeToPersist(
+                            serviceConfig.getManagedLedgerMaxUnackedRangesBitmapSizeToPersist());
+                    managedLedgerConfig.setCursorStateDeltaEnabled(
+                            serviceConfig.isManagedLedgerCursorStateDeltaEnabled());
+                    managedLedgerConfig.setCursorStateDeltasPerSnapshot(
+                            serviceConfig.getManagedLedgerCursorStateDeltasPerSnapshot());
                     managedLedgerConfig.setMetadataWriteQuorumSize(serviceConfig.getManagedLedgerDefaultWriteQuorum());
                     managedLedgerConfig.setMetadataAckQuorumSize(serviceConfig.getManagedLedgerDefaultAckQuorum());
                     managedLedgerConfig
@@ -1430,11 +1567,33 @@ public class BrokerService implements Closeable {
                             serviceConfig.isAcknowledgmentAtBatchIndexLevelEnabled());
                     managedLedgerConfig.setNewEntriesCheckDelayInMillis(
                             serviceConfig.getManagedLedgerNewEntriesCheckDelayInMillis());
+                    managedLedgerConfig.setReadAheadEnabled(serviceConfig.isManagedLedgerReadAheadEnabled());
+                    managedLedgerConfig.setReadAheadMaxWindowEntries(
+                            serviceConfig.getManagedLedgerReadAheadMaxWindowEntries());
+                    managedLedgerConfig.setReadAheadMaxOutstandingReads(
+                            serviceConfig.getManagedLedgerReadAheadMaxOutstandingReads());
+                    managedLedgerConfig.setReadAheadMaxBufferSizeBytes(
+                            serviceConfig.getManagedLedgerReadAheadMaxBufferSizeMB() * 1024L * 1024L);
+                    managedLedgerConfig.setTimeIndexEnabled(serviceConfig.isManagedLedgerTimeIndexEnabled());
+                    managedLedgerConfig.setTimeIndexIntervalEntries(
+                            serviceConfig.getManagedLedgerTimeIndexIntervalEntries());
+                    managedLedgerConfig.setTimeIndexIntervalMs(serviceConfig.getManagedLedgerTimeIndexIntervalMs());
+                    managedLedgerConfig.setTimeIndexMaxSamplesPerLedger(
+                            serviceConfig.getManagedLedgerTimeIndexMaxSamplesPerLedger());
+                    managedLedgerConfig.setEntryTimestampExtractor(BrokerService::getEntryTimestamp);
 
                     return managedLedgerConfig;
                 });
     }
 
+    private static long getEntryTimestamp(ByteBuf headersAndPayload) {
+        try {
+            return MessageImpl.getEntryTimestamp(headersAndPayload);
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
     private void addTopicToStatsMaps(TopicName topicName, Topic topic) {
         pulsar.getNamespaceService().getBundleAsync(topicName)
                 .thenAccept(namespaceBundle -> {
@@ -2661,6 +2820,10 @@ public class BrokerService implements Closeable {
         return brokerEntryMetadataInterceptors;
     }
 
+    public List<EntryFilter> getEntryFilters() {
+        return entryFilters;
+    }
+
     public boolean isBrokerEntryMetadataEnabled() {
         return !brokerEntryMetadataInterceptors.isEmpty();
     }
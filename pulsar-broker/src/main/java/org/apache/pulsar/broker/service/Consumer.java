@@ -646,6 +646,10 @@ public class Consumer {
         return keySharedMeta;
     }
 
+    public Map<String, String> getMetadata() {
+        return metadata;
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this).add("subscription", subscription).add("consumerId", consumerId)
@@ -849,6 +853,9 @@ public class Consumer {
     }
 
     private int getStickyKeyHash(Entry entry) {
+        if (entry instanceof EntryWithStickyKeyHash) {
+            return ((EntryWithStickyKeyHash) entry).getStickyKeyHash();
+        }
         byte[] stickyKey = Commands.peekStickyKey(entry.getDataBuffer(), topicName, subscription.getName());
         return StickyKeyConsumerSelector.makeStickyKeyHash(stickyKey);
     }
@@ -0,0 +1,86 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service;
+
+import io.netty.buffer.ByteBuf;
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.Position;
+
+/**
+ * An entry carrying the hash of its sticky key, computed once by the Key_Shared dispatcher when the entry is
+ * assigned to a consumer, so that the consumer does not parse the message metadata again.
+ */
+public class EntryWithStickyKeyHash implements Entry {
+    private final Entry entry;
+    private final int stickyKeyHash;
+
+    public EntryWithStickyKeyHash(Entry entry, int stickyKeyHash) {
+        this.entry = entry;
+        this.stickyKeyHash = stickyKeyHash;
+    }
+
+    public int getStickyKeyHash() {
+        return stickyKeyHash;
+    }
+
+    @Override
+    public byte[] getData() {
+        return entry.getData();
+    }
+
+    @Override
+    public byte[] getDataAndRelease() {
+        return entry.getDataAndRelease();
+    }
+
+    @Override
+    public int getLength() {
+        return entry.getLength();
+    }
+
+    @Override
+    public ByteBuf getDataBuffer() {
+        return entry.getDataBuffer();
+    }
+
+    @Override
+    public Position getPosition() {
+        return entry.getPosition();
+    }
+
+    @Override
+    public long getLedgerId() {
+        return entry.getLedgerId();
+    }
+
+    @Override
+    public long getEntryId() {
+        return entry.getEntryId();
+    }
+
+    @Override
+    public boolean release() {
+        return entry.release();
+    }
+
+    @Override
+    public String toString() {
+        return entry.toString();
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.prometheus.client.Counter;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces the flushes of the writes to a connection.
+ *
+ * <p>While data is being read from the connection, flushes are deferred to the end of the read, so that all the
+ * responses to the commands of one read are flushed at once. Otherwise, the flush is deferred by at most the
+ * configured delay, so that the writes issued by the IO thread in the meantime, e.g. the receipts of the messages
+ * persisted at about the same time, are flushed together. The writes are flushed right away when the pending bytes
+ * reach the configured limit, or when the connection becomes unwritable.
+ *
+ * <p>The handler must be added first in the pipeline, so that it sees the reads from the socket and the flushes to
+ * the socket. All its methods are invoked by the IO thread of the connection.
+ */
+public class FlushCoalescingHandler extends ChannelDuplexHandler {
+
+    private static final Counter flushRequests = Counter
+            .build("pulsar_broker_connection_flush_requests", "-")
+            .register();
+    private static final Counter flushes = Counter
+            .build("pulsar_broker_connection_flushes", "-")
+            .register();
+
+    private final int maxPendingBytes;
+    private final long maxDelayNanos;
+    private final Runnable flushTask;
+
+    private ChannelHandlerContext ctx;
+    private boolean readInProgress;
+    private int pendingFlushes;
+    private long pendingBytes;
+    private Future<?> scheduledFlush;
+
+    public FlushCoalescingHandler(int maxPendingBytes, long maxDelay, TimeUnit unit) {
+        this.maxPendingBytes = maxPendingBytes;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.flushTask = () -> {
+            scheduledFlush = null;
+            flushNow(ctx);
+        };
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof ByteBuf) {
+            pendingBytes += ((ByteBuf) msg).readableBytes();
+        } else if (msg instanceof ByteBufHolder) {
+            pendingBytes += ((ByteBufHolder) msg).content().readableBytes();
+        }
+        ctx.write(msg, promise);
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        pendingFlushes++;
+        if (pendingBytes >= maxPendingBytes) {
+            flushNow(ctx);
+        } else if (!readInProgress && scheduledFlush == null) {
+            // nothing is being read, the flush can't wait for the end of a read
+            scheduledFlush = maxDelayNanos > 0
+                    ? ctx.executor().schedule(flushTask, maxDelayNanos, TimeUnit.NANOSECONDS)
+                    : ctx.executor().submit(flushTask);
+        }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        readInProgress = true;
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        readInProgress = false;
+        flushNow(ctx);
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (!ctx.channel().isWritable()) {
+            // the pending writes must be flushed for the channel to become writable again
+            flushNow(ctx);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        flushNow(ctx);
+        ctx.fireExceptionCaught(cause);
+    }
+
+    @Override
+    public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        flushNow(ctx);
+        ctx.disconnect(promise);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        flushNow(ctx);
+        ctx.close(promise);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        flushNow(ctx);
+    }
+
+    private void flushNow(ChannelHandlerContext ctx) {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (pendingFlushes > 0) {
+            flushRequests.inc(pendingFlushes);
+            flushes.inc();
+            pendingFlushes = 0;
+            pendingBytes = 0;
+            ctx.flush();
+        }
+    }
+}
@@ -222,18 +222,28 @@ public class Producer {
 
     private void publishMessageToTopic(ByteBuf headersAndPayload, long sequenceId, long batchSize, boolean isChunked,
                                        boolean isMarker) {
-        topic.publishMessage(headersAndPayload,
-                MessagePublishContext.get(this, sequenceId, msgIn,
+        MessagePublishContext publishContext = MessagePublishContext.get(this, sequenceId, msgIn,
                         headersAndPayload.readableBytes(), batchSize,
-                        isChunked, System.nanoTime(), isMarker));
+                        isChunked, System.nanoTime(), isMarker);
+        if (isNonPersistentTopic) {
+            // fan-out to the subscriptions is batched on the connection event loop
+            ((NonPersistentTopic) topic).publishMessage(headersAndPayload, publishContext, cnx::execute);
+        } else {
+            topic.publishMessage(headersAndPayload, publishContext);
+        }
     }
 
     private void publishMessageToTopic(ByteBuf headersAndPayload, long lowestSequenceId, long highestSequenceId,
                                        long batchSize, boolean isChunked, boolean isMarker) {
-        topic.publishMessage(headersAndPayload,
-                MessagePublishContext.get(this, lowestSequenceId,
+        MessagePublishContext publishContext = MessagePublishContext.get(this, lowestSequenceId,
                         highestSequenceId, msgIn, headersAndPayload.readableBytes(), batchSize,
-                        isChunked, System.nanoTime(), isMarker));
+                        isChunked, System.nanoTime(), isMarker);
+        if (isNonPersistentTopic) {
+            // fan-out to the subscriptions is batched on the connection event loop
+            ((NonPersistentTopic) topic).publishMessage(headersAndPayload, publishContext, cnx::execute);
+        } else {
+            topic.publishMessage(headersAndPayload, publishContext);
+        }
     }
 
     private boolean verifyChecksum(ByteBuf headersAndPayload) {
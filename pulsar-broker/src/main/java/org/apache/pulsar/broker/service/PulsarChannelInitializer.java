@@ -46,6 +46,7 @@ import org.apache.pulsar.common.util.keystoretls.NettySSLContextAutoRefreshBuild
 public class PulsarChannelInitializer extends ChannelInitializer<SocketChannel> {
 
     public static final String TLS_HANDLER = "tls";
+    public static final String FLUSH_COALESCING_HANDLER = "flushCoalescing";
 
     private final PulsarService pulsar;
     private final String listenerName;
@@ -111,6 +112,11 @@ public class PulsarChannelInitializer extends ChannelInitializer<SocketChannel>
 
     @Override
     protected void initChannel(SocketChannel ch) throws Exception {
+        if (brokerConf.isConnectionFlushCoalescingEnabled()) {
+            ch.pipeline().addLast(FLUSH_COALESCING_HANDLER, new FlushCoalescingHandler(
+                    brokerConf.getConnectionFlushCoalescingMaxBytes(),
+                    brokerConf.getConnectionFlushCoalescingMaxDelayMicros(), TimeUnit.MICROSECONDS));
+        }
         if (this.enableTls) {
             if (this.tlsEnabledWithKeyStore) {
                 ch.pipeline().addLast(TLS_HANDLER,
@@ -118,7 +124,7 @@ public class PulsarChannelInitializer extends ChannelInitializer<SocketChannel>
             } else {
                 ch.pipeline().addLast(TLS_HANDLER, sslCtxRefresher.get().newHandler(ch.alloc()));
             }
-            ch.pipeline().addLast("ByteBufPairEncoder", ByteBufPair.COPYING_ENCODER);
+            ch.pipeline().addLast("ByteBufPairEncoder", ByteBufPair.READ_ONLY_ENCODER);
         } else {
             ch.pipeline().addLast("ByteBufPairEncoder", ByteBufPair.ENCODER);
         }
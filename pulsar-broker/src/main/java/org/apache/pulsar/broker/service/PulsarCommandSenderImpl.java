@@ -159,7 +159,8 @@ public class PulsarCommandSenderImpl implements PulsarCommandSender {
 
     @Override
     public void sendConnectedResponse(int clientProtocolVersion, int maxMessageSize) {
-        BaseCommand command = Commands.newConnectedCommand(clientProtocolVersion, maxMessageSize);
+        BaseCommand command = Commands.newConnectedCommand(clientProtocolVersion, maxMessageSize,
+                true /* supportsLookupTopics */);
         safeIntercept(command, cnx);
         ByteBuf outBuf = Commands.serializeWithSize(command);
         cnx.ctx().writeAndFlush(outBuf);
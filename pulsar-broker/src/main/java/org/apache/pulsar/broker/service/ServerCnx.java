@@ -22,6 +22,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.apache.pulsar.broker.admin.impl.PersistentTopicsBase.unsafeGetPartitionedTopicMetadataAsync;
 import static org.apache.pulsar.broker.lookup.TopicLookupBase.lookupTopicAsync;
+import static org.apache.pulsar.broker.lookup.TopicLookupBase.lookupTopicsAsync;
 import static org.apache.pulsar.common.api.proto.ProtocolVersion.v5;
 import static org.apache.pulsar.common.protocol.Commands.newLookupErrorResponse;
 import com.google.common.annotations.VisibleForTesting;
@@ -37,8 +38,11 @@ import io.netty.util.concurrent.Promise;
 import io.prometheus.client.Gauge;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
@@ -105,6 +109,8 @@ import org.apache.pulsar.common.api.proto.CommandGetOrCreateSchema;
 import org.apache.pulsar.common.api.proto.CommandGetSchema;
 import org.apache.pulsar.common.api.proto.CommandGetTopicsOfNamespace;
 import org.apache.pulsar.common.api.proto.CommandLookupTopic;
+import org.apache.pulsar.common.api.proto.CommandLookupTopicResponse;
+import org.apache.pulsar.common.api.proto.CommandLookupTopics;
 import org.apache.pulsar.common.api.proto.CommandNewTxn;
 import org.apache.pulsar.common.api.proto.CommandPartitionedTopicMetadata;
 import org.apache.pulsar.common.api.proto.CommandProducer;
@@ -469,6 +475,103 @@ public class ServerCnx extends PulsarHandler implements TransportCnx {
         }
     }
 
+    @Override
+    protected void handleLookupTopics(CommandLookupTopics lookup) {
+        final long requestId = lookup.getRequestId();
+        final boolean authoritative = lookup.isAuthoritative();
+        final List<String> topics = new ArrayList<>(lookup.getTopicsList());
+
+        // use the connection-specific listener name by default.
+        final String advertisedListenerName = lookup.hasAdvertisedListenerName() ? lookup.getAdvertisedListenerName()
+                : this.listenerName;
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Received Lookup of {} topics for {}", remoteAddress, topics.size(), requestId);
+        }
+
+        // A batch of topics takes a single permit, as it costs a single lookup per namespace bundle
+        final Semaphore lookupSemaphore = service.getLookupRequestSemaphore();
+        if (!lookupSemaphore.tryAcquire()) {
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Failed lookup of {} topics due to too many lookup-requests", remoteAddress,
+                        topics.size());
+            }
+            ctx.writeAndFlush(Commands.newLookupTopicsErrorResponse(ServerError.TooManyRequests,
+                    "Failed due to too many pending lookup requests", requestId));
+            return;
+        }
+        if (invalidOriginalPrincipal(originalPrincipal)) {
+            final String msg = "Valid Proxy Client role should be provided for lookup ";
+            log.warn("[{}] {} with role {} and proxyClientAuthRole {} on {} topics", remoteAddress, msg, authRole,
+                    originalPrincipal, topics.size());
+            ctx.writeAndFlush(Commands.newLookupTopicsErrorResponse(ServerError.AuthorizationError, msg, requestId));
+            lookupSemaphore.release();
+            return;
+        }
+
+        final CommandLookupTopicResponse[] results = new CommandLookupTopicResponse[topics.size()];
+        final TopicName[] topicNames = new TopicName[topics.size()];
+        final List<CompletableFuture<Void>> authorizationFutures = new ArrayList<>(topics.size());
+        for (int i = 0; i < topics.size(); i++) {
+            final int index = i;
+            try {
+                topicNames[index] = TopicName.get(topics.get(index));
+            } catch (Throwable t) {
+                if (log.isDebugEnabled()) {
+                    log.debug("[{}] Failed to parse topic name '{}'", remoteAddress, topics.get(index), t);
+                }
+                results[index] = Commands.newLookupErrorResult(ServerError.InvalidTopicName,
+                        "Invalid topic name: " + t.getMessage(), requestId);
+                continue;
+            }
+            authorizationFutures.add(isTopicOperationAllowed(topicNames[index], TopicOperation.LOOKUP)
+                    .handle((isAuthorized, ex) -> {
+                        if (ex != null) {
+                            logAuthException(remoteAddress, "lookup", getPrincipal(),
+                                    Optional.of(topicNames[index]), ex);
+                            results[index] = Commands.newLookupErrorResult(ServerError.AuthorizationError,
+                                    "Exception occurred while trying to authorize lookup", requestId);
+                        } else if (!isAuthorized) {
+                            final String msg = "Proxy Client is not authorized to Lookup";
+                            log.warn("[{}] {} with role {} on topic {}", remoteAddress, msg, getPrincipal(),
+                                    topicNames[index]);
+                            results[index] = Commands.newLookupErrorResult(ServerError.AuthorizationError, msg,
+                                    requestId);
+                        }
+                        return null;
+                    }));
+        }
+
+        FutureUtil.waitForAll(authorizationFutures).thenCompose(ignore -> {
+            // lookup the topics which passed the validation, grouped by namespace bundle
+            List<TopicName> lookupTopicNames = new ArrayList<>(topics.size());
+            List<Integer> lookupIndexes = new ArrayList<>(topics.size());
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == null) {
+                    lookupTopicNames.add(topicNames[i]);
+                    lookupIndexes.add(i);
+                }
+            }
+            return lookupTopicsAsync(getBrokerService().pulsar(), lookupTopicNames, authoritative, getPrincipal(),
+                    getAuthenticationData(), requestId, advertisedListenerName).thenAccept(lookupResults -> {
+                        for (int i = 0; i < lookupIndexes.size(); i++) {
+                            results[lookupIndexes.get(i)] = lookupResults.get(i);
+                        }
+                    });
+        }).handle((ignore, ex) -> {
+            if (ex == null) {
+                ctx.writeAndFlush(Commands.newLookupTopicsResponse(Arrays.asList(results), requestId));
+            } else {
+                // it should never happen
+                log.warn("[{}] lookup of {} topics failed with error {}", remoteAddress, topics.size(),
+                        ex.getMessage(), ex);
+                ctx.writeAndFlush(Commands.newLookupTopicsErrorResponse(ServerError.ServiceNotReady,
+                        ex.getMessage(), requestId));
+            }
+            lookupSemaphore.release();
+            return null;
+        });
+    }
+
     @Override
     protected void handlePartitionMetadataRequest(CommandPartitionedTopicMetadata partitionMetadata) {
         final long requestId = partitionMetadata.getRequestId();
@@ -599,7 +702,7 @@ public class ServerCnx extends PulsarHandler implements TransportCnx {
 
     // complete the connect and sent newConnected command
     private void completeConnect(int clientProtoVersion, String clientVersion) {
-        ctx.writeAndFlush(Commands.newConnected(clientProtoVersion, maxMessageSize));
+        ctx.writeAndFlush(Commands.newConnected(clientProtoVersion, maxMessageSize, true /* supportsLookupTopics */));
         state = State.Connected;
         service.getPulsarStats().recordConnectionCreateSuccess();
         if (log.isDebugEnabled()) {
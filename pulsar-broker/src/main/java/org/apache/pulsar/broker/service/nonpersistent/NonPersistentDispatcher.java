@@ -26,6 +26,7 @@ import org.apache.pulsar.broker.service.BrokerServiceException;
 import org.apache.pulsar.broker.service.Consumer;
 import org.apache.pulsar.broker.service.Dispatcher;
 import org.apache.pulsar.common.api.proto.CommandSubscribe.SubType;
+import org.apache.pulsar.common.protocol.Commands;
 import org.apache.pulsar.common.stats.Rate;
 
 
@@ -55,6 +56,22 @@ public interface NonPersistentDispatcher extends Dispatcher {
 
     boolean hasPermits();
 
+    /**
+     * Get the end of the range of entries, starting at {@code start}, that a consumer with the given permits receives.
+     * Like when the messages were dispatched one at a time, entries are sent while the consumer has permits left, a
+     * batch entry using as many permits as it has messages.
+     */
+    static int endOfEntriesWithinPermits(List<Entry> entries, int start, int permits, String subscription) {
+        int end = start;
+        int usedPermits = 0;
+        while (end < entries.size() && usedPermits < permits) {
+            int numMessages = Commands.getNumberOfMessagesInBatch(entries.get(end).getDataBuffer(), subscription, -1);
+            usedPermits += Math.max(1, numMessages);
+            end++;
+        }
+        return end;
+    }
+
     @Override
     default void redeliverUnacknowledgedMessages(Consumer consumer) {
         // No-op
@@ -18,6 +18,7 @@
  */
 package org.apache.pulsar.broker.service.nonpersistent;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -183,24 +184,64 @@ public class NonPersistentDispatcherMultipleConsumers extends AbstractDispatcher
 
     @Override
     public void sendMessages(List<Entry> entries) {
-        Consumer consumer = TOTAL_AVAILABLE_PERMITS_UPDATER.get(this) > 0 ? getNextConsumer() : null;
-        if (consumer != null) {
-            SendMessageInfo sendMessageInfo = SendMessageInfo.getThreadLocal();
-            EntryBatchSizes batchSizes = EntryBatchSizes.get(entries.size());
-            filterEntriesForConsumer(entries, batchSizes, sendMessageInfo, null, null, false);
-            consumer.sendMessages(entries, batchSizes, null, sendMessageInfo.getTotalMessages(),
-                    sendMessageInfo.getTotalBytes(), sendMessageInfo.getTotalChunkedMessages(), getRedeliveryTracker());
-
-            TOTAL_AVAILABLE_PERMITS_UPDATER.addAndGet(this, -sendMessageInfo.getTotalMessages());
-        } else {
-            entries.forEach(entry -> {
-                int totalMsgs = Commands.getNumberOfMessagesInBatch(entry.getDataBuffer(), subscription.toString(), -1);
-                if (totalMsgs > 0) {
-                    msgDrop.recordEvent(totalMsgs);
+        int start = 0;
+        if (TOTAL_AVAILABLE_PERMITS_UPDATER.get(this) > 0 && IS_CLOSED_UPDATER.get(this) == FALSE) {
+            // The consumers and their permits are read once per batch, from the copy-on-write list of consumers and
+            // without locking the dispatcher. The batch is then spread over the consumers of this snapshot in the
+            // order of the list, round-robin among the consumers of a same priority level, like getNextConsumer()
+            // does message by message.
+            Object[] consumers = consumerList.toArray();
+            int[] permits = new int[consumers.length];
+            for (int i = 0; i < consumers.length; i++) {
+                Consumer consumer = (Consumer) consumers[i];
+                permits[i] = isConsumerAvailable(consumer) ? consumer.getAvailablePermits() : 0;
+            }
+
+            int levelStart = 0;
+            while (levelStart < consumers.length && start < entries.size()) {
+                int priorityLevel = ((Consumer) consumers[levelStart]).getPriorityLevel();
+                int levelEnd = levelStart + 1;
+                while (levelEnd < consumers.length
+                        && ((Consumer) consumers[levelEnd]).getPriorityLevel() == priorityLevel) {
+                    levelEnd++;
                 }
-                entry.release();
-            });
+                int levelSize = levelEnd - levelStart;
+                int roundRobinIndex = currentConsumerRoundRobinIndex;
+                int first = roundRobinIndex >= levelStart && roundRobinIndex < levelEnd ? roundRobinIndex : levelStart;
+                for (int k = 0; k < levelSize && start < entries.size(); k++) {
+                    int index = levelStart + (first - levelStart + k) % levelSize;
+                    if (permits[index] <= 0) {
+                        continue;
+                    }
+                    int end = NonPersistentDispatcher.endOfEntriesWithinPermits(entries, start, permits[index],
+                            subscription.toString());
+                    sendMessages((Consumer) consumers[index], start == 0 && end == entries.size()
+                            ? entries : new ArrayList<>(entries.subList(start, end)));
+                    currentConsumerRoundRobinIndex = index + 1;
+                    start = end;
+                }
+                levelStart = levelEnd;
+            }
         }
+
+        for (int i = start; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            int totalMsgs = Commands.getNumberOfMessagesInBatch(entry.getDataBuffer(), subscription.toString(), -1);
+            if (totalMsgs > 0) {
+                msgDrop.recordEvent(totalMsgs);
+            }
+            entry.release();
+        }
+    }
+
+    private void sendMessages(Consumer consumer, List<Entry> entries) {
+        SendMessageInfo sendMessageInfo = SendMessageInfo.getThreadLocal();
+        EntryBatchSizes batchSizes = EntryBatchSizes.get(entries.size());
+        filterEntriesForConsumer(entries, batchSizes, sendMessageInfo, null, null, false);
+        consumer.sendMessages(entries, batchSizes, null, sendMessageInfo.getTotalMessages(),
+                sendMessageInfo.getTotalBytes(), sendMessageInfo.getTotalChunkedMessages(), getRedeliveryTracker());
+
+        TOTAL_AVAILABLE_PERMITS_UPDATER.addAndGet(this, -sendMessageInfo.getTotalMessages());
     }
 
     @Override
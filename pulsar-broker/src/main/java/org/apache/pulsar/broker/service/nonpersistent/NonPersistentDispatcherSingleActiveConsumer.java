@@ -18,6 +18,7 @@
  */
 package org.apache.pulsar.broker.service.nonpersistent;
 
+import java.util.ArrayList;
 import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.mledger.Entry;
@@ -54,20 +55,26 @@ public final class NonPersistentDispatcherSingleActiveConsumer extends AbstractD
     @Override
     public void sendMessages(List<Entry> entries) {
         Consumer currentConsumer = ACTIVE_CONSUMER_UPDATER.get(this);
+        int end = 0;
         if (currentConsumer != null && currentConsumer.getAvailablePermits() > 0 && currentConsumer.isWritable()) {
+            // the entries beyond the available permits of the consumer are dropped
+            end = NonPersistentDispatcher.endOfEntriesWithinPermits(entries, 0,
+                    currentConsumer.getAvailablePermits(), subscription.toString());
+            List<Entry> entriesForConsumer = end == entries.size() ? entries : new ArrayList<>(entries.subList(0, end));
             SendMessageInfo sendMessageInfo = SendMessageInfo.getThreadLocal();
-            EntryBatchSizes batchSizes = EntryBatchSizes.get(entries.size());
-            filterEntriesForConsumer(entries, batchSizes, sendMessageInfo, null, null, false);
-            currentConsumer.sendMessages(entries, batchSizes, null, sendMessageInfo.getTotalMessages(),
+            EntryBatchSizes batchSizes = EntryBatchSizes.get(entriesForConsumer.size());
+            filterEntriesForConsumer(entriesForConsumer, batchSizes, sendMessageInfo, null, null, false);
+            currentConsumer.sendMessages(entriesForConsumer, batchSizes, null, sendMessageInfo.getTotalMessages(),
                     sendMessageInfo.getTotalBytes(), sendMessageInfo.getTotalChunkedMessages(), getRedeliveryTracker());
-        } else {
-            entries.forEach(entry -> {
-                int totalMsgs = Commands.getNumberOfMessagesInBatch(entry.getDataBuffer(), subscription.toString(), -1);
-                if (totalMsgs > 0) {
-                    msgDrop.recordEvent(totalMsgs);
-                }
-                entry.release();
-            });
+        }
+
+        for (int i = end; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            int totalMsgs = Commands.getNumberOfMessagesInBatch(entry.getDataBuffer(), subscription.toString(), -1);
+            if (totalMsgs > 0) {
+                msgDrop.recordEvent(totalMsgs);
+            }
+            entry.release();
         }
     }
 
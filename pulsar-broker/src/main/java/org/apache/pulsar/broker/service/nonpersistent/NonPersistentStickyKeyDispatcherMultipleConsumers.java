@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import org.apache.bookkeeper.mledger.Entry;
 import org.apache.pulsar.broker.ServiceConfiguration;
+import org.apache.pulsar.broker.service.ArrayHashRingStickyKeyConsumerSelector;
 import org.apache.pulsar.broker.service.BrokerServiceException;
 import org.apache.pulsar.broker.service.ConsistentHashingStickyKeyConsumerSelector;
 import org.apache.pulsar.broker.service.Consumer;
@@ -58,7 +59,7 @@ public class NonPersistentStickyKeyDispatcherMultipleConsumers extends NonPersis
             default:
                 ServiceConfiguration conf = topic.getBrokerService().getPulsar().getConfiguration();
                 if (conf.isSubscriptionKeySharedUseConsistentHashing()) {
-                    this.selector = new ConsistentHashingStickyKeyConsumerSelector(
+                    this.selector = new ArrayHashRingStickyKeyConsumerSelector(
                             conf.getSubscriptionKeySharedConsistentHashingReplicaPoints());
                 } else {
                     this.selector = new HashRangeAutoSplitStickyKeyConsumerSelector();
@@ -73,7 +74,8 @@ public class NonPersistentStickyKeyDispatcherMultipleConsumers extends NonPersis
         super(topic, subscription);
         if (selector instanceof HashRangeExclusiveStickyKeyConsumerSelector) {
             keySharedMode = KeySharedMode.STICKY;
-        } else if (selector instanceof ConsistentHashingStickyKeyConsumerSelector
+        } else if (selector instanceof ArrayHashRingStickyKeyConsumerSelector
+                || selector instanceof ConsistentHashingStickyKeyConsumerSelector
                 || selector instanceof HashRangeAutoSplitStickyKeyConsumerSelector) {
             keySharedMode = KeySharedMode.AUTO_SPLIT;
         } else {
@@ -25,14 +25,17 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import io.netty.buffer.ByteBuf;
 import io.netty.util.concurrent.FastThreadLocal;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.LongAdder;
 import org.apache.bookkeeper.mledger.Entry;
@@ -83,6 +86,8 @@ import org.apache.pulsar.common.util.collections.ConcurrentOpenHashMap;
 import org.apache.pulsar.metadata.api.MetadataStoreException;
 import org.apache.pulsar.policies.data.loadbalancer.NamespaceBundleStats;
 import org.apache.pulsar.utils.StatsOutputStream;
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.MpscUnboundedArrayQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -98,6 +103,12 @@ public class NonPersistentTopic extends AbstractTopic implements Topic {
             AtomicLongFieldUpdater.newUpdater(NonPersistentTopic.class, "entriesAddedCounter");
     private volatile long entriesAddedCounter = 0;
 
+    // Messages waiting to be dispatched to the subscriptions, and the number of times a dispatch was requested
+    private final MessagePassingQueue<ByteBuf> pendingMessages = new MpscUnboundedArrayQueue<>(128);
+    private static final AtomicIntegerFieldUpdater<NonPersistentTopic> PENDING_DISPATCH_SIGNALS_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(NonPersistentTopic.class, "pendingDispatchSignals");
+    private volatile int pendingDispatchSignals = 0;
+
     private final LongAdder bytesOutFromRemovedSubscriptions = new LongAdder();
     private final LongAdder msgOutFromRemovedSubscriptions = new LongAdder();
 
@@ -170,27 +181,74 @@ public class NonPersistentTopic extends AbstractTopic implements Topic {
         callback.completed(null, 0L, 0L);
         ENTRIES_ADDED_COUNTER_UPDATER.incrementAndGet(this);
 
+        dispatchMessages(Collections.singletonList(data));
+    }
+
+    /**
+     * Publish a message whose fan-out to the subscriptions is deferred to a task on the given executor, which is
+     * the event loop of the connection the message has been received on.
+     *
+     * <p>Messages published while a fan-out is pending are queued without locking and dispatched together, so that
+     * every subscription gets a single batch of entries, sharing the payload buffers, instead of one dispatch per
+     * message.
+     */
+    public void publishMessage(ByteBuf data, PublishContext callback, Executor executor) {
+        if (isExceedMaximumMessageSize(data.readableBytes())) {
+            callback.completed(new NotAllowedException("Exceed maximum message size")
+                    , -1, -1);
+            return;
+        }
+        callback.completed(null, 0L, 0L);
+        ENTRIES_ADDED_COUNTER_UPDATER.incrementAndGet(this);
+
+        // the caller releases the buffer once the message is published
+        pendingMessages.offer(data.retain());
+        if (PENDING_DISPATCH_SIGNALS_UPDATER.getAndIncrement(this) == 0) {
+            executor.execute(() -> dispatchPendingMessages(executor));
+        }
+    }
+
+    private void dispatchPendingMessages(Executor executor) {
+        // only one task drains the queue at a time, a signal received while draining schedules a new task
+        int signals = pendingDispatchSignals;
+        List<ByteBuf> batch = new ArrayList<>();
+        ByteBuf data;
+        while ((data = pendingMessages.poll()) != null) {
+            batch.add(data);
+        }
+        try {
+            if (!batch.isEmpty()) {
+                dispatchMessages(batch);
+            }
+        } finally {
+            batch.forEach(ByteBuf::release);
+        }
+        if (PENDING_DISPATCH_SIGNALS_UPDATER.addAndGet(this, -signals) != 0) {
+            executor.execute(() -> dispatchPendingMessages(executor));
+        }
+    }
+
+    private void dispatchMessages(List<ByteBuf> messages) {
         subscriptions.forEach((name, subscription) -> {
-            ByteBuf duplicateBuffer = data.retainedDuplicate();
-            Entry entry = create(0L, 0L, duplicateBuffer);
-            // entry internally retains data so, duplicateBuffer should be release here
-            duplicateBuffer.release();
-            if (subscription.getDispatcher() != null) {
-                subscription.getDispatcher().sendMessages(Collections.singletonList(entry));
-            } else {
+            NonPersistentDispatcher dispatcher = subscription.getDispatcher();
+            if (dispatcher == null) {
                 // it happens when subscription is created but dispatcher is not created as consumer is not added
                 // yet
-                entry.release();
+                return;
+            }
+            // every subscription gets its own view of the payloads, as the reader index is moved when sending them
+            List<Entry> entries = new ArrayList<>(messages.size());
+            for (ByteBuf data : messages) {
+                entries.add(create(0L, 0L, data.duplicate()));
             }
+            dispatcher.sendMessages(entries);
         });
 
         if (!replicators.isEmpty()) {
             replicators.forEach((name, replicator) -> {
-                ByteBuf duplicateBuffer = data.retainedDuplicate();
-                Entry entry = create(0L, 0L, duplicateBuffer);
-                // entry internally retains data so, duplicateBuffer should be release here
-                duplicateBuffer.release();
-                replicator.sendMessage(entry);
+                for (ByteBuf data : messages) {
+                    replicator.sendMessage(create(0L, 0L, data.duplicate()));
+                }
             });
         }
     }
@@ -23,9 +23,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import org.apache.bookkeeper.mledger.impl.PositionImpl;
+import org.apache.bookkeeper.util.collections.ConcurrentLongLongHashMap;
 import org.apache.bookkeeper.util.collections.ConcurrentLongLongPairHashMap;
 import org.apache.bookkeeper.util.collections.ConcurrentLongLongPairHashMap.LongPair;
 import org.apache.pulsar.common.util.collections.ConcurrentSortedLongPairSet;
@@ -34,10 +34,13 @@ import org.apache.pulsar.common.util.collections.LongPairSet;
 public class MessageRedeliveryController {
     private final LongPairSet messagesToRedeliver;
     private final ConcurrentLongLongPairHashMap hashesToBeBlocked;
+    // Number of messages to redeliver for each sticky key hash, to check if a hash is blocked without a scan
+    private final ConcurrentLongLongHashMap hashesRefCount;
 
     public MessageRedeliveryController(boolean allowOutOfOrderDelivery) {
         this.messagesToRedeliver = new ConcurrentSortedLongPairSet(128, 2);
         this.hashesToBeBlocked = allowOutOfOrderDelivery ? null : new ConcurrentLongLongPairHashMap(128, 2);
+        this.hashesRefCount = allowOutOfOrderDelivery ? null : new ConcurrentLongLongHashMap(128, 2);
     }
 
     public boolean add(long ledgerId, long entryId) {
@@ -45,29 +48,42 @@ public class MessageRedeliveryController {
     }
 
     public boolean add(long ledgerId, long entryId, long stickyKeyHash) {
-        if (hashesToBeBlocked != null) {
-            hashesToBeBlocked.put(ledgerId, entryId, stickyKeyHash, 0);
+        if (hashesToBeBlocked != null && hashesToBeBlocked.putIfAbsent(ledgerId, entryId, stickyKeyHash, 0)) {
+            hashesRefCount.addAndGet(stickyKeyHash, 1);
         }
         return messagesToRedeliver.add(ledgerId, entryId);
     }
 
     public boolean remove(long ledgerId, long entryId) {
         if (hashesToBeBlocked != null) {
-            hashesToBeBlocked.remove(ledgerId, entryId);
+            LongPair value = hashesToBeBlocked.get(ledgerId, entryId);
+            if (value != null) {
+                hashesToBeBlocked.remove(ledgerId, entryId);
+                removeFromHashBlocker(value.first);
+            }
         }
         return messagesToRedeliver.remove(ledgerId, entryId);
     }
 
+    private void removeFromHashBlocker(long stickyKeyHash) {
+        if (hashesRefCount.addAndGet(stickyKeyHash, -1) <= 0) {
+            hashesRefCount.remove(stickyKeyHash);
+        }
+    }
+
     public int removeAllUpTo(long markDeleteLedgerId, long markDeleteEntryId) {
         if (hashesToBeBlocked != null) {
             List<LongPair> keysToRemove = new ArrayList<>();
+            List<Long> hashesToRemove = new ArrayList<>();
             hashesToBeBlocked.forEach((ledgerId, entryId, stickyKeyHash, none) -> {
                 if (ComparisonChain.start().compare(ledgerId, markDeleteLedgerId).compare(entryId, markDeleteEntryId)
                         .result() <= 0) {
                     keysToRemove.add(new LongPair(ledgerId, entryId));
+                    hashesToRemove.add(stickyKeyHash);
                 }
             });
             keysToRemove.forEach(longPair -> hashesToBeBlocked.remove(longPair.first, longPair.second));
+            hashesToRemove.forEach(this::removeFromHashBlocker);
             keysToRemove.clear();
         }
         return messagesToRedeliver.removeIf((ledgerId, entryId) -> {
@@ -83,6 +99,7 @@ public class MessageRedeliveryController {
     public void clear() {
         if (hashesToBeBlocked != null) {
             hashesToBeBlocked.clear();
+            hashesRefCount.clear();
         }
         messagesToRedeliver.clear();
     }
@@ -92,15 +109,33 @@ public class MessageRedeliveryController {
     }
 
     public boolean containsStickyKeyHashes(Set<Integer> stickyKeyHashes) {
-        final AtomicBoolean isContained = new AtomicBoolean(false);
-        if (hashesToBeBlocked != null) {
-            hashesToBeBlocked.forEach((ledgerId, entryId, stickyKeyHash, none) -> {
-                if (!isContained.get() && stickyKeyHashes.contains((int) stickyKeyHash)) {
-                    isContained.set(true);
+        if (hashesRefCount != null) {
+            for (Integer stickyKeyHash : stickyKeyHashes) {
+                if (hashesRefCount.containsKey(stickyKeyHash)) {
+                    return true;
                 }
-            });
+            }
+        }
+        return false;
+    }
+
+    public boolean containsStickyKeyHash(int stickyKeyHash) {
+        return hashesRefCount != null && hashesRefCount.containsKey(stickyKeyHash);
+    }
+
+    /**
+     * Get the sticky key hash the message was added with, to avoid parsing the message again when it is replayed.
+     *
+     * @return the sticky key hash, or -1 if it is not known
+     */
+    public long getStickyKeyHash(long ledgerId, long entryId) {
+        if (hashesToBeBlocked != null) {
+            LongPair value = hashesToBeBlocked.get(ledgerId, entryId);
+            if (value != null) {
+                return value.first;
+            }
         }
-        return isContained.get();
+        return -1;
     }
 
     public Set<PositionImpl> getMessagesToReplayNow(int maxMessagesToRead) {
@@ -47,6 +47,7 @@ import org.apache.pulsar.broker.service.Consumer;
 import org.apache.pulsar.broker.service.Dispatcher;
 import org.apache.pulsar.broker.service.EntryBatchIndexesAcks;
 import org.apache.pulsar.broker.service.EntryBatchSizes;
+import org.apache.pulsar.broker.service.EntryWithStickyKeyHash;
 import org.apache.pulsar.broker.service.EntryWrapper;
 import org.apache.pulsar.broker.service.InMemoryRedeliveryTracker;
 import org.apache.pulsar.broker.service.RedeliveryTracker;
@@ -542,7 +543,7 @@ public class PersistentDispatcherMultipleConsumers extends AbstractDispatcherMul
                 EntryBatchSizes batchSizes = EntryBatchSizes.get(entriesForThisConsumer.size());
                 EntryBatchIndexesAcks batchIndexesAcks = EntryBatchIndexesAcks.get(entriesForThisConsumer.size());
                 filterEntriesForConsumer(Optional.ofNullable(entryWrappers), start, entriesForThisConsumer,
-                        batchSizes, sendMessageInfo, batchIndexesAcks, cursor, readType == ReadType.Replay);
+                        batchSizes, sendMessageInfo, batchIndexesAcks, cursor, readType == ReadType.Replay, c);
 
                 c.sendMessages(entriesForThisConsumer, batchSizes, batchIndexesAcks, sendMessageInfo.getTotalMessages(),
                         sendMessageInfo.getTotalBytes(), sendMessageInfo.getTotalChunkedMessages(), redeliveryTracker);
@@ -911,7 +912,19 @@ public class PersistentDispatcherMultipleConsumers extends AbstractDispatcherMul
         return topic;
     }
 
+    public ManagedCursor getCursor() {
+        return cursor;
+    }
+
     protected int getStickyKeyHash(Entry entry) {
+        if (entry instanceof EntryWithStickyKeyHash) {
+            return ((EntryWithStickyKeyHash) entry).getStickyKeyHash();
+        }
+        // The hash of a replayed entry is known when the entry was added to the replay set
+        long stickyKeyHash = redeliveryMessages.getStickyKeyHash(entry.getLedgerId(), entry.getEntryId());
+        if (stickyKeyHash >= 0) {
+            return (int) stickyKeyHash;
+        }
         return StickyKeyConsumerSelector.makeStickyKeyHash(peekStickyKey(entry.getDataBuffer()));
     }
 
@@ -20,14 +20,17 @@ package org.apache.pulsar.broker.service.persistent;
 
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.LongAdder;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.FindEntryCallback;
 import org.apache.bookkeeper.mledger.AsyncCallbacks.MarkDeleteCallback;
 import org.apache.bookkeeper.mledger.ManagedCursor;
+import org.apache.bookkeeper.mledger.ManagedLedger;
 import org.apache.bookkeeper.mledger.ManagedLedgerException;
 import org.apache.bookkeeper.mledger.ManagedLedgerException.NonRecoverableLedgerException;
 import org.apache.bookkeeper.mledger.Position;
+import org.apache.bookkeeper.mledger.impl.ManagedLedgerImpl;
 import org.apache.bookkeeper.mledger.impl.PositionImpl;
 import org.apache.pulsar.client.impl.MessageImpl;
 import org.apache.pulsar.common.api.proto.CommandSubscribe.SubType;
@@ -72,7 +75,9 @@ public class PersistentMessageExpiryMonitor implements FindEntryCallback {
             log.info("[{}][{}] Starting message expiry check, ttl= {} seconds", topicName, subName,
                     messageTTLInSeconds);
 
-            cursor.asyncFindNewestMatching(ManagedCursor.FindPositionConstraint.SearchActiveEntries, entry -> {
+            long expiryTimestamp = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(messageTTLInSeconds);
+            cursor.asyncFindNewestOlderThan(ManagedCursor.FindPositionConstraint.SearchActiveEntries, expiryTimestamp,
+                    entry -> {
                 try {
                     long entryTimestamp = MessageImpl.getEntryTimestamp(entry.getDataBuffer());
                     return MessageImpl.isEntryExpired(messageTTLInSeconds, entryTimestamp);
@@ -107,6 +112,17 @@ public class PersistentMessageExpiryMonitor implements FindEntryCallback {
             log.info("[{}][{}] Starting message expiry check, position= {} seconds", topicName, subName,
                     messagePosition);
 
+            PositionImpl position = (PositionImpl) messagePosition;
+            ManagedLedger managedLedger = cursor.getManagedLedger();
+            if (managedLedger instanceof ManagedLedgerImpl
+                    && ((ManagedLedgerImpl) managedLedger).isValidPosition(position)
+                    && position.compareTo((PositionImpl) managedLedger.getLastConfirmedEntry()) <= 0) {
+                // The position is an entry of the topic, so it is the newest entry to expire, no need to search for it
+                findEntryComplete(position.compareTo((PositionImpl) cursor.getMarkDeletedPosition()) > 0
+                        ? position : null, null);
+                return true;
+            }
+
             cursor.asyncFindNewestMatching(ManagedCursor.FindPositionConstraint.SearchActiveEntries, entry -> {
                 try {
                     // If given position larger than entry position.
@@ -60,7 +60,8 @@ public class PersistentMessageFinder implements AsyncCallbacks.FindEntryCallback
                 log.debug("[{}] Starting message position find at timestamp {}", subName, timestamp);
             }
 
-            cursor.asyncFindNewestMatching(ManagedCursor.FindPositionConstraint.SearchAllAvailableEntries, entry -> {
+            cursor.asyncFindNewestOlderThan(ManagedCursor.FindPositionConstraint.SearchAllAvailableEntries, timestamp,
+                    entry -> {
                 try {
                     long entryTimestamp = MessageImpl.getEntryTimestamp(entry.getDataBuffer());
                     return MessageImpl.isEntryPublishedEarlierThan(entryTimestamp, timestamp);
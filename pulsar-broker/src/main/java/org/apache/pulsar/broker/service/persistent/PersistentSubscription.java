@@ -50,6 +50,7 @@ import org.apache.bookkeeper.mledger.impl.PositionImpl;
 import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.pulsar.broker.ServiceConfiguration;
 import org.apache.pulsar.broker.intercept.BrokerInterceptor;
+import org.apache.pulsar.broker.service.AbstractBaseDispatcher;
 import org.apache.pulsar.broker.service.BrokerServiceException;
 import org.apache.pulsar.broker.service.BrokerServiceException.NotAllowedException;
 import org.apache.pulsar.broker.service.BrokerServiceException.ServerMetadataException;
@@ -1052,6 +1053,12 @@ public class PersistentSubscription implements Subscription {
                 subStats.activeConsumerName = activeConsumer.consumerName();
             }
         }
+        if (dispatcher instanceof AbstractBaseDispatcher) {
+            AbstractBaseDispatcher d = (AbstractBaseDispatcher) dispatcher;
+            subStats.filterProcessedMsgCount = d.getFilterProcessedMsgCount();
+            subStats.filterRejectedMsgCount = d.getFilterRejectedMsgCount();
+            subStats.filterEvaluationTimeNanos = d.getFilterEvaluationTimeNanos();
+        }
         if (Subscription.isIndividualAckMode(subType)) {
             if (dispatcher instanceof PersistentDispatcherMultipleConsumers) {
                 PersistentDispatcherMultipleConsumers d = (PersistentDispatcherMultipleConsumers) dispatcher;
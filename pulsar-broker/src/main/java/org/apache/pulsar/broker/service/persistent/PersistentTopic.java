@@ -75,6 +75,7 @@ import org.apache.bookkeeper.net.BookieId;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.pulsar.broker.PulsarServerException;
 import org.apache.pulsar.broker.ServiceConfiguration;
+import org.apache.pulsar.broker.delayed.DelayedDeliveryTrackerFactory;
 import org.apache.pulsar.broker.resources.NamespaceResources.PartitionedTopicResources;
 import org.apache.pulsar.broker.service.AbstractTopic;
 import org.apache.pulsar.broker.service.BrokerService;
@@ -1012,9 +1013,11 @@ public class PersistentTopic extends AbstractTopic
                 if (log.isDebugEnabled()) {
                     log.debug("[{}][{}] Cursor deleted successfully", topic, subscriptionName);
                 }
-                removeSubscription(subscriptionName);
-                unsubscribeFuture.complete(null);
-                lastActive = System.nanoTime();
+                cleanupDelayedDelivery(subscriptionName).whenComplete((__, ex) -> {
+                    removeSubscription(subscriptionName);
+                    unsubscribeFuture.complete(null);
+                    lastActive = System.nanoTime();
+                });
             }
 
             @Override
@@ -1028,6 +1031,18 @@ public class PersistentTopic extends AbstractTopic
         }, null);
     }
 
+    private CompletableFuture<Void> cleanupDelayedDelivery(String subscriptionName) {
+        DelayedDeliveryTrackerFactory factory = brokerService.getDelayedDeliveryTrackerFactory();
+        if (factory == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return factory.cleanupSubscription(ledger, Codec.encode(subscriptionName)).exceptionally(ex -> {
+            log.warn("[{}][{}] Failed to delete the delayed delivery state of the subscription", topic,
+                    subscriptionName, ex);
+            return null;
+        });
+    }
+
     void removeSubscription(String subscriptionName) {
         PersistentSubscription sub = subscriptions.remove(subscriptionName);
         // preserve accumulative stats form removed subscription
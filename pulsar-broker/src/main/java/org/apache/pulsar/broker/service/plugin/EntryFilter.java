@@ -0,0 +1,66 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service.plugin;
+
+import org.apache.bookkeeper.mledger.Entry;
+
+/**
+ * A filter evaluated by the broker against the entries dispatched to the consumers of a persistent subscription.
+ *
+ * <p>The entries rejected by a filter are acknowledged by the broker and never sent to the consumers, the entries
+ * rescheduled by a filter are left unacknowledged and dispatched again after
+ * {@code dispatcherEntryFilterRescheduledMessageDelay} milliseconds. The filters are shared by all the subscriptions
+ * of the broker and are called concurrently from the dispatcher threads, so the implementations must be thread-safe
+ * and must not block.
+ */
+public interface EntryFilter extends AutoCloseable {
+
+    /**
+     * Evaluate an entry before it is sent to a consumer.
+     *
+     * <p>The entry is a batch of messages when the metadata has {@code num_messages_in_batch} set, in which case the
+     * metadata carries no properties nor key of the single messages of the batch.
+     *
+     * @param entry the entry, its data buffer must not be modified
+     * @param context the subscription, the consumer the entry is sent to and the metadata of the entry
+     * @return whether the entry is sent to the consumer, rejected and acknowledged, or dispatched again later
+     */
+    FilterResult filterEntry(Entry entry, FilterContext context);
+
+    /**
+     * Close the filter, when the broker is shut down.
+     */
+    @Override
+    void close();
+
+    enum FilterResult {
+        /**
+         * The entry is sent to the consumer.
+         */
+        ACCEPT,
+        /**
+         * The entry is acknowledged and never sent to the consumers of the subscription.
+         */
+        REJECT,
+        /**
+         * The entry is not sent to the consumer, it is left unacknowledged and dispatched again later.
+         */
+        RESCHEDULE
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service.plugin;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.pulsar.common.util.ClassLoaderUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A tool class for loading EntryFilter classes.
+ */
+public class EntryFilterUtils {
+
+    private static final Logger log = LoggerFactory.getLogger(EntryFilterUtils.class);
+
+    public static List<EntryFilter> loadEntryFilters(List<String> filterNames, ClassLoader classLoader) {
+        List<EntryFilter> filters = new ArrayList<>();
+        if (filterNames != null) {
+            for (String filterName : filterNames) {
+                try {
+                    Class<EntryFilter> clz = (Class<EntryFilter>) ClassLoaderUtils.loadClass(filterName, classLoader);
+                    try {
+                        filters.add(clz.getDeclaredConstructor().newInstance());
+                    } catch (InstantiationException | IllegalAccessException
+                            | InvocationTargetException | NoSuchMethodException e) {
+                        log.error("Create new EntryFilter instance for {} failed.", filterName, e);
+                        throw new RuntimeException(e);
+                    }
+                } catch (ClassNotFoundException e) {
+                    log.error("Load EntryFilter class for {} failed.", filterName, e);
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+        return Collections.unmodifiableList(filters);
+    }
+}
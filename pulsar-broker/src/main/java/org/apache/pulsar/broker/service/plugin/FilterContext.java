@@ -0,0 +1,54 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service.plugin;
+
+import org.apache.pulsar.broker.service.Consumer;
+import org.apache.pulsar.broker.service.Subscription;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+
+/**
+ * The context an {@link EntryFilter} evaluates an entry in.
+ */
+public class FilterContext {
+
+    private final Subscription subscription;
+    private final Consumer consumer;
+    private final MessageMetadata msgMetadata;
+
+    public FilterContext(Subscription subscription, Consumer consumer, MessageMetadata msgMetadata) {
+        this.subscription = subscription;
+        this.consumer = consumer;
+        this.msgMetadata = msgMetadata;
+    }
+
+    public Subscription getSubscription() {
+        return subscription;
+    }
+
+    /**
+     * The consumer the entry is sent to, or null when the entry is not yet assigned to a consumer.
+     */
+    public Consumer getConsumer() {
+        return consumer;
+    }
+
+    public MessageMetadata getMsgMetadata() {
+        return msgMetadata;
+    }
+}
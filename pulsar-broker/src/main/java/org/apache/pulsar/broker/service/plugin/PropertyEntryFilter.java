@@ -0,0 +1,157 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service.plugin;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.pulsar.broker.service.Consumer;
+import org.apache.pulsar.broker.service.Subscription;
+import org.apache.pulsar.common.api.proto.CommandSubscribe.SubType;
+import org.apache.pulsar.common.api.proto.KeyValue;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+
+/**
+ * An {@link EntryFilter} that matches the key and the properties of the messages against the predicates set in the
+ * metadata of the consumers.
+ *
+ * <ul>
+ * <li>{@code entry.filter.key}: a comma separated list of keys, the messages with another key, or with no key, are
+ * rejected
+ * <li>{@code entry.filter.property.<name>}: a comma separated list of values, the messages with another value of the
+ * property {@code <name>}, or without it, are rejected
+ * </ul>
+ *
+ * <p>A message is accepted when it matches all the predicates of the consumer, and the consumers with no predicate
+ * receive all the messages. Batches of messages are always accepted, since the key and the properties of the single
+ * messages are not visible to the broker.
+ *
+ * <p>On Shared subscriptions, a message is only acknowledged without being sent when no consumer of the subscription
+ * accepts it: a message that is not accepted by the consumer it is dispatched to, but is accepted by another consumer,
+ * is rescheduled and dispatched again later. On Key_Shared subscriptions, a message is always dispatched again to the
+ * consumer its key is assigned to, so a message rejected by that consumer is acknowledged, like on Exclusive and
+ * Failover subscriptions where only the predicates of the active consumer apply.
+ */
+public class PropertyEntryFilter implements EntryFilter {
+
+    public static final String KEY_PREDICATE = "entry.filter.key";
+    public static final String PROPERTY_PREDICATE_PREFIX = "entry.filter.property.";
+
+    private static final Predicate ACCEPT_ALL = new Predicate(null, new HashMap<>());
+
+    // The predicates are parsed once per consumer, weak keys compare the consumers by identity and let the
+    // predicates be collected with the consumers.
+    private final Cache<Consumer, Predicate> predicates = Caffeine.newBuilder()
+            .weakKeys()
+            .build();
+
+    @Override
+    public FilterResult filterEntry(Entry entry, FilterContext context) {
+        Consumer consumer = context.getConsumer();
+        MessageMetadata msgMetadata = context.getMsgMetadata();
+        if (consumer == null || msgMetadata.hasNumMessagesInBatch()) {
+            return FilterResult.ACCEPT;
+        }
+        if (accepts(consumer, msgMetadata)) {
+            return FilterResult.ACCEPT;
+        }
+        Subscription subscription = context.getSubscription();
+        SubType subType = subscription != null ? subscription.getType() : null;
+        if (subType == SubType.Shared) {
+            for (Consumer other : subscription.getConsumers()) {
+                if (other != consumer && accepts(other, msgMetadata)) {
+                    // Another consumer may receive the message when it is dispatched again
+                    return FilterResult.RESCHEDULE;
+                }
+            }
+        }
+        return FilterResult.REJECT;
+    }
+
+    private boolean accepts(Consumer consumer, MessageMetadata msgMetadata) {
+        Predicate predicate = predicates.get(consumer, PropertyEntryFilter::parsePredicate);
+        return predicate == ACCEPT_ALL || predicate.test(msgMetadata);
+    }
+
+    @Override
+    public void close() {
+        predicates.invalidateAll();
+    }
+
+    static Predicate parsePredicate(Consumer consumer) {
+        Map<String, String> metadata = consumer.getMetadata();
+        if (metadata == null || metadata.isEmpty()) {
+            return ACCEPT_ALL;
+        }
+        Set<String> keys = null;
+        Map<String, Set<String>> properties = new HashMap<>();
+        for (Map.Entry<String, String> e : metadata.entrySet()) {
+            if (e.getKey().equals(KEY_PREDICATE)) {
+                keys = parseValues(e.getValue());
+            } else if (e.getKey().startsWith(PROPERTY_PREDICATE_PREFIX)) {
+                properties.put(e.getKey().substring(PROPERTY_PREDICATE_PREFIX.length()), parseValues(e.getValue()));
+            }
+        }
+        return keys == null && properties.isEmpty() ? ACCEPT_ALL : new Predicate(keys, properties);
+    }
+
+    private static Set<String> parseValues(String values) {
+        Set<String> set = new HashSet<>();
+        Arrays.stream(values.split(",")).map(String::trim).filter(v -> !v.isEmpty()).forEach(set::add);
+        return set;
+    }
+
+    static class Predicate {
+        // null when the messages are not filtered by key
+        private final Set<String> keys;
+        private final Map<String, Set<String>> properties;
+
+        Predicate(Set<String> keys, Map<String, Set<String>> properties) {
+            this.keys = keys;
+            this.properties = properties;
+        }
+
+        boolean test(MessageMetadata msgMetadata) {
+            if (keys != null && !(msgMetadata.hasPartitionKey() && keys.contains(msgMetadata.getPartitionKey()))) {
+                return false;
+            }
+            for (Map.Entry<String, Set<String>> property : properties.entrySet()) {
+                if (!hasProperty(msgMetadata, property.getKey(), property.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean hasProperty(MessageMetadata msgMetadata, String name, Set<String> values) {
+            for (int i = 0, n = msgMetadata.getPropertiesCount(); i < n; i++) {
+                KeyValue property = msgMetadata.getPropertyAt(i);
+                if (property.getKey().equals(name)) {
+                    return values.contains(property.getValue());
+                }
+            }
+            return false;
+        }
+    }
+}
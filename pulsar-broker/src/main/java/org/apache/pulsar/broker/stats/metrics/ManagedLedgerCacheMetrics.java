@@ -19,11 +19,13 @@
 package org.apache.pulsar.broker.stats.metrics;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import io.netty.buffer.PoolArenaMetric;
 import io.netty.buffer.PoolChunkListMetric;
 import io.netty.buffer.PoolChunkMetric;
 import io.netty.buffer.PooledByteBufAllocator;
 import java.util.List;
+import java.util.Map;
 import org.apache.bookkeeper.mledger.ManagedLedgerFactoryMXBean;
 import org.apache.bookkeeper.mledger.impl.EntryCacheImpl;
 import org.apache.pulsar.broker.PulsarService;
@@ -53,6 +55,8 @@ public class ManagedLedgerCacheMetrics extends AbstractMetrics {
         m.put("brk_ml_cache_misses_rate", mlCacheStats.getCacheMissesRate());
         m.put("brk_ml_cache_hits_throughput", mlCacheStats.getCacheHitsThroughput());
         m.put("brk_ml_cache_misses_throughput", mlCacheStats.getCacheMissesThroughput());
+        m.put("brk_ml_cache_coalesced_reads_rate", mlCacheStats.getCoalescedReadsRate());
+        m.put("brk_ml_cache_coalesced_read_entries_rate", mlCacheStats.getCoalescedReadEntriesRate());
 
         PooledByteBufAllocator allocator = EntryCacheImpl.ALLOCATOR;
         long activeAllocations = 0;
@@ -86,8 +90,24 @@ public class ManagedLedgerCacheMetrics extends AbstractMetrics {
         m.put("brk_ml_cache_pool_active_allocations_normal", activeAllocationsNormal);
         m.put("brk_ml_cache_pool_active_allocations_huge", activeAllocationsHuge);
 
+        // Effectiveness of the configured eviction policy
+        Map<String, String> policyDimension = Maps.newHashMap();
+        policyDimension.put("policy", mlCacheStats.getCacheEvictionPolicy());
+        Metrics policyMetrics = createMetrics(policyDimension);
+        policyMetrics.put("brk_ml_cache_policy_hits_rate", mlCacheStats.getCacheHitsRate());
+        policyMetrics.put("brk_ml_cache_policy_misses_rate", mlCacheStats.getCacheMissesRate());
+        policyMetrics.put("brk_ml_cache_policy_hits_total", mlCacheStats.getCacheHitsTotal());
+        policyMetrics.put("brk_ml_cache_policy_misses_total", mlCacheStats.getCacheMissesTotal());
+        policyMetrics.put("brk_ml_cache_evicted_behind_readers_throughput",
+                mlCacheStats.getCacheEvictedBehindReadersThroughput());
+        policyMetrics.put("brk_ml_cache_evicted_ahead_of_readers_throughput",
+                mlCacheStats.getCacheEvictedAheadOfReadersThroughput());
+        policyMetrics.put("brk_ml_cache_evicted_least_accessed_throughput",
+                mlCacheStats.getCacheEvictedLeastAccessedThroughput());
+
         metrics.clear();
         metrics.add(m);
+        metrics.add(policyMetrics);
         return metrics;
 
     }
@@ -42,6 +42,8 @@ public class ManagedLedgerMetrics extends AbstractMetrics {
             "brk_ml_LedgerAddEntryLatencyBuckets", ENTRY_LATENCY_BUCKETS_MS);
     private static final Buckets BRK_ML_LEDGERSWITCHLATENCYBUCKETS = new Buckets(
             "brk_ml_LedgerSwitchLatencyBuckets", ENTRY_LATENCY_BUCKETS_MS);
+    private static final Buckets BRK_ML_LEDGERROLLOVERSTALLLATENCYBUCKETS = new Buckets(
+            "brk_ml_LedgerRolloverStallLatencyBuckets", ENTRY_LATENCY_BUCKETS_MS);
 
     private static final Buckets
             BRK_ML_ENTRYSIZEBUCKETS = new Buckets("brk_ml_EntrySizeBuckets", ENTRY_SIZE_BUCKETS_BYTES);
@@ -123,11 +125,18 @@ public class ManagedLedgerMetrics extends AbstractMetrics {
                 BRK_ML_LEDGERSWITCHLATENCYBUCKETS.populateBucketEntries(tempAggregatedMetricsMap,
                         lStats.getLedgerSwitchLatencyBuckets(),
                         statsPeriodSeconds);
+                BRK_ML_LEDGERROLLOVERSTALLLATENCYBUCKETS.populateBucketEntries(tempAggregatedMetricsMap,
+                        lStats.getLedgerRolloverStallLatencyBuckets(),
+                        statsPeriodSeconds);
                 BRK_ML_ENTRYSIZEBUCKETS.populateBucketEntries(tempAggregatedMetricsMap,
                         lStats.getEntrySizeBuckets(),
                         statsPeriodSeconds);
                 populateAggregationMapWithSum(tempAggregatedMetricsMap, "brk_ml_MarkDeleteRate",
                         lStats.getMarkDeleteRate());
+                populateAggregationMapWithSum(tempAggregatedMetricsMap, "brk_ml_OffloadedBytesRate",
+                        lStats.getOffloadedBytesRate());
+                populateAggregationMapWithSum(tempAggregatedMetricsMap, "brk_ml_OffloadedLedgersRate",
+                        lStats.getOffloadedLedgersRate());
             }
 
             // SUM up collections of each metrics
@@ -85,6 +85,7 @@ public class AggregatedNamespaceStats {
 
         managedLedgerStats.storageWriteRate += stats.managedLedgerStats.storageWriteRate;
         managedLedgerStats.storageReadRate += stats.managedLedgerStats.storageReadRate;
+        managedLedgerStats.storageOffloadRate += stats.managedLedgerStats.storageOffloadRate;
 
         msgBacklog += stats.msgBacklog;
 
@@ -58,5 +58,11 @@ public class AggregatedSubscriptionStats {
 
     long totalMsgExpired;
 
+    long filterProcessedMsgCount;
+
+    long filterRejectedMsgCount;
+
+    long filterEvaluationTimeNanos;
+
     public Map<Consumer, AggregatedConsumerStats> consumerStat = new HashMap<>();
 }
@@ -18,8 +18,17 @@
  */
 package org.apache.pulsar.broker.stats.prometheus;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.util.concurrent.FastThreadLocal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.client.LedgerHandle;
@@ -33,7 +42,9 @@ import org.apache.pulsar.common.policies.data.BacklogQuota;
 import org.apache.pulsar.common.policies.data.stats.ConsumerStatsImpl;
 import org.apache.pulsar.common.policies.data.stats.ReplicatorStatsImpl;
 import org.apache.pulsar.common.policies.data.stats.TopicStatsImpl;
+import org.apache.pulsar.common.util.FutureUtil;
 import org.apache.pulsar.common.util.SimpleTextOutputStream;
+import org.apache.pulsar.common.util.collections.ConcurrentOpenHashMap;
 import org.apache.pulsar.compaction.CompactedTopicContext;
 import org.apache.pulsar.compaction.Compactor;
 import org.apache.pulsar.compaction.CompactorMXBean;
@@ -59,44 +70,125 @@ public class NamespaceStatsAggregator {
     public static void generate(PulsarService pulsar, boolean includeTopicMetrics, boolean includeConsumerMetrics,
            boolean includeProducerMetrics, boolean splitTopicAndPartitionIndexLabel, SimpleTextOutputStream stream) {
         String cluster = pulsar.getConfiguration().getClusterName();
-        AggregatedNamespaceStats namespaceStats = localNamespaceStats.get();
         TopicStats.resetTypes();
-        TopicStats topicStats = localTopicStats.get();
 
         printDefaultBrokerStats(stream, cluster);
 
         Optional<CompactorMXBean> compactorMXBean = getCompactorMXBean(pulsar);
-        LongAdder topicsCount = new LongAdder();
         pulsar.getBrokerService().getMultiLayerTopicMap().forEach((namespace, bundlesMap) -> {
-            namespaceStats.reset();
-            topicsCount.reset();
-
-            bundlesMap.forEach((bundle, topicsMap) -> {
-                topicsMap.forEach((name, topic) -> {
-                    getTopicStats(topic, topicStats, includeConsumerMetrics, includeProducerMetrics,
-                            pulsar.getConfiguration().isExposePreciseBacklogInPrometheus(),
-                            pulsar.getConfiguration().isExposeSubscriptionBacklogSizeInPrometheus(),
-                            compactorMXBean
-                    );
-
-                    if (includeTopicMetrics) {
-                        topicsCount.add(1);
-                        TopicStats.printTopicStats(stream, cluster, namespace, name, topicStats, compactorMXBean,
-                                splitTopicAndPartitionIndexLabel);
-                    } else {
-                        namespaceStats.updateStats(topicStats);
-                    }
-                });
-            });
+            generateNamespaceStats(pulsar, cluster, namespace, bundlesMap, includeTopicMetrics, includeConsumerMetrics,
+                    includeProducerMetrics, splitTopicAndPartitionIndexLabel, compactorMXBean, stream);
+        });
+    }
 
-            if (!includeTopicMetrics) {
-                // Only include namespace level stats if we don't have the per-topic, otherwise we're going to report
-                // the same data twice, and it will make the aggregation difficult
-                printNamespaceStats(stream, cluster, namespace, namespaceStats);
-            } else {
-                printTopicsCountStats(stream, cluster, namespace, topicsCount);
+    /**
+     * Generate the namespace and topic metrics, the namespaces being split across {@code threads} tasks of the
+     * executor.
+     *
+     * <p>Each namespace is written in its own buffer. The buffers are added in order to {@code out}, each one preceded
+     * by the TYPE definitions of the metrics that it is the first to report.
+     */
+    public static void generate(PulsarService pulsar, boolean includeTopicMetrics, boolean includeConsumerMetrics,
+           boolean includeProducerMetrics, boolean splitTopicAndPartitionIndexLabel, Executor executor, int threads,
+           CompositeByteBuf out) {
+        String cluster = pulsar.getConfiguration().getClusterName();
+        TopicStats.resetTypes();
+
+        ByteBuf defaultStats = out.alloc().heapBuffer();
+        printDefaultBrokerStats(new SimpleTextOutputStream(defaultStats), cluster);
+        out.addComponent(true, defaultStats);
+        Set<String> types = new HashSet<>(TopicStats.getTypes());
+
+        List<String> namespaces = new ArrayList<>();
+        List<ConcurrentOpenHashMap<String, ConcurrentOpenHashMap<String, Topic>>> namespaceBundles = new ArrayList<>();
+        pulsar.getBrokerService().getMultiLayerTopicMap().forEach((namespace, bundlesMap) -> {
+            namespaces.add(namespace);
+            namespaceBundles.add(bundlesMap);
+        });
+
+        Optional<CompactorMXBean> compactorMXBean = getCompactorMXBean(pulsar);
+        ByteBuf[] buffers = new ByteBuf[namespaces.size()];
+        @SuppressWarnings("unchecked")
+        List<String>[] bufferTypes = new List[namespaces.size()];
+        AtomicInteger nextNamespace = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < Math.min(Math.max(threads, 1), namespaces.size()); i++) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                int index;
+                while ((index = nextNamespace.getAndIncrement()) < buffers.length) {
+                    ByteBuf buffer = out.alloc().heapBuffer();
+                    buffers[index] = buffer;
+                    TopicStats.resetTypes(false);
+                    generateNamespaceStats(pulsar, cluster, namespaces.get(index), namespaceBundles.get(index),
+                            includeTopicMetrics, includeConsumerMetrics, includeProducerMetrics,
+                            splitTopicAndPartitionIndexLabel, compactorMXBean, new SimpleTextOutputStream(buffer));
+                    bufferTypes[index] = new ArrayList<>(TopicStats.getTypes());
+                }
+            }, executor));
+        }
+
+        try {
+            FutureUtil.waitForAll(futures).join();
+            for (int i = 0; i < buffers.length; i++) {
+                ByteBuf definitions = null;
+                for (String name : bufferTypes[i]) {
+                    if (types.add(name)) {
+                        if (definitions == null) {
+                            definitions = out.alloc().heapBuffer();
+                        }
+                        TopicStats.writeMetricType(new SimpleTextOutputStream(definitions), name);
+                    }
+                }
+                if (definitions != null) {
+                    out.addComponent(true, definitions);
+                }
+                out.addComponent(true, buffers[i]);
+                buffers[i] = null;
+            }
+        } finally {
+            for (ByteBuf buffer : buffers) {
+                if (buffer != null) {
+                    buffer.release();
+                }
             }
+        }
+    }
+
+    private static void generateNamespaceStats(PulsarService pulsar, String cluster, String namespace,
+            ConcurrentOpenHashMap<String, ConcurrentOpenHashMap<String, Topic>> bundlesMap,
+            boolean includeTopicMetrics, boolean includeConsumerMetrics, boolean includeProducerMetrics,
+            boolean splitTopicAndPartitionIndexLabel, Optional<CompactorMXBean> compactorMXBean,
+            SimpleTextOutputStream stream) {
+        AggregatedNamespaceStats namespaceStats = localNamespaceStats.get();
+        TopicStats topicStats = localTopicStats.get();
+        LongAdder topicsCount = new LongAdder();
+        namespaceStats.reset();
+
+        bundlesMap.forEach((bundle, topicsMap) -> {
+            topicsMap.forEach((name, topic) -> {
+                getTopicStats(topic, topicStats, includeConsumerMetrics, includeProducerMetrics,
+                        pulsar.getConfiguration().isExposePreciseBacklogInPrometheus(),
+                        pulsar.getConfiguration().isExposeSubscriptionBacklogSizeInPrometheus(),
+                        compactorMXBean
+                );
+
+                if (includeTopicMetrics) {
+                    topicsCount.add(1);
+                    TopicStats.printTopicStats(stream, cluster, namespace, name, topicStats, compactorMXBean,
+                            splitTopicAndPartitionIndexLabel);
+                } else {
+                    namespaceStats.updateStats(topicStats);
+                }
+            });
         });
+
+        if (!includeTopicMetrics) {
+            // Only include namespace level stats if we don't have the per-topic, otherwise we're going to report
+            // the same data twice, and it will make the aggregation difficult
+            printNamespaceStats(stream, cluster, namespace, namespaceStats);
+        } else {
+            printTopicsCountStats(stream, cluster, namespace, topicsCount);
+        }
     }
 
     private static Optional<CompactorMXBean> getCompactorMXBean(PulsarService pulsar) {
@@ -140,6 +232,8 @@ public class NamespaceStatsAggregator {
 
             stats.managedLedgerStats.storageWriteRate = mlStats.getAddEntryMessagesRate();
             stats.managedLedgerStats.storageReadRate = mlStats.getReadEntriesRate();
+            stats.managedLedgerStats.storageOffloadRate = mlStats.getOffloadedBytesRate();
+            stats.managedLedgerStats.storageOffloadThroughput = mlStats.getOffloadThroughput();
         }
 
         TopicStatsImpl tStatus = topic.getStats(getPreciseBacklog, subscriptionBacklogSize);
@@ -190,6 +284,9 @@ public class NamespaceStatsAggregator {
             subsStats.lastConsumedFlowTimestamp = subscriptionStats.lastConsumedFlowTimestamp;
             subsStats.lastConsumedTimestamp = subscriptionStats.lastConsumedTimestamp;
             subsStats.lastMarkDeleteAdvancedTimestamp = subscriptionStats.lastMarkDeleteAdvancedTimestamp;
+            subsStats.filterProcessedMsgCount = subscriptionStats.filterProcessedMsgCount;
+            subsStats.filterRejectedMsgCount = subscriptionStats.filterRejectedMsgCount;
+            subsStats.filterEvaluationTimeNanos = subscriptionStats.filterEvaluationTimeNanos;
             subscriptionStats.consumers.forEach(cStats -> {
                 stats.consumersCount++;
                 subsStats.unackedMessages += cStats.unackedMessages;
@@ -285,6 +382,7 @@ public class NamespaceStatsAggregator {
         metric(stream, cluster, "pulsar_storage_logical_size", 0);
         metric(stream, cluster, "pulsar_storage_write_rate", 0);
         metric(stream, cluster, "pulsar_storage_read_rate", 0);
+        metric(stream, cluster, "pulsar_storage_offload_rate", 0);
         metric(stream, cluster, "pulsar_msg_backlog", 0);
     }
 
@@ -318,6 +416,7 @@ public class NamespaceStatsAggregator {
 
         metric(stream, cluster, namespace, "pulsar_storage_write_rate", stats.managedLedgerStats.storageWriteRate);
         metric(stream, cluster, namespace, "pulsar_storage_read_rate", stats.managedLedgerStats.storageReadRate);
+        metric(stream, cluster, namespace, "pulsar_storage_offload_rate", stats.managedLedgerStats.storageOffloadRate);
 
         metric(stream, cluster, namespace, "pulsar_subscription_delayed", stats.msgDelayed);
 
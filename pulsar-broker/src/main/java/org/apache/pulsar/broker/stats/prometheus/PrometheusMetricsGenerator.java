@@ -21,6 +21,7 @@ package org.apache.pulsar.broker.stats.prometheus;
 import static org.apache.pulsar.common.stats.JvmMetrics.getJvmDirectMemoryUsed;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
 import io.prometheus.client.Collector;
 import io.prometheus.client.Collector.MetricFamilySamples;
 import io.prometheus.client.Collector.MetricFamilySamples.Sample;
@@ -39,6 +40,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import org.apache.bookkeeper.stats.NullStatsProvider;
 import org.apache.bookkeeper.stats.StatsProvider;
 import org.apache.pulsar.PulsarVersion;
@@ -110,26 +113,70 @@ public class PrometheusMetricsGenerator {
             NamespaceStatsAggregator.generate(pulsar, includeTopicMetrics, includeConsumerMetrics,
                     includeProducerMetrics, splitTopicAndPartitionIndexLabel, stream);
 
-            if (pulsar.getWorkerServiceOpt().isPresent()) {
-                pulsar.getWorkerService().generateFunctionsStats(stream);
-            }
+            generateBrokerMetrics(pulsar, includeTopicMetrics, metricsProviders, stream);
 
-            if (pulsar.getConfiguration().isTransactionCoordinatorEnabled()) {
-                TransactionAggregator.generate(pulsar, stream, includeTopicMetrics);
-            }
+            out.write(buf.array(), buf.arrayOffset(), buf.readableBytes());
+        } finally {
+            buf.release();
+        }
+    }
 
-            generateBrokerBasicMetrics(pulsar, stream);
+    /**
+     * Generate the metrics in a buffer made of a component per namespace, instead of a single growing buffer, so that
+     * it can be streamed to the output in chunks.
+     *
+     * <p>The namespace and topic metrics are generated by {@code threads} tasks of the executor, see
+     * {@link NamespaceStatsAggregator#generate(PulsarService, boolean, boolean, boolean, boolean, Executor, int,
+     * CompositeByteBuf)}. The returned buffer must be released by the caller.
+     */
+    public static ByteBuf generateMetrics(PulsarService pulsar, boolean includeTopicMetrics,
+        boolean includeConsumerMetrics, boolean includeProducerMetrics, boolean splitTopicAndPartitionIndexLabel,
+        List<PrometheusRawMetricsProvider> metricsProviders, Executor executor, int threads) {
+        CompositeByteBuf buf = ByteBufAllocator.DEFAULT.compositeHeapBuffer(Integer.MAX_VALUE);
+        try {
+            addComponent(buf, stream -> generateSystemMetrics(stream, pulsar.getConfiguration().getClusterName()));
 
-            generateManagedLedgerBookieClientMetrics(pulsar, stream);
+            NamespaceStatsAggregator.generate(pulsar, includeTopicMetrics, includeConsumerMetrics,
+                    includeProducerMetrics, splitTopicAndPartitionIndexLabel, executor, threads, buf);
 
-            if (metricsProviders != null) {
-                for (PrometheusRawMetricsProvider metricsProvider : metricsProviders) {
-                    metricsProvider.generate(stream);
-                }
-            }
-            out.write(buf.array(), buf.arrayOffset(), buf.readableBytes());
-        } finally {
+            addComponent(buf, stream -> generateBrokerMetrics(pulsar, includeTopicMetrics, metricsProviders, stream));
+            return buf;
+        } catch (Throwable t) {
             buf.release();
+            throw t;
+        }
+    }
+
+    private static void addComponent(CompositeByteBuf buf, Consumer<SimpleTextOutputStream> generator) {
+        ByteBuf component = buf.alloc().heapBuffer();
+        try {
+            generator.accept(new SimpleTextOutputStream(component));
+        } catch (Throwable t) {
+            component.release();
+            throw t;
+        }
+        buf.addComponent(true, component);
+    }
+
+    private static void generateBrokerMetrics(PulsarService pulsar, boolean includeTopicMetrics,
+                                              List<PrometheusRawMetricsProvider> metricsProviders,
+                                              SimpleTextOutputStream stream) {
+        if (pulsar.getWorkerServiceOpt().isPresent()) {
+            pulsar.getWorkerService().generateFunctionsStats(stream);
+        }
+
+        if (pulsar.getConfiguration().isTransactionCoordinatorEnabled()) {
+            TransactionAggregator.generate(pulsar, stream, includeTopicMetrics);
+        }
+
+        generateBrokerBasicMetrics(pulsar, stream);
+
+        generateManagedLedgerBookieClientMetrics(pulsar, stream);
+
+        if (metricsProviders != null) {
+            for (PrometheusRawMetricsProvider metricsProvider : metricsProviders) {
+                metricsProvider.generate(stream);
+            }
         }
     }
 
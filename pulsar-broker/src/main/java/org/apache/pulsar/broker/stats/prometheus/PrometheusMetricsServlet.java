@@ -19,12 +19,17 @@
 package org.apache.pulsar.broker.stats.prometheus;
 
 import static org.apache.bookkeeper.mledger.util.SafeRun.safeRun;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.netty.buffer.ByteBuf;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.servlet.AsyncContext;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -45,9 +50,17 @@ public class PrometheusMetricsServlet extends HttpServlet {
     private final boolean shouldExportProducerMetrics;
     private final long metricsServletTimeoutMs;
     private final boolean splitTopicAndPartitionLabel;
+    private final long metricsCacheTimeNanos;
+    private final int metricsGenerationThreads;
     private List<PrometheusRawMetricsProvider> metricsProviders;
 
     private ExecutorService executor = null;
+    private ExecutorService generationExecutor = null;
+
+    // The last generated metrics, only accessed by the executor thread
+    private ByteBuf cachedMetrics = null;
+    private long cachedMetricsGenerationTime;
+    private final AtomicInteger pendingRequests = new AtomicInteger();
 
     public PrometheusMetricsServlet(PulsarService pulsar, boolean includeTopicMetrics, boolean includeConsumerMetrics,
                                     boolean shouldExportProducerMetrics, boolean splitTopicAndPartitionLabel) {
@@ -57,41 +70,91 @@ public class PrometheusMetricsServlet extends HttpServlet {
         this.shouldExportProducerMetrics = shouldExportProducerMetrics;
         this.metricsServletTimeoutMs = pulsar.getConfiguration().getMetricsServletTimeoutMs();
         this.splitTopicAndPartitionLabel = splitTopicAndPartitionLabel;
+        this.metricsCacheTimeNanos =
+                TimeUnit.MILLISECONDS.toNanos(pulsar.getConfiguration().getMetricsServletCacheTimeMs());
+        this.metricsGenerationThreads = pulsar.getConfiguration().getMetricsServletGenerationThreads();
     }
 
     @Override
     public void init() throws ServletException {
         executor = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("prometheus-stats"));
+        if (metricsGenerationThreads > 1) {
+            generationExecutor = Executors.newFixedThreadPool(metricsGenerationThreads,
+                    new DefaultThreadFactory("prometheus-stats-generator"));
+        }
     }
 
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
+        long requestTime = System.nanoTime();
         AsyncContext context = request.startAsync();
         context.setTimeout(metricsServletTimeoutMs);
+        pendingRequests.incrementAndGet();
         executor.execute(safeRun(() -> {
             HttpServletResponse res = (HttpServletResponse) context.getResponse();
+            ByteBuf metrics = null;
             try {
+                metrics = getMetrics(requestTime);
                 res.setStatus(HttpStatus.OK_200);
                 res.setContentType("text/plain");
-                PrometheusMetricsGenerator.generate(pulsar, shouldExportTopicMetrics, shouldExportConsumerMetrics,
-                        shouldExportProducerMetrics, splitTopicAndPartitionLabel, res.getOutputStream(),
-                        metricsProviders);
+                // the metrics are streamed component by component, without being copied in a single array
+                metrics.getBytes(metrics.readerIndex(), res.getOutputStream(), metrics.readableBytes());
                 context.complete();
 
             } catch (Exception e) {
                 log.error("Failed to generate prometheus stats", e);
                 res.setStatus(HttpStatus.INTERNAL_SERVER_ERROR_500);
                 context.complete();
+            } finally {
+                if (metrics != null) {
+                    metrics.release();
+                }
+                if (pendingRequests.decrementAndGet() == 0 && metricsCacheTimeNanos == 0) {
+                    releaseCachedMetrics();
+                }
             }
         }));
     }
 
+    /**
+     * Get the metrics to serve a request, the returned buffer must be released.
+     *
+     * <p>The last generated metrics are reused if their generation started after the request was received, so that
+     * concurrent requests share a single generation, or if they are not older than the cache time.
+     */
+    private ByteBuf getMetrics(long requestTime) {
+        if (cachedMetrics != null && (cachedMetricsGenerationTime - requestTime >= 0
+                || System.nanoTime() - cachedMetricsGenerationTime < metricsCacheTimeNanos)) {
+            return cachedMetrics.retain();
+        }
+        long generationTime = System.nanoTime();
+        Executor namespacesExecutor = generationExecutor != null
+                ? generationExecutor : MoreExecutors.directExecutor();
+        ByteBuf metrics = PrometheusMetricsGenerator.generateMetrics(pulsar, shouldExportTopicMetrics,
+                shouldExportConsumerMetrics, shouldExportProducerMetrics, splitTopicAndPartitionLabel,
+                metricsProviders, namespacesExecutor, metricsGenerationThreads);
+        releaseCachedMetrics();
+        cachedMetrics = metrics;
+        cachedMetricsGenerationTime = generationTime;
+        return metrics.retain();
+    }
+
+    private void releaseCachedMetrics() {
+        if (cachedMetrics != null) {
+            cachedMetrics.release();
+            cachedMetrics = null;
+        }
+    }
+
     @Override
     public void destroy() {
         if (executor != null) {
             executor.shutdownNow();
         }
+        if (generationExecutor != null) {
+            generationExecutor.shutdownNow();
+        }
     }
 
     public void addRawMetricsProvider(PrometheusRawMetricsProvider metricsProvider) {
@@ -19,9 +19,12 @@
 package org.apache.pulsar.broker.stats.prometheus;
 
 import static org.apache.pulsar.common.naming.TopicName.PARTITIONED_TOPIC_SUFFIX;
+import io.netty.util.concurrent.FastThreadLocal;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import org.apache.bookkeeper.mledger.util.StatsBuckets;
 import org.apache.pulsar.common.util.SimpleTextOutputStream;
 import org.apache.pulsar.compaction.CompactionRecord;
@@ -53,8 +56,19 @@ class TopicStats {
     Map<String, AggregatedSubscriptionStats> subscriptionStats = new HashMap<>();
     Map<String, AggregatedProducerStats> producerStats = new HashMap<>();
 
-    // Used for tracking duplicate TYPE definitions
-    static Map<String, String> metricWithTypeDefinition = new HashMap<>();
+    // Used for tracking duplicate TYPE definitions, per thread generating the metrics
+    private static final FastThreadLocal<MetricTypes> metricWithTypeDefinition = new FastThreadLocal<MetricTypes>() {
+        @Override
+        protected MetricTypes initialValue() throws Exception {
+            return new MetricTypes();
+        }
+    };
+
+    private static class MetricTypes {
+        final Set<String> names = new LinkedHashSet<>();
+        // when false, the TYPE definitions are only collected, to be written by the caller
+        boolean writeDefinitions = true;
+    }
 
     // For compaction
     long compactionRemovedEventCount;
@@ -101,7 +115,20 @@ class TopicStats {
     }
 
     static void resetTypes() {
-        metricWithTypeDefinition.clear();
+        resetTypes(true);
+    }
+
+    static void resetTypes(boolean writeDefinitions) {
+        MetricTypes types = metricWithTypeDefinition.get();
+        types.names.clear();
+        types.writeDefinitions = writeDefinitions;
+    }
+
+    /**
+     * The names of the metrics whose TYPE definition has been written, or collected, since the last reset.
+     */
+    static Set<String> getTypes() {
+        return metricWithTypeDefinition.get().names;
     }
 
     static void printTopicStats(SimpleTextOutputStream stream, String cluster, String namespace, String topic,
@@ -135,6 +162,10 @@ class TopicStats {
                 stats.managedLedgerStats.backlogSize, splitTopicAndPartitionIndexLabel);
         metric(stream, cluster, namespace, topic, "pulsar_storage_offloaded_size", stats.managedLedgerStats
                 .offloadedStorageUsed, splitTopicAndPartitionIndexLabel);
+        metric(stream, cluster, namespace, topic, "pulsar_storage_offload_rate",
+                stats.managedLedgerStats.storageOffloadRate, splitTopicAndPartitionIndexLabel);
+        metric(stream, cluster, namespace, topic, "pulsar_storage_offload_throughput",
+                stats.managedLedgerStats.storageOffloadThroughput, splitTopicAndPartitionIndexLabel);
         metric(stream, cluster, namespace, topic, "pulsar_storage_backlog_quota_limit", stats.backlogQuotaLimit,
                 splitTopicAndPartitionIndexLabel);
         metric(stream, cluster, namespace, topic, "pulsar_storage_backlog_quota_limit_time",
@@ -262,6 +293,12 @@ class TopicStats {
                     subsStats.msgRateExpired, splitTopicAndPartitionIndexLabel);
             metric(stream, cluster, namespace, topic, n, "pulsar_subscription_total_msg_expired",
                     subsStats.totalMsgExpired, splitTopicAndPartitionIndexLabel);
+            metric(stream, cluster, namespace, topic, n, "pulsar_subscription_filter_processed_msg_count",
+                    subsStats.filterProcessedMsgCount, splitTopicAndPartitionIndexLabel);
+            metric(stream, cluster, namespace, topic, n, "pulsar_subscription_filter_rejected_msg_count",
+                    subsStats.filterRejectedMsgCount, splitTopicAndPartitionIndexLabel);
+            metric(stream, cluster, namespace, topic, n, "pulsar_subscription_filter_evaluation_time_ms",
+                    subsStats.filterEvaluationTimeNanos / 1e6, splitTopicAndPartitionIndexLabel);
             subsStats.consumerStat.forEach((c, consumerStats) -> {
                 metric(stream, cluster, namespace, topic, n, c.consumerName(), c.consumerId(),
                         "pulsar_consumer_msg_rate_redeliver", consumerStats.msgRateRedeliver,
@@ -366,12 +403,14 @@ class TopicStats {
     }
 
     static void metricType(SimpleTextOutputStream stream, String name) {
-
-        if (!metricWithTypeDefinition.containsKey(name)) {
-            metricWithTypeDefinition.put(name, "gauge");
-            stream.write("# TYPE ").write(name).write(" gauge\n");
+        MetricTypes types = metricWithTypeDefinition.get();
+        if (types.names.add(name) && types.writeDefinitions) {
+            writeMetricType(stream, name);
         }
+    }
 
+    static void writeMetricType(SimpleTextOutputStream stream, String name) {
+        stream.write("# TYPE ").write(name).write(" gauge\n");
     }
 
     private static void metric(SimpleTextOutputStream stream, String cluster, String namespace, String topic,
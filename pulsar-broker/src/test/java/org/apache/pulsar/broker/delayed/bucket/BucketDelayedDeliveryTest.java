@@ -0,0 +1,102 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.delayed.bucket;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import lombok.Cleanup;
+import org.apache.bookkeeper.mledger.ManagedLedger;
+import org.apache.pulsar.broker.BrokerTestUtil;
+import org.apache.pulsar.broker.service.persistent.PersistentTopic;
+import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.Producer;
+import org.apache.pulsar.client.api.ProducerConsumerBase;
+import org.apache.pulsar.client.api.Schema;
+import org.apache.pulsar.client.api.SubscriptionType;
+import org.awaitility.Awaitility;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@Test(groups = "broker")
+public class BucketDelayedDeliveryTest extends ProducerConsumerBase {
+
+    @Override
+    @BeforeClass
+    public void setup() throws Exception {
+        conf.setDelayedDeliveryTrackerFactoryClassName(BucketDelayedDeliveryTrackerFactory.class.getName());
+        conf.setDelayedDeliveryMinIndexCountPerBucket(10);
+        conf.setDelayedDeliveryMaxIndexesPerBucketSnapshotSegment(5);
+        super.internalSetup();
+        super.producerBaseSetup();
+    }
+
+    @Override
+    @AfterClass(alwaysRun = true)
+    public void cleanup() throws Exception {
+        super.internalCleanup();
+    }
+
+    @Test
+    public void testDeleteSubscriptionDeletesBuckets() throws Exception {
+        String topic = BrokerTestUtil.newUniqueName("persistent://my-property/my-ns/testDeleteSubscriptionBuckets");
+
+        @Cleanup
+        Consumer<String> consumer = pulsarClient.newConsumer(Schema.STRING)
+                .topic(topic)
+                .subscriptionName("sub")
+                .subscriptionType(SubscriptionType.Shared)
+                .subscribe();
+
+        @Cleanup
+        Producer<String> producer = pulsarClient.newProducer(Schema.STRING)
+                .topic(topic)
+                .create();
+        for (int i = 0; i < 25; i++) {
+            producer.newMessage()
+                    .value("msg-" + i)
+                    .deliverAfter(1, TimeUnit.HOURS)
+                    .sendAsync();
+        }
+        producer.flush();
+
+        PersistentTopic persistentTopic = (PersistentTopic) pulsar.getBrokerService().getTopicReference(topic).get();
+        ManagedLedger managedLedger = persistentTopic.getManagedLedger();
+        String key = BucketDelayedDeliveryTracker.BUCKET_INDEX_PROPERTY_PREFIX + "sub";
+        // the two sealed buckets are indexed
+        Awaitility.await().untilAsserted(() -> assertEquals(
+                managedLedger.getProperties().getOrDefault(key, "").split(";").length, 2));
+        List<Long> snapshotIds = Arrays.stream(managedLedger.getProperties().get(key).split(";"))
+                .map(entry -> Long.parseLong(entry.split(":")[4]))
+                .collect(Collectors.toList());
+        snapshotIds.forEach(snapshotId -> assertTrue(mockBookKeeper.getLedgers().contains(snapshotId)));
+
+        // the snapshots and the bucket index are deleted with the subscription
+        consumer.unsubscribe();
+
+        assertFalse(managedLedger.getProperties().containsKey(key));
+        snapshotIds.forEach(snapshotId -> assertFalse(mockBookKeeper.getLedgers().contains(snapshotId)));
+    }
+}
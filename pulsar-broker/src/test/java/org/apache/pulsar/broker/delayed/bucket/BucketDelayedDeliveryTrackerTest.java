@@ -0,0 +1,347 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.delayed.bucket;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import io.netty.channel.DefaultEventLoop;
+import io.netty.util.Timer;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.bookkeeper.mledger.AsyncCallbacks;
+import org.apache.bookkeeper.mledger.ManagedCursor;
+import org.apache.bookkeeper.mledger.ManagedLedger;
+import org.apache.bookkeeper.mledger.impl.PositionImpl;
+import org.apache.pulsar.broker.service.BrokerService;
+import org.apache.pulsar.broker.service.persistent.PersistentDispatcherMultipleConsumers;
+import org.apache.pulsar.broker.service.persistent.PersistentTopic;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = "broker")
+public class BucketDelayedDeliveryTrackerTest {
+
+    private PersistentDispatcherMultipleConsumers dispatcher;
+    private Timer timer;
+    private AtomicLong clockTime;
+    private Clock clock;
+    private Map<String, String> managedLedgerProperties;
+    private ManagedLedger managedLedger;
+    private InMemoryBucketSnapshotStorage storage;
+    private DefaultEventLoop executor;
+
+    @BeforeMethod
+    public void setup() {
+        managedLedgerProperties = new ConcurrentHashMap<>();
+        managedLedger = mock(ManagedLedger.class);
+        when(managedLedger.getName()).thenReturn("public/default/persistent/test");
+        when(managedLedger.getProperties()).thenReturn(managedLedgerProperties);
+        doAnswer(invocation -> {
+            managedLedgerProperties.put(invocation.getArgument(0), invocation.getArgument(1));
+            invocation.getArgument(2, AsyncCallbacks.UpdatePropertiesCallback.class)
+                    .updatePropertiesComplete(managedLedgerProperties, null);
+            return null;
+        }).when(managedLedger).asyncSetProperty(anyString(), anyString(), any(), any());
+        doAnswer(invocation -> {
+            managedLedgerProperties.remove(invocation.getArgument(0));
+            invocation.getArgument(1, AsyncCallbacks.UpdatePropertiesCallback.class)
+                    .updatePropertiesComplete(managedLedgerProperties, null);
+            return null;
+        }).when(managedLedger).asyncDeleteProperty(anyString(), any(), any());
+
+        ManagedCursor cursor = mock(ManagedCursor.class);
+        when(cursor.getName()).thenReturn("sub");
+        when(cursor.getManagedLedger()).thenReturn(managedLedger);
+        when(cursor.getMarkDeletedPosition()).thenReturn(PositionImpl.earliest);
+
+        executor = new DefaultEventLoop();
+        BrokerService brokerService = mock(BrokerService.class);
+        when(brokerService.executor()).thenReturn(executor);
+        PersistentTopic topic = mock(PersistentTopic.class);
+        when(topic.getBrokerService()).thenReturn(brokerService);
+
+        dispatcher = mock(PersistentDispatcherMultipleConsumers.class);
+        when(dispatcher.getCursor()).thenReturn(cursor);
+        when(dispatcher.getName()).thenReturn("test / sub");
+        when(dispatcher.getTopic()).thenReturn(topic);
+
+        timer = mock(Timer.class);
+        clockTime = new AtomicLong();
+        clock = mock(Clock.class);
+        when(clock.millis()).then(x -> clockTime.get());
+        storage = new InMemoryBucketSnapshotStorage();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void cleanup() {
+        executor.shutdownGracefully();
+    }
+
+    private BucketDelayedDeliveryTracker newTracker() {
+        return newTracker(10);
+    }
+
+    private BucketDelayedDeliveryTracker newTracker(int maxNumBuckets) {
+        return new BucketDelayedDeliveryTracker(dispatcher, timer, 1, clock, storage, 10, 3, maxNumBuckets);
+    }
+
+    private int indexedBuckets() {
+        String index = managedLedgerProperties.get(BucketDelayedDeliveryTracker.BUCKET_INDEX_PROPERTY_PREFIX + "sub");
+        return index == null ? 0 : index.split(";").length;
+    }
+
+    private static List<PositionImpl> deliverAll(BucketDelayedDeliveryTracker tracker, int maxMessages) {
+        List<PositionImpl> delivered = new ArrayList<>();
+        while (tracker.hasMessageAvailable()) {
+            Set<PositionImpl> scheduled = tracker.getScheduledMessages(maxMessages);
+            assertTrue(scheduled.size() <= maxMessages);
+            delivered.addAll(scheduled);
+        }
+        return delivered;
+    }
+
+    @Test
+    public void testSealBuckets() throws Exception {
+        BucketDelayedDeliveryTracker tracker = newTracker();
+
+        // delivery time in reverse order of the positions
+        for (int i = 0; i < 25; i++) {
+            assertTrue(tracker.addMessage(1, i, 1000 - i));
+        }
+        assertEquals(tracker.getNumberOfDelayedMessages(), 25);
+        assertEquals(storage.snapshots.size(), 2);
+        // a single property indexes the buckets of the subscription
+        assertEquals(managedLedgerProperties.size(), 1);
+        assertEquals(indexedBuckets(), 2);
+        assertFalse(tracker.hasMessageAvailable());
+
+        clockTime.set(995);
+        List<PositionImpl> delivered = deliverAll(tracker, 2);
+        assertEquals(delivered.size(), 21);
+        assertEquals(tracker.getNumberOfDelayedMessages(), 4);
+        // the messages of the second bucket are all delivered
+        assertEquals(storage.snapshots.size(), 1);
+        assertEquals(indexedBuckets(), 1);
+
+        clockTime.set(1000);
+        delivered = deliverAll(tracker, 10);
+        assertEquals(delivered.size(), 4);
+        assertEquals(tracker.getNumberOfDelayedMessages(), 0);
+        assertEquals(storage.snapshots.size(), 0);
+        assertEquals(managedLedgerProperties.size(), 0);
+        tracker.close();
+    }
+
+    @Test
+    public void testSegmentsAreLoadedLazily() throws Exception {
+        BucketDelayedDeliveryTracker tracker = newTracker();
+        long start = BucketDelayedDeliveryTracker.SEGMENT_LOAD_AHEAD_MILLIS * 10;
+        for (int i = 0; i < 10; i++) {
+            assertTrue(tracker.addMessage(1, i, start * (i + 1)));
+        }
+        assertEquals(storage.snapshots.size(), 1);
+        // the first segment is not due yet, so it is not loaded when the bucket is sealed
+        assertEquals(storage.reads.get(), 0);
+        clockTime.set(start - BucketDelayedDeliveryTracker.SEGMENT_LOAD_AHEAD_MILLIS - 1);
+        assertFalse(tracker.hasMessageAvailable());
+        assertEquals(storage.reads.get(), 0);
+
+        for (int i = 0; i < 10; i++) {
+            clockTime.set(start * (i + 1));
+            assertTrue(tracker.hasMessageAvailable());
+            assertEquals(tracker.getScheduledMessages(10).iterator().next(), new PositionImpl(1, i));
+            assertFalse(tracker.hasMessageAvailable());
+            assertEquals(tracker.getNumberOfDelayedMessages(), 9 - i);
+        }
+        // all the segments were loaded from the snapshot, once due
+        assertEquals(storage.reads.get(), 4);
+        assertEquals(storage.snapshots.size(), 0);
+        tracker.close();
+    }
+
+    @Test
+    public void testRecoverBuckets() throws Exception {
+        BucketDelayedDeliveryTracker tracker = newTracker();
+        for (int i = 0; i < 25; i++) {
+            assertTrue(tracker.addMessage(1, i, 100 + i));
+        }
+        assertEquals(storage.snapshots.size(), 2);
+        tracker.close();
+
+        // the messages of the sealed buckets are not indexed again when the backlog is read again
+        tracker = newTracker();
+        assertEquals(tracker.getNumberOfDelayedMessages(), 20);
+        for (int i = 0; i < 25; i++) {
+            assertTrue(tracker.addMessage(1, i, 100 + i));
+        }
+        assertEquals(tracker.getNumberOfDelayedMessages(), 25);
+
+        clockTime.set(200);
+        List<PositionImpl> delivered = deliverAll(tracker, 4);
+        assertEquals(delivered.size(), 25);
+        assertEquals(new TreeSet<>(delivered).size(), 25);
+        assertEquals(storage.snapshots.size(), 0);
+        assertEquals(managedLedgerProperties.size(), 0);
+        tracker.close();
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        BucketDelayedDeliveryTracker tracker = newTracker();
+        for (int i = 0; i < 25; i++) {
+            assertTrue(tracker.addMessage(1, i, 100 + i));
+        }
+        assertEquals(storage.snapshots.size(), 2);
+        assertEquals(indexedBuckets(), 2);
+
+        tracker.clear();
+        assertEquals(tracker.getNumberOfDelayedMessages(), 0);
+        assertEquals(storage.snapshots.size(), 0);
+        assertEquals(managedLedgerProperties.size(), 0);
+        clockTime.set(200);
+        assertFalse(tracker.hasMessageAvailable());
+        tracker.close();
+    }
+
+    @Test
+    public void testMergeBuckets() throws Exception {
+        BucketDelayedDeliveryTracker tracker = newTracker(2);
+        long start = BucketDelayedDeliveryTracker.SEGMENT_LOAD_AHEAD_MILLIS * 10;
+        // the delivery times of the buckets are interleaved
+        for (int i = 0; i < 40; i++) {
+            assertTrue(tracker.addMessage(1, i, start + (i % 10) * 10 + i / 10));
+        }
+        assertEquals(tracker.getNumberOfDelayedMessages(), 40);
+        assertEquals(storage.snapshots.size(), 2);
+        assertEquals(indexedBuckets(), 2);
+
+        // the merged buckets are recovered, and their messages are not indexed again
+        tracker.close();
+        tracker = newTracker(2);
+        assertEquals(tracker.getNumberOfDelayedMessages(), 40);
+        for (int i = 0; i < 40; i++) {
+            assertTrue(tracker.addMessage(1, i, start + (i % 10) * 10 + i / 10));
+        }
+        assertEquals(tracker.getNumberOfDelayedMessages(), 40);
+
+        clockTime.set(start + 100);
+        List<PositionImpl> delivered = deliverAll(tracker, 7);
+        assertEquals(delivered.size(), 40);
+        assertEquals(new TreeSet<>(delivered).size(), 40);
+        assertEquals(storage.snapshots.size(), 0);
+        assertEquals(managedLedgerProperties.size(), 0);
+        tracker.close();
+    }
+
+    @Test
+    public void testDeleteBuckets() throws Exception {
+        BucketDelayedDeliveryTracker tracker = newTracker();
+        for (int i = 0; i < 25; i++) {
+            assertTrue(tracker.addMessage(1, i, 100 + i));
+        }
+        tracker.close();
+        assertEquals(storage.snapshots.size(), 2);
+
+        // the subscription is deleted
+        BucketDelayedDeliveryTracker.deleteBuckets(managedLedger, "sub", storage).get();
+        assertEquals(storage.snapshots.size(), 0);
+        assertEquals(managedLedgerProperties.size(), 0);
+    }
+
+    @Test
+    public void testSegmentLoadedAsynchronously() throws Exception {
+        BucketDelayedDeliveryTracker tracker = newTracker();
+        long start = BucketDelayedDeliveryTracker.SEGMENT_LOAD_AHEAD_MILLIS * 10;
+        for (int i = 0; i < 10; i++) {
+            assertTrue(tracker.addMessage(1, i, start + i));
+        }
+        storage.delayReads = true;
+        clockTime.set(start + 2);
+        assertFalse(tracker.hasMessageAvailable());
+        assertEquals(storage.pendingReads.size(), 1);
+
+        // the load completes in a thread that holds the lock of the tracker, like the dispatcher does
+        synchronized (tracker) {
+            storage.pendingReads.poll().run();
+        }
+        verify(dispatcher, timeout(10000)).readMoreEntries();
+        assertTrue(tracker.hasMessageAvailable());
+        assertEquals(tracker.getScheduledMessages(10).size(), 3);
+        tracker.close();
+    }
+
+    private static class InMemoryBucketSnapshotStorage implements BucketSnapshotStorage {
+        private final Map<Long, List<byte[]>> snapshots = new ConcurrentHashMap<>();
+        private final AtomicLong nextSnapshotId = new AtomicLong();
+        private final AtomicLong reads = new AtomicLong();
+        private final Queue<Runnable> pendingReads = new ConcurrentLinkedQueue<>();
+        private volatile boolean delayReads;
+
+        @Override
+        public CompletableFuture<Long> createBucketSnapshot(String managedLedgerName, String cursorName,
+                                                           List<byte[]> entries) {
+            long snapshotId = nextSnapshotId.getAndIncrement();
+            snapshots.put(snapshotId, new ArrayList<>(entries));
+            return CompletableFuture.completedFuture(snapshotId);
+        }
+
+        @Override
+        public CompletableFuture<byte[]> getBucketSnapshotEntry(long snapshotId, long entryId) {
+            if (entryId > 0) {
+                reads.incrementAndGet();
+            }
+            byte[] entry = snapshots.get(snapshotId).get((int) entryId);
+            if (!delayReads) {
+                return CompletableFuture.completedFuture(entry);
+            }
+            CompletableFuture<byte[]> future = new CompletableFuture<>();
+            pendingReads.add(() -> future.complete(entry));
+            return future;
+        }
+
+        @Override
+        public CompletableFuture<Void> deleteBucketSnapshot(long snapshotId) {
+            snapshots.remove(snapshotId);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
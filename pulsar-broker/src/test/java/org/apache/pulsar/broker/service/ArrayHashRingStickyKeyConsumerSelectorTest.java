@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.pulsar.broker.service.BrokerServiceException.ConsumerAssignException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(groups = "broker")
+public class ArrayHashRingStickyKeyConsumerSelectorTest {
+
+    @Test
+    public void testConsumerSelect() throws ConsumerAssignException {
+        ArrayHashRingStickyKeyConsumerSelector selector = new ArrayHashRingStickyKeyConsumerSelector(100);
+        String key = "anyKey";
+        Assert.assertNull(selector.select(key.getBytes()));
+
+        Consumer consumer1 = mockConsumer("c1");
+        selector.addConsumer(consumer1);
+        Assert.assertEquals(selector.select(key.getBytes()), consumer1);
+
+        Consumer consumer2 = mockConsumer("c2");
+        selector.addConsumer(consumer2);
+        selector.removeConsumer(consumer1);
+        Assert.assertEquals(selector.select(key.getBytes()), consumer2);
+
+        selector.removeConsumer(consumer2);
+        Assert.assertNull(selector.select(key.getBytes()));
+        Assert.assertTrue(selector.getConsumerKeyHashRanges().isEmpty());
+    }
+
+    @Test
+    public void testSameSelectionAsConsistentHashingSelector() throws ConsumerAssignException {
+        ArrayHashRingStickyKeyConsumerSelector selector = new ArrayHashRingStickyKeyConsumerSelector(100);
+        ConsistentHashingStickyKeyConsumerSelector expected = new ConsistentHashingStickyKeyConsumerSelector(100);
+        Random random = new Random(0);
+        List<Consumer> consumers = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            // consumers with the same name share the same points of the ring
+            Consumer consumer = mockConsumer("consumer-" + random.nextInt(40));
+            selector.addConsumer(consumer);
+            expected.addConsumer(consumer);
+            consumers.add(consumer);
+            if (i % 5 == 4) {
+                Consumer removed = consumers.remove(random.nextInt(consumers.size()));
+                selector.removeConsumer(removed);
+                expected.removeConsumer(removed);
+            }
+
+            for (int j = 0; j < 1000; j++) {
+                int hash = random.nextInt(Integer.MAX_VALUE);
+                Assert.assertSame(selector.select(hash), expected.select(hash));
+            }
+            Assert.assertEquals(selector.getConsumerKeyHashRanges(), expected.getConsumerKeyHashRanges());
+        }
+    }
+
+    private static Consumer mockConsumer(String name) {
+        Consumer consumer = mock(Consumer.class);
+        when(consumer.consumerName()).thenReturn(name);
+        return consumer;
+    }
+}
@@ -19,9 +19,14 @@
 package org.apache.pulsar.broker.service;
 
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
@@ -58,6 +63,7 @@ import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import lombok.Cleanup;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.mledger.LedgerOffloader;
 import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
 import org.apache.bookkeeper.mledger.ManagedLedgerException;
 import org.apache.bookkeeper.mledger.impl.ManagedLedgerFactoryImpl;
@@ -89,10 +95,13 @@ import org.apache.pulsar.common.naming.NamespaceName;
 import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.common.policies.data.BundlesData;
 import org.apache.pulsar.common.policies.data.LocalPolicies;
+import org.apache.pulsar.common.policies.data.OffloadPoliciesImpl;
 import org.apache.pulsar.common.policies.data.SubscriptionStats;
+import org.apache.pulsar.common.policies.data.TopicPolicies;
 import org.apache.pulsar.common.policies.data.TopicStats;
 import org.apache.pulsar.common.protocol.Commands;
 import org.apache.pulsar.common.util.netty.EventLoopUtil;
+import org.awaitility.Awaitility;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
@@ -1229,6 +1238,84 @@ public class BrokerServiceTest extends BrokerTestBase {
         assertNull(ledgers.get(topicMlName));
     }
 
+    @Test
+    public void testBulkLoadTopicsOnBundleOwnership() throws Exception {
+        cleanup();
+        conf.setBulkLoadTopicsOnBundleOwnership(true);
+        conf.setBulkLoadTopicsMaxConcurrency(2);
+        setup();
+        try {
+            final String namespace = "prop/ns-abc";
+            List<String> topics = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                String topicName = "persistent://" + namespace + "/bulk-load-topic-" + i;
+                admin.topics().createNonPartitionedTopic(topicName);
+                topics.add(topicName);
+            }
+
+            admin.namespaces().unload(namespace);
+            for (String topicName : topics) {
+                assertFalse(pulsar.getBrokerService().getTopicReference(topicName).isPresent());
+            }
+
+            // the lookup of one topic acquires the ownership of the bundle, and all the topics of the bundle are loaded
+            @Cleanup
+            Producer<byte[]> producer = pulsarClient.newProducer().topic(topics.get(0)).create();
+            Awaitility.await().untilAsserted(() -> {
+                for (String topicName : topics) {
+                    assertTrue(pulsar.getBrokerService().getTopicReference(topicName).isPresent());
+                }
+            });
+        } finally {
+            resetState();
+        }
+    }
+
+    @Test
+    public void testBulkLoadTopicsWithTopicLevelOffloadPolicies() throws Exception {
+        cleanup();
+        conf.setBulkLoadTopicsOnBundleOwnership(true);
+        conf.setTopicLevelPoliciesEnabled(true);
+        setup();
+        try {
+            final String namespace = "prop/ns-abc";
+            List<String> topics = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                String topicName = "persistent://" + namespace + "/bulk-load-offload-topic-" + i;
+                admin.topics().createNonPartitionedTopic(topicName);
+                topics.add(topicName);
+            }
+
+            OffloadPoliciesImpl offloadPolicies = new OffloadPoliciesImpl();
+            offloadPolicies.setManagedLedgerOffloadDriver("s3");
+            offloadPolicies.setManagedLedgerOffloadBucket("bucket");
+            TopicPolicies topicPolicies = new TopicPolicies();
+            topicPolicies.setOffloadPolicies(offloadPolicies);
+            TopicPoliciesService topicPoliciesService = spy(new TopicPoliciesService.TopicPoliciesServiceDisabled());
+            doReturn(topicPolicies).when(topicPoliciesService).getTopicPolicies(any());
+            doReturn(topicPoliciesService).when(pulsar).getTopicPoliciesService();
+            LedgerOffloader offloader = mock(LedgerOffloader.class);
+            doReturn("mock").when(offloader).getOffloadDriverName();
+            doReturn(offloader).when(pulsar).createManagedLedgerOffloader(any());
+
+            admin.namespaces().unload(namespace);
+            clearInvocations(pulsar);
+
+            // the lookup acquires the ownership of the bundle without loading the topic
+            admin.lookups().lookupTopic(topics.get(0));
+            Awaitility.await().untilAsserted(() -> {
+                for (String topicName : topics) {
+                    assertTrue(pulsar.getBrokerService().getTopicReference(topicName).isPresent());
+                }
+            });
+
+            // the offloader created when the managed ledger is opened in bulk is the one used by the topic
+            verify(pulsar, times(topics.size())).createManagedLedgerOffloader(any());
+        } finally {
+            resetState();
+        }
+    }
+
     @Test
     public void testMetricsProvider() throws IOException {
         PrometheusRawMetricsProvider rawMetricsProvider = stream -> stream.write("test_metrics{label1=\"xyz\"} 10 \n");
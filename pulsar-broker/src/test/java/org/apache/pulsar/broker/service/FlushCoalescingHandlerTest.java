@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.Test;
+
+@Test(groups = "broker")
+public class FlushCoalescingHandlerTest {
+
+    /**
+     * Counts the flushes that reach the socket.
+     */
+    private static class FlushCounter extends ChannelOutboundHandlerAdapter {
+        int flushes;
+
+        @Override
+        public void flush(ChannelHandlerContext ctx) throws Exception {
+            flushes++;
+            ctx.flush();
+        }
+    }
+
+    /**
+     * Writes and flushes a response to every message read.
+     */
+    private static class Responder extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ctx.writeAndFlush(msg);
+        }
+    }
+
+    @Test
+    public void testFlushOnReadComplete() {
+        FlushCounter counter = new FlushCounter();
+        EmbeddedChannel channel = new EmbeddedChannel(counter,
+                new FlushCoalescingHandler(64 * 1024, 1, TimeUnit.HOURS), new Responder());
+
+        channel.writeInbound(buffer(10), buffer(10), buffer(10));
+
+        // the responses to the three reads are flushed once, at the end of the read
+        assertEquals(counter.flushes, 1);
+        assertEquals(channel.outboundMessages().size(), 3);
+        releaseOutbound(channel);
+        channel.finish();
+    }
+
+    @Test
+    public void testFlushAfterDelayWithoutRead() throws Exception {
+        FlushCounter counter = new FlushCounter();
+        EmbeddedChannel channel = new EmbeddedChannel(counter, new FlushCoalescingHandler(64 * 1024, 10,
+                TimeUnit.MILLISECONDS));
+
+        channel.pipeline().writeAndFlush(buffer(10));
+        channel.pipeline().writeAndFlush(buffer(10));
+        assertEquals(counter.flushes, 0);
+        assertNull(channel.readOutbound());
+
+        // the flush is deferred by the max delay
+        Thread.sleep(50);
+        channel.runScheduledPendingTasks();
+        assertEquals(counter.flushes, 1);
+        assertEquals(channel.outboundMessages().size(), 2);
+        releaseOutbound(channel);
+        channel.finish();
+    }
+
+    @Test
+    public void testFlushWhenMaxBytesReached() {
+        FlushCounter counter = new FlushCounter();
+        EmbeddedChannel channel = new EmbeddedChannel(counter,
+                new FlushCoalescingHandler(100, 1, TimeUnit.HOURS));
+
+        channel.pipeline().writeAndFlush(buffer(60));
+        assertEquals(counter.flushes, 0);
+        channel.pipeline().writeAndFlush(buffer(60));
+        assertEquals(counter.flushes, 1);
+        assertEquals(channel.outboundMessages().size(), 2);
+        releaseOutbound(channel);
+
+        // pending writes are flushed when the channel is closed
+        channel.pipeline().writeAndFlush(buffer(10));
+        channel.close();
+        assertEquals(counter.flushes, 2);
+        releaseOutbound(channel);
+        channel.finish();
+    }
+
+    private static ByteBuf buffer(int size) {
+        return Unpooled.buffer(size).writeZero(size);
+    }
+
+    private static void releaseOutbound(EmbeddedChannel channel) {
+        Object msg;
+        while ((msg = channel.readOutbound()) != null) {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+}
@@ -20,7 +20,9 @@ package org.apache.pulsar.broker.service;
 
 import static org.apache.pulsar.broker.auth.MockedPulsarServiceBaseTest.retryStrategically;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.doAnswer;
@@ -468,6 +470,16 @@ public class PersistentMessageFinderTest extends MockedBookKeeperTestCase {
         issued = mockMonitor.expireMessages(positions.get(15));
         assertFalse(issued);
 
+        // An entry of the topic is expired up to without searching for it
+        ManagedCursorImpl mockCursor2 = mock(ManagedCursorImpl.class);
+        when(mockCursor2.getManagedLedger()).thenReturn(ledger);
+        when(mockCursor2.getMarkDeletedPosition()).thenReturn(positions.get(10));
+        PersistentMessageExpiryMonitor mockMonitor2 = new PersistentMessageExpiryMonitor("topicname",
+                cursor.getName(), mockCursor2, subscription);
+        assertTrue(mockMonitor2.expireMessages(positions.get(15)));
+        verify(mockCursor2).asyncMarkDelete(eq(positions.get(15)), any(), any());
+        verify(mockCursor2, never()).asyncFindNewestMatching(any(), any(), any(), any());
+
         cursor.close();
         ledger.close();
         factory.shutdown();
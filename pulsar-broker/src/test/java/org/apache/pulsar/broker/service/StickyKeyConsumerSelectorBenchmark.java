@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the latency and the allocation of {@link StickyKeyConsumerSelector#select(int)} between
+ * {@link ConsistentHashingStickyKeyConsumerSelector} and {@link ArrayHashRingStickyKeyConsumerSelector}.
+ *
+ * <p/>This is not run as part of the test suite. Usage:
+ * <pre>
+ * StickyKeyConsumerSelectorBenchmark [numConsumers] [numberOfPoints] [selectsPerThread] [threads] [rounds]
+ * </pre>
+ */
+public class StickyKeyConsumerSelectorBenchmark {
+
+    private static final int NUM_HASHES = 1 << 16;
+
+    public static void main(String[] args) throws Exception {
+        int numConsumers = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int numberOfPoints = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int selectsPerThread = args.length > 2 ? Integer.parseInt(args[2]) : 10_000_000;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        int rounds = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+
+        List<Consumer> consumers = new ArrayList<>(numConsumers);
+        for (int i = 0; i < numConsumers; i++) {
+            Consumer consumer = mock(Consumer.class);
+            when(consumer.consumerName()).thenReturn("consumer-" + i);
+            consumers.add(consumer);
+        }
+        Random random = new Random(0);
+        int[] hashes = new int[NUM_HASHES];
+        for (int i = 0; i < NUM_HASHES; i++) {
+            hashes[i] = random.nextInt(Integer.MAX_VALUE);
+        }
+
+        StickyKeyConsumerSelector consistentHashing = new ConsistentHashingStickyKeyConsumerSelector(numberOfPoints);
+        StickyKeyConsumerSelector arrayHashRing = new ArrayHashRingStickyKeyConsumerSelector(numberOfPoints);
+        for (Consumer consumer : consumers) {
+            consistentHashing.addConsumer(consumer);
+            arrayHashRing.addConsumer(consumer);
+        }
+
+        for (int round = 0; round < rounds; round++) {
+            // The first rounds warm up the JIT
+            System.out.printf("Round %d%n", round);
+            run(consistentHashing, hashes, selectsPerThread, 1);
+            run(arrayHashRing, hashes, selectsPerThread, 1);
+            run(consistentHashing, hashes, selectsPerThread, threads);
+            run(arrayHashRing, hashes, selectsPerThread, threads);
+        }
+    }
+
+    private static void run(StickyKeyConsumerSelector selector, int[] hashes, int selectsPerThread, int threads)
+            throws Exception {
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        AtomicLong totalNanos = new AtomicLong();
+        AtomicLong totalAllocatedBytes = new AtomicLong();
+        AtomicLong nullSelections = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            int offset = t * 7919;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long threadId = Thread.currentThread().getId();
+                long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+                long startNanos = System.nanoTime();
+                long nulls = 0;
+                for (int i = 0; i < selectsPerThread; i++) {
+                    if (selector.select(hashes[(i + offset) & (NUM_HASHES - 1)]) == null) {
+                        nulls++;
+                    }
+                }
+                totalNanos.addAndGet(System.nanoTime() - startNanos);
+                totalAllocatedBytes.addAndGet(threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore);
+                nullSelections.addAndGet(nulls);
+                done.countDown();
+            }, "selector-benchmark-" + t);
+            thread.start();
+        }
+        start.countDown();
+        done.await();
+
+        long selects = (long) selectsPerThread * threads;
+        if (nullSelections.get() > 0) {
+            throw new IllegalStateException("No consumer selected for " + nullSelections.get() + " hashes");
+        }
+        System.out.printf("%s -- %d threads -- select latency: %.1f ns -- allocated: %.1f bytes/select "
+                        + "-- throughput: %.0f selects/s%n",
+                selector.getClass().getSimpleName(), threads, totalNanos.get() / (double) selects,
+                totalAllocatedBytes.get() / (double) selects,
+                selects / (totalNanos.get() / (double) threads / TimeUnit.SECONDS.toNanos(1)));
+    }
+}
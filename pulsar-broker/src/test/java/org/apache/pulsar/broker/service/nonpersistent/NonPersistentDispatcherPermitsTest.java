@@ -0,0 +1,159 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service.nonpersistent;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.impl.EntryImpl;
+import org.apache.pulsar.broker.PulsarService;
+import org.apache.pulsar.broker.ServiceConfiguration;
+import org.apache.pulsar.broker.service.BrokerService;
+import org.apache.pulsar.broker.service.Consumer;
+import org.apache.pulsar.broker.service.EntryBatchSizes;
+import org.apache.pulsar.broker.service.RedeliveryTracker;
+import org.apache.pulsar.common.api.proto.CommandSubscribe.SubType;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.apache.pulsar.common.protocol.Commands;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = "broker")
+public class NonPersistentDispatcherPermitsTest {
+
+    private NonPersistentTopic topicMock;
+    private NonPersistentSubscription subscriptionMock;
+
+    @BeforeMethod
+    public void setup() {
+        ServiceConfiguration configMock = mock(ServiceConfiguration.class);
+        PulsarService pulsarMock = mock(PulsarService.class);
+        doReturn(configMock).when(pulsarMock).getConfiguration();
+        BrokerService brokerMock = mock(BrokerService.class);
+        doReturn(pulsarMock).when(brokerMock).pulsar();
+
+        topicMock = mock(NonPersistentTopic.class);
+        doReturn(brokerMock).when(topicMock).getBrokerService();
+        doReturn("non-persistent://public/default/testTopic").when(topicMock).getName();
+        subscriptionMock = mock(NonPersistentSubscription.class);
+        doReturn("sub").when(subscriptionMock).getName();
+    }
+
+    @Test
+    public void testSingleActiveConsumerDropsEntriesBeyondPermits() throws Exception {
+        NonPersistentDispatcherSingleActiveConsumer dispatcher = new NonPersistentDispatcherSingleActiveConsumer(
+                SubType.Exclusive, 0, topicMock, subscriptionMock);
+        Consumer consumer = mockConsumer("consumer", 3);
+        dispatcher.addConsumer(consumer);
+
+        dispatcher.sendMessages(createEntries(5));
+
+        assertEquals(sentEntries(consumer), Collections.singletonList(Arrays.asList(0L, 1L, 2L)));
+        dispatcher.getMessageDropRate().calculateRate();
+        assertEquals(dispatcher.getMessageDropRate().getCount(), 2);
+    }
+
+    @Test
+    public void testSingleActiveConsumerWithoutPermits() throws Exception {
+        NonPersistentDispatcherSingleActiveConsumer dispatcher = new NonPersistentDispatcherSingleActiveConsumer(
+                SubType.Exclusive, 0, topicMock, subscriptionMock);
+        Consumer consumer = mockConsumer("consumer", 0);
+        dispatcher.addConsumer(consumer);
+
+        dispatcher.sendMessages(createEntries(5));
+
+        verify(consumer, never()).sendMessages(any(), any(), any(), anyInt(), anyLong(), anyLong(), any());
+        dispatcher.getMessageDropRate().calculateRate();
+        assertEquals(dispatcher.getMessageDropRate().getCount(), 5);
+    }
+
+    @Test
+    public void testMultipleConsumersSpreadEntriesByPermits() throws Exception {
+        NonPersistentDispatcherMultipleConsumers dispatcher =
+                new NonPersistentDispatcherMultipleConsumers(topicMock, subscriptionMock);
+        Consumer consumer1 = mockConsumer("consumer-1", 2);
+        Consumer consumer2 = mockConsumer("consumer-2", 3);
+        dispatcher.addConsumer(consumer1);
+        dispatcher.addConsumer(consumer2);
+        dispatcher.consumerFlow(consumer1, 2);
+        dispatcher.consumerFlow(consumer2, 3);
+
+        // the consumers get contiguous ranges of the batch, within their permits, and the rest is dropped
+        dispatcher.sendMessages(createEntries(7));
+
+        assertEquals(sentEntries(consumer1), Collections.singletonList(Arrays.asList(0L, 1L)));
+        assertEquals(sentEntries(consumer2), Collections.singletonList(Arrays.asList(2L, 3L, 4L)));
+        dispatcher.getMessageDropRate().calculateRate();
+        assertEquals(dispatcher.getMessageDropRate().getCount(), 2);
+        assertFalse(dispatcher.hasPermits());
+    }
+
+    private static Consumer mockConsumer(String name, int permits) {
+        Consumer consumer = mock(Consumer.class);
+        when(consumer.consumerName()).thenReturn(name);
+        when(consumer.getAvailablePermits()).thenReturn(permits);
+        when(consumer.isWritable()).thenReturn(true);
+        return consumer;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<List<Long>> sentEntries(Consumer consumer) {
+        ArgumentCaptor<List<Entry>> captor = ArgumentCaptor.forClass(List.class);
+        verify(consumer).sendMessages(captor.capture(), any(EntryBatchSizes.class), any(), anyInt(), anyLong(),
+                anyLong(), any(RedeliveryTracker.class));
+        List<List<Long>> sent = new ArrayList<>();
+        for (List<Entry> entries : captor.getAllValues()) {
+            List<Long> entryIds = new ArrayList<>();
+            entries.forEach(entry -> entryIds.add(entry.getEntryId()));
+            sent.add(entryIds);
+        }
+        return sent;
+    }
+
+    private static List<Entry> createEntries(int numEntries) {
+        List<Entry> entries = new ArrayList<>(numEntries);
+        for (int i = 0; i < numEntries; i++) {
+            MessageMetadata messageMetadata = new MessageMetadata()
+                    .setSequenceId(i)
+                    .setProducerName("testProducer")
+                    .setPublishTime(System.currentTimeMillis());
+            ByteBuf data = Commands.serializeMetadataAndPayload(Commands.ChecksumType.Crc32c, messageMetadata,
+                    Unpooled.copiedBuffer(("message-" + i).getBytes(UTF_8)));
+            entries.add(EntryImpl.create(0, i, data));
+            data.release();
+        }
+        return entries;
+    }
+}
@@ -18,6 +18,10 @@
  */
 package org.apache.pulsar.broker.service.nonpersistent;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import org.apache.pulsar.broker.service.BrokerTestBase;
 import org.apache.pulsar.client.api.Consumer;
 import org.apache.pulsar.client.api.Message;
@@ -96,4 +100,45 @@ public class NonPersistentTopicTest extends BrokerTestBase {
         assertEquals(statsAfterUnsubscribe.getBytesOutCounter(), statsBeforeUnsubscribe.getBytesOutCounter());
         assertEquals(statsAfterUnsubscribe.getMsgOutCounter(), statsBeforeUnsubscribe.getMsgOutCounter());
     }
+
+    @Test
+    public void testBatchedDispatchToSubscriptions() throws Exception {
+        final String topicName = "non-persistent://prop/ns-abc/batchedDispatchTopic";
+        final int numMessages = 500;
+
+        Consumer<Integer> exclusiveConsumer = pulsarClient.newConsumer(Schema.INT32).topic(topicName)
+                .subscriptionType(SubscriptionType.Exclusive).subscriptionName("exclusive").subscribe();
+        Consumer<Integer> sharedConsumer1 = pulsarClient.newConsumer(Schema.INT32).topic(topicName)
+                .subscriptionType(SubscriptionType.Shared).subscriptionName("shared").subscribe();
+        Consumer<Integer> sharedConsumer2 = pulsarClient.newConsumer(Schema.INT32).topic(topicName)
+                .subscriptionType(SubscriptionType.Shared).subscriptionName("shared").subscribe();
+        Producer<Integer> producer = pulsarClient.newProducer(Schema.INT32).topic(topicName)
+                .enableBatching(false).create();
+
+        // messages published back to back are fanned out to the subscriptions in batches
+        for (int i = 0; i < numMessages; i++) {
+            producer.sendAsync(i);
+        }
+        producer.flush();
+
+        for (int i = 0; i < numMessages; i++) {
+            Message<Integer> msg = exclusiveConsumer.receive(5, TimeUnit.SECONDS);
+            assertNotNull(msg);
+            assertEquals(msg.getValue().intValue(), i);
+        }
+
+        Set<Integer> received = new HashSet<>();
+        for (Consumer<Integer> consumer : Arrays.asList(sharedConsumer1, sharedConsumer2)) {
+            Message<Integer> msg;
+            while ((msg = consumer.receive(1, TimeUnit.SECONDS)) != null) {
+                received.add(msg.getValue());
+            }
+        }
+        assertEquals(received.size(), numMessages);
+
+        producer.close();
+        exclusiveConsumer.close();
+        sharedConsumer1.close();
+        sharedConsumer2.close();
+    }
 }
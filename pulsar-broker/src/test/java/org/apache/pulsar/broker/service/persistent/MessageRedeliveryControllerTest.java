@@ -181,6 +181,34 @@ public class MessageRedeliveryControllerTest {
         assertFalse(controller.containsStickyKeyHashes(Sets.newHashSet(105, 106)));
     }
 
+    @Test(dataProvider = "allowOutOfOrderDelivery", timeOut = 10000)
+    public void testContainsStickyKeyHash(boolean allowOutOfOrderDelivery) throws Exception {
+        MessageRedeliveryController controller = new MessageRedeliveryController(allowOutOfOrderDelivery);
+        controller.add(1, 1, 100);
+        controller.add(1, 2, 101);
+        controller.add(1, 3, 101);
+        controller.add(1, 3, 101);
+
+        assertEquals(controller.containsStickyKeyHash(100), !allowOutOfOrderDelivery);
+        assertEquals(controller.containsStickyKeyHash(101), !allowOutOfOrderDelivery);
+        assertEquals(controller.getStickyKeyHash(1, 2), allowOutOfOrderDelivery ? -1 : 101);
+        assertEquals(controller.getStickyKeyHash(1, 4), -1);
+
+        // a hash is blocked until all the messages with the hash are removed
+        controller.remove(1, 2);
+        assertEquals(controller.containsStickyKeyHash(101), !allowOutOfOrderDelivery);
+        controller.remove(1, 3);
+        assertFalse(controller.containsStickyKeyHash(101));
+
+        controller.removeAllUpTo(1, 1);
+        assertFalse(controller.containsStickyKeyHash(100));
+        assertEquals(controller.getStickyKeyHash(1, 1), -1);
+
+        controller.add(2, 1, 200);
+        controller.clear();
+        assertFalse(controller.containsStickyKeyHash(200));
+    }
+
     @Test(dataProvider = "allowOutOfOrderDelivery", timeOut = 10000)
     public void testGetMessagesToReplayNow(boolean allowOutOfOrderDelivery) throws Exception {
         MessageRedeliveryController controller = new MessageRedeliveryController(allowOutOfOrderDelivery);
@@ -0,0 +1,299 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service.plugin;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import lombok.Cleanup;
+import org.apache.bookkeeper.mledger.impl.PositionImpl;
+import org.apache.pulsar.broker.service.BrokerTestBase;
+import org.apache.pulsar.broker.service.persistent.PersistentTopic;
+import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.Producer;
+import org.apache.pulsar.client.api.SubscriptionType;
+import org.apache.pulsar.common.policies.data.SubscriptionStats;
+import org.apache.pulsar.common.policies.data.TopicStats;
+import org.awaitility.Awaitility;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Test for the entry filters.
+ */
+@Test(groups = "broker")
+public class EntryFilterTest extends BrokerTestBase {
+
+    @DataProvider(name = "subscriptionTypes")
+    public static Object[] subscriptionTypes() {
+        return new Object[] {
+                SubscriptionType.Exclusive,
+                SubscriptionType.Failover,
+                SubscriptionType.Shared,
+                SubscriptionType.Key_Shared
+        };
+    }
+
+    @BeforeClass
+    protected void setup() throws Exception {
+        conf.setEntryFilterClassNames(Collections.singletonList(PropertyEntryFilter.class.getName()));
+        conf.setDispatcherEntryFilterRescheduledMessageDelay(10);
+        baseSetup();
+    }
+
+    @AfterClass(alwaysRun = true)
+    protected void cleanup() throws Exception {
+        internalCleanup();
+    }
+
+    private PersistentTopic getTopic(String topic) throws Exception {
+        return (PersistentTopic) pulsar.getBrokerService().getTopicIfExists(topic).get().get();
+    }
+
+    @Test(dataProvider = "subscriptionTypes")
+    public void testFilterByProperty(SubscriptionType subType) throws Exception {
+        final String topic = newTopicName();
+        final int messages = 20;
+
+        @Cleanup
+        Consumer<byte[]> consumer = pulsarClient.newConsumer()
+                .topic(topic)
+                .subscriptionType(subType)
+                .subscriptionName("my-sub")
+                .property(PropertyEntryFilter.PROPERTY_PREDICATE_PREFIX + "color", "red")
+                .subscribe();
+
+        @Cleanup
+        Producer<byte[]> producer = pulsarClient.newProducer()
+                .topic(topic)
+                .enableBatching(false)
+                .create();
+        for (int i = 0; i < messages; i++) {
+            producer.newMessage()
+                    .key("key-" + i)
+                    .property("color", i % 2 == 0 ? "red" : "blue")
+                    .value(String.valueOf(i).getBytes())
+                    .send();
+        }
+
+        for (int i = 0; i < messages; i += 2) {
+            Message<byte[]> message = consumer.receive(5, TimeUnit.SECONDS);
+            assertEquals(new String(message.getValue()), String.valueOf(i));
+            assertEquals(message.getProperty("color"), "red");
+            consumer.acknowledge(message);
+        }
+        assertNull(consumer.receive(100, TimeUnit.MILLISECONDS));
+
+        Awaitility.await().untilAsserted(() -> {
+            TopicStats stats = admin.topics().getStats(topic);
+            SubscriptionStats subStats = stats.getSubscriptions().get("my-sub");
+            assertEquals(subStats.getFilterProcessedMsgCount(), messages);
+            assertEquals(subStats.getFilterRejectedMsgCount(), messages / 2);
+            assertEquals(subStats.getMsgBacklog(), 0);
+        });
+    }
+
+    @Test
+    public void testConsumersWithDifferentPredicates() throws Exception {
+        final String topic = newTopicName();
+        final int messages = 20;
+
+        @Cleanup
+        Consumer<byte[]> redConsumer = pulsarClient.newConsumer()
+                .topic(topic)
+                .subscriptionType(SubscriptionType.Shared)
+                .subscriptionName("my-sub")
+                .property(PropertyEntryFilter.PROPERTY_PREDICATE_PREFIX + "color", "red")
+                .subscribe();
+        @Cleanup
+        Consumer<byte[]> anyConsumer = pulsarClient.newConsumer()
+                .topic(topic)
+                .subscriptionType(SubscriptionType.Shared)
+                .subscriptionName("my-sub")
+                .subscribe();
+
+        @Cleanup
+        Producer<byte[]> producer = pulsarClient.newProducer()
+                .topic(topic)
+                .enableBatching(false)
+                .create();
+        for (int i = 0; i < messages; i++) {
+            producer.newMessage()
+                    .key("key-" + i)
+                    .property("color", i % 2 == 0 ? "red" : "blue")
+                    .value(String.valueOf(i).getBytes())
+                    .send();
+        }
+
+        // a message rejected by a consumer is not acknowledged while another consumer accepts it
+        Set<String> received = new HashSet<>();
+        Message<byte[]> message;
+        while ((message = redConsumer.receive(500, TimeUnit.MILLISECONDS)) != null) {
+            assertEquals(message.getProperty("color"), "red");
+            received.add(new String(message.getValue()));
+            redConsumer.acknowledge(message);
+        }
+        while ((message = anyConsumer.receive(500, TimeUnit.MILLISECONDS)) != null) {
+            received.add(new String(message.getValue()));
+            anyConsumer.acknowledge(message);
+        }
+        assertEquals(received.size(), messages);
+
+        Awaitility.await().untilAsserted(() -> {
+            SubscriptionStats subStats = admin.topics().getStats(topic).getSubscriptions().get("my-sub");
+            assertEquals(subStats.getFilterRejectedMsgCount(), 0);
+            assertEquals(subStats.getMsgBacklog(), 0);
+        });
+    }
+
+    @Test
+    public void testKeySharedConsumersWithDifferentPredicates() throws Exception {
+        final String topic = newTopicName();
+        final int messages = 20;
+
+        @Cleanup
+        Consumer<byte[]> redConsumer = pulsarClient.newConsumer()
+                .topic(topic)
+                .subscriptionType(SubscriptionType.Key_Shared)
+                .subscriptionName("my-sub")
+                .property(PropertyEntryFilter.PROPERTY_PREDICATE_PREFIX + "color", "red")
+                .subscribe();
+        @Cleanup
+        Consumer<byte[]> blueConsumer = pulsarClient.newConsumer()
+                .topic(topic)
+                .subscriptionType(SubscriptionType.Key_Shared)
+                .subscriptionName("my-sub")
+                .property(PropertyEntryFilter.PROPERTY_PREDICATE_PREFIX + "color", "blue")
+                .subscribe();
+
+        @Cleanup
+        Producer<byte[]> producer = pulsarClient.newProducer()
+                .topic(topic)
+                .enableBatching(false)
+                .create();
+        for (int i = 0; i < messages; i++) {
+            producer.newMessage()
+                    .key("key-" + i)
+                    .property("color", i % 2 == 0 ? "red" : "blue")
+                    .value(String.valueOf(i).getBytes())
+                    .send();
+        }
+
+        // a message rejected by the consumer its key is assigned to is acknowledged, not dispatched to it forever
+        int received = 0;
+        Message<byte[]> message;
+        while ((message = redConsumer.receive(500, TimeUnit.MILLISECONDS)) != null) {
+            assertEquals(message.getProperty("color"), "red");
+            redConsumer.acknowledge(message);
+            received++;
+        }
+        while ((message = blueConsumer.receive(500, TimeUnit.MILLISECONDS)) != null) {
+            assertEquals(message.getProperty("color"), "blue");
+            blueConsumer.acknowledge(message);
+            received++;
+        }
+
+        final int accepted = received;
+        Awaitility.await().untilAsserted(() -> {
+            SubscriptionStats subStats = admin.topics().getStats(topic).getSubscriptions().get("my-sub");
+            assertEquals(subStats.getFilterRejectedMsgCount(), messages - accepted);
+            assertEquals(subStats.getMsgBacklog(), 0);
+            PositionImpl lastConfirmedEntry = (PositionImpl) getTopic(topic).getManagedLedger()
+                    .getLastConfirmedEntry();
+            assertEquals(getTopic(topic).getSubscription("my-sub").getCursor().getMarkDeletedPosition(),
+                    lastConfirmedEntry);
+        });
+    }
+
+    @Test
+    public void testFilterByKey() throws Exception {
+        final String topic = newTopicName();
+        final int messages = 20;
+
+        @Cleanup
+        Consumer<byte[]> consumer = pulsarClient.newConsumer()
+                .topic(topic)
+                .subscriptionType(SubscriptionType.Shared)
+                .subscriptionName("my-sub")
+                .property(PropertyEntryFilter.KEY_PREDICATE, "key-1, key-2")
+                .subscribe();
+
+        @Cleanup
+        Producer<byte[]> producer = pulsarClient.newProducer()
+                .topic(topic)
+                .enableBatching(false)
+                .create();
+        for (int i = 0; i < messages; i++) {
+            producer.newMessage()
+                    .key("key-" + (i % 4))
+                    .value(String.valueOf(i).getBytes())
+                    .send();
+        }
+        producer.newMessage().value("no-key".getBytes()).send();
+
+        for (int i = 0; i < messages / 2; i++) {
+            Message<byte[]> message = consumer.receive(5, TimeUnit.SECONDS);
+            assertEquals(message.getKey(), Integer.parseInt(new String(message.getValue())) % 4 == 1
+                    ? "key-1" : "key-2");
+            consumer.acknowledge(message);
+        }
+        assertNull(consumer.receive(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testBatchesAreAccepted() throws Exception {
+        final String topic = newTopicName();
+        final int messages = 10;
+
+        @Cleanup
+        Consumer<byte[]> consumer = pulsarClient.newConsumer()
+                .topic(topic)
+                .subscriptionType(SubscriptionType.Shared)
+                .subscriptionName("my-sub")
+                .property(PropertyEntryFilter.PROPERTY_PREDICATE_PREFIX + "color", "red")
+                .subscribe();
+
+        @Cleanup
+        Producer<byte[]> producer = pulsarClient.newProducer()
+                .topic(topic)
+                .enableBatching(true)
+                .batchingMaxPublishDelay(1, TimeUnit.HOURS)
+                .batchingMaxMessages(messages)
+                .create();
+        for (int i = 0; i < messages; i++) {
+            producer.newMessage()
+                    .property("color", "blue")
+                    .value(String.valueOf(i).getBytes())
+                    .sendAsync();
+        }
+        producer.flush();
+
+        for (int i = 0; i < messages; i++) {
+            Message<byte[]> message = consumer.receive(5, TimeUnit.SECONDS);
+            assertEquals(new String(message.getValue()), String.valueOf(i));
+            consumer.acknowledge(message);
+        }
+    }
+}
@@ -20,6 +20,7 @@ package org.apache.pulsar.broker.stats;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
@@ -29,24 +30,29 @@ import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.netty.buffer.ByteBuf;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.math.RoundingMode;
 import java.nio.charset.StandardCharsets;
 import java.text.NumberFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Random;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -670,6 +676,55 @@ public class PrometheusMetricsTest extends BrokerTestBase {
         p2.close();
     }
 
+    @Test
+    public void testGenerateMetricsWithNamespacesSplitAcrossThreads() throws Exception {
+        List<String> namespaces = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            String namespace = "prop/ns-split-" + i;
+            admin.namespaces().createNamespace(namespace);
+            for (int j = 0; j < 2; j++) {
+                admin.topics().createNonPartitionedTopic("persistent://" + namespace + "/topic-" + j);
+            }
+            namespaces.add(namespace);
+        }
+
+        @Cleanup("shutdownNow")
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        ByteBuf buf = PrometheusMetricsGenerator.generateMetrics(pulsar, true, false, false, false, null,
+                executor, 3);
+        String metricsStr;
+        try {
+            metricsStr = buf.toString(StandardCharsets.UTF_8);
+        } finally {
+            buf.release();
+        }
+
+        Multimap<String, Metric> metrics = parseMetrics(metricsStr);
+        for (String namespace : namespaces) {
+            assertTrue(metrics.get("pulsar_topics_count").stream()
+                    .anyMatch(m -> namespace.equals(m.tags.get("namespace")) && m.value == 2.0));
+        }
+
+        // the namespaces are written in separate buffers, the TYPE definitions must still be unique and precede the
+        // first sample of their metric
+        Set<String> typeDefs = new HashSet<>();
+        Set<String> metricNames = new HashSet<>();
+        Pattern metricNamePattern = Pattern.compile("^(\\w+)\\{.+");
+        Splitter.on("\n").split(metricsStr).forEach(line -> {
+            if (line.startsWith("# TYPE ")) {
+                String metricName = line.split(" ")[2];
+                assertTrue(typeDefs.add(metricName), "Duplicate type definition for " + metricName);
+                assertFalse(metricNames.contains(metricName), "Type definition after first sample of " + metricName);
+            } else {
+                Matcher metricMatcher = metricNamePattern.matcher(line);
+                if (metricMatcher.matches()) {
+                    metricNames.add(metricMatcher.group(1));
+                }
+            }
+        });
+        assertTrue(typeDefs.contains("pulsar_rate_in"));
+    }
+
     @Test
     public void testManagedLedgerCacheStats() throws Exception {
         Producer<byte[]> p1 = pulsarClient.newProducer().topic("persistent://my-property/use/my-ns/my-topic1").create();
@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import lombok.Cleanup;
+import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.Producer;
+import org.apache.pulsar.client.api.ProducerConsumerBase;
+import org.apache.pulsar.client.impl.BinaryProtoLookupService.LookupDataResult;
+import org.apache.pulsar.common.naming.TopicName;
+import org.apache.pulsar.common.protocol.Commands;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = "broker-impl")
+public class LookupTopicsTest extends ProducerConsumerBase {
+
+    @BeforeMethod
+    @Override
+    protected void setup() throws Exception {
+        isTcpLookup = true;
+        super.internalSetup();
+        super.producerBaseSetup();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    @Override
+    protected void cleanup() throws Exception {
+        super.internalCleanup();
+    }
+
+    @Test
+    public void testLookupTopics() throws Exception {
+        String topic = "persistent://my-property/my-ns/lookup-topics";
+        admin.topics().createPartitionedTopic(topic, 4);
+
+        List<String> topics = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            topics.add(TopicName.get(topic).getPartition(i).toString());
+        }
+        topics.add("persistent://my-property/other-ns/lookup-topics");
+        topics.add("invalid://my-property/my-ns/lookup-topics");
+
+        PulsarClientImpl client = (PulsarClientImpl) pulsarClient;
+        ClientCnx cnx = client.getCnxPool()
+                .getConnection(InetSocketAddress.createUnresolved("localhost", pulsar.getBrokerListenPort().get()))
+                .get();
+        assertTrue(cnx.isSupportsLookupTopics());
+
+        long requestId = client.newRequestId();
+        List<CompletableFuture<LookupDataResult>> results =
+                cnx.newLookupTopics(Commands.newLookupTopics(topics, null, false, requestId), requestId)
+                        .get(10, TimeUnit.SECONDS);
+        assertEquals(results.size(), topics.size());
+
+        // The results are in the order of the topics of the request
+        for (int i = 0; i < 4; i++) {
+            LookupDataResult result = results.get(i).get();
+            assertEquals(result.brokerUrl, pulsar.getBrokerServiceUrl());
+            assertFalse(result.redirect);
+        }
+        // The namespace of the topic does not exist
+        assertTrue(results.get(4).isCompletedExceptionally());
+        // The name of the topic is not valid
+        assertTrue(results.get(5).isCompletedExceptionally());
+    }
+
+    @Test
+    public void testPartitionedTopicWithLookupTopics() throws Exception {
+        String topic = "persistent://my-property/my-ns/partitioned-lookup-topics";
+        admin.topics().createPartitionedTopic(topic, 8);
+
+        @Cleanup
+        Consumer<byte[]> consumer = pulsarClient.newConsumer()
+                .topic(topic)
+                .subscriptionName("my-sub")
+                .subscribe();
+        @Cleanup
+        Producer<byte[]> producer = pulsarClient.newProducer()
+                .topic(topic)
+                .enableBatching(false)
+                .create();
+
+        for (int i = 0; i < 16; i++) {
+            producer.send(("my-message-" + i).getBytes());
+        }
+
+        Set<String> received = new HashSet<>();
+        for (int i = 0; i < 16; i++) {
+            Message<byte[]> msg = consumer.receive(5, TimeUnit.SECONDS);
+            received.add(new String(msg.getData()));
+            consumer.acknowledge(msg);
+        }
+        assertEquals(received.size(), 16);
+    }
+}
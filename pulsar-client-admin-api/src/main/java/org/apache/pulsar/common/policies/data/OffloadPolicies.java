@@ -29,6 +29,12 @@ public interface OffloadPolicies {
 
     Integer getManagedLedgerOffloadPrefetchRounds();
 
+    Integer getManagedLedgerOffloadMaxConcurrentUploads();
+
+    Long getManagedLedgerOffloadUploadBufferSizeInBytes();
+
+    Integer getManagedLedgerOffloadReadAheadChunks();
+
     Long getManagedLedgerOffloadThresholdInBytes();
 
     Long getManagedLedgerOffloadDeletionLagInMillis();
@@ -87,6 +93,12 @@ public interface OffloadPolicies {
 
         Builder managedLedgerOffloadPrefetchRounds(Integer managedLedgerOffloadPrefetchRounds);
 
+        Builder managedLedgerOffloadMaxConcurrentUploads(Integer managedLedgerOffloadMaxConcurrentUploads);
+
+        Builder managedLedgerOffloadUploadBufferSizeInBytes(Long managedLedgerOffloadUploadBufferSizeInBytes);
+
+        Builder managedLedgerOffloadReadAheadChunks(Integer managedLedgerOffloadReadAheadChunks);
+
         Builder managedLedgerOffloadThresholdInBytes(Long managedLedgerOffloadThresholdInBytes);
 
         Builder managedLedgerOffloadDeletionLagInMillis(Long managedLedgerOffloadDeletionLagInMillis);
@@ -88,6 +88,15 @@ public interface SubscriptionStats {
     /** Last MarkDelete position advanced timesetamp. */
     long getLastMarkDeleteAdvancedTimestamp();
 
+    /** Total messages evaluated by the entry filters of this subscription. */
+    long getFilterProcessedMsgCount();
+
+    /** Total messages rejected by the entry filters of this subscription, and never sent to its consumers. */
+    long getFilterRejectedMsgCount();
+
+    /** Total time spent evaluating the entry filters of this subscription (nanoseconds). */
+    long getFilterEvaluationTimeNanos();
+
     /** List of connected consumers on this subscription w/ their stats. */
     List<? extends ConsumerStats> getConsumers();
 
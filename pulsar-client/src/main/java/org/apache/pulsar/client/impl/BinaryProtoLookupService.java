@@ -26,13 +26,18 @@ import io.netty.buffer.ByteBuf;
 
 import java.net.InetSocketAddress;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.client.api.PulsarClientException;
@@ -57,6 +62,12 @@ public class BinaryProtoLookupService implements LookupService {
     private final String listenerName;
     private final int maxLookupRedirects;
 
+    // Brokers resolved by prefetchBrokers(), kept until the next getBroker() of their topic
+    private final ConcurrentHashMap<TopicName, CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>>>
+            prefetchedBrokers = new ConcurrentHashMap<>();
+
+    private static final int MAX_TOPICS_PER_LOOKUP_REQUEST = 1000;
+
     public BinaryProtoLookupService(PulsarClientImpl client, String serviceUrl, boolean useTls, ExecutorService executor)
             throws PulsarClientException {
         this(client, serviceUrl, null, useTls, executor);
@@ -86,9 +97,53 @@ public class BinaryProtoLookupService implements LookupService {
      * @return broker-socket-address that serves given topic
      */
     public CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> getBroker(TopicName topicName) {
+        CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> prefetched = prefetchedBrokers.remove(topicName);
+        if (prefetched != null) {
+            // Fall back to the lookup of the single topic if the batched lookup fails
+            return prefetched.handle((addresses, ex) -> ex == null ? CompletableFuture.completedFuture(addresses)
+                    : findBroker(serviceNameResolver.resolveHost(), false, topicName, 0))
+                    .thenCompose(Function.identity());
+        }
         return findBroker(serviceNameResolver.resolveHost(), false, topicName, 0);
     }
 
+    /**
+     * Calls broker binaryProto-lookup api to find the broker-service addresses of several topics, with a single
+     * request per {@value #MAX_TOPICS_PER_LOOKUP_REQUEST} topics when the broker supports it. The addresses are kept
+     * for the next {@link #getBroker(TopicName)} of each topic, up to the operation timeout.
+     *
+     * @param topicNames
+     *            topic-names
+     */
+    @Override
+    public void prefetchBrokers(Collection<TopicName> topicNames) {
+        // A single topic is looked up by its own getBroker()
+        if (topicNames.size() < 2) {
+            return;
+        }
+        List<TopicName> topics = new ArrayList<>(topicNames);
+        for (int from = 0; from < topics.size(); from += MAX_TOPICS_PER_LOOKUP_REQUEST) {
+            List<TopicName> batch = topics.subList(from, Math.min(from + MAX_TOPICS_PER_LOOKUP_REQUEST, topics.size()));
+            List<CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>>> addressFutures =
+                    findBrokers(serviceNameResolver.resolveHost(), batch);
+            for (int i = 0; i < batch.size(); i++) {
+                TopicName topicName = batch.get(i);
+                CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> addressFuture = addressFutures.get(i);
+                prefetchedBrokers.put(topicName, addressFuture);
+                addressFuture.exceptionally(ex -> {
+                    prefetchedBrokers.remove(topicName, addressFuture);
+                    return null;
+                });
+            }
+            // Forget the addresses which were not claimed in time, they may be stale by now
+            client.timer().newTimeout(timeout -> {
+                for (int i = 0; i < batch.size(); i++) {
+                    prefetchedBrokers.remove(batch.get(i), addressFutures.get(i));
+                }
+            }, client.getConfiguration().getOperationTimeoutMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
     /**
      * calls broker binaryProto-lookup api to get metadata of partitioned-topic.
      *
@@ -120,60 +175,121 @@ public class BinaryProtoLookupService implements LookupService {
 
                     addressFuture.completeExceptionally(t);
                 } else {
-                    URI uri = null;
-                    try {
-                        // (1) build response broker-address
-                        if (useTls) {
-                            uri = new URI(r.brokerUrlTls);
-                        } else {
-                            String serviceUrl = r.brokerUrl;
-                            uri = new URI(serviceUrl);
-                        }
+                    handleLookupResult(socketAddress, topicName, r, redirectCount, addressFuture);
+                }
+                client.getCnxPool().releaseConnection(clientCnx);
+            });
+        }).exceptionally(connectionException -> {
+            addressFuture.completeExceptionally(connectionException);
+            return null;
+        });
+        return addressFuture;
+    }
+
+    private List<CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>>> findBrokers(
+            InetSocketAddress socketAddress, List<TopicName> topicNames) {
+        List<CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>>> addressFutures =
+                new ArrayList<>(topicNames.size());
+        for (int i = 0; i < topicNames.size(); i++) {
+            addressFutures.add(new CompletableFuture<>());
+        }
+
+        client.getCnxPool().getConnection(socketAddress).thenAccept(clientCnx -> {
+            if (!clientCnx.isSupportsLookupTopics()) {
+                // Leave the lookups to the getBroker() of each topic
+                client.getCnxPool().releaseConnection(clientCnx);
+                PulsarClientException notSupported = new PulsarClientException.NotSupportedException(
+                        "The broker does not support the lookup of several topics");
+                addressFutures.forEach(addressFuture -> addressFuture.completeExceptionally(notSupported));
+                return;
+            }
 
-                        InetSocketAddress responseBrokerAddress = InetSocketAddress.createUnresolved(uri.getHost(), uri.getPort());
-
-                        // (2) redirect to given address if response is: redirect
-                        if (r.redirect) {
-                            findBroker(responseBrokerAddress, r.authoritative, topicName, redirectCount + 1)
-                                .thenAccept(addressFuture::complete).exceptionally((lookupException) -> {
-                                // lookup failed
-                                if (redirectCount > 0) {
-                                    if (log.isDebugEnabled()) {
-                                        log.debug("[{}] lookup redirection failed ({}) : {}", topicName.toString(),
-                                                redirectCount, lookupException.getMessage());
-                                    }
-                                } else {
-                                    log.warn("[{}] lookup failed : {}", topicName.toString(),
-                                            lookupException.getMessage(), lookupException);
-                                }
-                                addressFuture.completeExceptionally(lookupException);
-                                return null;
-                            });
-                        } else {
-                            // (3) received correct broker to connect
-                            if (r.proxyThroughServiceUrl) {
-                                // Connect through proxy
-                                addressFuture.complete(Pair.of(responseBrokerAddress, socketAddress));
+            long requestId = client.newRequestId();
+            List<String> topics = topicNames.stream().map(TopicName::toString).collect(Collectors.toList());
+            ByteBuf request = Commands.newLookupTopics(topics, listenerName, false, requestId);
+            clientCnx.newLookupTopics(request, requestId).whenComplete((results, t) -> {
+                Throwable failure = t;
+                if (failure == null && results.size() != topicNames.size()) {
+                    failure = new PulsarClientException.LookupException(format(
+                            "Received %d lookup results for %d topics", results.size(), topicNames.size()));
+                }
+                if (failure != null) {
+                    log.warn("failed to send lookup request of {} topics : {}", topicNames.size(),
+                            failure.getMessage());
+                    for (CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> addressFuture : addressFutures) {
+                        addressFuture.completeExceptionally(failure);
+                    }
+                } else {
+                    for (int i = 0; i < topicNames.size(); i++) {
+                        TopicName topicName = topicNames.get(i);
+                        CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> addressFuture =
+                                addressFutures.get(i);
+                        results.get(i).whenComplete((r, ex) -> {
+                            if (ex != null) {
+                                addressFuture.completeExceptionally(ex);
                             } else {
-                                // Normal result with direct connection to broker
-                                addressFuture.complete(Pair.of(responseBrokerAddress, responseBrokerAddress));
+                                handleLookupResult(socketAddress, topicName, r, 0, addressFuture);
                             }
-                        }
-
-                    } catch (Exception parseUrlException) {
-                        // Failed to parse url
-                        log.warn("[{}] invalid url {} : {}", topicName.toString(), uri, parseUrlException.getMessage(),
-                            parseUrlException);
-                        addressFuture.completeExceptionally(parseUrlException);
+                        });
                     }
                 }
                 client.getCnxPool().releaseConnection(clientCnx);
             });
         }).exceptionally(connectionException -> {
-            addressFuture.completeExceptionally(connectionException);
+            addressFutures.forEach(addressFuture -> addressFuture.completeExceptionally(connectionException));
             return null;
         });
-        return addressFuture;
+        return addressFutures;
+    }
+
+    private void handleLookupResult(InetSocketAddress socketAddress, TopicName topicName, LookupDataResult r,
+            int redirectCount, CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> addressFuture) {
+        URI uri = null;
+        try {
+            // (1) build response broker-address
+            if (useTls) {
+                uri = new URI(r.brokerUrlTls);
+            } else {
+                String serviceUrl = r.brokerUrl;
+                uri = new URI(serviceUrl);
+            }
+
+            InetSocketAddress responseBrokerAddress = InetSocketAddress.createUnresolved(uri.getHost(), uri.getPort());
+
+            // (2) redirect to given address if response is: redirect
+            if (r.redirect) {
+                findBroker(responseBrokerAddress, r.authoritative, topicName, redirectCount + 1)
+                    .thenAccept(addressFuture::complete).exceptionally((lookupException) -> {
+                    // lookup failed
+                    if (redirectCount > 0) {
+                        if (log.isDebugEnabled()) {
+                            log.debug("[{}] lookup redirection failed ({}) : {}", topicName.toString(),
+                                    redirectCount, lookupException.getMessage());
+                        }
+                    } else {
+                        log.warn("[{}] lookup failed : {}", topicName.toString(),
+                                lookupException.getMessage(), lookupException);
+                    }
+                    addressFuture.completeExceptionally(lookupException);
+                    return null;
+                });
+            } else {
+                // (3) received correct broker to connect
+                if (r.proxyThroughServiceUrl) {
+                    // Connect through proxy
+                    addressFuture.complete(Pair.of(responseBrokerAddress, socketAddress));
+                } else {
+                    // Normal result with direct connection to broker
+                    addressFuture.complete(Pair.of(responseBrokerAddress, responseBrokerAddress));
+                }
+            }
+
+        } catch (Exception parseUrlException) {
+            // Failed to parse url
+            log.warn("[{}] invalid url {} : {}", topicName.toString(), uri, parseUrlException.getMessage(),
+                parseUrlException);
+            addressFuture.completeExceptionally(parseUrlException);
+        }
     }
 
     private CompletableFuture<PartitionedTopicMetadata> getPartitionedTopicMetadata(InetSocketAddress socketAddress,
@@ -326,6 +442,8 @@ public class BinaryProtoLookupService implements LookupService {
         public final boolean authoritative;
         public final boolean proxyThroughServiceUrl;
         public final boolean redirect;
+        // Result of each topic of a batched lookup
+        public final List<CompletableFuture<LookupDataResult>> topicResults;
 
         public LookupDataResult(CommandLookupTopicResponse result) {
             this.brokerUrl = result.hasBrokerServiceUrl() ? result.getBrokerServiceUrl() : null;
@@ -334,6 +452,7 @@ public class BinaryProtoLookupService implements LookupService {
             this.redirect = result.hasResponse() && result.getResponse() == LookupType.Redirect;
             this.proxyThroughServiceUrl = result.isProxyThroughServiceUrl();
             this.partitions = -1;
+            this.topicResults = null;
         }
 
         public LookupDataResult(int partitions) {
@@ -344,6 +463,17 @@ public class BinaryProtoLookupService implements LookupService {
             this.authoritative = false;
             this.proxyThroughServiceUrl = false;
             this.redirect = false;
+            this.topicResults = null;
+        }
+
+        public LookupDataResult(List<CompletableFuture<LookupDataResult>> topicResults) {
+            this.partitions = -1;
+            this.brokerUrl = null;
+            this.brokerUrlTls = null;
+            this.authoritative = false;
+            this.proxyThroughServiceUrl = false;
+            this.redirect = false;
+            this.topicResults = topicResults;
         }
 
     }
@@ -83,6 +83,7 @@ import org.apache.pulsar.common.api.proto.CommandGetOrCreateSchemaResponse;
 import org.apache.pulsar.common.api.proto.CommandGetSchemaResponse;
 import org.apache.pulsar.common.api.proto.CommandGetTopicsOfNamespaceResponse;
 import org.apache.pulsar.common.api.proto.CommandLookupTopicResponse;
+import org.apache.pulsar.common.api.proto.CommandLookupTopicsResponse;
 import org.apache.pulsar.common.api.proto.CommandMessage;
 import org.apache.pulsar.common.api.proto.CommandNewTxnResponse;
 import org.apache.pulsar.common.api.proto.CommandPartitionedTopicMetadataResponse;
@@ -140,6 +141,9 @@ public class ClientCnx extends PulsarHandler {
     // Remote hostName with which client is connected
     protected String remoteHostName = null;
     private boolean isTlsHostnameVerificationEnable;
+    // Whether the broker can lookup several topics with a single request
+    @Getter
+    private volatile boolean supportsLookupTopics = false;
 
     private static final TlsHostnameVerifier HOSTNAME_VERIFIER = new TlsHostnameVerifier();
 
@@ -328,6 +332,7 @@ public class ClientCnx extends PulsarHandler {
         if (log.isDebugEnabled()) {
             log.debug("{} Connection is ready", ctx.channel());
         }
+        supportsLookupTopics = connected.hasFeatureFlags() && connected.getFeatureFlags().isSupportsLookupTopics();
         // set remote protocol version to the correct version before we complete the connection future
         setRemoteEndpointProtocolVersion(connected.getProtocolVersion());
         connectionFuture.complete(null);
@@ -554,23 +559,64 @@ public class ClientCnx extends PulsarHandler {
                 }
                 return;
             }
-            // Complete future with exception if : Result.response=fail/null
-            if (!lookupResult.hasResponse()
-                    || CommandLookupTopicResponse.LookupType.Failed.equals(lookupResult.getResponse())) {
-                if (lookupResult.hasError()) {
+            completeLookup(requestFuture, lookupResult, true);
+        } else {
+            log.warn("{} Received unknown request id from server: {}", ctx.channel(), lookupResult.getRequestId());
+        }
+    }
+
+    @Override
+    protected void handleLookupTopicsResponse(CommandLookupTopicsResponse lookupResult) {
+        if (log.isDebugEnabled()) {
+            log.debug("Received Broker lookup response for {} topics", lookupResult.getResultsCount());
+        }
+
+        long requestId = lookupResult.getRequestId();
+        CompletableFuture<LookupDataResult> requestFuture = getAndRemovePendingLookupRequest(requestId);
+
+        if (requestFuture != null) {
+            if (requestFuture.isCompletedExceptionally()) {
+                if (log.isDebugEnabled()) {
+                    log.debug("{} Request {} already timed-out", ctx.channel(), lookupResult.getRequestId());
+                }
+                return;
+            }
+            if (lookupResult.hasError()) {
+                checkServerError(lookupResult.getError(), lookupResult.getMessage());
+                requestFuture.completeExceptionally(getPulsarClientException(lookupResult.getError(),
+                        buildError(lookupResult.getRequestId(), lookupResult.getMessage())));
+                return;
+            }
+            List<CompletableFuture<LookupDataResult>> topicResults = new ArrayList<>(lookupResult.getResultsCount());
+            for (int i = 0; i < lookupResult.getResultsCount(); i++) {
+                CompletableFuture<LookupDataResult> topicResult = new CompletableFuture<>();
+                // The errors of single topics do not reflect on the connection, unlike a failure of the whole request
+                completeLookup(topicResult, lookupResult.getResultAt(i), false);
+                topicResults.add(topicResult);
+            }
+            requestFuture.complete(new LookupDataResult(topicResults));
+        } else {
+            log.warn("{} Received unknown request id from server: {}", ctx.channel(), lookupResult.getRequestId());
+        }
+    }
+
+    private void completeLookup(CompletableFuture<LookupDataResult> future, CommandLookupTopicResponse lookupResult,
+                                boolean checkServerError) {
+        // Complete future with exception if : Result.response=fail/null
+        if (!lookupResult.hasResponse()
+                || CommandLookupTopicResponse.LookupType.Failed.equals(lookupResult.getResponse())) {
+            if (lookupResult.hasError()) {
+                if (checkServerError) {
                     checkServerError(lookupResult.getError(), lookupResult.getMessage());
-                    requestFuture.completeExceptionally(
-                            getPulsarClientException(lookupResult.getError(),
-                                    buildError(lookupResult.getRequestId(), lookupResult.getMessage())));
-                } else {
-                    requestFuture
-                            .completeExceptionally(new PulsarClientException.LookupException("Empty lookup response"));
                 }
+                future.completeExceptionally(
+                        getPulsarClientException(lookupResult.getError(),
+                                buildError(lookupResult.getRequestId(), lookupResult.getMessage())));
             } else {
-                requestFuture.complete(new LookupDataResult(lookupResult));
+                future.completeExceptionally(new PulsarClientException.LookupException("Empty lookup response"));
             }
         } else {
-            log.warn("{} Received unknown request id from server: {}", ctx.channel(), lookupResult.getRequestId());
+            future.complete(new LookupDataResult(lookupResult));
         }
     }
 
@@ -774,6 +820,16 @@ public class ClientCnx extends PulsarHandler {
         return future;
     }
 
+    /**
+     * Send a {@link CommandLookupTopics} request, which takes a single lookup permit whatever its number of topics.
+     *
+     * @return the lookup result of each topic, in the order of the topics of the request
+     */
+    public CompletableFuture<List<CompletableFuture<LookupDataResult>>> newLookupTopics(ByteBuf request,
+                                                                                      long requestId) {
+        return newLookup(request, requestId).thenApply(result -> result.topicResults);
+    }
+
     public CompletableFuture<List<String>> newGetTopicsOfNamespace(ByteBuf request, long requestId) {
         return sendRequestAndHandleTimeout(request, requestId, RequestType.GetTopics, true);
     }
@@ -19,6 +19,7 @@
 package org.apache.pulsar.client.impl;
 
 import java.net.InetSocketAddress;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
@@ -59,6 +60,17 @@ public interface LookupService extends AutoCloseable {
      */
     CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> getBroker(TopicName topicName);
 
+    /**
+     * Calls broker lookup-api to find the brokers which serve the given topics, ahead of the connections of their
+     * producers or consumers. The lookup services which can resolve several topics with a single request keep the
+     * result of each topic for its next {@link #getBroker(TopicName)}, the others ignore it.
+     *
+     * @param topicNames
+     *            topic-names
+     */
+    default void prefetchBrokers(Collection<TopicName> topicNames) {
+    }
+
 	/**
 	 * Returns {@link PartitionedTopicMetadata} for a given topic.
 	 *
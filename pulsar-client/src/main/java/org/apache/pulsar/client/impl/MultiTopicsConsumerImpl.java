@@ -178,8 +178,7 @@ public class MultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
 
         checkArgument(conf.getTopicNames().isEmpty() || topicNamesValid(conf.getTopicNames()), "Topics is empty or invalid.");
 
-        List<CompletableFuture<Void>> futures = conf.getTopicNames().stream().map(t -> subscribeAsync(t, createTopicIfDoesNotExist))
-                .collect(Collectors.toList());
+        List<CompletableFuture<Void>> futures = subscribeAsync(conf.getTopicNames(), createTopicIfDoesNotExist);
         FutureUtil.waitForAll(futures)
             .thenAccept(finalFuture -> {
                 if (allTopicPartitionsNumber.get() > maxReceiverQueueSize) {
@@ -837,35 +836,80 @@ public class MultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
 
     // subscribe one more given topic
     public CompletableFuture<Void> subscribeAsync(String topicName, boolean createTopicIfDoesNotExist) {
-        TopicName topicNameInstance = getTopicName(topicName);
-        if (topicNameInstance == null) {
-            return FutureUtil.failedFuture(
-                    new PulsarClientException.AlreadyClosedException("Topic name not valid"));
-        }
-        String fullTopicName = topicNameInstance.toString();
-        if (consumers.containsKey(fullTopicName)
-                || partitionedTopics.containsKey(topicNameInstance.getPartitionedTopicName())) {
-            return FutureUtil.failedFuture(
-                    new PulsarClientException.AlreadyClosedException("Already subscribed to " + topicName));
-        }
+        return subscribeAsync(Collections.singletonList(topicName), createTopicIfDoesNotExist).get(0);
+    }
+
+    // subscribe more given topics, looking up the brokers of all their partitions at once
+    List<CompletableFuture<Void>> subscribeAsync(Collection<String> topicNames, boolean createTopicIfDoesNotExist) {
+        List<CompletableFuture<Void>> subscribeResults = new ArrayList<>(topicNames.size());
+        List<String> fullTopicNames = new ArrayList<>(topicNames.size());
+        List<CompletableFuture<Void>> pendingSubscribeResults = new ArrayList<>(topicNames.size());
+        List<CompletableFuture<Integer>> partitionsFutures = new ArrayList<>(topicNames.size());
+        for (String topicName : topicNames) {
+            TopicName topicNameInstance = getTopicName(topicName);
+            if (topicNameInstance == null) {
+                subscribeResults.add(FutureUtil.failedFuture(
+                        new PulsarClientException.AlreadyClosedException("Topic name not valid")));
+                continue;
+            }
+            String fullTopicName = topicNameInstance.toString();
+            if (consumers.containsKey(fullTopicName)
+                    || partitionedTopics.containsKey(topicNameInstance.getPartitionedTopicName())) {
+                subscribeResults.add(FutureUtil.failedFuture(
+                        new PulsarClientException.AlreadyClosedException("Already subscribed to " + topicName)));
+                continue;
+            }
 
-        if (getState() == State.Closing || getState() == State.Closed) {
-            return FutureUtil.failedFuture(
-                new PulsarClientException.AlreadyClosedException("Topics Consumer was already closed"));
+            if (getState() == State.Closing || getState() == State.Closed) {
+                subscribeResults.add(FutureUtil.failedFuture(
+                    new PulsarClientException.AlreadyClosedException("Topics Consumer was already closed")));
+                continue;
+            }
+
+            CompletableFuture<Void> subscribeResult = new CompletableFuture<>();
+            subscribeResults.add(subscribeResult);
+            fullTopicNames.add(fullTopicName);
+            pendingSubscribeResults.add(subscribeResult);
+            partitionsFutures.add(client.getPartitionedTopicMetadata(topicName)
+                    .thenApply(metadata -> metadata.partitions));
         }
 
-        CompletableFuture<Void> subscribeResult = new CompletableFuture<>();
+        // Wait for the metadata of all the topics, to lookup the brokers of all their partitions at once
+        FutureUtil.waitForAll(partitionsFutures).whenComplete((ignore, ex) -> {
+            List<TopicName> lookupTopicNames = new ArrayList<>();
+            for (int i = 0; i < partitionsFutures.size(); i++) {
+                if (!partitionsFutures.get(i).isCompletedExceptionally()) {
+                    lookupTopicNames.addAll(getTopicPartitions(fullTopicNames.get(i), partitionsFutures.get(i).join()));
+                }
+            }
+            client.prefetchBrokers(lookupTopicNames);
+
+            for (int i = 0; i < partitionsFutures.size(); i++) {
+                String fullTopicName = fullTopicNames.get(i);
+                CompletableFuture<Void> subscribeResult = pendingSubscribeResults.get(i);
+                partitionsFutures.get(i)
+                        .thenAccept(partitions -> subscribeTopicPartitions(subscribeResult, fullTopicName, partitions,
+                            createTopicIfDoesNotExist))
+                        .exceptionally(ex1 -> {
+                            log.warn("[{}] Failed to get partitioned topic metadata: {}", fullTopicName,
+                                    ex1.getMessage());
+                            subscribeResult.completeExceptionally(ex1);
+                            return null;
+                        });
+            }
+        });
 
-        client.getPartitionedTopicMetadata(topicName)
-                .thenAccept(metadata -> subscribeTopicPartitions(subscribeResult, fullTopicName, metadata.partitions,
-                    createTopicIfDoesNotExist))
-                .exceptionally(ex1 -> {
-                    log.warn("[{}] Failed to get partitioned topic metadata: {}", fullTopicName, ex1.getMessage());
-                    subscribeResult.completeExceptionally(ex1);
-                    return null;
-                });
+        return subscribeResults;
+    }
 
-        return subscribeResult;
+    private static List<TopicName> getTopicPartitions(String topicName, int numPartitions) {
+        TopicName topicNameInstance = TopicName.get(topicName);
+        if (numPartitions == PartitionedTopicMetadata.NON_PARTITIONED) {
+            return Collections.singletonList(topicNameInstance);
+        }
+        return IntStream.range(0, numPartitions)
+                .mapToObj(topicNameInstance::getPartition)
+                .collect(Collectors.toList());
     }
 
     // create consumer for a single topic with already known partitions.
@@ -920,6 +964,7 @@ public class MultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
         }
 
         CompletableFuture<Void> subscribeResult = new CompletableFuture<>();
+        client.prefetchBrokers(getTopicPartitions(fullTopicName, numberPartitions));
         subscribeTopicPartitions(subscribeResult, fullTopicName, numberPartitions, true /* createTopicIfDoesNotExist */);
 
         return subscribeResult;
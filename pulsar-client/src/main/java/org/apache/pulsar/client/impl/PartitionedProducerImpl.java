@@ -35,6 +35,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.apache.pulsar.client.api.Message;
 import org.apache.pulsar.client.api.MessageId;
 import org.apache.pulsar.client.api.MessageRouter;
@@ -126,6 +127,10 @@ public class PartitionedProducerImpl<T> extends ProducerBase<T> {
     private void start() {
         AtomicReference<Throwable> createFail = new AtomicReference<Throwable>();
         AtomicInteger completed = new AtomicInteger();
+        // Lookup the brokers of all the partitions at once, ahead of the connections of their producers
+        client.prefetchBrokers(IntStream.range(0, topicMetadata.numPartitions())
+                .mapToObj(partitionIndex -> TopicName.get(topic).getPartition(partitionIndex))
+                .collect(Collectors.toList()));
         for (int partitionIndex = 0; partitionIndex < topicMetadata.numPartitions(); partitionIndex++) {
             String partitionName = TopicName.get(topic).getPartition(partitionIndex).toString();
             ProducerImpl<T> producer = client.newProducerImpl(partitionName, partitionIndex,
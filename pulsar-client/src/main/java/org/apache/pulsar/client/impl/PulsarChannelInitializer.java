@@ -117,7 +117,7 @@ public class PulsarChannelInitializer extends ChannelInitializer<SocketChannel>
 
         // Setup channel except for the SsHandler for TLS enabled connections
 
-        ch.pipeline().addLast("ByteBufPairEncoder", tlsEnabled ? ByteBufPair.COPYING_ENCODER : ByteBufPair.ENCODER);
+        ch.pipeline().addLast("ByteBufPairEncoder", tlsEnabled ? ByteBufPair.READ_ONLY_ENCODER : ByteBufPair.ENCODER);
 
         ch.pipeline().addLast("frameDecoder", new LengthFieldBasedFrameDecoder(
                 Commands.DEFAULT_MAX_MESSAGE_SIZE + Commands.MESSAGE_SIZE_FRAME_PADDING, 0, 4, 0, 4));
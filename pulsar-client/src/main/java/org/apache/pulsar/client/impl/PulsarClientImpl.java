@@ -33,6 +33,7 @@ import io.netty.util.concurrent.DefaultThreadFactory;
 
 import java.time.Clock;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -872,6 +873,13 @@ public class PulsarClientImpl implements PulsarClient {
         }
     }
 
+    /**
+     * Lookup the brokers of the given topics at once, ahead of the connections of their producers or consumers.
+     */
+    public void prefetchBrokers(Collection<TopicName> topicNames) {
+        lookup.prefetchBrokers(topicNames);
+    }
+
     public CompletableFuture<Integer> getNumberOfPartitions(String topic) {
         return getPartitionedTopicMetadata(topic).thenApply(metadata -> metadata.partitions);
     }
@@ -22,16 +22,22 @@ import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.util.Timer;
 
 import java.lang.reflect.Field;
 import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -47,6 +53,8 @@ import org.testng.annotations.Test;
 public class BinaryProtoLookupServiceTest {
     private BinaryProtoLookupService lookup;
     private TopicName topicName;
+    private ClientCnx clientCnx;
+    private PulsarClientImpl client;
 
     @BeforeMethod
     public void setup() throws Exception {
@@ -56,7 +64,7 @@ public class BinaryProtoLookupServiceTest {
         CompletableFuture<LookupDataResult> lookupFuture1 = CompletableFuture.completedFuture(lookupResult1);
         CompletableFuture<LookupDataResult> lookupFuture2 = CompletableFuture.completedFuture(lookupResult2);
 
-        ClientCnx clientCnx = mock(ClientCnx.class);
+        clientCnx = mock(ClientCnx.class);
         when(clientCnx.newLookup(any(ByteBuf.class), anyLong())).thenReturn(lookupFuture1, lookupFuture1,
                 lookupFuture2);
 
@@ -68,10 +76,11 @@ public class BinaryProtoLookupServiceTest {
         ClientConfigurationData clientConfig = mock(ClientConfigurationData.class);
         doReturn(0).when(clientConfig).getMaxLookupRedirects();
 
-        PulsarClientImpl client = mock(PulsarClientImpl.class);
+        client = mock(PulsarClientImpl.class);
         doReturn(cnxPool).when(client).getCnxPool();
         doReturn(clientConfig).when(client).getConfiguration();
         doReturn(1L).when(client).newRequestId();
+        doReturn(mock(Timer.class)).when(client).timer();
 
         lookup = spy(
                 new BinaryProtoLookupService(client, "pulsar://localhost:6650", false, mock(ExecutorService.class)));
@@ -112,6 +121,43 @@ public class BinaryProtoLookupServiceTest {
         }
     }
 
+    @Test(invocationTimeOut = 3000)
+    public void prefetchBrokersTest() throws Exception {
+        LookupDataResult lookupResult = createLookupDataResult("pulsar://broker3.pulsar.apache.org:6650", false);
+        List<CompletableFuture<LookupDataResult>> topicResults = Arrays.asList(
+                CompletableFuture.completedFuture(lookupResult), CompletableFuture.completedFuture(lookupResult));
+        doReturn(true).when(clientCnx).isSupportsLookupTopics();
+        when(clientCnx.newLookupTopics(any(ByteBuf.class), anyLong()))
+                .thenReturn(CompletableFuture.completedFuture(topicResults));
+
+        TopicName topicName2 = TopicName.get("persistent://tenant1/ns1/t2");
+        lookup.prefetchBrokers(Arrays.asList(topicName, topicName2));
+
+        Pair<InetSocketAddress, InetSocketAddress> addressPair = lookup.getBroker(topicName).get();
+        assertEquals(addressPair.getLeft().toString(), "broker3.pulsar.apache.org:6650");
+        assertEquals(addressPair.getRight().toString(), "broker3.pulsar.apache.org:6650");
+        addressPair = lookup.getBroker(topicName2).get();
+        assertEquals(addressPair.getLeft().toString(), "broker3.pulsar.apache.org:6650");
+        verify(clientCnx, times(1)).newLookupTopics(any(ByteBuf.class), anyLong());
+        verify(clientCnx, never()).newLookup(any(ByteBuf.class), anyLong());
+
+        // The prefetched address is only used once, the next lookup of the topic goes to the broker
+        addressPair = lookup.getBroker(topicName).get();
+        assertEquals(addressPair.getLeft().toString(), "broker2.pulsar.apache.org:6650");
+    }
+
+    @Test(invocationTimeOut = 3000)
+    public void prefetchBrokersNotSupportedTest() throws Exception {
+        doReturn(false).when(clientCnx).isSupportsLookupTopics();
+
+        lookup.prefetchBrokers(Arrays.asList(topicName, TopicName.get("persistent://tenant1/ns1/t2")));
+
+        // Falls back to the lookup of the single topic
+        Pair<InetSocketAddress, InetSocketAddress> addressPair = lookup.getBroker(topicName).get();
+        assertEquals(addressPair.getLeft().toString(), "broker2.pulsar.apache.org:6650");
+        verify(clientCnx, never()).newLookupTopics(any(ByteBuf.class), anyLong());
+    }
+
     private static LookupDataResult createLookupDataResult(String brokerUrl, boolean redirect) throws Exception {
         LookupDataResult lookupResult = new LookupDataResult(-1);
 
@@ -65,6 +65,9 @@ public class OffloadPoliciesImpl implements Serializable, OffloadPolicies {
     public static final int DEFAULT_READ_BUFFER_SIZE_IN_BYTES = 1024 * 1024;      // 1MB
     public static final int DEFAULT_OFFLOAD_MAX_THREADS = 2;
     public static final int DEFAULT_OFFLOAD_MAX_PREFETCH_ROUNDS = 1;
+    public static final int DEFAULT_OFFLOAD_MAX_CONCURRENT_UPLOADS = 2;
+    public static final long DEFAULT_OFFLOAD_UPLOAD_BUFFER_SIZE_IN_BYTES = 128 * 1024 * 1024; // 128MB
+    public static final int DEFAULT_OFFLOAD_READ_AHEAD_CHUNKS = 0;
     public static final ImmutableList<String> DRIVER_NAMES = ImmutableList
             .of("S3", "aws-s3", "google-cloud-storage", "filesystem", "azureblob", "aliyun-oss");
     public static final String DEFAULT_OFFLOADER_DIRECTORY = "./offloaders";
@@ -91,6 +94,15 @@ public class OffloadPoliciesImpl implements Serializable, OffloadPolicies {
     private Integer managedLedgerOffloadPrefetchRounds = DEFAULT_OFFLOAD_MAX_PREFETCH_ROUNDS;
     @Configuration
     @JsonProperty(access = JsonProperty.Access.READ_WRITE)
+    private Integer managedLedgerOffloadMaxConcurrentUploads = DEFAULT_OFFLOAD_MAX_CONCURRENT_UPLOADS;
+    @Configuration
+    @JsonProperty(access = JsonProperty.Access.READ_WRITE)
+    private Long managedLedgerOffloadUploadBufferSizeInBytes = DEFAULT_OFFLOAD_UPLOAD_BUFFER_SIZE_IN_BYTES;
+    @Configuration
+    @JsonProperty(access = JsonProperty.Access.READ_WRITE)
+    private Integer managedLedgerOffloadReadAheadChunks = DEFAULT_OFFLOAD_READ_AHEAD_CHUNKS;
+    @Configuration
+    @JsonProperty(access = JsonProperty.Access.READ_WRITE)
     private Long managedLedgerOffloadThresholdInBytes = DEFAULT_OFFLOAD_THRESHOLD_IN_BYTES;
     @Configuration
     @JsonProperty(access = JsonProperty.Access.READ_WRITE)
@@ -312,6 +324,12 @@ public class OffloadPoliciesImpl implements Serializable, OffloadPolicies {
                 this.getManagedLedgerOffloadMaxThreads());
         setProperty(properties, "managedLedgerOffloadPrefetchRounds",
                 this.getManagedLedgerOffloadPrefetchRounds());
+        setProperty(properties, "managedLedgerOffloadMaxConcurrentUploads",
+                this.getManagedLedgerOffloadMaxConcurrentUploads());
+        setProperty(properties, "managedLedgerOffloadUploadBufferSizeInBytes",
+                this.getManagedLedgerOffloadUploadBufferSizeInBytes());
+        setProperty(properties, "managedLedgerOffloadReadAheadChunks",
+                this.getManagedLedgerOffloadReadAheadChunks());
         setProperty(properties, "managedLedgerOffloadThresholdInBytes",
                 this.getManagedLedgerOffloadThresholdInBytes());
         setProperty(properties, "managedLedgerOffloadDeletionLagInMillis",
@@ -495,6 +513,24 @@ public class OffloadPoliciesImpl implements Serializable, OffloadPolicies {
             return this;
         }
 
+        public OffloadPoliciesImplBuilder managedLedgerOffloadMaxConcurrentUploads(
+                Integer managedLedgerOffloadMaxConcurrentUploads) {
+            impl.managedLedgerOffloadMaxConcurrentUploads = managedLedgerOffloadMaxConcurrentUploads;
+            return this;
+        }
+
+        public OffloadPoliciesImplBuilder managedLedgerOffloadUploadBufferSizeInBytes(
+                Long managedLedgerOffloadUploadBufferSizeInBytes) {
+            impl.managedLedgerOffloadUploadBufferSizeInBytes = managedLedgerOffloadUploadBufferSizeInBytes;
+            return this;
+        }
+
+        public OffloadPoliciesImplBuilder managedLedgerOffloadReadAheadChunks(
+                Integer managedLedgerOffloadReadAheadChunks) {
+            impl.managedLedgerOffloadReadAheadChunks = managedLedgerOffloadReadAheadChunks;
+            return this;
+        }
+
         public OffloadPoliciesImplBuilder managedLedgerOffloadThresholdInBytes(Long managedLedgerOffloadThresholdInBytes) {
             impl.managedLedgerOffloadThresholdInBytes = managedLedgerOffloadThresholdInBytes;
             return this;
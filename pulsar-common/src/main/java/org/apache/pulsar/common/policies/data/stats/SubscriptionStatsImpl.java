@@ -94,6 +94,15 @@ public class SubscriptionStatsImpl implements SubscriptionStats {
     /** Last MarkDelete position advanced timesetamp. */
     public long lastMarkDeleteAdvancedTimestamp;
 
+    /** Total messages evaluated by the entry filters of this subscription. */
+    public long filterProcessedMsgCount;
+
+    /** Total messages rejected by the entry filters of this subscription, and never sent to its consumers. */
+    public long filterRejectedMsgCount;
+
+    /** Total time spent evaluating the entry filters of this subscription (nanoseconds). */
+    public long filterEvaluationTimeNanos;
+
     /** List of connected consumers on this subscription w/ their stats. */
     public List<ConsumerStatsImpl> consumers;
 
@@ -137,6 +146,9 @@ public class SubscriptionStatsImpl implements SubscriptionStats {
         totalMsgExpired = 0;
         lastExpireTimestamp = 0L;
         lastMarkDeleteAdvancedTimestamp = 0L;
+        filterProcessedMsgCount = 0;
+        filterRejectedMsgCount = 0;
+        filterEvaluationTimeNanos = 0;
         consumers.clear();
         consumersAfterMarkDeletePosition.clear();
         nonContiguousDeletedMessagesRanges = 0;
@@ -159,6 +171,9 @@ public class SubscriptionStatsImpl implements SubscriptionStats {
         this.unackedMessages += stats.unackedMessages;
         this.msgRateExpired += stats.msgRateExpired;
         this.totalMsgExpired += stats.totalMsgExpired;
+        this.filterProcessedMsgCount += stats.filterProcessedMsgCount;
+        this.filterRejectedMsgCount += stats.filterRejectedMsgCount;
+        this.filterEvaluationTimeNanos += stats.filterEvaluationTimeNanos;
         this.isReplicated |= stats.isReplicated;
         this.isDurable |= stats.isDurable;
         if (this.consumers.size() != stats.consumers.size()) {
@@ -109,6 +109,7 @@ public final class ByteBufPair extends AbstractReferenceCounted {
 
     public static final Encoder ENCODER = new Encoder();
     public static final CopyingEncoder COPYING_ENCODER = new CopyingEncoder();
+    public static final ReadOnlyEncoder READ_ONLY_ENCODER = new ReadOnlyEncoder();
 
     @Sharable
     @SuppressWarnings("checkstyle:JavadocType")
@@ -156,4 +157,28 @@ public final class ByteBufPair extends AbstractReferenceCounted {
         }
     }
 
+    @Sharable
+    @SuppressWarnings("checkstyle:JavadocType")
+    public static class ReadOnlyEncoder extends ChannelOutboundHandlerAdapter {
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+            if (msg instanceof ByteBufPair) {
+                ByteBufPair b = (ByteBufPair) msg;
+
+                // SslHandler coalesces the pending writes by appending the next buffer into the previous one when it
+                // is writable. Passing read-only views protects the source buffers, which may be cached for multiple
+                // requests, without copying them upfront: the SslHandler then only copies the bytes it coalesces
+                // into a TLS record and wraps the rest of the payload in place.
+                try {
+                    ctx.write(b.getFirst().retainedDuplicate().asReadOnly(), ctx.voidPromise());
+                    ctx.write(b.getSecond().retainedDuplicate().asReadOnly(), promise);
+                } finally {
+                    ReferenceCountUtil.safeRelease(b);
+                }
+            } else {
+                ctx.write(msg, promise);
+            }
+        }
+    }
+
 }
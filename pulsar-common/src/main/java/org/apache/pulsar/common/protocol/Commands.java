@@ -74,6 +74,8 @@ import org.apache.pulsar.common.api.proto.CommandGetTopicsOfNamespaceResponse;
 import org.apache.pulsar.common.api.proto.CommandLookupTopic;
 import org.apache.pulsar.common.api.proto.CommandLookupTopicResponse;
 import org.apache.pulsar.common.api.proto.CommandLookupTopicResponse.LookupType;
+import org.apache.pulsar.common.api.proto.CommandLookupTopics;
+import org.apache.pulsar.common.api.proto.CommandLookupTopicsResponse;
 import org.apache.pulsar.common.api.proto.CommandMessage;
 import org.apache.pulsar.common.api.proto.CommandNewTxnResponse;
 import org.apache.pulsar.common.api.proto.CommandPartitionedTopicMetadataResponse;
@@ -257,6 +259,11 @@ public class Commands {
     }
 
     public static BaseCommand newConnectedCommand(int clientProtocolVersion, int maxMessageSize) {
+        return newConnectedCommand(clientProtocolVersion, maxMessageSize, false);
+    }
+
+    public static BaseCommand newConnectedCommand(int clientProtocolVersion, int maxMessageSize,
+                                                  boolean supportsLookupTopics) {
         BaseCommand cmd = localCmd(Type.CONNECTED);
         CommandConnected connected = cmd.setConnected()
                 .setServerVersion("Pulsar Server" + PulsarVersion.getVersion());
@@ -271,6 +278,9 @@ public class Commands {
         int versionToAdvertise = Math.min(currentProtocolVersion, clientProtocolVersion);
 
         connected.setProtocolVersion(versionToAdvertise);
+        if (supportsLookupTopics) {
+            connected.setFeatureFlags().setSupportsLookupTopics(true);
+        }
         return cmd;
     }
 
@@ -278,6 +288,10 @@ public class Commands {
         return serializeWithSize(newConnectedCommand(clientProtocolVersion, maxMessageSize));
     }
 
+    public static ByteBuf newConnected(int clientProtocolVersion, int maxMessageSize, boolean supportsLookupTopics) {
+        return serializeWithSize(newConnectedCommand(clientProtocolVersion, maxMessageSize, supportsLookupTopics));
+    }
+
     public static ByteBuf newAuthChallenge(String authMethod, AuthData brokerData, int clientProtocolVersion) {
         BaseCommand cmd = localCmd(Type.AUTH_CHALLENGE);
         CommandAuthChallenge challenge = cmd.setAuthChallenge();
@@ -818,11 +832,40 @@ public class Commands {
         return serializeWithSize(cmd);
     }
 
+    public static ByteBuf newLookupTopics(List<String> topics, String listenerName, boolean authoritative,
+                                          long requestId) {
+        BaseCommand cmd = localCmd(Type.LOOKUP_TOPICS);
+        CommandLookupTopics lookup = cmd.setLookupTopics()
+                .addAllTopics(topics)
+                .setRequestId(requestId)
+                .setAuthoritative(authoritative);
+        if (StringUtils.isNotBlank(listenerName)) {
+            lookup.setAdvertisedListenerName(listenerName);
+        }
+        return serializeWithSize(cmd);
+    }
+
     public static BaseCommand newLookupResponseCommand(String brokerServiceUrl, String brokerServiceUrlTls,
         boolean authoritative, LookupType lookupType, long requestId, boolean proxyThroughServiceUrl) {
         BaseCommand cmd = localCmd(Type.LOOKUP_RESPONSE);
-        CommandLookupTopicResponse response = cmd.setLookupTopicResponse()
-                .setBrokerServiceUrl(brokerServiceUrl)
+        setLookupResponse(cmd.setLookupTopicResponse(), brokerServiceUrl, brokerServiceUrlTls, authoritative,
+                lookupType, requestId, proxyThroughServiceUrl);
+        return cmd;
+    }
+
+    /**
+     * Create the lookup response of a single topic of a {@link CommandLookupTopicsResponse}.
+     */
+    public static CommandLookupTopicResponse newLookupResult(String brokerServiceUrl, String brokerServiceUrlTls,
+        boolean authoritative, LookupType lookupType, long requestId, boolean proxyThroughServiceUrl) {
+        return setLookupResponse(new CommandLookupTopicResponse(), brokerServiceUrl, brokerServiceUrlTls,
+                authoritative, lookupType, requestId, proxyThroughServiceUrl);
+    }
+
+    private static CommandLookupTopicResponse setLookupResponse(CommandLookupTopicResponse response,
+            String brokerServiceUrl, String brokerServiceUrlTls, boolean authoritative, LookupType lookupType,
+            long requestId, boolean proxyThroughServiceUrl) {
+        response.setBrokerServiceUrl(brokerServiceUrl)
                 .setResponse(lookupType)
                 .setRequestId(requestId)
                 .setAuthoritative(authoritative)
@@ -830,8 +873,7 @@ public class Commands {
         if (brokerServiceUrlTls != null) {
             response.setBrokerServiceUrlTls(brokerServiceUrlTls);
         }
-
-        return cmd;
+        return response;
     }
 
     public static ByteBuf newLookupResponse(String brokerServiceUrl, String brokerServiceUrlTls, boolean authoritative,
@@ -842,19 +884,52 @@ public class Commands {
 
     public static BaseCommand newLookupErrorResponseCommand(ServerError error, String errorMsg, long requestId) {
         BaseCommand cmd = localCmd(Type.LOOKUP_RESPONSE);
-        CommandLookupTopicResponse response = cmd.setLookupTopicResponse()
-                .setRequestId(requestId)
+        setLookupErrorResponse(cmd.setLookupTopicResponse(), error, errorMsg, requestId);
+        return cmd;
+    }
+
+    public static ByteBuf newLookupErrorResponse(ServerError error, String errorMsg, long requestId) {
+        return serializeWithSize(newLookupErrorResponseCommand(error, errorMsg, requestId));
+    }
+
+    /**
+     * Create the lookup error response of a single topic of a {@link CommandLookupTopicsResponse}.
+     */
+    public static CommandLookupTopicResponse newLookupErrorResult(ServerError error, String errorMsg,
+                                                                  long requestId) {
+        return setLookupErrorResponse(new CommandLookupTopicResponse(), error, errorMsg, requestId);
+    }
+
+    private static CommandLookupTopicResponse setLookupErrorResponse(CommandLookupTopicResponse response,
+            ServerError error, String errorMsg, long requestId) {
+        response.setRequestId(requestId)
                 .setError(error)
                 .setResponse(LookupType.Failed);
         if (errorMsg != null) {
             response.setMessage(errorMsg);
         }
+        return response;
+    }
 
-        return cmd;
+    public static ByteBuf newLookupTopicsResponse(List<CommandLookupTopicResponse> results, long requestId) {
+        BaseCommand cmd = localCmd(Type.LOOKUP_TOPICS_RESPONSE);
+        CommandLookupTopicsResponse response = cmd.setLookupTopicsResponse()
+                .setRequestId(requestId);
+        for (CommandLookupTopicResponse result : results) {
+            response.addResult().copyFrom(result);
+        }
+        return serializeWithSize(cmd);
     }
 
-    public static ByteBuf newLookupErrorResponse(ServerError error, String errorMsg, long requestId) {
-        return serializeWithSize(newLookupErrorResponseCommand(error, errorMsg, requestId));
+    public static ByteBuf newLookupTopicsErrorResponse(ServerError error, String errorMsg, long requestId) {
+        BaseCommand cmd = localCmd(Type.LOOKUP_TOPICS_RESPONSE);
+        CommandLookupTopicsResponse response = cmd.setLookupTopicsResponse()
+                .setRequestId(requestId)
+                .setError(error);
+        if (errorMsg != null) {
+            response.setMessage(errorMsg);
+        }
+        return serializeWithSize(cmd);
     }
 
     public static ByteBuf newMultiTransactionMessageAck(long consumerId, TxnID txnID,
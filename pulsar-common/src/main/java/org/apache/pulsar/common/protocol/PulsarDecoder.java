@@ -57,6 +57,8 @@ import org.apache.pulsar.common.api.proto.CommandGetTopicsOfNamespace;
 import org.apache.pulsar.common.api.proto.CommandGetTopicsOfNamespaceResponse;
 import org.apache.pulsar.common.api.proto.CommandLookupTopic;
 import org.apache.pulsar.common.api.proto.CommandLookupTopicResponse;
+import org.apache.pulsar.common.api.proto.CommandLookupTopics;
+import org.apache.pulsar.common.api.proto.CommandLookupTopicsResponse;
 import org.apache.pulsar.common.api.proto.CommandMessage;
 import org.apache.pulsar.common.api.proto.CommandNewTxn;
 import org.apache.pulsar.common.api.proto.CommandNewTxnResponse;
@@ -140,6 +142,16 @@ public abstract class PulsarDecoder extends ChannelInboundHandlerAdapter {
                 handleLookupResponse(cmd.getLookupTopicResponse());
                 break;
 
+            case LOOKUP_TOPICS:
+                checkArgument(cmd.hasLookupTopics());
+                handleLookupTopics(cmd.getLookupTopics());
+                break;
+
+            case LOOKUP_TOPICS_RESPONSE:
+                checkArgument(cmd.hasLookupTopicsResponse());
+                handleLookupTopicsResponse(cmd.getLookupTopicsResponse());
+                break;
+
             case ACK:
                 checkArgument(cmd.hasAck());
                 handleAck(cmd.getAck());
@@ -474,6 +486,14 @@ public abstract class PulsarDecoder extends ChannelInboundHandlerAdapter {
         throw new UnsupportedOperationException();
     }
 
+    protected void handleLookupTopics(CommandLookupTopics lookup) {
+        throw new UnsupportedOperationException();
+    }
+
+    protected void handleLookupTopicsResponse(CommandLookupTopicsResponse response) {
+        throw new UnsupportedOperationException();
+    }
+
     protected void handleConnect(CommandConnect connect) {
         throw new UnsupportedOperationException();
     }
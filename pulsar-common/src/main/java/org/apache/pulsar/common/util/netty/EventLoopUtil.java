@@ -19,6 +19,7 @@
 package org.apache.pulsar.common.util.netty;
 
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.SelectStrategy;
 import io.netty.channel.epoll.Epoll;
@@ -44,10 +45,27 @@ import org.apache.bookkeeper.common.util.affinity.CpuAffinity;
 @Slf4j
 public class EventLoopUtil {
 
+    /**
+     * System property enabling the io_uring transport of the netty incubator. The transport is used when this property
+     * is true, the netty-incubator-transport-native-io_uring jar is on the classpath and io_uring is supported by the
+     * kernel. Otherwise, the event loops fall back to epoll or NIO.
+     */
+    public static final String PULSAR_TRANSPORT_IO_URING = "pulsar.transport.io_uring";
+
+    private static final String IO_URING_PACKAGE = "io.netty.incubator.channel.uring.";
+    private static final String IO_URING_EVENT_LOOP_GROUP = IO_URING_PACKAGE + "IOUringEventLoopGroup";
+
     /**
      * @return an EventLoopGroup suitable for the current platform
      */
     public static EventLoopGroup newEventLoopGroup(int nThreads, boolean enableBusyWait, ThreadFactory threadFactory) {
+        if ("true".equalsIgnoreCase(System.getProperty(PULSAR_TRANSPORT_IO_URING, "false"))) {
+            EventLoopGroup eventLoopGroup = newIoUringEventLoopGroup(nThreads, threadFactory);
+            if (eventLoopGroup != null) {
+                return eventLoopGroup;
+            }
+        }
+
         if (Epoll.isAvailable()) {
             if (!enableBusyWait) {
                 // Regular Epoll based event loop
@@ -78,6 +96,45 @@ public class EventLoopUtil {
         }
     }
 
+    /**
+     * The io_uring transport is loaded by reflection, since it is an optional dependency.
+     *
+     * @return an io_uring based EventLoopGroup, or null if io_uring is not available
+     */
+    private static EventLoopGroup newIoUringEventLoopGroup(int nThreads, ThreadFactory threadFactory) {
+        try {
+            Class<?> ioUring = Class.forName(IO_URING_PACKAGE + "IOUring");
+            if (!(Boolean) ioUring.getMethod("isAvailable").invoke(null)) {
+                log.warn("The io_uring transport is not available, falling back to epoll or NIO",
+                        (Throwable) ioUring.getMethod("unavailabilityCause").invoke(null));
+                return null;
+            }
+            return (EventLoopGroup) Class.forName(IO_URING_EVENT_LOOP_GROUP)
+                    .getConstructor(int.class, ThreadFactory.class)
+                    .newInstance(nThreads, threadFactory);
+        } catch (ClassNotFoundException e) {
+            log.warn("The io_uring transport is not on the classpath, falling back to epoll or NIO");
+            return null;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log.warn("Failed to create an io_uring event loop group, falling back to epoll or NIO", e);
+            return null;
+        }
+    }
+
+    private static boolean isIoUringEventLoopGroup(EventLoopGroup eventLoopGroup) {
+        return eventLoopGroup.getClass().getName().equals(IO_URING_EVENT_LOOP_GROUP);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Channel> Class<? extends T> getIoUringChannelClass(String simpleName,
+                                                                                 Class<T> channelType) {
+        try {
+            return (Class<? extends T>) Class.forName(IO_URING_PACKAGE + simpleName).asSubclass(channelType);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("The io_uring transport has no " + simpleName, e);
+        }
+    }
+
     /**
      * Return a SocketChannel class suitable for the given EventLoopGroup implementation.
      *
@@ -87,6 +144,8 @@ public class EventLoopUtil {
     public static Class<? extends SocketChannel> getClientSocketChannelClass(EventLoopGroup eventLoopGroup) {
         if (eventLoopGroup instanceof EpollEventLoopGroup) {
             return EpollSocketChannel.class;
+        } else if (isIoUringEventLoopGroup(eventLoopGroup)) {
+            return getIoUringChannelClass("IOUringSocketChannel", SocketChannel.class);
         } else {
             return NioSocketChannel.class;
         }
@@ -95,6 +154,8 @@ public class EventLoopUtil {
     public static Class<? extends ServerSocketChannel> getServerSocketChannelClass(EventLoopGroup eventLoopGroup) {
         if (eventLoopGroup instanceof EpollEventLoopGroup) {
             return EpollServerSocketChannel.class;
+        } else if (isIoUringEventLoopGroup(eventLoopGroup)) {
+            return getIoUringChannelClass("IOUringServerSocketChannel", ServerSocketChannel.class);
         } else {
             return NioServerSocketChannel.class;
         }
@@ -103,13 +164,16 @@ public class EventLoopUtil {
     public static Class<? extends DatagramChannel> getDatagramChannelClass(EventLoopGroup eventLoopGroup) {
         if (eventLoopGroup instanceof EpollEventLoopGroup) {
             return EpollDatagramChannel.class;
+        } else if (isIoUringEventLoopGroup(eventLoopGroup)) {
+            return getIoUringChannelClass("IOUringDatagramChannel", DatagramChannel.class);
         } else {
             return NioDatagramChannel.class;
         }
     }
 
     public static void enableTriggeredMode(ServerBootstrap bootstrap) {
-        if (Epoll.isAvailable()) {
+        EventLoopGroup childGroup = bootstrap.config().childGroup();
+        if (Epoll.isAvailable() && (childGroup == null || !isIoUringEventLoopGroup(childGroup))) {
             bootstrap.childOption(EpollChannelOption.EPOLL_MODE, EpollMode.LEVEL_TRIGGERED);
         }
     }
@@ -18,14 +18,18 @@
  */
 package org.apache.pulsar.common.protocol;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
 import org.testng.annotations.Test;
@@ -83,4 +87,36 @@ public class ByteBufPairTest {
         assertEquals(b2.refCnt(), 0);
     }
 
+    @Test
+    public void testReadOnlyEncoder() throws Exception {
+        ByteBuf b1 = Unpooled.wrappedBuffer("hello".getBytes());
+        ByteBuf b2 = Unpooled.wrappedBuffer("world".getBytes());
+        ByteBufPair buf = ByteBufPair.get(b1, b2);
+
+        List<ByteBuf> written = new ArrayList<>();
+        ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+        when(ctx.write(any(), any())).then(invocation -> {
+            written.add((ByteBuf) invocation.getArguments()[0]);
+            return null;
+        });
+
+        ByteBufPair.READ_ONLY_ENCODER.write(ctx, buf, null);
+
+        // The written views share the source buffers rather than copying them
+        assertEquals(buf.refCnt(), 0);
+        assertEquals(b1.refCnt(), 1);
+        assertEquals(b2.refCnt(), 1);
+
+        assertEquals(written.size(), 2);
+        assertEquals(written.get(0).toString(UTF_8), "hello");
+        assertEquals(written.get(1).toString(UTF_8), "world");
+        for (ByteBuf view : written) {
+            assertTrue(view.isReadOnly());
+            view.release();
+        }
+
+        assertEquals(b1.refCnt(), 0);
+        assertEquals(b2.refCnt(), 0);
+    }
+
 }
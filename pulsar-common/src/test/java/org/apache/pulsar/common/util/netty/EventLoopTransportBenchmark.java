@@ -0,0 +1,210 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.common.util.netty;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares the round trip latency and throughput of the NIO, epoll and io_uring transports over loopback connections.
+ * The io_uring transport is created by {@link EventLoopUtil} with the {@link EventLoopUtil#PULSAR_TRANSPORT_IO_URING}
+ * flag set, and is skipped when it falls back to another transport, e.g. when the
+ * netty-incubator-transport-native-io_uring jar is not on the classpath.
+ *
+ * <p/>This is not run as part of the test suite. Usage:
+ * <pre>
+ * EventLoopTransportBenchmark [connections] [messageSize] [threads] [seconds]
+ * </pre>
+ */
+public class EventLoopTransportBenchmark {
+
+    private static final String[] TRANSPORTS = { "nio", "epoll", "io_uring" };
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int messageSize = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        for (String transport : TRANSPORTS) {
+            EventLoopGroup eventLoopGroup = newEventLoopGroup(transport, threads);
+            if (eventLoopGroup == null) {
+                System.out.printf("%-8s not available, skipped%n", transport);
+                continue;
+            }
+            try {
+                run(transport, eventLoopGroup, connections, messageSize, seconds);
+            } finally {
+                eventLoopGroup.shutdownGracefully().await();
+            }
+        }
+    }
+
+    private static EventLoopGroup newEventLoopGroup(String transport, int threads) {
+        DefaultThreadFactory threadFactory = new DefaultThreadFactory("benchmark-" + transport);
+        switch (transport) {
+            case "nio":
+                return new NioEventLoopGroup(threads, threadFactory);
+            case "epoll":
+                return Epoll.isAvailable() ? new EpollEventLoopGroup(threads, threadFactory) : null;
+            default:
+                System.setProperty(EventLoopUtil.PULSAR_TRANSPORT_IO_URING, "true");
+                try {
+                    EventLoopGroup eventLoopGroup = EventLoopUtil.newEventLoopGroup(threads, false, threadFactory);
+                    if (eventLoopGroup instanceof EpollEventLoopGroup || eventLoopGroup instanceof NioEventLoopGroup) {
+                        eventLoopGroup.shutdownGracefully();
+                        return null;
+                    }
+                    return eventLoopGroup;
+                } finally {
+                    System.clearProperty(EventLoopUtil.PULSAR_TRANSPORT_IO_URING);
+                }
+        }
+    }
+
+    private static void run(String transport, EventLoopGroup eventLoopGroup, int connections, int messageSize,
+                            int seconds) throws Exception {
+        Channel serverChannel = new ServerBootstrap()
+                .group(eventLoopGroup, eventLoopGroup)
+                .channel(EventLoopUtil.getServerSocketChannelClass(eventLoopGroup))
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new EchoHandler())
+                .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+                .sync().channel();
+
+        ByteBuf message = Unpooled.directBuffer(messageSize).writeZero(messageSize);
+        LongAdder roundTrips = new LongAdder();
+        LongAdder latencyNanos = new LongAdder();
+        List<PingPongHandler> handlers = new ArrayList<>(connections);
+        List<Channel> channels = new ArrayList<>(connections);
+        Bootstrap bootstrap = new Bootstrap()
+                .group(eventLoopGroup)
+                .channel(EventLoopUtil.getClientSocketChannelClass(eventLoopGroup))
+                .option(ChannelOption.TCP_NODELAY, true);
+        for (int i = 0; i < connections; i++) {
+            PingPongHandler handler = new PingPongHandler(message, roundTrips, latencyNanos);
+            handlers.add(handler);
+            channels.add(bootstrap.handler(handler).connect(serverChannel.localAddress()).sync().channel());
+        }
+
+        // warm up before measuring
+        Thread.sleep(TimeUnit.SECONDS.toMillis(Math.max(1, seconds / 5)));
+        roundTrips.reset();
+        latencyNanos.reset();
+        long startTime = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        long count = roundTrips.sum();
+        long totalLatencyNanos = latencyNanos.sum();
+        double elapsedSeconds = (System.nanoTime() - startTime) / 1e9;
+
+        handlers.forEach(handler -> handler.running = false);
+        // let the messages in flight be echoed back, so that the connections are not reset when closed
+        Thread.sleep(100);
+        for (Channel channel : channels) {
+            channel.close().sync();
+        }
+        serverChannel.close().sync();
+        message.release();
+
+        System.out.printf("%-8s connections: %d, message size: %d B, round trips/s: %.0f, throughput: %.1f MB/s,"
+                        + " mean round trip: %.1f us%n",
+                transport, connections, messageSize, count / elapsedSeconds,
+                count * messageSize / elapsedSeconds / (1024 * 1024),
+                count == 0 ? 0 : totalLatencyNanos / 1e3 / count);
+    }
+
+    private static class EchoHandler extends ChannelInboundHandlerAdapter {
+
+        @Override
+        public boolean isSharable() {
+            return true;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ctx.write(msg);
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            ctx.flush();
+        }
+    }
+
+    /**
+     * Sends the message, waits for it to be echoed back entirely, and sends it again.
+     */
+    private static class PingPongHandler extends ChannelInboundHandlerAdapter {
+
+        private final ByteBuf message;
+        private final LongAdder roundTrips;
+        private final LongAdder latencyNanos;
+        private volatile boolean running = true;
+        private int received;
+        private long sendTime;
+
+        PingPongHandler(ByteBuf message, LongAdder roundTrips, LongAdder latencyNanos) {
+            this.message = message;
+            this.roundTrips = roundTrips;
+            this.latencyNanos = latencyNanos;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            send(ctx);
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            received += ((ByteBuf) msg).readableBytes();
+            ReferenceCountUtil.release(msg);
+            if (received >= message.readableBytes()) {
+                received -= message.readableBytes();
+                roundTrips.increment();
+                latencyNanos.add(System.nanoTime() - sendTime);
+                if (running) {
+                    send(ctx);
+                }
+            }
+        }
+
+        private void send(ChannelHandlerContext ctx) {
+            sendTime = System.nanoTime();
+            ctx.writeAndFlush(message.retainedDuplicate());
+        }
+    }
+}
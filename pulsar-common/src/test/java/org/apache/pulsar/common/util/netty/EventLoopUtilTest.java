@@ -0,0 +1,59 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.common.util.netty;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test {@link EventLoopUtil}.
+ */
+public class EventLoopUtilTest {
+
+    @Test
+    public void testIoUringFallsBackWhenNotAvailable() throws Exception {
+        System.setProperty(EventLoopUtil.PULSAR_TRANSPORT_IO_URING, "true");
+        EventLoopGroup eventLoopGroup = null;
+        try {
+            // the io_uring transport is not a dependency of pulsar-common
+            eventLoopGroup = EventLoopUtil.newEventLoopGroup(1, false, new DefaultThreadFactory("test"));
+            if (Epoll.isAvailable()) {
+                Assert.assertTrue(eventLoopGroup instanceof EpollEventLoopGroup);
+                Assert.assertEquals(EventLoopUtil.getClientSocketChannelClass(eventLoopGroup),
+                        EpollSocketChannel.class);
+            } else {
+                Assert.assertTrue(eventLoopGroup instanceof NioEventLoopGroup);
+                Assert.assertEquals(EventLoopUtil.getClientSocketChannelClass(eventLoopGroup),
+                        NioSocketChannel.class);
+            }
+        } finally {
+            System.clearProperty(EventLoopUtil.PULSAR_TRANSPORT_IO_URING);
+            if (eventLoopGroup != null) {
+                eventLoopGroup.shutdownGracefully().await();
+            }
+        }
+    }
+}
@@ -26,8 +26,10 @@ import com.beust.jcommander.Parameters;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.common.util.concurrent.RateLimiter;
+import com.sun.management.OperatingSystemMXBean;
 import io.netty.buffer.ByteBuf;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import java.lang.management.ManagementFactory;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -78,6 +80,10 @@ public class ManagedLedgerWriter {
     private static Recorder recorder = new Recorder(TimeUnit.SECONDS.toMillis(120000), 5);
     private static Recorder cumulativeRecorder = new Recorder(TimeUnit.SECONDS.toMillis(120000), 5);
 
+    // The CPU time of the process is reported per message, to measure the cost of the managed ledger write path
+    private static final OperatingSystemMXBean osBean =
+            (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
     @Parameters(commandDescription = "Write directly on managed-ledgers")
     static class Arguments {
 
@@ -212,8 +218,9 @@ public class ManagedLedgerWriter {
         log.info("Created {} managed ledgers", managedLedgers.size());
 
         long start = System.nanoTime();
+        long startCpuTime = osBean.getProcessCpuTime();
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            printAggregatedThroughput(start);
+            printAggregatedThroughput(start, startCpuTime);
             printAggregatedStats();
         }));
 
@@ -302,6 +309,7 @@ public class ManagedLedgerWriter {
 
         // Print report stats
         long oldTime = System.nanoTime();
+        long oldCpuTime = osBean.getProcessCpuTime();
 
         Histogram reportHistogram = null;
 
@@ -317,19 +325,22 @@ public class ManagedLedgerWriter {
             }
 
             long now = System.nanoTime();
+            long cpuTime = osBean.getProcessCpuTime();
             double elapsed = (now - oldTime) / 1e9;
 
             long total = totalMessagesSent.sum();
-            double rate = messagesSent.sumThenReset() / elapsed;
+            long sent = messagesSent.sumThenReset();
+            double rate = sent / elapsed;
             double throughput = bytesSent.sumThenReset() / elapsed / 1024 / 1024 * 8;
 
             reportHistogram = recorder.getIntervalHistogram(reportHistogram);
 
             log.info(
-                    "Throughput produced: {} msg --- {}  msg/s --- {} Mbit/s --- Latency: mean: {} ms - med: {} - 95pct: {} - 99pct: {} - 99.9pct: {} - 99.99pct: {} - Max: {}",
+                    "Throughput produced: {} msg --- {}  msg/s --- {} Mbit/s --- CPU: {} us/msg --- Latency: mean: {} ms - med: {} - 95pct: {} - 99pct: {} - 99.9pct: {} - 99.99pct: {} - Max: {}",
                     intFormat.format(total),
                     throughputFormat.format(rate),
                     throughputFormat.format(throughput),
+                    dec.format(cpuTimePerMessageMicros(cpuTime - oldCpuTime, sent)),
                     dec.format(reportHistogram.getMean() / 1000.0),
                     dec.format(reportHistogram.getValueAtPercentile(50) / 1000.0),
                     dec.format(reportHistogram.getValueAtPercentile(95) / 1000.0),
@@ -341,6 +352,7 @@ public class ManagedLedgerWriter {
             reportHistogram.reset();
 
             oldTime = now;
+            oldCpuTime = cpuTime;
         }
 
         factory.shutdown();
@@ -382,15 +394,22 @@ public class ManagedLedgerWriter {
         return map;
     }
 
-    private static void printAggregatedThroughput(long start) {
+    private static void printAggregatedThroughput(long start, long startCpuTime) {
         double elapsed = (System.nanoTime() - start) / 1e9;
         double rate = totalMessagesSent.sum() / elapsed;
         double throughput = totalBytesSent.sum() / elapsed / 1024 / 1024 * 8;
+        double cpuPerMessage = cpuTimePerMessageMicros(osBean.getProcessCpuTime() - startCpuTime,
+                totalMessagesSent.sum());
         log.info(
-                "Aggregated throughput stats --- {} records sent --- {} msg/s --- {} Mbit/s",
+                "Aggregated throughput stats --- {} records sent --- {} msg/s --- {} Mbit/s --- CPU: {} us/msg",
                 totalMessagesSent,
                 totalFormat.format(rate),
-                totalFormat.format(throughput));
+                totalFormat.format(throughput),
+                totalFormat.format(cpuPerMessage));
+    }
+
+    private static double cpuTimePerMessageMicros(long cpuTimeNanos, long messages) {
+        return messages > 0 ? cpuTimeNanos / 1e3 / messages : 0;
     }
 
     private static void printAggregatedStats() {
@@ -0,0 +1,308 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload.filesystem.impl;
+
+import static org.apache.bookkeeper.mledger.offload.OffloadUtils.parseLedgerMetadata;
+import static org.apache.bookkeeper.mledger.offload.filesystem.impl.IndexedLedgerFileWriter.HEADER_SIZE;
+import static org.apache.bookkeeper.mledger.offload.filesystem.impl.IndexedLedgerFileWriter.MAGIC;
+import static org.apache.bookkeeper.mledger.offload.filesystem.impl.IndexedLedgerFileWriter.TRAILER_SIZE;
+import static org.apache.bookkeeper.mledger.offload.filesystem.impl.IndexedLedgerFileWriter.VERSION;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.client.api.LastConfirmedAndEntry;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.apache.bookkeeper.client.impl.LedgerEntriesImpl;
+import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Read handle of a ledger offloaded in the indexed layout written by {@link IndexedLedgerFileWriter}.
+ *
+ * <p>The entry index is loaded when the handle is opened, and a range of entries is read with a few large
+ * positional reads of the data, instead of a lookup per entry. When the file is on the local file system it is
+ * memory mapped and the entries are slices of the mapping.
+ */
+public class FileStoreBackedIndexedReadHandleImpl implements ReadHandle {
+    private static final Logger log = LoggerFactory.getLogger(FileStoreBackedIndexedReadHandleImpl.class);
+    // upper bound of a single positional read, a range of entries larger than this is read in several batches
+    private static final int MAX_BATCH_READ_SIZE = 16 * 1024 * 1024;
+
+    private final ExecutorService executor;
+    private final DataSource dataSource;
+    private final long ledgerId;
+    private final LedgerMetadata ledgerMetadata;
+    private final long[] offsets;
+
+    private FileStoreBackedIndexedReadHandleImpl(ExecutorService executor, DataSource dataSource, long fileLength,
+                                                 long ledgerId) throws IOException {
+        this.ledgerId = ledgerId;
+        this.executor = executor;
+        this.dataSource = dataSource;
+
+        ByteBuf trailer = dataSource.read(fileLength - TRAILER_SIZE, TRAILER_SIZE);
+        ByteBuf index = null;
+        ByteBuf metadata = null;
+        try {
+            long indexOffset = trailer.readLong();
+            long entryCount = trailer.readLong();
+            if (trailer.readInt() != MAGIC || entryCount < 0 || entryCount >= Integer.MAX_VALUE
+                    || indexOffset + (entryCount + 1) * Long.BYTES != fileLength - TRAILER_SIZE) {
+                throw new IOException("Invalid trailer in offloaded file of ledger " + ledgerId);
+            }
+            index = dataSource.read(indexOffset, (int) ((entryCount + 1) * Long.BYTES));
+            this.offsets = new long[(int) entryCount + 1];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = index.readLong();
+            }
+
+            metadata = dataSource.read(0, HEADER_SIZE);
+            if (metadata.readInt() != MAGIC || metadata.readInt() != VERSION) {
+                throw new IOException("Invalid header in offloaded file of ledger " + ledgerId);
+            }
+            int metadataLength = metadata.readInt();
+            metadata.release();
+            metadata = dataSource.read(HEADER_SIZE, metadataLength);
+            byte[] metadataBytes = new byte[metadataLength];
+            metadata.readBytes(metadataBytes);
+            this.ledgerMetadata = parseLedgerMetadata(ledgerId, metadataBytes);
+        } finally {
+            trailer.release();
+            if (index != null) {
+                index.release();
+            }
+            if (metadata != null) {
+                metadata.release();
+            }
+        }
+    }
+
+    @Override
+    public long getId() {
+        return ledgerId;
+    }
+
+    @Override
+    public LedgerMetadata getLedgerMetadata() {
+        return ledgerMetadata;
+    }
+
+    @Override
+    public CompletableFuture<Void> closeAsync() {
+        CompletableFuture<Void> promise = new CompletableFuture<>();
+        executor.submit(() -> {
+            try {
+                dataSource.close();
+                promise.complete(null);
+            } catch (IOException t) {
+                promise.completeExceptionally(t);
+            }
+        });
+        return promise;
+    }
+
+    @Override
+    public CompletableFuture<LedgerEntries> readAsync(long firstEntry, long lastEntry) {
+        if (log.isDebugEnabled()) {
+            log.debug("Ledger {}: reading {} - {}", getId(), firstEntry, lastEntry);
+        }
+        CompletableFuture<LedgerEntries> promise = new CompletableFuture<>();
+        executor.submit(() -> {
+            if (firstEntry > lastEntry
+                    || firstEntry < 0
+                    || lastEntry > getLastAddConfirmed()
+                    || lastEntry >= offsets.length - 1) {
+                promise.completeExceptionally(new BKException.BKIncorrectParameterException());
+                return;
+            }
+            List<LedgerEntry> entries = new ArrayList<>((int) (lastEntry - firstEntry + 1));
+            try {
+                int entryId = (int) firstEntry;
+                while (entryId <= lastEntry) {
+                    // read as many contiguous entries as fit in a batch, and at least one
+                    int batchLastEntry = entryId;
+                    while (batchLastEntry < lastEntry
+                            && offsets[batchLastEntry + 2] - offsets[entryId] <= MAX_BATCH_READ_SIZE) {
+                        batchLastEntry++;
+                    }
+                    long batchOffset = offsets[entryId];
+                    ByteBuf batch = dataSource.read(batchOffset, (int) (offsets[batchLastEntry + 1] - batchOffset));
+                    try {
+                        for (; entryId <= batchLastEntry; entryId++) {
+                            int length = (int) (offsets[entryId + 1] - offsets[entryId]);
+                            ByteBuf buf = batch.retainedSlice((int) (offsets[entryId] - batchOffset), length);
+                            entries.add(LedgerEntryImpl.create(ledgerId, entryId, length, buf));
+                        }
+                    } finally {
+                        batch.release();
+                    }
+                }
+                promise.complete(LedgerEntriesImpl.create(entries));
+            } catch (Throwable t) {
+                promise.completeExceptionally(t);
+                entries.forEach(LedgerEntry::close);
+            }
+        });
+        return promise;
+    }
+
+    @Override
+    public CompletableFuture<LedgerEntries> readUnconfirmedAsync(long firstEntry, long lastEntry) {
+        return readAsync(firstEntry, lastEntry);
+    }
+
+    @Override
+    public CompletableFuture<Long> readLastAddConfirmedAsync() {
+        return CompletableFuture.completedFuture(getLastAddConfirmed());
+    }
+
+    @Override
+    public CompletableFuture<Long> tryReadLastAddConfirmedAsync() {
+        return CompletableFuture.completedFuture(getLastAddConfirmed());
+    }
+
+    @Override
+    public long getLastAddConfirmed() {
+        return getLedgerMetadata().getLastEntryId();
+    }
+
+    @Override
+    public long getLength() {
+        return getLedgerMetadata().getLength();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return getLedgerMetadata().isClosed();
+    }
+
+    @Override
+    public CompletableFuture<LastConfirmedAndEntry> readLastAddConfirmedAndEntryAsync(long entryId,
+                                                                                      long timeOutInMillis,
+                                                                                      boolean parallel) {
+        CompletableFuture<LastConfirmedAndEntry> promise = new CompletableFuture<>();
+        promise.completeExceptionally(new UnsupportedOperationException());
+        return promise;
+    }
+
+    public static ReadHandle open(ScheduledExecutorService executor, FileSystem fileSystem, Path path,
+                                  long ledgerId) throws IOException {
+        Path qualifiedPath = fileSystem.makeQualified(path);
+        long fileLength = fileSystem.getFileStatus(qualifiedPath).getLen();
+        DataSource dataSource;
+        if ("file".equals(qualifiedPath.toUri().getScheme()) && fileLength <= Integer.MAX_VALUE) {
+            dataSource = new MappedDataSource(new File(qualifiedPath.toUri()));
+        } else {
+            dataSource = new StreamDataSource(fileSystem.open(qualifiedPath));
+        }
+        try {
+            return new FileStoreBackedIndexedReadHandleImpl(executor, dataSource, fileLength, ledgerId);
+        } catch (IOException | RuntimeException e) {
+            dataSource.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Positional reads of the offloaded file, safe to use from several threads.
+     */
+    private interface DataSource extends Closeable {
+        ByteBuf read(long position, int length) throws IOException;
+    }
+
+    /**
+     * Reads a file of the local file system through a read only memory mapping, without copying.
+     */
+    private static class MappedDataSource implements DataSource {
+        private final MappedByteBuffer mapped;
+
+        MappedDataSource(File file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                this.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+
+        @Override
+        public ByteBuf read(long position, int length) throws IOException {
+            if (position < 0 || position + length > mapped.capacity()) {
+                throw new IOException("Read of " + length + " bytes at " + position + " is out of the file");
+            }
+            ByteBuffer slice = mapped.duplicate();
+            slice.position((int) position);
+            slice.limit((int) position + length);
+            return Unpooled.wrappedBuffer(slice.slice());
+        }
+
+        @Override
+        public void close() {
+            // the mapping is released once it is no longer referenced by any entry
+        }
+    }
+
+    /**
+     * Reads a file of any Hadoop file system through positional reads of the input stream.
+     */
+    private static class StreamDataSource implements DataSource {
+        private final FSDataInputStream in;
+
+        StreamDataSource(FSDataInputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public ByteBuf read(long position, int length) throws IOException {
+            ByteBuf buf = PooledByteBufAllocator.DEFAULT.heapBuffer(length, length);
+            try {
+                in.readFully(position, buf.array(), buf.arrayOffset(), length);
+                buf.writerIndex(length);
+                return buf;
+            } catch (IOException | RuntimeException e) {
+                buf.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -30,9 +30,6 @@ import org.apache.bookkeeper.mledger.offload.filesystem.FileSystemLedgerOffloade
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.BytesWritable;
-import org.apache.hadoop.io.IOUtils;
-import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.MapFile;
 import org.apache.pulsar.common.policies.data.OffloadPoliciesImpl;
 import org.slf4j.Logger;
@@ -136,12 +133,13 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
     }
 
     /*
-    * ledgerMetadata stored in an index of -1
+    * ledgers are offloaded as a single file in the indexed layout of IndexedLedgerFileWriter, ledgers offloaded
+    * by previous versions are MapFile directories, with the ledgerMetadata stored in an index of -1
     * */
     @Override
     public CompletableFuture<Void> offload(ReadHandle readHandle, UUID uuid, Map<String, String> extraMetadata) {
         CompletableFuture<Void> promise = new CompletableFuture<>();
-        scheduler.chooseThread(readHandle.getId()).submit(new LedgerReader(readHandle, uuid, extraMetadata, promise, storageBasePath, configuration, assignmentScheduler, offloadPolicies.getManagedLedgerOffloadPrefetchRounds()));
+        scheduler.chooseThread(readHandle.getId()).submit(new LedgerReader(readHandle, uuid, extraMetadata, promise, storageBasePath, fileSystem, assignmentScheduler, offloadPolicies.getManagedLedgerOffloadPrefetchRounds()));
         return promise;
     }
 
@@ -152,19 +150,19 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
         private final Map<String, String> extraMetadata;
         private final CompletableFuture<Void> promise;
         private final String storageBasePath;
-        private final Configuration configuration;
+        private final FileSystem fileSystem;
         volatile Exception fileSystemWriteException = null;
         private OrderedScheduler assignmentScheduler;
         private int managedLedgerOffloadPrefetchRounds = 1;
 
         private LedgerReader(ReadHandle readHandle, UUID uuid, Map<String, String> extraMetadata, CompletableFuture<Void> promise,
-                             String storageBasePath, Configuration configuration, OrderedScheduler assignmentScheduler, int managedLedgerOffloadPrefetchRounds) {
+                             String storageBasePath, FileSystem fileSystem, OrderedScheduler assignmentScheduler, int managedLedgerOffloadPrefetchRounds) {
             this.readHandle = readHandle;
             this.uuid = uuid;
             this.extraMetadata = extraMetadata;
             this.promise = promise;
             this.storageBasePath = storageBasePath;
-            this.configuration = configuration;
+            this.fileSystem = fileSystem;
             this.assignmentScheduler = assignmentScheduler;
             this.managedLedgerOffloadPrefetchRounds = managedLedgerOffloadPrefetchRounds;
         }
@@ -179,18 +177,11 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
             long ledgerId = readHandle.getId();
             String storagePath = getStoragePath(storageBasePath, extraMetadata.get(MANAGED_LEDGER_NAME));
             String dataFilePath = getDataFilePath(storagePath, ledgerId, uuid);
-            LongWritable key = new LongWritable();
-            BytesWritable value = new BytesWritable();
+            IndexedLedgerFileWriter dataWriter = null;
             try {
-                MapFile.Writer dataWriter = new MapFile.Writer(configuration,
-                        new Path(dataFilePath),
-                        MapFile.Writer.keyClass(LongWritable.class),
-                        MapFile.Writer.valueClass(BytesWritable.class));
-                //store the ledgerMetadata in -1 index
-                key.set(METADATA_KEY_INDEX);
                 byte[] ledgerMetadata = buildLedgerMetadataFormat(readHandle.getLedgerMetadata());
-                value.set(ledgerMetadata, 0, ledgerMetadata.length);
-                dataWriter.append(key, value);
+                dataWriter = new IndexedLedgerFileWriter(fileSystem, new Path(dataFilePath), ledgerMetadata,
+                        readHandle.getLastAddConfirmed() + 1);
                 AtomicLong haveOffloadEntryNumber = new AtomicLong(0);
                 long needToOffloadFirstEntryNumber = 0;
                 CountDownLatch countDownLatch;
@@ -210,7 +201,7 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
                 if (fileSystemWriteException != null) {
                     throw fileSystemWriteException;
                 }
-                IOUtils.closeStream(dataWriter);
+                dataWriter.close();
                 promise.complete(null);
             } catch (Exception e) {
                 log.error("Exception when get CompletableFuture<LedgerEntries> : ManagerLedgerName: {}, " +
@@ -218,6 +209,9 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
                 if (e instanceof InterruptedException) {
                     Thread.currentThread().interrupt();
                 }
+                if (dataWriter != null) {
+                    dataWriter.abort();
+                }
                 promise.completeExceptionally(e);
             }
         }
@@ -227,10 +221,7 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
 
         private LedgerEntries ledgerEntriesOnce;
 
-        private final LongWritable key = new LongWritable();
-        private final BytesWritable value = new BytesWritable();
-
-        private MapFile.Writer dataWriter;
+        private IndexedLedgerFileWriter dataWriter;
         private CountDownLatch countDownLatch;
         private AtomicLong haveOffloadEntryNumber;
         private LedgerReader ledgerReader;
@@ -259,7 +250,7 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
         }
 
 
-        public static FileSystemWriter create(LedgerEntries ledgerEntriesOnce, MapFile.Writer dataWriter, Semaphore semaphore,
+        public static FileSystemWriter create(LedgerEntries ledgerEntriesOnce, IndexedLedgerFileWriter dataWriter, Semaphore semaphore,
                                               CountDownLatch countDownLatch, AtomicLong haveOffloadEntryNumber, LedgerReader ledgerReader) {
             FileSystemWriter writer = RECYCLER.get();
             writer.ledgerReader = ledgerReader;
@@ -277,11 +268,8 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
                 Iterator<LedgerEntry> iterator = ledgerEntriesOnce.iterator();
                 while (iterator.hasNext()) {
                     LedgerEntry entry = iterator.next();
-                    long entryId = entry.getEntryId();
-                    key.set(entryId);
                     try {
-                        value.set(entry.getEntryBytes(), 0, entry.getEntryBytes().length);
-                        dataWriter.append(key, value);
+                        dataWriter.append(entry);
                     } catch (IOException e) {
                         ledgerReader.fileSystemWriteException = e;
                         break;
@@ -304,9 +292,15 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
         String dataFilePath = getDataFilePath(storagePath, ledgerId, uuid);
         scheduler.chooseThread(ledgerId).submit(() -> {
             try {
-                MapFile.Reader reader = new MapFile.Reader(new Path(dataFilePath),
-                        configuration);
-                promise.complete(FileStoreBackedReadHandleImpl.open(scheduler.chooseThread(ledgerId), reader, ledgerId));
+                Path path = new Path(dataFilePath);
+                if (fileSystem.getFileStatus(path).isDirectory()) {
+                    // ledger offloaded as a MapFile
+                    MapFile.Reader reader = new MapFile.Reader(path, configuration);
+                    promise.complete(FileStoreBackedReadHandleImpl.open(scheduler.chooseThread(ledgerId), reader, ledgerId));
+                } else {
+                    promise.complete(FileStoreBackedIndexedReadHandleImpl.open(scheduler.chooseThread(ledgerId),
+                            fileSystem, path, ledgerId));
+                }
             } catch (Throwable t) {
                 log.error("Failed to open FileStoreBackedReadHandleImpl: ManagerLedgerName: {}, " +
                         "LegerId: {}, UUID: {}", offloadDriverMetadata.get(MANAGED_LEDGER_NAME), ledgerId, uuid, t);
@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload.filesystem.impl;
+
+import io.netty.buffer.ByteBuf;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Writes an offloaded ledger as a single file, in the indexed layout.
+ *
+ * <pre>
+ * [header]  magic (int), version (int), ledger metadata length (int), ledger metadata
+ * [data]    entry 0, entry 1, ... entry N, written back to back
+ * [index]   offset of entry 0, offset of entry 1, ... offset of entry N, end of the data (longs)
+ * [trailer] offset of the index (long), number of entries (long), magic (int)
+ * </pre>
+ *
+ * <p>Entry ids of a closed ledger are dense, so the offset of an entry is found in the index by its id, and a range
+ * of contiguous entries is stored as a single contiguous region of the file.
+ */
+class IndexedLedgerFileWriter implements Closeable {
+
+    static final int MAGIC = 0x1EDF11E5;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 12;
+    static final int TRAILER_SIZE = 20;
+    // entries are buffered and written to the file system in sequential blocks of this size
+    static final int DATA_BLOCK_SIZE = 4 * 1024 * 1024;
+
+    private final DataOutputStream out;
+    private final long[] offsets;
+    private long position;
+    private int nextEntryId;
+
+    IndexedLedgerFileWriter(FileSystem fileSystem, Path path, byte[] ledgerMetadata, long entryCount)
+            throws IOException {
+        if (entryCount >= Integer.MAX_VALUE) {
+            throw new IOException("Too many entries to offload in a single file: " + entryCount);
+        }
+        this.offsets = new long[(int) entryCount + 1];
+        this.out = new DataOutputStream(new BufferedOutputStream(fileSystem.create(path, true), DATA_BLOCK_SIZE));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(ledgerMetadata.length);
+        out.write(ledgerMetadata);
+        this.position = HEADER_SIZE + ledgerMetadata.length;
+    }
+
+    /**
+     * Append the next entry of the ledger, entries must be appended in order of entry id.
+     */
+    void append(LedgerEntry entry) throws IOException {
+        if (entry.getEntryId() != nextEntryId || nextEntryId >= offsets.length - 1) {
+            throw new IOException("Expected to write entry " + nextEntryId + ", but got entry " + entry.getEntryId());
+        }
+        ByteBuf buf = entry.getEntryBuffer();
+        int length = buf.readableBytes();
+        buf.getBytes(buf.readerIndex(), out, length);
+        offsets[nextEntryId++] = position;
+        position += length;
+    }
+
+    /**
+     * Write the index and the trailer, and close the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (nextEntryId != offsets.length - 1) {
+                throw new IOException("Expected " + (offsets.length - 1) + " entries, but got " + nextEntryId);
+            }
+            offsets[nextEntryId] = position;
+            long indexOffset = position;
+            for (long offset : offsets) {
+                out.writeLong(offset);
+            }
+            out.writeLong(indexOffset);
+            out.writeLong(nextEntryId);
+            out.writeInt(MAGIC);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Close the file without completing it, the incomplete file is left to be deleted with the offloaded ledger.
+     */
+    void abort() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            // ignore, the file is not readable anyway
+        }
+    }
+}
@@ -30,23 +30,32 @@ import org.apache.bookkeeper.client.api.ReadHandle;
 import org.apache.bookkeeper.mledger.LedgerOffloader;
 import org.apache.bookkeeper.mledger.offload.filesystem.FileStoreTestBase;
 import org.apache.bookkeeper.util.ZkUtils;
+import org.apache.commons.io.FileUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.MapFile;
+import org.apache.pulsar.common.policies.data.OffloadPoliciesImpl;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.MockZooKeeper;
 import org.apache.zookeeper.data.ACL;
 import org.testng.annotations.Test;
 
+import java.io.File;
 import java.net.URI;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.UUID;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.bookkeeper.mledger.offload.OffloadUtils.buildLedgerMetadataFormat;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
@@ -127,21 +136,80 @@ public class FileSystemManagedLedgerOffloaderTest extends FileStoreTestBase {
         Configuration configuration = new Configuration();
         FileSystem fileSystem = FileSystem.get(new URI(getURI()), configuration);
         assertTrue(fileSystem.exists(new Path(createDataFilePath(storagePath, lh.getId(), uuid))));
-        assertTrue(fileSystem.exists(new Path(createIndexFilePath(storagePath, lh.getId(), uuid))));
-        offloader.deleteOffloaded(lh.getId(), uuid, map);
+        offloader.deleteOffloaded(lh.getId(), uuid, map).get();
         assertFalse(fileSystem.exists(new Path(createDataFilePath(storagePath, lh.getId(), uuid))));
-        assertFalse(fileSystem.exists(new Path(createIndexFilePath(storagePath, lh.getId(), uuid))));
     }
 
-    private String createStoragePath(String managedLedgerName) {
-        return basePath == null ? managedLedgerName + "/" : basePath + "/" +  managedLedgerName + "/";
+    @Test
+    public void testOffloadAndReadOnLocalFileSystem() throws Exception {
+        File baseDir = Files.createTempDirectory("offload").toFile();
+        LedgerOffloader offloader = new FileSystemManagedLedgerOffloader(OffloadPoliciesImpl.create(new Properties()),
+                scheduler, "file:///", baseDir.getAbsolutePath());
+        try {
+            UUID uuid = UUID.randomUUID();
+            offloader.offload(toWrite, uuid, map).get();
+            ReadHandle toTest = offloader.readOffloaded(toWrite.getId(), uuid, map).get();
+            assertEquals(toTest.getLastAddConfirmed(), toWrite.getLastAddConfirmed());
+            assertEntriesEqual(toTest.read(0, numberOfEntries - 1), toWrite.read(0, numberOfEntries - 1));
+            assertEntriesEqual(toTest.read(100, 200), toWrite.read(100, 200));
+            assertEntriesEqual(toTest.read(numberOfEntries - 1, numberOfEntries - 1),
+                    toWrite.read(numberOfEntries - 1, numberOfEntries - 1));
+            toTest.close();
+        } finally {
+            offloader.close();
+            FileUtils.deleteQuietly(baseDir);
+        }
+    }
+
+    @Test
+    public void testReadMapFileLedger() throws Exception {
+        // ledgers offloaded by previous versions are stored as a MapFile
+        UUID uuid = UUID.randomUUID();
+        Configuration configuration = new Configuration();
+        configuration.set("fs.defaultFS", getURI());
+        MapFile.Writer dataWriter = new MapFile.Writer(configuration,
+                new Path(createDataFilePath(storagePath, toWrite.getId(), uuid)),
+                MapFile.Writer.keyClass(LongWritable.class),
+                MapFile.Writer.valueClass(BytesWritable.class));
+        byte[] ledgerMetadata = buildLedgerMetadataFormat(toWrite.getLedgerMetadata());
+        dataWriter.append(new LongWritable(FileSystemManagedLedgerOffloader.METADATA_KEY_INDEX),
+                new BytesWritable(ledgerMetadata));
+        try (LedgerEntries entries = toWrite.read(0, numberOfEntries - 1)) {
+            for (LedgerEntry entry : entries) {
+                dataWriter.append(new LongWritable(entry.getEntryId()), new BytesWritable(entry.getEntryBytes()));
+            }
+        }
+        dataWriter.close();
+
+        ReadHandle toTest = fileSystemManagedLedgerOffloader.readOffloaded(toWrite.getId(), uuid, map).get();
+        assertEquals(toTest.getLastAddConfirmed(), toWrite.getLastAddConfirmed());
+        assertEntriesEqual(toTest.read(0, numberOfEntries - 1), toWrite.read(0, numberOfEntries - 1));
+        assertEntriesEqual(toTest.read(10, 20), toWrite.read(10, 20));
+    }
+
+    private static void assertEntriesEqual(LedgerEntries toTestEntries, LedgerEntries toWriteEntries) {
+        Iterator<LedgerEntry> toTestIter = toTestEntries.iterator();
+        Iterator<LedgerEntry> toWriteIter = toWriteEntries.iterator();
+        while (toWriteIter.hasNext()) {
+            assertTrue(toTestIter.hasNext());
+            LedgerEntry toWriteEntry = toWriteIter.next();
+            LedgerEntry toTestEntry = toTestIter.next();
+
+            assertEquals(toWriteEntry.getLedgerId(), toTestEntry.getLedgerId());
+            assertEquals(toWriteEntry.getEntryId(), toTestEntry.getEntryId());
+            assertEquals(toWriteEntry.getLength(), toTestEntry.getLength());
+            assertEquals(toWriteEntry.getEntryBuffer(), toTestEntry.getEntryBuffer());
+        }
+        assertFalse(toTestIter.hasNext());
+        toTestEntries.close();
+        toWriteEntries.close();
     }
 
-    private String createIndexFilePath(String storagePath, long ledgerId, UUID uuid) {
-        return storagePath + ledgerId + "-" + uuid + "/index";
+    private String createStoragePath(String managedLedgerName) {
+        return basePath == null ? managedLedgerName + "/" : basePath + "/" +  managedLedgerName + "/";
     }
 
     private String createDataFilePath(String storagePath, long ledgerId, UUID uuid) {
-        return storagePath + ledgerId + "-" + uuid + "/data";
+        return storagePath + ledgerId + "-" + uuid;
     }
 }
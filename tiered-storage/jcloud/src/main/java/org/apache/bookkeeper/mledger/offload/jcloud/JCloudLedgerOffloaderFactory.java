@@ -18,14 +18,21 @@
  */
 package org.apache.bookkeeper.mledger.offload.jcloud;
 
+import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.IOException;
 import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.apache.bookkeeper.common.util.OrderedScheduler;
 import org.apache.bookkeeper.mledger.LedgerOffloaderFactory;
 import org.apache.bookkeeper.mledger.offload.jcloud.impl.BlobStoreManagedLedgerOffloader;
+import org.apache.bookkeeper.mledger.offload.jcloud.impl.OffloadedBlockCache;
 import org.apache.bookkeeper.mledger.offload.jcloud.provider.JCloudBlobStoreProvider;
 import org.apache.bookkeeper.mledger.offload.jcloud.provider.TieredStorageConfiguration;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.pulsar.common.policies.data.OffloadPoliciesImpl;
+import org.apache.pulsar.common.protocol.schema.SchemaStorage;
 
 /**
  * A jcloud based offloader factory.
@@ -38,6 +45,17 @@ public class JCloudLedgerOffloaderFactory implements LedgerOffloaderFactory<Blob
 
     private static final JCloudLedgerOffloaderFactory INSTANCE = new JCloudLedgerOffloaderFactory();
 
+    private static final String BLOCK_CACHE_DIRECTORY = "managedLedgerOffloadBlockCacheDirectory";
+    private static final String BLOCK_CACHE_SIZE_IN_BYTES = "managedLedgerOffloadBlockCacheSizeInBytes";
+    private static final String READ_AHEAD_MAX_THREADS = "managedLedgerOffloadReadAheadMaxThreads";
+    private static final int DEFAULT_READ_AHEAD_MAX_THREADS = 4;
+
+    // Shared by all the offloaders of the broker, which creates one for each topic with its own offload policies and
+    // doesn't close them. The number of uploads in flight is bounded per ledger, and the offloads by the scheduler.
+    private final ExecutorService uploadExecutor =
+            Executors.newCachedThreadPool(new DefaultThreadFactory("offloader-upload", true));
+    private volatile ExecutorService readAheadExecutor;
+
     @Override
     public boolean isDriverSupported(String driverName) {
         return JCloudBlobStoreProvider.driverSupported(driverName);
@@ -46,9 +64,41 @@ public class JCloudLedgerOffloaderFactory implements LedgerOffloaderFactory<Blob
     @Override
     public BlobStoreManagedLedgerOffloader create(OffloadPoliciesImpl offloadPolicies, Map<String, String> userMetadata,
                                                   OrderedScheduler scheduler) throws IOException {
-        
+        return create(offloadPolicies, userMetadata, null, scheduler, new Properties());
+    }
+
+    @Override
+    public BlobStoreManagedLedgerOffloader create(OffloadPoliciesImpl offloadPolicies, Map<String, String> userMetadata,
+                                                  SchemaStorage schemaStorage, OrderedScheduler scheduler,
+                                                  Properties brokerProperties) throws IOException {
         TieredStorageConfiguration config =
                 TieredStorageConfiguration.create(offloadPolicies.toProperties());
-        return BlobStoreManagedLedgerOffloader.create(config, userMetadata, scheduler);
+        return BlobStoreManagedLedgerOffloader.create(config, userMetadata, scheduler,
+                createBlockCache(brokerProperties), uploadExecutor, getReadAheadExecutor(brokerProperties));
+    }
+
+    private ExecutorService getReadAheadExecutor(Properties brokerProperties) {
+        if (readAheadExecutor == null) {
+            synchronized (this) {
+                if (readAheadExecutor == null) {
+                    String maxThreads = brokerProperties.getProperty(READ_AHEAD_MAX_THREADS);
+                    readAheadExecutor = BlobStoreManagedLedgerOffloader.newIdleTimeoutExecutor(
+                            StringUtils.isBlank(maxThreads) ? DEFAULT_READ_AHEAD_MAX_THREADS
+                                    : Math.max(1, Integer.parseInt(maxThreads.trim())), "offloader-read-ahead");
+                }
+            }
+        }
+        return readAheadExecutor;
+    }
+
+    // the block cache writes to the local disk of the broker, so it is only configured at the broker level
+    private static OffloadedBlockCache createBlockCache(Properties brokerProperties) throws IOException {
+        String directory = brokerProperties.getProperty(BLOCK_CACHE_DIRECTORY);
+        if (StringUtils.isBlank(directory)) {
+            return null;
+        }
+        String maxSize = brokerProperties.getProperty(BLOCK_CACHE_SIZE_IN_BYTES);
+        return OffloadedBlockCache.getOrCreate(directory, StringUtils.isBlank(maxSize)
+                ? OffloadedBlockCache.DEFAULT_MAX_SIZE_IN_BYTES : Long.parseLong(maxSize.trim()));
     }
 }
@@ -21,6 +21,14 @@ package org.apache.bookkeeper.mledger.offload.jcloud.impl;
 import io.netty.buffer.ByteBuf;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import org.apache.bookkeeper.mledger.offload.jcloud.BackedInputStream;
 import org.apache.bookkeeper.mledger.offload.jcloud.impl.DataBlockUtils.VersionCheck;
 import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
@@ -40,6 +48,13 @@ public class BlobStoreBackedInputStreamImpl extends BackedInputStream {
     private final ByteBuf buffer;
     private final long objectLen;
     private final int bufferSize;
+    private final OffloadedBlockCache blockCache;
+
+    // chunks of bufferSize bytes following the cursor are fetched in parallel on the read-ahead executor
+    private final ExecutorService readAheadExecutor;
+    private final int readAheadChunks;
+    // offset of the chunk -> chunk content, only accessed by the reading thread
+    private final TreeMap<Long, CompletableFuture<ByteBuf>> readAheadBuffers = new TreeMap<>();
 
     private long cursor;
     private long bufferOffsetStart;
@@ -48,13 +63,31 @@ public class BlobStoreBackedInputStreamImpl extends BackedInputStream {
     public BlobStoreBackedInputStreamImpl(BlobStore blobStore, String bucket, String key,
                                           VersionCheck versionCheck,
                                           long objectLen, int bufferSize) {
+        this(blobStore, bucket, key, versionCheck, objectLen, bufferSize, null);
+    }
+
+    public BlobStoreBackedInputStreamImpl(BlobStore blobStore, String bucket, String key,
+                                          VersionCheck versionCheck,
+                                          long objectLen, int bufferSize,
+                                          OffloadedBlockCache blockCache) {
+        this(blobStore, bucket, key, versionCheck, objectLen, bufferSize, blockCache, null, 0);
+    }
+
+    public BlobStoreBackedInputStreamImpl(BlobStore blobStore, String bucket, String key,
+                                          VersionCheck versionCheck,
+                                          long objectLen, int bufferSize,
+                                          OffloadedBlockCache blockCache,
+                                          ExecutorService readAheadExecutor, int readAheadChunks) {
         this.blobStore = blobStore;
+        this.blockCache = blockCache;
         this.bucket = bucket;
         this.key = key;
         this.versionCheck = versionCheck;
         this.buffer = PulsarByteBufAllocator.DEFAULT.buffer(bufferSize, bufferSize);
         this.objectLen = objectLen;
         this.bufferSize = bufferSize;
+        this.readAheadExecutor = readAheadExecutor;
+        this.readAheadChunks = readAheadExecutor != null ? readAheadChunks : 0;
         this.cursor = 0;
         this.bufferOffsetStart = this.bufferOffsetEnd = -1;
     }
@@ -68,6 +101,9 @@ public class BlobStoreBackedInputStreamImpl extends BackedInputStream {
             if (cursor >= objectLen) {
                 return false;
             }
+            if (blockCache != null || readAheadChunks > 0) {
+                return refillBufferFromChunk();
+            }
             long startRange = cursor;
             long endRange = Math.min(cursor + bufferSize - 1,
                                      objectLen - 1);
@@ -94,6 +130,126 @@ public class BlobStoreBackedInputStreamImpl extends BackedInputStream {
         return true;
     }
 
+    /**
+     * Refill the buffer with the chunk containing the cursor. Chunks are aligned to the buffer size, so that the
+     * same ranges are requested again on replays and can be served by the block cache, and so that the following
+     * chunks can be fetched ahead while this one is consumed.
+     */
+    private boolean refillBufferFromChunk() throws IOException {
+        long startRange = cursor - (cursor % bufferSize);
+        long endRange = Math.min(startRange + bufferSize - 1, objectLen - 1);
+        int length = (int) (endRange - startRange + 1);
+
+        buffer.clear();
+        CompletableFuture<ByteBuf> readAheadBuffer = readAheadBuffers.remove(startRange);
+        if (readAheadBuffer != null) {
+            ByteBuf chunk = null;
+            try {
+                chunk = readAheadBuffer.get();
+                buffer.writeBytes(chunk, chunk.readerIndex(), length);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading from BlobStore", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Error reading from BlobStore", e.getCause());
+            } finally {
+                if (chunk != null) {
+                    chunk.release();
+                }
+            }
+        } else {
+            try {
+                readChunk(startRange, endRange, buffer);
+            } catch (Throwable e) {
+                buffer.clear();
+                throw new IOException("Error reading from BlobStore", e);
+            }
+        }
+        bufferOffsetStart = startRange;
+        bufferOffsetEnd = endRange;
+        buffer.readerIndex((int) (cursor - startRange));
+        cursor = startRange + length;
+
+        readAhead(cursor);
+        return true;
+    }
+
+    private void readChunk(long startRange, long endRange, ByteBuf target) throws Exception {
+        int length = (int) (endRange - startRange + 1);
+        ByteBuffer cachedBlock = blockCache != null ? blockCache.getDataBlock(key, startRange, length) : null;
+        if (cachedBlock != null) {
+            target.writeBytes(cachedBlock);
+            return;
+        }
+
+        int writerIndex = target.writerIndex();
+        Blob blob = blobStore.getBlob(bucket, key, new GetOptions().range(startRange, endRange));
+        versionCheck.check(key, blob);
+        try (InputStream stream = blob.getPayload().openStream()) {
+            int bytesToCopy = length;
+            while (bytesToCopy > 0) {
+                bytesToCopy -= target.writeBytes(stream, bytesToCopy);
+            }
+        }
+        if (blockCache != null) {
+            blockCache.putDataBlock(key, startRange, target.nioBuffer(writerIndex, length));
+        }
+    }
+
+    /**
+     * Keep the chunks starting at the given aligned position fetched in parallel, up to readAheadChunks of them.
+     */
+    private void readAhead(long position) {
+        if (readAheadChunks <= 0) {
+            return;
+        }
+        long windowEnd = Math.min(position + (long) readAheadChunks * bufferSize, objectLen);
+        for (long offset = position; offset < windowEnd; offset += bufferSize) {
+            if (readAheadBuffers.containsKey(offset)) {
+                continue;
+            }
+            final long startRange = offset;
+            final long endRange = Math.min(offset + bufferSize - 1, objectLen - 1);
+            CompletableFuture<ByteBuf> future = new CompletableFuture<>();
+            try {
+                readAheadExecutor.execute(() -> {
+                    ByteBuf chunk = PulsarByteBufAllocator.DEFAULT.buffer(bufferSize, bufferSize);
+                    try {
+                        readChunk(startRange, endRange, chunk);
+                        future.complete(chunk);
+                    } catch (Throwable t) {
+                        chunk.release();
+                        future.completeExceptionally(t);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // the offloader is closing, the chunk will be read synchronously
+                return;
+            }
+            readAheadBuffers.put(offset, future);
+        }
+    }
+
+    /**
+     * Drop the chunks read ahead that are outside of the window starting at the given position.
+     */
+    private void discardReadAheadBuffers(long position) {
+        long windowStart = position - (position % bufferSize);
+        long windowEnd = windowStart + (long) (readAheadChunks + 1) * bufferSize;
+        Iterator<Map.Entry<Long, CompletableFuture<ByteBuf>>> iterator = readAheadBuffers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, CompletableFuture<ByteBuf>> entry = iterator.next();
+            if (entry.getKey() < windowStart || entry.getKey() >= windowEnd) {
+                iterator.remove();
+                releaseWhenDone(entry.getValue());
+            }
+        }
+    }
+
+    private static void releaseWhenDone(CompletableFuture<ByteBuf> future) {
+        future.thenAccept(ByteBuf::release);
+    }
+
     @Override
     public int read() throws IOException {
         if (refillBufferIfNeeded()) {
@@ -124,6 +280,9 @@ public class BlobStoreBackedInputStreamImpl extends BackedInputStream {
         } else {
             this.cursor = position;
             buffer.clear();
+            if (readAheadChunks > 0) {
+                discardReadAheadBuffers(position);
+            }
         }
     }
 
@@ -140,5 +299,7 @@ public class BlobStoreBackedInputStreamImpl extends BackedInputStream {
     @Override
     public void close() {
         buffer.release();
+        readAheadBuffers.values().forEach(BlobStoreBackedInputStreamImpl::releaseWhenDone);
+        readAheadBuffers.clear();
     }
 }
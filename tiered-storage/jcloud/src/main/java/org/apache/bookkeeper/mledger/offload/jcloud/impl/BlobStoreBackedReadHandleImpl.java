@@ -18,7 +18,9 @@
  */
 package org.apache.bookkeeper.mledger.offload.jcloud.impl;
 
+import com.google.common.io.ByteStreams;
 import io.netty.buffer.ByteBuf;
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -218,18 +220,51 @@ public class BlobStoreBackedReadHandleImpl implements ReadHandle {
                                   VersionCheck versionCheck,
                                   long ledgerId, int readBufferSize)
             throws IOException {
-        Blob blob = blobStore.getBlob(bucket, indexKey);
-        versionCheck.check(indexKey, blob);
+        return open(executor, blobStore, bucket, key, indexKey, versionCheck, ledgerId, readBufferSize, null,
+                null, 0);
+    }
+
+    /**
+     * Open a read handle on an offloaded ledger.
+     *
+     * @param blockCache the local cache of the blocks read from the blob store, or null
+     * @param readAheadExecutor the executor fetching the data chunks that follow the current read position, or
+     *                          null to read the data object sequentially
+     * @param readAheadChunks the number of chunks of readBufferSize bytes fetched in parallel ahead of the reads
+     */
+    public static ReadHandle open(ScheduledExecutorService executor,
+                                  BlobStore blobStore, String bucket, String key, String indexKey,
+                                  VersionCheck versionCheck,
+                                  long ledgerId, int readBufferSize,
+                                  OffloadedBlockCache blockCache,
+                                  ExecutorService readAheadExecutor, int readAheadChunks)
+            throws IOException {
         OffloadIndexBlockBuilder indexBuilder = OffloadIndexBlockBuilder.create();
         OffloadIndexBlock index;
-        try (InputStream payLoadStream = blob.getPayload().openStream()) {
-            index = (OffloadIndexBlock) indexBuilder.fromStream(payLoadStream);
+        byte[] cachedIndex = blockCache != null ? blockCache.getIndexBlock(indexKey) : null;
+        if (cachedIndex != null) {
+            index = (OffloadIndexBlock) indexBuilder.fromStream(new ByteArrayInputStream(cachedIndex));
+        } else {
+            Blob blob = blobStore.getBlob(bucket, indexKey);
+            versionCheck.check(indexKey, blob);
+            try (InputStream payLoadStream = blob.getPayload().openStream()) {
+                if (blockCache != null) {
+                    byte[] indexBytes = ByteStreams.toByteArray(payLoadStream);
+                    index = (OffloadIndexBlock) indexBuilder.fromStream(new ByteArrayInputStream(indexBytes));
+                    blockCache.putIndexBlock(indexKey, indexBytes);
+                } else {
+                    index = (OffloadIndexBlock) indexBuilder.fromStream(payLoadStream);
+                }
+            }
         }
 
         BackedInputStream inputStream = new BlobStoreBackedInputStreamImpl(blobStore, bucket, key,
                 versionCheck,
                 index.getDataObjectLength(),
-                readBufferSize);
+                readBufferSize,
+                blockCache,
+                readAheadExecutor,
+                readAheadChunks);
 
         return new BlobStoreBackedReadHandleImpl(ledgerId, index, inputStream, executor);
     }
@@ -21,6 +21,10 @@ package org.apache.bookkeeper.mledger.offload.jcloud.impl;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.io.EOFException;
 import java.io.IOException;
 import java.time.Duration;
 import java.util.LinkedList;
@@ -32,6 +36,12 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import lombok.NonNull;
@@ -55,6 +65,7 @@ import org.apache.bookkeeper.mledger.offload.jcloud.OffloadIndexBlockV2Builder;
 import org.apache.bookkeeper.mledger.offload.jcloud.provider.BlobStoreLocation;
 import org.apache.bookkeeper.mledger.offload.jcloud.provider.TieredStorageConfiguration;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats;
+import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
 import org.apache.pulsar.common.policies.data.OffloadPoliciesImpl;
 import org.jclouds.blobstore.BlobStore;
 import org.jclouds.blobstore.domain.Blob;
@@ -88,6 +99,20 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
     private final Map<String, String> userMetadata;
 
     private final ConcurrentMap<BlobStoreLocation, BlobStore> blobStores = new ConcurrentHashMap<>();
+
+    // parts are uploaded off the ordered scheduler so that the offload thread can read the next block meanwhile,
+    // up to maxConcurrentUploads parts per ledger
+    private final ExecutorService uploadExecutor;
+    private final int maxConcurrentUploads;
+    // bounds the memory held by the blocks of a ledger that are buffered for upload
+    private final int uploadBufferPermits;
+    // fetches the chunks of the offloaded ledgers that follow the current read positions, null when the read-ahead
+    // is disabled
+    private final ExecutorService readAheadExecutor;
+    // whether the executors were created by this offloader, rather than shared by the offloader factory
+    private final boolean ownExecutors;
+    // optional broker-local cache of the blocks read back from the blob store
+    private final OffloadedBlockCache blockCache;
     private OffloadSegmentInfoImpl segmentInfo;
     private AtomicLong bufferLength = new AtomicLong(0);
     private AtomicLong segmentLength = new AtomicLong(0);
@@ -107,11 +132,34 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
                                                          Map<String, String> userMetadata,
                                                          OrderedScheduler scheduler) throws IOException {
 
-        return new BlobStoreManagedLedgerOffloader(config, scheduler, userMetadata);
+        return new BlobStoreManagedLedgerOffloader(config, scheduler, userMetadata, null, null, null);
+    }
+
+    /**
+     * Create an offloader that uses the given executors, which are not shut down when the offloader is closed.
+     *
+     * @param uploadExecutor
+     *            executor of the uploads of the data block parts
+     * @param readAheadExecutor
+     *            executor of the read-ahead of the offloaded ledgers, only used when the read-ahead is enabled
+     */
+    public static BlobStoreManagedLedgerOffloader create(TieredStorageConfiguration config,
+                                                         Map<String, String> userMetadata,
+                                                         OrderedScheduler scheduler,
+                                                         OffloadedBlockCache blockCache,
+                                                         @NonNull ExecutorService uploadExecutor,
+                                                         @NonNull ExecutorService readAheadExecutor)
+            throws IOException {
+
+        return new BlobStoreManagedLedgerOffloader(config, scheduler, userMetadata, blockCache, uploadExecutor,
+                readAheadExecutor);
     }
 
     BlobStoreManagedLedgerOffloader(TieredStorageConfiguration config, OrderedScheduler scheduler,
-                                    Map<String, String> userMetadata) {
+                                    Map<String, String> userMetadata,
+                                    OffloadedBlockCache blockCache,
+                                    ExecutorService uploadExecutor,
+                                    ExecutorService readAheadExecutor) throws IOException {
 
         this.scheduler = scheduler;
         this.userMetadata = userMetadata;
@@ -123,6 +171,18 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
         //ensure buffer can have enough content to fill a block
         this.maxBufferLength = Math.max(config.getWriteBufferSizeInBytes(), config.getMinBlockSizeInBytes());
         this.segmentBeginTimeMillis = System.currentTimeMillis();
+        this.maxConcurrentUploads = Math.max(1, config.getMaxConcurrentUploads());
+        this.uploadBufferPermits = (int) Math.min(Integer.MAX_VALUE, Math.max(1, config.getUploadBufferSizeInBytes()));
+        this.ownExecutors = uploadExecutor == null;
+        if (ownExecutors) {
+            this.uploadExecutor = newIdleTimeoutExecutor(maxConcurrentUploads, "offloader-upload");
+            this.readAheadExecutor = config.getReadAheadChunks() > 0
+                    ? newIdleTimeoutExecutor(1, "offloader-read-ahead") : null;
+        } else {
+            this.uploadExecutor = uploadExecutor;
+            this.readAheadExecutor = config.getReadAheadChunks() > 0 ? readAheadExecutor : null;
+        }
+        this.blockCache = blockCache;
 
         if (!Strings.isNullOrEmpty(config.getRegion())) {
             this.writeLocation = new LocationBuilder()
@@ -142,6 +202,17 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
         log.info("The ledger offloader was created.");
     }
 
+    /**
+     * Create a pool of daemon threads that exit when they are idle, so that an offloader that is never closed doesn't
+     * hold any thread.
+     */
+    public static ExecutorService newIdleTimeoutExecutor(int maxThreads, String name) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new DefaultThreadFactory(name, true));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     @Override
     public String getOffloadDriverName() {
         return config.getDriver();
@@ -189,43 +260,71 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
             }
 
             long dataObjectLength = 0;
-            // start multi part upload for data block.
+            // start multi part upload for data block. The next block is read from the bookies on this thread
+            // while up to maxConcurrentUploads previous blocks are being uploaded on the upload executor.
+            final Semaphore inFlightParts = new Semaphore(maxConcurrentUploads);
+            final Semaphore uploadBuffer = new Semaphore(uploadBufferPermits);
+            final List<CompletableFuture<MultipartPart>> partFutures = Lists.newArrayList();
             try {
                 long startEntry = 0;
                 int partId = 1;
                 long entryBytesWritten = 0;
                 while (startEntry <= readHandle.getLastAddConfirmed()) {
+                    failIfAnyPartFailed(partFutures);
                     int blockSize = BlockAwareSegmentInputStreamImpl
                         .calculateBlockSize(config.getMaxBlockSizeInBytes(), readHandle, startEntry, entryBytesWritten);
 
+                    int bufferPermits = Math.min(blockSize, uploadBufferPermits);
+                    uploadBuffer.acquire(bufferPermits);
+                    // pooled direct buffer, so that large blocks don't end up as humongous heap allocations
+                    ByteBuf block = PulsarByteBufAllocator.DEFAULT.directBuffer(blockSize, blockSize);
+                    long endEntryId;
+                    int blockEntryBytesCount;
                     try (BlockAwareSegmentInputStream blockStream = new BlockAwareSegmentInputStreamImpl(
                         readHandle, startEntry, blockSize)) {
-
-                        Payload partPayload = Payloads.newInputStreamPayload(blockStream);
-                        partPayload.getContentMetadata().setContentLength((long) blockSize);
-                        partPayload.getContentMetadata().setContentType("application/octet-stream");
-                        parts.add(writeBlobStore.uploadMultipartPart(mpu, partId, partPayload));
-                        log.debug("UploadMultipartPart. container: {}, blobName: {}, partId: {}, mpu: {}",
-                                config.getBucket(), dataBlockKey, partId, mpu.id());
-
-                        indexBuilder.addBlock(startEntry, partId, blockSize);
-
-                        if (blockStream.getEndEntryId() != -1) {
-                            startEntry = blockStream.getEndEntryId() + 1;
-                        } else {
-                            // could not read entry from ledger.
-                            break;
+                        while (block.isWritable()) {
+                            if (block.writeBytes(blockStream, block.writableBytes()) < 0) {
+                                throw new EOFException("Block stream of ledger " + readHandle.getId()
+                                        + " ended before " + blockSize + " bytes");
+                            }
                         }
-                        entryBytesWritten += blockStream.getBlockEntryBytesCount();
-                        partId++;
+                        endEntryId = blockStream.getEndEntryId();
+                        blockEntryBytesCount = blockStream.getBlockEntryBytesCount();
+                        inFlightParts.acquire();
+                    } catch (Throwable t) {
+                        block.release();
+                        uploadBuffer.release(bufferPermits);
+                        throw t;
                     }
-
+                    Runnable releaseBlock = () -> {
+                        block.release();
+                        inFlightParts.release();
+                        uploadBuffer.release(bufferPermits);
+                    };
+
+                    partFutures.add(uploadPartAsync(writeBlobStore, mpu, dataBlockKey, partId, block,
+                            releaseBlock));
+                    indexBuilder.addBlock(startEntry, partId, blockSize);
                     dataObjectLength += blockSize;
+
+                    if (endEntryId != -1) {
+                        startEntry = endEntryId + 1;
+                    } else {
+                        // could not read entry from ledger.
+                        break;
+                    }
+                    entryBytesWritten += blockEntryBytesCount;
+                    partId++;
                 }
 
+                for (CompletableFuture<MultipartPart> partFuture : partFutures) {
+                    parts.add(partFuture.get());
+                }
                 writeBlobStore.completeMultipartUpload(mpu, parts);
                 mpu = null;
             } catch (Throwable t) {
+                // wait for the pending parts so that nothing is uploaded after the upload is aborted
+                waitForPendingParts(partFutures);
                 try {
                     if (mpu != null) {
                         writeBlobStore.abortMultipartUpload(mpu);
@@ -234,7 +333,10 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
                     log.error("Failed abortMultipartUpload in bucket - {} with key - {}, uploadId - {}.",
                             config.getBucket(), dataBlockKey, mpu.id(), throwable);
                 }
-                promise.completeExceptionally(t);
+                if (t instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                promise.completeExceptionally(t instanceof ExecutionException ? t.getCause() : t);
                 return;
             }
 
@@ -269,6 +371,51 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
         return promise;
     }
 
+    private CompletableFuture<MultipartPart> uploadPartAsync(BlobStore writeBlobStore, MultipartUpload mpu,
+                                                             String dataBlockKey, int partId, ByteBuf block,
+                                                             Runnable releaseBlock) {
+        CompletableFuture<MultipartPart> future = new CompletableFuture<>();
+        try {
+            uploadExecutor.execute(() -> {
+                try {
+                    Payload partPayload = Payloads.newInputStreamPayload(new ByteBufInputStream(block));
+                    partPayload.getContentMetadata().setContentLength((long) block.readableBytes());
+                    partPayload.getContentMetadata().setContentType("application/octet-stream");
+                    future.complete(writeBlobStore.uploadMultipartPart(mpu, partId, partPayload));
+                    log.debug("UploadMultipartPart. container: {}, blobName: {}, partId: {}, mpu: {}",
+                            config.getBucket(), dataBlockKey, partId, mpu.id());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                } finally {
+                    releaseBlock.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            releaseBlock.run();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static void failIfAnyPartFailed(List<CompletableFuture<MultipartPart>> partFutures)
+            throws ExecutionException, InterruptedException {
+        for (CompletableFuture<MultipartPart> partFuture : partFutures) {
+            if (partFuture.isCompletedExceptionally()) {
+                partFuture.get();
+            }
+        }
+    }
+
+    private static void waitForPendingParts(List<CompletableFuture<MultipartPart>> partFutures) {
+        for (CompletableFuture<MultipartPart> partFuture : partFutures) {
+            try {
+                partFuture.join();
+            } catch (Throwable t) {
+                // the failure is reported through the offload promise
+            }
+        }
+    }
+
     BlobStore blobStore;
     String streamingDataBlockKey;
     String streamingDataIndexKey;
@@ -507,7 +654,8 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
                         readBlobstore,
                         readBucket, key, indexKey,
                         DataBlockUtils.VERSION_CHECK,
-                        ledgerId, config.getReadBufferSizeInBytes()));
+                        ledgerId, config.getReadBufferSizeInBytes(), blockCache,
+                        readAheadExecutor, config.getReadAheadChunks()));
             } catch (Throwable t) {
                 log.error("Failed readOffloaded: ", t);
                 promise.completeExceptionally(t);
@@ -603,6 +751,12 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
 
     @Override
     public void close() {
+        if (ownExecutors) {
+            uploadExecutor.shutdown();
+            if (readAheadExecutor != null) {
+                readAheadExecutor.shutdown();
+            }
+        }
         for (BlobStore readBlobStore : blobStores.values()) {
             if (readBlobStore != null) {
                 readBlobStore.getContext().close();
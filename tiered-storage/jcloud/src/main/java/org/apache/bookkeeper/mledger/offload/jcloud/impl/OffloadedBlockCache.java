@@ -0,0 +1,299 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload.jcloud.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Broker-local on-disk cache of the data blocks and index blocks read from the blob store.
+ * <p>
+ * Each cached block is stored in its own file under the cache directory, named after the blob key and, for data
+ * blocks, the offset and length of the cached range. Files are evicted in LRU order once the total size exceeds the
+ * configured maximum. Data blocks are read back through memory mapping. The directory is scanned on creation, so the
+ * cached blocks survive broker restarts.
+ * </p>
+ */
+public class OffloadedBlockCache {
+    private static final Logger log = LoggerFactory.getLogger(OffloadedBlockCache.class);
+
+    private static final String DATA_BLOCK_SUFFIX = ".block";
+    private static final String INDEX_BLOCK_SUFFIX = ".index";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final Pattern UNSAFE_CHARS = Pattern.compile("[^A-Za-z0-9_.-]");
+
+    public static final long DEFAULT_MAX_SIZE_IN_BYTES = 1024L * 1024 * 1024;
+
+    // offloaders created for different offload policies share the cache of the broker
+    private static final ConcurrentMap<Path, OffloadedBlockCache> CACHES = new ConcurrentHashMap<>();
+
+    private final Path directory;
+    private volatile long maxSizeInBytes;
+    // file name -> file size, in access order
+    private final LinkedHashMap<String, Long> files = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0;
+    private final AtomicLong tmpFileId = new AtomicLong();
+
+    public static OffloadedBlockCache getOrCreate(String directory, long maxSizeInBytes) throws IOException {
+        Path path = Paths.get(directory).toAbsolutePath().normalize();
+        OffloadedBlockCache cache = CACHES.get(path);
+        if (cache == null) {
+            synchronized (CACHES) {
+                cache = CACHES.get(path);
+                if (cache == null) {
+                    cache = new OffloadedBlockCache(path, maxSizeInBytes);
+                    CACHES.put(path, cache);
+                }
+            }
+        }
+        // the size of the broker configuration the cache was last requested with applies
+        cache.setMaxSizeInBytes(maxSizeInBytes);
+        return cache;
+    }
+
+    OffloadedBlockCache(Path directory, long maxSizeInBytes) throws IOException {
+        this.directory = directory;
+        this.maxSizeInBytes = maxSizeInBytes;
+        Files.createDirectories(directory);
+        loadExistingFiles();
+    }
+
+    private void loadExistingFiles() throws IOException {
+        List<Path> cached = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(DATA_BLOCK_SUFFIX) || name.endsWith(INDEX_BLOCK_SUFFIX)) {
+                    cached.add(file);
+                } else if (name.endsWith(TMP_SUFFIX)) {
+                    // left over by a write interrupted by a broker crash
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        // the least recently modified files are the first ones to be evicted
+        cached.sort(Comparator.comparing(OffloadedBlockCache::lastModifiedTime));
+        synchronized (this) {
+            for (Path file : cached) {
+                long fileSize = Files.size(file);
+                files.put(file.getFileName().toString(), fileSize);
+                size += fileSize;
+            }
+            evictIfNeeded();
+        }
+        log.info("Loaded {} cached blocks ({} bytes) from {}", files.size(), size, directory);
+    }
+
+    private static FileTime lastModifiedTime(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * Get a memory mapped view of a cached data block.
+     *
+     * @param key the blob key of the data object
+     * @param offset the offset of the block within the data object
+     * @param length the length of the block
+     * @return the cached block, or null if the block is not cached
+     */
+    public ByteBuffer getDataBlock(String key, long offset, int length) {
+        String name = dataBlockFileName(key, offset, length);
+        if (!touch(name)) {
+            return null;
+        }
+        Path file = directory.resolve(name);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != length) {
+                invalidate(name);
+                return null;
+            }
+            ByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            markAccessed(file);
+            return block;
+        } catch (NoSuchFileException e) {
+            // evicted concurrently
+            invalidate(name);
+            return null;
+        } catch (IOException e) {
+            log.warn("Failed to read cached block {} from {}", name, directory, e);
+            invalidate(name);
+            return null;
+        }
+    }
+
+    public void putDataBlock(String key, long offset, ByteBuffer data) {
+        put(dataBlockFileName(key, offset, data.remaining()), data);
+    }
+
+    /**
+     * Get the content of a cached index block.
+     *
+     * @param indexKey the blob key of the index object
+     * @return the cached index block, or null if the index block is not cached
+     */
+    public byte[] getIndexBlock(String indexKey) {
+        String name = indexBlockFileName(indexKey);
+        if (!touch(name)) {
+            return null;
+        }
+        Path file = directory.resolve(name);
+        try {
+            byte[] block = Files.readAllBytes(file);
+            markAccessed(file);
+            return block;
+        } catch (IOException e) {
+            invalidate(name);
+            return null;
+        }
+    }
+
+    public void putIndexBlock(String indexKey, byte[] data) {
+        put(indexBlockFileName(indexKey), ByteBuffer.wrap(data));
+    }
+
+    public long getMaxSizeInBytes() {
+        return maxSizeInBytes;
+    }
+
+    synchronized void setMaxSizeInBytes(long maxSizeInBytes) {
+        if (this.maxSizeInBytes != maxSizeInBytes) {
+            this.maxSizeInBytes = maxSizeInBytes;
+            evictIfNeeded();
+        }
+    }
+
+    public long getSize() {
+        synchronized (this) {
+            return size;
+        }
+    }
+
+    private void put(String name, ByteBuffer data) {
+        long fileSize = data.remaining();
+        if (fileSize > maxSizeInBytes) {
+            return;
+        }
+        synchronized (this) {
+            if (files.containsKey(name)) {
+                return;
+            }
+        }
+
+        // write to a temporary file first, so that a crash never leaves a partial block behind
+        Path tmpFile = directory.resolve(name + "." + tmpFileId.incrementAndGet() + TMP_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE)) {
+                ByteBuffer toWrite = data.duplicate();
+                while (toWrite.hasRemaining()) {
+                    channel.write(toWrite);
+                }
+            }
+            Files.move(tmpFile, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("Failed to cache block {} in {}", name, directory, e);
+            deleteQuietly(tmpFile);
+            return;
+        }
+
+        synchronized (this) {
+            Long previousSize = files.put(name, fileSize);
+            size += fileSize - (previousSize != null ? previousSize : 0);
+            evictIfNeeded();
+        }
+    }
+
+    private synchronized boolean touch(String name) {
+        return files.get(name) != null;
+    }
+
+    private synchronized void invalidate(String name) {
+        Long fileSize = files.remove(name);
+        if (fileSize != null) {
+            size -= fileSize;
+            deleteQuietly(directory.resolve(name));
+        }
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Long>> iterator = files.entrySet().iterator();
+        while (size > maxSizeInBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            size -= eldest.getValue();
+            // a concurrent reader that already mapped the file keeps its mapping valid
+            deleteQuietly(directory.resolve(eldest.getKey()));
+        }
+    }
+
+    // the modification time keeps the access order across restarts
+    private static void markAccessed(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // the file was evicted concurrently
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete cached block file {}", file, e);
+        }
+    }
+
+    private static String dataBlockFileName(String key, long offset, int length) {
+        return sanitize(key) + "." + offset + "." + length + DATA_BLOCK_SUFFIX;
+    }
+
+    private static String indexBlockFileName(String indexKey) {
+        return sanitize(indexKey) + INDEX_BLOCK_SUFFIX;
+    }
+
+    private static String sanitize(String key) {
+        return UNSAFE_CHARS.matcher(key).replaceAll("_");
+    }
+}
@@ -64,6 +64,9 @@ public class TieredStorageConfiguration {
     public static final String METADATA_FIELD_MIN_BLOCK_SIZE = "minBlockSizeInBytes";
     public static final String METADATA_FIELD_READ_BUFFER_SIZE = "readBufferSizeInBytes";
     public static final String METADATA_FIELD_WRITE_BUFFER_SIZE = "writeBufferSizeInBytes";
+    public static final String METADATA_FIELD_MAX_CONCURRENT_UPLOADS = "maxConcurrentUploads";
+    public static final String METADATA_FIELD_UPLOAD_BUFFER_SIZE = "uploadBufferSizeInBytes";
+    public static final String METADATA_FIELD_READ_AHEAD_CHUNKS = "readAheadChunks";
     public static final String OFFLOADER_PROPERTY_PREFIX = "managedLedgerOffload";
     public static final String MAX_OFFLOAD_SEGMENT_ROLLOVER_TIME_SEC = "maxOffloadSegmentRolloverTimeInSeconds";
     public static final String MIN_OFFLOAD_SEGMENT_ROLLOVER_TIME_SEC = "minOffloadSegmentRolloverTimeInSeconds";
@@ -274,6 +277,33 @@ public class TieredStorageConfiguration {
         return 10 * MB;
     }
 
+    public Integer getMaxConcurrentUploads() {
+        for (String key : getKeys(METADATA_FIELD_MAX_CONCURRENT_UPLOADS)) {
+            if (configProperties.containsKey(key)) {
+                return Integer.valueOf(configProperties.get(key));
+            }
+        }
+        return 2;
+    }
+
+    public Long getUploadBufferSizeInBytes() {
+        for (String key : getKeys(METADATA_FIELD_UPLOAD_BUFFER_SIZE)) {
+            if (configProperties.containsKey(key)) {
+                return Long.valueOf(configProperties.get(key));
+            }
+        }
+        return 128L * MB;
+    }
+
+    public Integer getReadAheadChunks() {
+        for (String key : getKeys(METADATA_FIELD_READ_AHEAD_CHUNKS)) {
+            if (configProperties.containsKey(key)) {
+                return Integer.valueOf(configProperties.get(key));
+            }
+        }
+        return 0;
+    }
+
     public Supplier<Credentials> getProviderCredentials() {
         if (credentials == null) {
             getProvider().buildCredentials(this);
@@ -26,11 +26,16 @@ import static org.mockito.Mockito.verify;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.mledger.offload.jcloud.impl.BlobStoreBackedInputStreamImpl;
+import org.apache.bookkeeper.mledger.offload.jcloud.impl.OffloadedBlockCache;
 import org.jclouds.blobstore.BlobStore;
 import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.options.GetOptions;
@@ -222,6 +227,88 @@ public class BlobStoreBackedInputStreamTest extends BlobStoreTestBase {
             .getBlob(Mockito.eq(BUCKET), Mockito.eq(objectKey), Matchers.<GetOptions>anyObject());
     }
 
+    @Test
+    public void testReadThroughBlockCache() throws Exception {
+        String objectKey = "testReadThroughBlockCache";
+        int objectSize = 12345;
+        RandomInputStream toWrite = new RandomInputStream(0, objectSize);
+
+        Payload payload = Payloads.newInputStreamPayload(toWrite);
+        payload.getContentMetadata().setContentLength((long)objectSize);
+        Blob blob = blobStore.blobBuilder(objectKey)
+            .payload(payload)
+            .contentLength((long)objectSize)
+            .build();
+        blobStore.putBlob(BUCKET, blob);
+
+        BlobStore spiedBlobStore = mock(BlobStore.class, delegatesTo(blobStore));
+        Path cacheDirectory = Files.createTempDirectory("offloaded-block-cache");
+        OffloadedBlockCache blockCache = OffloadedBlockCache.getOrCreate(cacheDirectory.toString(), 1024 * 1024);
+
+        for (int round = 0; round < 2; round++) {
+            BackedInputStream toTest = new BlobStoreBackedInputStreamImpl(spiedBlobStore, BUCKET, objectKey,
+                                                                     (key, md) -> {},
+                                                                     objectSize, 1000, blockCache);
+            // start in the middle of a block, then read to the end
+            RandomInputStream toCompare = new RandomInputStream(0, objectSize);
+            toTest.seek(1500);
+            toCompare.skip(1500);
+            for (int i = 1500; i < objectSize; i++) {
+                Assert.assertEquals(toCompare.read(), toTest.read());
+            }
+            Assert.assertEquals(toTest.read(), -1);
+            toTest.close();
+        }
+
+        // the second round is served from the cache
+        verify(spiedBlobStore, times(12))
+            .getBlob(Mockito.eq(BUCKET), Mockito.eq(objectKey), Matchers.<GetOptions>anyObject());
+    }
+
+    @Test
+    public void testReadAhead() throws Exception {
+        String objectKey = "testReadAhead";
+        int objectSize = 12345;
+        RandomInputStream toWrite = new RandomInputStream(0, objectSize);
+
+        Payload payload = Payloads.newInputStreamPayload(toWrite);
+        payload.getContentMetadata().setContentLength((long)objectSize);
+        Blob blob = blobStore.blobBuilder(objectKey)
+            .payload(payload)
+            .contentLength((long)objectSize)
+            .build();
+        blobStore.putBlob(BUCKET, blob);
+
+        BlobStore spiedBlobStore = mock(BlobStore.class, delegatesTo(blobStore));
+        ExecutorService readAheadExecutor = Executors.newFixedThreadPool(4);
+        try {
+            BackedInputStream toTest = new BlobStoreBackedInputStreamImpl(spiedBlobStore, BUCKET, objectKey,
+                                                                     (key, md) -> {},
+                                                                     objectSize, 1000, null,
+                                                                     readAheadExecutor, 3);
+            RandomInputStream toCompare = new RandomInputStream(0, objectSize);
+            for (int i = 0; i < objectSize; i++) {
+                Assert.assertEquals(toCompare.read(), toTest.read());
+            }
+            Assert.assertEquals(toTest.read(), -1);
+
+            // every chunk was fetched once
+            verify(spiedBlobStore, times(13))
+                .getBlob(Mockito.eq(BUCKET), Mockito.eq(objectKey), Matchers.<GetOptions>anyObject());
+
+            // seek back, out of the read ahead window
+            RandomInputStream afterSeek = new RandomInputStream(0, objectSize);
+            toTest.seek(2500);
+            afterSeek.skip(2500);
+            for (int i = 0; i < 2000; i++) {
+                Assert.assertEquals(afterSeek.read(), toTest.read());
+            }
+            toTest.close();
+        } finally {
+            readAheadExecutor.shutdown();
+        }
+    }
+
     @Test
     public void testSeekForward() throws Exception {
         String objectKey = "testSeekForward";
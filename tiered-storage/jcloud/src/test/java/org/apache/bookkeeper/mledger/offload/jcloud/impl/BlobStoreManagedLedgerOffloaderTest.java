@@ -31,9 +31,13 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.bookkeeper.client.BKException;
 import org.apache.bookkeeper.client.api.LedgerEntries;
@@ -157,6 +161,79 @@ public class BlobStoreManagedLedgerOffloaderTest extends BlobStoreManagedLedgerO
         Assert.assertEquals(toTest.getState(), BlobStoreBackedReadHandleImpl.State.Closed);
     }
 
+    @Test(timeOut = 600000)
+    public void testOffloadWithConcurrentUploads() throws Exception {
+        Map<String, String> additionalConfig = new HashMap<>();
+        additionalConfig.put(TieredStorageConfiguration.OFFLOADER_PROPERTY_PREFIX + "MaxBlockSizeInBytes",
+                Integer.toString(DEFAULT_BLOCK_SIZE));
+        additionalConfig.put(TieredStorageConfiguration.OFFLOADER_PROPERTY_PREFIX + "MaxConcurrentUploads", "3");
+        // only two blocks fit in the upload buffer
+        additionalConfig.put(TieredStorageConfiguration.OFFLOADER_PROPERTY_PREFIX + "UploadBufferSizeInBytes",
+                Integer.toString(2 * DEFAULT_BLOCK_SIZE));
+
+        AtomicInteger pendingUploads = new AtomicInteger();
+        AtomicInteger maxPendingUploads = new AtomicInteger();
+        Set<String> uploadThreads = ConcurrentHashMap.newKeySet();
+        BlobStore spiedBlobStore = mock(BlobStore.class, delegatesTo(blobStore));
+        Mockito.doAnswer(invocation -> {
+            uploadThreads.add(Thread.currentThread().getName());
+            maxPendingUploads.accumulateAndGet(pendingUploads.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(100);
+                return blobStore.uploadMultipartPart(invocation.getArgument(0), invocation.getArgument(1),
+                        invocation.getArgument(2));
+            } finally {
+                pendingUploads.decrementAndGet();
+            }
+        }).when(spiedBlobStore).uploadMultipartPart(any(), anyInt(), any());
+
+        mockedConfig = mock(TieredStorageConfiguration.class,
+                delegatesTo(getConfiguration(BUCKET, additionalConfig)));
+        Mockito.doReturn(spiedBlobStore).when(mockedConfig).getBlobStore();
+        // executors shared by the offloaders, as created by the offloader factory
+        ExecutorService uploadExecutor = BlobStoreManagedLedgerOffloader.newIdleTimeoutExecutor(4, "shared-upload");
+        ExecutorService readAheadExecutor = BlobStoreManagedLedgerOffloader.newIdleTimeoutExecutor(1,
+                "shared-read-ahead");
+        BlobStoreManagedLedgerOffloader offloader = BlobStoreManagedLedgerOffloader.create(mockedConfig,
+                new HashMap<String, String>(), scheduler, null, uploadExecutor, readAheadExecutor);
+
+        ReadHandle toWrite = buildReadHandle(DEFAULT_BLOCK_SIZE, 6);
+        UUID uuid = UUID.randomUUID();
+        try {
+            offloader.offload(toWrite, uuid, new HashMap<>()).get();
+        } finally {
+            uploadExecutor.shutdown();
+            readAheadExecutor.shutdown();
+        }
+        Mockito.verify(spiedBlobStore, Mockito.atLeast(6)).uploadMultipartPart(any(), anyInt(), any());
+        Assert.assertTrue(maxPendingUploads.get() <= 2);
+        Assert.assertTrue(uploadThreads.stream().allMatch(name -> name.startsWith("shared-upload")));
+
+        ReadHandle toTest = offloader.readOffloaded(toWrite.getId(), uuid, Collections.emptyMap()).get();
+        Assert.assertEquals(toTest.getLastAddConfirmed(), toWrite.getLastAddConfirmed());
+        // the ledger has more than a million of small entries, they are compared by batches
+        long lastEntry = toWrite.getLastAddConfirmed();
+        for (long first = 0; first <= lastEntry; first += 100_000) {
+            long last = Math.min(first + 100_000 - 1, lastEntry);
+            try (LedgerEntries toWriteEntries = toWrite.read(first, last);
+                 LedgerEntries toTestEntries = toTest.read(first, last)) {
+                Iterator<LedgerEntry> toWriteIter = toWriteEntries.iterator();
+                Iterator<LedgerEntry> toTestIter = toTestEntries.iterator();
+
+                while (toWriteIter.hasNext() && toTestIter.hasNext()) {
+                    LedgerEntry toWriteEntry = toWriteIter.next();
+                    LedgerEntry toTestEntry = toTestIter.next();
+
+                    Assert.assertEquals(toWriteEntry.getEntryId(), toTestEntry.getEntryId());
+                    Assert.assertEquals(toWriteEntry.getEntryBuffer(), toTestEntry.getEntryBuffer());
+                }
+                Assert.assertFalse(toWriteIter.hasNext());
+                Assert.assertFalse(toTestIter.hasNext());
+            }
+        }
+        toTest.close();
+    }
+
     @Test
     public void testOffloadFailInitDataBlockUpload() throws Exception {
         ReadHandle readHandle = buildReadHandle();
@@ -0,0 +1,141 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload.jcloud.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class OffloadedBlockCacheTest {
+
+    private Path directory;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("offloaded-block-cache");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws Exception {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.map(Path::toFile).sorted((a, b) -> b.compareTo(a)).forEach(File::delete);
+        }
+    }
+
+    private static byte[] block(int size, int value) {
+        byte[] data = new byte[size];
+        Arrays.fill(data, (byte) value);
+        return data;
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        return data;
+    }
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        OffloadedBlockCache cache = new OffloadedBlockCache(directory, 1024);
+        assertNull(cache.getDataBlock("ledger-1", 0, 100));
+
+        cache.putDataBlock("ledger-1", 0, ByteBuffer.wrap(block(100, 1)));
+        cache.putDataBlock("ledger-1", 100, ByteBuffer.wrap(block(50, 2)));
+        cache.putIndexBlock("ledger-1-index", block(10, 3));
+
+        assertEquals(toBytes(cache.getDataBlock("ledger-1", 0, 100)), block(100, 1));
+        assertEquals(toBytes(cache.getDataBlock("ledger-1", 100, 50)), block(50, 2));
+        assertEquals(cache.getIndexBlock("ledger-1-index"), block(10, 3));
+        // a range of a different length is not served from the cache
+        assertNull(cache.getDataBlock("ledger-1", 100, 100));
+        assertNull(cache.getDataBlock("ledger-2", 0, 100));
+        assertEquals(cache.getSize(), 160);
+    }
+
+    @Test
+    public void testLruEviction() throws Exception {
+        OffloadedBlockCache cache = new OffloadedBlockCache(directory, 300);
+        cache.putDataBlock("ledger-1", 0, ByteBuffer.wrap(block(100, 1)));
+        cache.putDataBlock("ledger-1", 100, ByteBuffer.wrap(block(100, 2)));
+        cache.putDataBlock("ledger-1", 200, ByteBuffer.wrap(block(100, 3)));
+
+        // access the first block, so that the second one is the least recently used
+        assertNotNull(cache.getDataBlock("ledger-1", 0, 100));
+        cache.putDataBlock("ledger-1", 300, ByteBuffer.wrap(block(100, 4)));
+
+        assertEquals(cache.getSize(), 300);
+        assertNotNull(cache.getDataBlock("ledger-1", 0, 100));
+        assertNull(cache.getDataBlock("ledger-1", 100, 100));
+        assertNotNull(cache.getDataBlock("ledger-1", 200, 100));
+        assertNotNull(cache.getDataBlock("ledger-1", 300, 100));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(files.count(), 3);
+        }
+
+        // blocks larger than the cache are never cached
+        cache.putDataBlock("ledger-2", 0, ByteBuffer.wrap(block(400, 5)));
+        assertNull(cache.getDataBlock("ledger-2", 0, 400));
+        assertEquals(cache.getSize(), 300);
+    }
+
+    @Test
+    public void testReloadAfterRestart() throws Exception {
+        OffloadedBlockCache cache = new OffloadedBlockCache(directory, 1024);
+        cache.putDataBlock("ledger-1", 0, ByteBuffer.wrap(block(100, 1)));
+        cache.putIndexBlock("ledger-1-index", block(10, 2));
+        // left over by an interrupted write
+        Files.write(directory.resolve("ledger-1.100.100.block.1.tmp"), block(10, 3));
+
+        OffloadedBlockCache reloaded = new OffloadedBlockCache(directory, 1024);
+        assertEquals(reloaded.getSize(), 110);
+        assertEquals(toBytes(reloaded.getDataBlock("ledger-1", 0, 100)), block(100, 1));
+        assertEquals(reloaded.getIndexBlock("ledger-1-index"), block(10, 2));
+        assertFalse(Files.exists(directory.resolve("ledger-1.100.100.block.1.tmp")));
+
+        // the size limit is enforced on reload
+        OffloadedBlockCache smaller = new OffloadedBlockCache(directory, 100);
+        assertTrue(smaller.getSize() <= 100);
+    }
+
+    @Test
+    public void testGetOrCreateAppliesLatestSize() throws Exception {
+        OffloadedBlockCache cache = OffloadedBlockCache.getOrCreate(directory.toString(), 300);
+        cache.putDataBlock("ledger-1", 0, ByteBuffer.wrap(block(100, 1)));
+        cache.putDataBlock("ledger-1", 100, ByteBuffer.wrap(block(100, 2)));
+
+        OffloadedBlockCache shared = OffloadedBlockCache.getOrCreate(directory.toString(), 100);
+        assertSame(shared, cache);
+        assertEquals(cache.getMaxSizeInBytes(), 100);
+        assertEquals(cache.getSize(), 100);
+        assertNull(cache.getDataBlock("ledger-1", 0, 100));
+        assertNotNull(cache.getDataBlock("ledger-1", 100, 100));
+    }
+}